@@ -118,7 +118,7 @@ public class LoadModelActionProcessor extends BaseActionProcessor {
 				
 				JInvocation invoke = invoke(getModelMethod);
 				if (field.getModifiers().contains(Modifier.STATIC)) {
-					IJExpression context = getMethodInHolder("getContextRef");
+					IJExpression context = getContextRef();
 					invoke.arg(context);
 				}
 				invoke = invoke.arg(getAction().invoke("getArgs"))
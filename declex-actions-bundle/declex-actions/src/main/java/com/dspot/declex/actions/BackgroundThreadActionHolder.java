@@ -22,6 +22,7 @@ import org.androidannotations.api.BackgroundExecutor;
 import android.content.Context;
 
 import com.dspot.declex.annotation.action.ActionFor;
+import com.dspot.declex.api.util.ExecutorProfiles;
 
 @EBean
 @ActionFor("Background")
@@ -31,6 +32,8 @@ public class BackgroundThreadActionHolder {
     Context context;
 
     Runnable Run;
+    
+    String executor;
 
     void init() {
     }
@@ -41,7 +44,20 @@ public class BackgroundThreadActionHolder {
 
     void execute() {
         if(Run!=null) {
-        	BackgroundExecutor.execute(Run);
+        	if (executor != null) {
+        		ExecutorProfiles.execute(executor, Run);
+        	} else {
+        		BackgroundExecutor.execute(Run);
+        	}
         }
     }
+    
+    /**
+     * Executes the action in the given execution profile (ex. "network", "db" or "cpu"), 
+     * instead of the global BackgroundExecutor
+     */
+    public BackgroundThreadActionHolder executor(String executor) {
+    	this.executor = executor;
+    	return this;
+    }
 }
\ No newline at end of file
@@ -27,8 +27,6 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
-import android.os.Handler;
-import android.os.Looper;
 import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
 import android.support.v4.app.NotificationCompat;
@@ -38,6 +36,7 @@ import android.widget.RemoteViews;
 import com.dspot.declex.annotation.action.ActionFor;
 import com.dspot.declex.annotation.action.FormattedExpression;
 import com.dspot.declex.annotation.action.StopOn;
+import com.dspot.declex.api.util.MainThreadDispatcher;
 import com.squareup.picasso.Picasso;
 
 /**
@@ -112,8 +111,7 @@ public class NotificationActionHolder {
 		                builder.setLargeIcon(bitmap);
 		            } catch (IOException ignored) {}
 					
-					Handler mainHandler = new Handler(context.getMainLooper());
-		        	mainHandler.post(execute);
+					MainThreadDispatcher.post(execute);
 				}
 			});    		
     	} else {
@@ -295,7 +293,7 @@ public class NotificationActionHolder {
     public NotificationActionHolder largeIcon(@FormattedExpression String icon) {
         if (icon == null || icon.isEmpty()) return this;
 
-        if(Looper.myLooper() == Looper.getMainLooper()) {
+        if(MainThreadDispatcher.isMainThread()) {
         	//Call should not be in main thread
         	pendingLargeIconLoad = icon;
         	return this;
@@ -19,12 +19,11 @@ import org.androidannotations.annotations.EBean;
 import org.androidannotations.annotations.RootContext;
 
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import android.widget.Toast;
 
 import com.dspot.declex.annotation.action.ActionFor;
 import com.dspot.declex.annotation.action.FormattedExpression;
+import com.dspot.declex.api.util.MainThreadDispatcher;
 
 @ActionFor(value="Toast", timeConsuming = false)
 public class ToastActionHolder {
@@ -70,12 +69,7 @@ public class ToastActionHolder {
 		};
     	
     	//Thread save
-    	if(Looper.myLooper() == Looper.getMainLooper()) {
-		   callToast.run();
-		} else {
-			Handler handler = new Handler(Looper.getMainLooper());
-			handler.post(callToast);
-		}
+    	MainThreadDispatcher.run(callToast);
         
     }
     
@@ -19,9 +19,9 @@ import org.androidannotations.annotations.EBean;
 import org.androidannotations.annotations.RootContext;
 
 import android.content.Context;
-import android.os.Handler;
 
 import com.dspot.declex.annotation.action.ActionFor;
+import com.dspot.declex.api.util.MainThreadDispatcher;
 
 @ActionFor("UIThread")
 public class UIThreadActionHolder {
@@ -40,8 +40,7 @@ public class UIThreadActionHolder {
 
     void execute() {
         if(Run!=null) {
-        	Handler mainHandler = new Handler(context.getMainLooper());
-        	mainHandler.post(Run);
+        	MainThreadDispatcher.post(Run);
         }
     }
 }
\ No newline at end of file
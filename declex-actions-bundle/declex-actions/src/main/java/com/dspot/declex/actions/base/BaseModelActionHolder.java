@@ -4,18 +4,20 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-import android.os.Handler;
-import android.os.Looper;
-
 import com.dspot.declex.annotation.action.Field;
 import com.dspot.declex.annotation.action.FormattedExpression;
 import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.MainThreadDispatcher.MainThreadOnFailedRunnable;
+import com.dspot.declex.api.util.MainThreadDispatcher.MainThreadRunnable;
 
 
 public class BaseModelActionHolder extends BaseFieldActionHolder {
 	
 	private boolean keepCallingThread;
 	
+	private MainThreadRunnable mainThreadDone;
+	private MainThreadOnFailedRunnable mainThreadFailed;
+	
 	private String query;
 	private String orderBy;
 	private String fields;
@@ -107,20 +109,11 @@ public class BaseModelActionHolder extends BaseFieldActionHolder {
     protected Runnable getDone() {    	
     	if (!keepCallingThread && this.Done != null) {
     		
-    		//Return to the main thread    		
-			return new Runnable() {
-				
-				@Override
-				public void run() {
-					if(Looper.myLooper() == Looper.getMainLooper()) {
-						Done.run();;
-					} else {
-						Handler handler = new Handler(Looper.getMainLooper());
-						handler.post(Done);	
-					}					
-				}
-			};
-			
+    		//Return to the main thread, the wrapper is reused while Done doesn't change
+    		if (mainThreadDone == null || mainThreadDone.getRunnable() != Done) {
+    			mainThreadDone = new MainThreadRunnable(Done);
+    		}
+    		return mainThreadDone;
     	}
     	
     	return this.Done;
@@ -130,22 +123,11 @@ public class BaseModelActionHolder extends BaseFieldActionHolder {
     protected OnFailedRunnable getFailed() {
     	if (!keepCallingThread && this.Failed != null) {
     		
-    		//Return to the main thread    		
-			return new OnFailedRunnable() {
-				
-				@Override
-				public void run() {
-					Failed.e = this.e;
-					
-					if(Looper.myLooper() == Looper.getMainLooper()) {
-						Failed.run();;
-					} else {
-						Handler handler = new Handler(Looper.getMainLooper());
-						handler.post(Failed);	
-					}					
-				}
-			};
-			
+    		//Return to the main thread, the wrapper is reused while Failed doesn't change
+    		if (mainThreadFailed == null || mainThreadFailed.getRunnable() != Failed) {
+    			mainThreadFailed = new MainThreadOnFailedRunnable(Failed);
+    		}
+    		return mainThreadFailed;
     	}
 
     	return this.Failed;
@@ -26,4 +26,21 @@ public @interface LoadOnEvent {
 	Class<?> value();
 	
 	boolean debug() default false;
+	
+	/**
+	 * Minimum time in milliseconds between two executions triggered by the event, the 
+	 * events received inside the window are collapsed in one execution at the end of it.
+	 */
+	long throttle() default 0;
+	
+	/**
+	 * Time in milliseconds without receiving the event before executing, each new event
+	 * restarts the wait.
+	 */
+	long debounce() default 0;
+	
+	/**
+	 * Determines if the events received in the same frame are collapsed in one execution.
+	 */
+	boolean coalesce() default false;
 }
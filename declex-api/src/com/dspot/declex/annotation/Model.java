@@ -72,12 +72,44 @@ public @interface Model {
 	 */
 	boolean asyncPut() default true;
 	
+	/**
+	 * Name of the execution profile used for the asynchronous loads and puts of this model,
+	 * ex. "network", "db" or "cpu" (see {@link com.dspot.declex.api.util.ExecutorProfiles}).
+	 * Each profile has its own pool of threads. By default the global BackgroundExecutor 
+	 * of AndroidAnnotations is used.
+	 */
+	String executor() default "";
+	
+	/**
+	 * Determines if the asynchronous puts of this model are executed one after the other,
+	 * in the order they were requested. By default is false.
+	 */
+	boolean serialPut() default false;
+	
+	/**
+	 * Determines if the loads of this model that are executed at the same time with the
+	 * same arguments (ex. from an Activity and its Fragments) are coalesced, performing
+	 * only one query. All of them receive the same instance of the model. By default is false.
+	 */
+	boolean coalesce() default false;
+	
 	/**
 	 * Determines if load this @Model when it is requested, lazily. 
 	 * This is permitted only when declared inside another model object (Annotated with @UseModel) 
 	 */
 	boolean lazy() default false;	
 	
+	/**
+	 * Determines if the models loaded in a list are bound to the context only when they are 
+	 * first used, instead of binding all of them when the list is loaded. A model is bound
+	 * when the generated getter of a field assigned in the binding (ex. injected fields, or 
+	 * any field if the model has {@code @AfterInject} methods) is called, before its 
+	 * {@link AfterLoad @AfterLoad} methods, or calling rebindIfNeeded(). The getters of the 
+	 * loaded fields (ex. columns) and the fields accessed directly (ex. from the same package) 
+	 * don't bind the model. By default is false.
+	 */
+	boolean lazyRebind() default false;
+	
 	/**
 	 * If not default handler is provided, any exception will be handled by the framework.
 	 * Current behavior: nothing would be reported.
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures the in-memory cache of the models loaded with {@link Model @Model}, it is
+ * declared in the model with {@link UseModel#cache() @UseModel(cache=@ModelCache(...))}.
+ * 
+ * <br><br>
+ * The loaded models are cached by the arguments of the load (ex. "query", "orderBy" or "fields"),
+ * and the cache of the model is invalidated every time that a model of the same class is put. 
+ * The cached instances are shared between all the components that load them.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface ModelCache {
+	
+	/**
+	 * Time in milliseconds that a loaded model is kept in the cache
+	 */
+	long ttl() default 60000;
+	
+	/**
+	 * Maximum number of loads kept in the cache, the least recently used are removed first
+	 */
+	int maxEntries() default 16;
+}
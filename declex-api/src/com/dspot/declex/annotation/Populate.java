@@ -40,5 +40,34 @@ public @interface Populate {
 	 */
 	boolean custom() default false;
 	
+	/**
+	 * In the case of a List<Model> populated in a RecyclerView, if set, the adapter
+	 * will calculate the differences between the old and the new list (using DiffUtil) 
+	 * and it will notify only the items which changed. The models are identified by
+	 * their "id", if any
+	 */
+	boolean diff() default false;
+	
+	/**
+	 * In the case of a List<Model>, if set, the adapter declares stable ids, returning the
+	 * "id" of the model (ex. ActiveAndroid getId()) as the id of each item. The model should
+	 * have an integral id, and it should be unique and not null for all the models in the list
+	 */
+	boolean stableIds() default false;
+	
+	/**
+	 * In the case of a List<Model> populated in a RecyclerView, the subclasses of the 
+	 * model which should be inflated with their own layout (from {@link #itemLayouts()})
+	 */
+	Class<?>[] itemModels() default {};
+	
+	/**
+	 * The layouts used for each one of the classes in {@link #itemModels()}. The views
+	 * are populated by their ids, so views with the same id in different layouts 
+	 * are populated in the same way. The view types of the adapter are these layouts, so 
+	 * the {@link AdapterClass} cannot declare getItemViewType()
+	 */
+	int[] itemLayouts() default {};
+	
 	boolean debug() default false;
 }
@@ -49,6 +49,12 @@ public @interface ServerModel {
 	boolean offline() default false;
 	boolean processUnsuccessful() default false;
 	
+	/**
+	 * If true, the lists of models are parsed directly from the server response
+	 * as it is received, instead of reading first the complete response
+	 */
+	boolean streaming() default false;
+	
 	boolean custom() default false;
 	
 	ServerRequest[] load() default {};
@@ -24,4 +24,21 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 public @interface UseEvents {
 	boolean custom() default false;
+	
+	/**
+	 * Determines if the instances of this event are recycled. The instances are taken
+	 * from a pool when they are created, and the instances posted in the main thread are 
+	 * reset and returned to the pool once their delivery finishes (including the nested posts 
+	 * and the timed subscribers), so the subscribers should not keep references to a pooled 
+	 * event, and they should be executed in the posting thread 
+	 * ({@code ThreadMode.MAIN} or {@code ThreadMode.POSTING}, as the subscribers generated 
+	 * by DecleX). The events with private fields or with fields declaring an initializer 
+	 * are not pooled, since they can't be reset. By default is false.
+	 */
+	boolean pooled() default false;
+	
+	/**
+	 * Maximum number of released instances kept in the pool of a pooled event
+	 */
+	int poolSize() default 8;
 }
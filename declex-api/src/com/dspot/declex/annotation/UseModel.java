@@ -39,6 +39,17 @@ public @interface UseModel {
 	 */
 	String defaultQuery() default "";
 	
+	/**
+	 * In-memory cache of the loads of this model, by default the models are not cached
+	 */
+	ModelCache[] cache() default {};
+	
+	/**
+	 * If set, the generated model also implements Parcelable, so Bundles and Intents write it 
+	 * without Java Serialization. The fields are kept as in the Serialization of the model
+	 */
+	boolean parcelable() default false;
+	
 	boolean custom() default false;
 	boolean debug() default false;
 }
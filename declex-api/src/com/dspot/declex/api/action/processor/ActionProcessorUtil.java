@@ -17,38 +17,97 @@ package com.dspot.declex.api.action.processor;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 public class ActionProcessorUtil {
 	
+	//Used to cache the methods that weren't found in a class
+	private static final Method NO_METHOD;
+	static {
+		try {
+			NO_METHOD = Object.class.getDeclaredMethod("toString");
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Caches of the methods and sub-holders resolved through reflection. The caches are owned 
+	 * by the processing which provides them to the Action processors, and they should be
+	 * cleared at the end of each round, since the holders are discarded after it.
+	 */
+	public static class Caches {
+		
+		//<Class, <Method name or signature, Method>>
+		private final Map<Class<?>, Map<String, Method>> methods = new HashMap<>();
+		
+		//<Sub-holder class name, Constructor>
+		private final Map<String, Constructor<?>> subHolderConstructors = new HashMap<>();
+		
+		//<Holder, <Sub-holder class name, Sub-holder>>
+		private final Map<Object, Map<String, Object>> subHolders = new IdentityHashMap<>();
+		
+		private synchronized Method getMethod(Class<?> clazz, String key) {
+			final Map<String, Method> classMethods = methods.get(clazz);
+			return classMethods == null? null : classMethods.get(key);
+		}
+		
+		private synchronized void putMethod(Class<?> clazz, String key, Method method) {
+			Map<String, Method> classMethods = methods.get(clazz);
+			if (classMethods == null) {
+				classMethods = new HashMap<>();
+				methods.put(clazz, classMethods);
+			}
+			classMethods.put(key, method);
+		}
+		
+		private synchronized Constructor<?> getSubHolderConstructor(String subHolder) {
+			return subHolderConstructors.get(subHolder);
+		}
+		
+		private synchronized void putSubHolderConstructor(String subHolder, Constructor<?> constructor) {
+			subHolderConstructors.put(subHolder, constructor);
+		}
+		
+		private synchronized Map<String, Object> getSubHolders(Object holder) {
+			Map<String, Object> holderSubHolders = subHolders.get(holder);
+			if (holderSubHolders == null) {
+				holderSubHolders = new HashMap<>();
+				subHolders.put(holder, holderSubHolders);
+			}
+			return holderSubHolders;
+		}
+		
+		public synchronized void clear() {
+			methods.clear();
+			subHolderConstructors.clear();
+			subHolders.clear();
+		}
+	}
+	
 	public static <T> T getMethodInHolder(String methodName, Object holder) {
-		return getMethodInHolder(methodName, holder, null);
+		return getMethodInHolder((Caches) null, methodName, holder, null);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public static <T> T getMethodInHolder(String methodName, Object holder, String subHolder, Object ... params) {
-		Class<?> clazz = holder.getClass();
+		return getMethodInHolder((Caches) null, methodName, holder, subHolder, params);
+	}
+	
+	/**
+	 * Invokes a method of the holder (or of its sub-holder), the methods are resolved only 
+	 * once if caches are provided
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T getMethodInHolder(Caches caches, String methodName, Object holder, String subHolder, Object ... params) {
 		if (subHolder != null) {
-			try {
-				Method getPluginHolder = getMethod("getPluginHolder", clazz);
-				
-				clazz = Class.forName(subHolder);
-				
-				//It's assumed only one constructor that takes as parameter the holder
-				//TODO ViewsHolder doesn't follow this pattern
-				Constructor<?> constructor = clazz.getDeclaredConstructors()[0];
-				Object subHolderInstance = constructor.newInstance(holder);
-				
-				holder = getPluginHolder.invoke(holder, subHolderInstance);
-			} catch (Exception e) {
-				e.printStackTrace();
-				return null;
-			}
-			
+			holder = getSubHolder(caches, holder, subHolder);
+			if (holder == null) return null;
 		} 
 		
-		if (clazz == null) return null;
-
-	    Method method = getMethod(methodName, clazz);	    
+	    Method method = getMethod(caches, methodName, holder.getClass());	    
 	    if (method == null) return null;
 	    
 	    try {
@@ -64,7 +123,81 @@ public class ActionProcessorUtil {
 		return null;
 	}
 	
-	private static Method getMethod(String methodName, Class<?> clazz) {
+	/**
+	 * Invokes a public method of the object, the method is resolved by its name
+	 * and parameter types only once if caches are provided
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T invoke(Caches caches, Object target, String methodName, Class<?>[] parameterTypes, Object ... params) {
+		final Class<?> clazz = target.getClass();
+		final String key = methodName + Arrays.toString(parameterTypes);
+		
+		try {
+			Method method = caches == null? null : caches.getMethod(clazz, key);
+			if (method == null) {
+				method = clazz.getMethod(methodName, parameterTypes);
+				if (caches != null) caches.putMethod(clazz, key, method);
+			}
+			
+			return (T) method.invoke(target, params);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	private static Object getSubHolder(Caches caches, Object holder, String subHolder) {
+		
+		final Map<String, Object> holderSubHolders = caches == null? null : caches.getSubHolders(holder);
+		if (holderSubHolders != null) {
+			synchronized (holderSubHolders) {
+				Object subHolderInstance = holderSubHolders.get(subHolder);
+				if (subHolderInstance != null) return subHolderInstance;
+				
+				subHolderInstance = createSubHolder(caches, holder, subHolder);
+				if (subHolderInstance != null) holderSubHolders.put(subHolder, subHolderInstance);
+				
+				return subHolderInstance;
+			}
+		}
+		
+		return createSubHolder(caches, holder, subHolder);
+	}
+	
+	private static Object createSubHolder(Caches caches, Object holder, String subHolder) {
+		try {
+			Method getPluginHolder = getMethod(caches, "getPluginHolder", holder.getClass());
+			
+			Constructor<?> constructor = caches == null? null : caches.getSubHolderConstructor(subHolder);
+			if (constructor == null) {
+				//It's assumed only one constructor that takes as parameter the holder
+				//TODO ViewsHolder doesn't follow this pattern
+				constructor = Class.forName(subHolder).getDeclaredConstructors()[0];
+				if (caches != null) caches.putSubHolderConstructor(subHolder, constructor);
+			}
+			
+			//The holder returns its own instance of the plugin holder if it was already created
+			return getPluginHolder.invoke(holder, constructor.newInstance(holder));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	private static Method getMethod(Caches caches, String methodName, Class<?> clazz) {
+		if (caches == null) return findMethod(methodName, clazz);
+		
+		Method method = caches.getMethod(clazz, methodName);
+		if (method == null) {
+			method = findMethod(methodName, clazz);
+			caches.putMethod(clazz, methodName, method == null? NO_METHOD : method);
+		}
+		
+		return method == NO_METHOD? null : method;
+	}
+	
+	private static Method findMethod(String methodName, Class<?> clazz) {
 		Method method = getDeclaredMethod(methodName, clazz);
 	    if (method == null) {
 	    	Class<?> parent = clazz.getSuperclass();
@@ -16,8 +16,6 @@
 package com.dspot.declex.api.action.processor;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -30,6 +28,7 @@ import com.dspot.declex.api.action.process.ActionInfo;
 import com.dspot.declex.api.action.process.ActionMethod;
 import com.dspot.declex.api.action.process.ActionProcessor;
 import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.IJExpression;
 import com.helger.jcodemodel.IJStatement;
 import com.helger.jcodemodel.JCodeModel;
 import com.helger.jcodemodel.JDefinedClass;
@@ -158,75 +157,47 @@ public abstract class BaseActionProcessor implements ActionProcessor {
 		return getMethodInHolder("getAnnotatedElement");
 	}
 
+	protected IJExpression getContextRef() {
+		return (IJExpression) actionInfo.metaData.get("contextRef");
+	}
+
 	protected ProcessingEnvironment processingEnv() {
-		Object env = getEnvironment();
-		try {
-			Method method = env.getClass().getMethod("getProcessingEnvironment");
-			return (ProcessingEnvironment) method.invoke(env);
-		} catch (NoSuchMethodException | SecurityException | IllegalAccessException 
-				 | IllegalArgumentException | InvocationTargetException e) {
-			e.printStackTrace();
-		}
-		
-		return null;
+		return (ProcessingEnvironment) actionInfo.metaData.get("processingEnv");
 	}
 
 	protected AbstractJClass getJClass(String fullyQualifiedClassName) {
-		Object env = getEnvironment();
-		try {
-			Method method = env.getClass().getMethod("getJClass", String.class);
-			return (AbstractJClass) method.invoke(env, fullyQualifiedClassName);
-		} catch (NoSuchMethodException | SecurityException | IllegalAccessException 
-				 | IllegalArgumentException | InvocationTargetException e) {
-			e.printStackTrace();
-		}
-		
-		return null;
+		return ActionProcessorUtil.invoke(getCaches(), getEnvironment(), "getJClass", new Class<?>[] {String.class}, fullyQualifiedClassName);
 	}
 
 	protected JCodeModel getCodeModel() {
-		Object env = getEnvironment();
-		try {
-			Method method = env.getClass().getMethod("getCodeModel");
-			return (JCodeModel) method.invoke(env);
-		} catch (NoSuchMethodException | SecurityException | IllegalAccessException 
-				 | IllegalArgumentException | InvocationTargetException e) {
-			e.printStackTrace();
-		}
-		
-		return null;
+		return (JCodeModel) actionInfo.metaData.get("codeModel");
 	}
 	
-	@SuppressWarnings("unchecked")
 	protected <T extends Annotation> T getAnnotation(Element element, Class<T> annotation) {
 		if (adi == null) {
 			adi = actionInfo.metaData.get("adi");
 		}
 		
-		try {
-			Method method = adi.getClass().getMethod("getAnnotation", Element.class, Class.class);
-			return (T) method.invoke(adi, element, annotation);
-		} catch (NoSuchMethodException | SecurityException | IllegalAccessException 
-				 | IllegalArgumentException | InvocationTargetException e) {
-			e.printStackTrace();
-		}
-		
-		return null;		
+		return ActionProcessorUtil.invoke(getCaches(), adi, "getAnnotation", new Class<?>[] {Element.class, Class.class}, element, annotation);
 	}
 		
 	
 	public <T> T getMethodInHolder(String methodName) {
-		return ActionProcessorUtil.getMethodInHolder(methodName, getHolder());
+		return ActionProcessorUtil.getMethodInHolder(getCaches(), methodName, getHolder(), null);
 	}
 	
 	public <T> T getMethodInHolder(String methodName, String subHolder, Object ... params) {
-		return ActionProcessorUtil.getMethodInHolder(methodName, getHolder(), subHolder, params);
+		return ActionProcessorUtil.getMethodInHolder(getCaches(), methodName, getHolder(), subHolder, params);
 	}
 	
 	private Object getEnvironment() {
 		if (env == null) {
-			env = ActionProcessorUtil.getMethodInHolder("getEnvironment", getHolder());
+			env = ActionProcessorUtil.getMethodInHolder(getCaches(), "getEnvironment", getHolder(), null);
 		}
 		return env;
 	}
+	
+	private ActionProcessorUtil.Caches getCaches() {
+		return (ActionProcessorUtil.Caches) actionInfo.metaData.get("processorCaches");
+	}
 }
@@ -22,44 +22,103 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.dspot.declex.annotation.CopyIgnore;
 import com.dspot.declex.annotation.CopyName;
 
+/**
+ * Copies the fields between objects by their names (or {@link CopyName}). The fields
+ * of each class are read through reflection only once, and kept sorted by name, so the
+ * copies don't need to inspect the classes again.
+ */
 public class CastUtility {
 	
-	public static Map<EField, Object> getFields(Object object) {
-		//Use fieldsMap to return the fields sorted alphabetically
-		Map<EField, Object> fieldsMap = new TreeMap<EField, Object>(new Comparator<EField>() {
+	//<Class, Fields of the class sorted by name>
+	private static final Map<Class<?>, EField[]> classFields = new ConcurrentHashMap<>();
+	
+	//<Class, "valueOf(String)" method of the class, or null if it doesn't have one>
+	private static final Map<Class<?>, Method> valueOfMethods = Collections.synchronizedMap(new HashMap<Class<?>, Method>());
+	
+	private static final Comparator<EField> NAME_COMPARATOR = new Comparator<EField>() {
 
-			@Override
-			public int compare(EField lhs, EField rhs) {
-				return lhs.getName().compareTo(rhs.getName());
-			}
-		});
+		@Override
+		public int compare(EField lhs, EField rhs) {
+			return lhs.getName().compareTo(rhs.getName());
+		}
+	};
+	
+	private static EField[] getClassFields(Class<?> cls) {
+		EField[] fields = classFields.get(cls);
+		if (fields != null) return fields;
 		
-		Class<?> cls = object.getClass();
-		while (!cls.equals(Object.class)) 
-			try {
-				Field[] fields = cls.getDeclaredFields();
-				for (Field field : fields) {
-					//Ignore No-Copiable Modifiers
-					int fieldMofiers = field.getModifiers();
-					if (Modifier.isTransient(fieldMofiers) || 
-						Modifier.isStatic(fieldMofiers) ||
-						Modifier.isFinal(fieldMofiers) || 
-						field.getAnnotation(CopyIgnore.class) != null) continue;
-					
+		List<EField> fieldsList = new ArrayList<>();
+		
+		Class<?> superClass = cls;
+		while (superClass != null && !superClass.equals(Object.class)) {
+			for (Field field : superClass.getDeclaredFields()) {
+				//Ignore No-Copiable Modifiers
+				int fieldMofiers = field.getModifiers();
+				if (Modifier.isTransient(fieldMofiers) || 
+					Modifier.isStatic(fieldMofiers) ||
+					Modifier.isFinal(fieldMofiers) || 
+					field.getAnnotation(CopyIgnore.class) != null) continue;
+				
+				try {
 					field.setAccessible(true);
-					fieldsMap.put(new EField(field), field.get(object));
+				} catch (SecurityException e) {
+					continue;
 				}
-
-				cls = cls.getSuperclass();
+				
+				fieldsList.add(new EField(field));
+			}
+			
+			superClass = superClass.getSuperclass();
+		}
+		
+		//A stable sort keeps the fields of the subclasses first, as a TreeMap did
+		fields = fieldsList.toArray(new EField[fieldsList.size()]);
+		Arrays.sort(fields, NAME_COMPARATOR);
+		
+		List<EField> uniqueFields = new ArrayList<>(fields.length);
+		for (EField field : fields) {
+			if (uniqueFields.isEmpty() || !uniqueFields.get(uniqueFields.size()-1).getName().equals(field.getName())) {
+				uniqueFields.add(field);
+			}
+		}
+		fields = uniqueFields.toArray(new EField[uniqueFields.size()]);
+		
+		classFields.put(cls, fields);
+		return fields;
+	}
+	
+	private static Method getValueOfMethod(Class<?> cls) {
+		if (valueOfMethods.containsKey(cls)) return valueOfMethods.get(cls);
+		
+		Method valueOf = null;
+		try {
+			valueOf = cls.getMethod("valueOf", String.class);
+		} catch (NoSuchMethodException | SecurityException e) {
+		}
+		
+		valueOfMethods.put(cls, valueOf);
+		return valueOf;
+	}
+	
+	public static Map<EField, Object> getFields(Object object) {
+		//The fields are returned sorted alphabetically
+		Map<EField, Object> fieldsMap = new LinkedHashMap<EField, Object>();
+		
+		for (EField field : getClassFields(object.getClass())) 
+			try {
+				fieldsMap.put(field, field.get(object));
 			} catch (IllegalAccessException e) {
 			} catch (IllegalArgumentException e) {
 			}
@@ -84,102 +143,101 @@ public class CastUtility {
 		Iterator<?> fromIterator = iterableFrom != null ? iterableFrom.iterator() : null;
 		if (to.size() == 0) return;
 		
-		Map<EField, Object> toFields = getFields(to.get(0));
-		Iterator<EField> toFieldsIterator = toFields.keySet().iterator();
-		
-		iter: while (toFieldsIterator.hasNext()) {
-			EField field = toFieldsIterator.next();
-			if (field.name.equals(fieldName)) {
-				
-				for (Object toObject : to) {
-					Object fromObject = from;
-					
-					if (fromIterator != null) {
-						if (fromIterator.hasNext()) {
-							fromObject = fromIterator.next();
-						} else break iter;
-					}
-											
-					try {
-						field.field.set(toObject, fromObject);
-					} catch (IllegalAccessException
-							| IllegalArgumentException e) {
-						e.printStackTrace();
-					}
-				}
+		EField field = findField(getClassFields(to.get(0).getClass()), fieldName);
+		if (field == null) return;
 				
-				break iter;
+		for (Object toObject : to) {
+			Object fromObject = from;
+			
+			if (fromIterator != null) {
+				if (fromIterator.hasNext()) {
+					fromObject = fromIterator.next();
+				} else break;
+			}
+									
+			try {
+				field.set(toObject, fromObject);
+			} catch (IllegalAccessException
+					| IllegalArgumentException e) {
+				e.printStackTrace();
 			}
 		}
 	}
 	
-	public static void copy(Object from, Object to, String ... toIgnore) {
-		Map<EField, Object> fromFields = getFields(from);
-		Map<EField, Object> toFields = getFields(to);
+	private static EField findField(EField[] fields, String name) {
+		int low = 0;
+		int high = fields.length - 1;
 		
-		Iterator<EField> fromFieldsIterator = fromFields.keySet().iterator();
-		Iterator<EField> toFieldsIterator = toFields.keySet().iterator();
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compare = fields[middle].getName().compareTo(name);
+			
+			if (compare < 0) low = middle + 1;
+			else if (compare > 0) high = middle - 1;
+			else return fields[middle];
+		}
 		
-		EField fromField = fromFieldsIterator.next();
-		EField toField = toFieldsIterator.next();
+		return null;
+	}
+	
+	public static void copy(Object from, Object to, String ... toIgnore) {
+		EField[] fromFields = getClassFields(from.getClass());
+		EField[] toFields = getClassFields(to.getClass());
 		
-		List<String> toIgnoreList = toIgnore == null ? new ArrayList<>() : new ArrayList(Arrays.asList(toIgnore));
+		List<String> toIgnoreList = toIgnore == null || toIgnore.length == 0 ? 
+				Collections.<String>emptyList() : Arrays.asList(toIgnore);
 		
-		while (true) {
+		//Both arrays are sorted by name
+		int fromIndex = 0;
+		int toIndex = 0;
+		while (fromIndex < fromFields.length && toIndex < toFields.length) {
 			
-			while (fromField.getName().compareTo(toField.getName()) < 0) {
-				if (!fromFieldsIterator.hasNext()) return;
-				
-				fromField = fromFieldsIterator.next();
+			EField fromField = fromFields[fromIndex];
+			EField toField = toFields[toIndex];
+			
+			int compare = fromField.getName().compareTo(toField.getName());
+			if (compare < 0) {
+				fromIndex++;
+				continue;
 			}
 			
-			while (fromField.getName().compareTo(toField.getName()) > 0) {
-				if (!toFieldsIterator.hasNext()) return;
-				
-				toField = toFieldsIterator.next();
+			if (compare > 0) {
+				toIndex++;
+				continue;
 			}
-
-			if (fromField.getName().equals(toField.getName())) {
 				
-				if (!toIgnoreList.contains(toField.getName())) {
-					if (fromField.getType().equals(toField.getType())) {
-						try {
-							toField.set(to, fromFields.get(fromField));
-						} catch (IllegalAccessException | IllegalArgumentException e) {
-						}
-					} else {
-						//Handle field castings
-						try {
-							//Handling Primitive types
-							Class<?> toFieldClass = toField.getType();
-							if (toFieldClass.isPrimitive()) {
-								if (toField.getType().equals(short.class)) toFieldClass = Short.class;
-								else if (toField.getType().equals(byte.class)) toFieldClass = Byte.class;
-								else if (toField.getType().equals(char.class)) toFieldClass = Character.class;
-								else if (toField.getType().equals(int.class)) toFieldClass = Integer.class;
-								else if (toField.getType().equals(byte.class)) toFieldClass = Byte.class;
-								else if (toField.getType().equals(float.class)) toFieldClass = Float.class;
-								else if (toField.getType().equals(double.class)) toFieldClass = Double.class;
-							}
-							
-							Method valueOf = toFieldClass.getMethod("valueOf", String.class);
-	
-							if (valueOf != null) {
-								Object valueOfFrom = valueOf.invoke(null, fromFields.get(fromField).toString());
-								toField.set(to, valueOfFrom);
-							}
-							
-						} catch (NoSuchMethodException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-						}
-						
-						
-					}
+			if (!toIgnoreList.contains(toField.getName())) {
+				try {
+					copyField(fromField.get(from), toField, to);
+				} catch (IllegalAccessException | IllegalArgumentException e) {
 				}
-				
-				if (!fromFieldsIterator.hasNext() || !toFieldsIterator.hasNext()) return;
-				fromField = fromFieldsIterator.next();
-				toField = toFieldsIterator.next();
-			}			
+			}
+			
+			fromIndex++;
+			toIndex++;
+		}
+		
+	}
+	
+	private static void copyField(Object value, EField toField, Object to) throws IllegalAccessException, IllegalArgumentException {
+		
+		if (value == null || toField.getBoxedType().isInstance(value)) {
+			if (value != null || !toField.getType().isPrimitive()) {
+				toField.set(to, value);
+			}
+			return;
+		}
+		
+		//Handle field castings
+		try {
+			
+			Method valueOf = getValueOfMethod(toField.getBoxedType());
+			if (valueOf != null) {
+				Object valueOfFrom = valueOf.invoke(null, value.toString());
+				toField.set(to, valueOfFrom);
+			}
+			
+		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
 		}
 		
 	}
@@ -187,6 +245,7 @@ public class CastUtility {
 	private static class EField {
 		private Field field;
 		private String name;
+		private Class<?> boxedType;
 		
 		public EField(Field field) {
 			this.field = field;
@@ -197,6 +256,20 @@ public class CastUtility {
 			} else {
 				name = field.getName();
 			}
+			
+			//Handling Primitive types
+			Class<?> type = field.getType();
+			if (type.isPrimitive()) {
+				if (type.equals(boolean.class)) type = Boolean.class;
+				else if (type.equals(short.class)) type = Short.class;
+				else if (type.equals(byte.class)) type = Byte.class;
+				else if (type.equals(char.class)) type = Character.class;
+				else if (type.equals(int.class)) type = Integer.class;
+				else if (type.equals(long.class)) type = Long.class;
+				else if (type.equals(float.class)) type = Float.class;
+				else if (type.equals(double.class)) type = Double.class;
+			}
+			boxedType = type;
 		}
 		
 		public String getName() {
@@ -207,6 +280,14 @@ public class CastUtility {
 			return field.getType();
 		}
 		
+		public Class<?> getBoxedType() {
+			return boxedType;
+		}
+		
+		public Object get(Object object) throws IllegalAccessException, IllegalArgumentException {
+			return field.get(object);
+		}
+		
 		public void set(Object object, Object value) throws IllegalAccessException, IllegalArgumentException {
 			field.set(object, value);
 		}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+
+/**
+ * Collapses the executions of a task requested by a burst of events, scheduling them
+ * in the main looper. It is used by the subscribers generated for {@code @LoadOnEvent}
+ * and {@code @UpdateOnEvent}, so that only one load or populate is done per window.
+ * <br><br>
+ * <ul>
+ * <li><b>throttle</b>: the task runs at most once per window, the events arriving inside
+ * the window are collapsed in one trailing execution at the end of it.</li>
+ * <li><b>debounce</b>: the task runs once the events stop arriving for the given time.</li>
+ * <li><b>coalesce</b>: all the events delivered before the main looper is free again
+ * (ex. the events delivered in the same frame) are collapsed in one execution.</li>
+ * </ul>
+ * The next and failed listeners of the collapsed events are notified once the task runs.
+ * While the limiter is paused (ex. the component stopped listening for events) the pending
+ * execution is kept, and it is scheduled again when the limiter is resumed.
+ * <br><br>
+ * The limiter should be used only from the main thread.
+ */
+public class EventRateLimiter {
+
+	private final long throttle;
+	private final long debounce;
+	private final boolean coalesce;
+
+	private Runnable task;
+	private boolean pending;
+	private boolean paused;
+	private long lastRun = -1;
+
+	private List<Runnable> nextListeners = new ArrayList<>();
+	private List<OnFailedRunnable> failedListeners = new ArrayList<>();
+	private List<PooledEvent> events = new ArrayList<>();
+
+	private final Runnable dispatch = new Runnable() {
+
+		@Override
+		public void run() {
+			pending = false;
+			lastRun = SystemClock.uptimeMillis();
+
+			final List<Runnable> nexts = nextListeners;
+			final List<OnFailedRunnable> faileds = failedListeners;
+			final List<PooledEvent> delivered = events;
+			nextListeners = new ArrayList<>();
+			failedListeners = new ArrayList<>();
+			events = new ArrayList<>();
+
+			try {
+				try {
+					final Runnable toRun = task;
+					if (toRun != null) toRun.run();
+				} catch (RuntimeException | Error e) {
+					if (faileds.isEmpty()) throw e;
+
+					for (OnFailedRunnable failed : faileds) {
+						failed.onFailed(e);
+					}
+					return;
+				}
+
+				for (Runnable next : nexts) {
+					next.run();
+				}
+			} finally {
+				release(delivered);
+			}
+		}
+	};
+
+	public EventRateLimiter(long throttle, long debounce, boolean coalesce) {
+		this.throttle = throttle;
+		this.debounce = debounce;
+		this.coalesce = coalesce;
+	}
+
+	public void submit(Runnable task) {
+		submit(task, null, null);
+	}
+
+	/**
+	 * Submits the task, the listeners are notified when the execution which includes
+	 * this submission finishes
+	 */
+	public void submit(Runnable task, Runnable next, OnFailedRunnable failed) {
+		submit(task, next, failed, null);
+	}
+
+	/**
+	 * Submits the task requested by the event. If the event is pooled, it is retained until 
+	 * the listeners are notified, since they can read it (ex. the Finished of the event action)
+	 */
+	public void submit(Runnable task, Runnable next, OnFailedRunnable failed, Object event) {
+		this.task = task;
+		if (next != null) nextListeners.add(next);
+		if (failed != null) failedListeners.add(failed);
+		if (event instanceof PooledEvent) {
+			((PooledEvent) event).retain();
+			events.add((PooledEvent) event);
+		}
+
+		if (paused) {
+			pending = true;
+			return;
+		}
+
+		final Handler handler = MainThreadDispatcher.getMainHandler();
+
+		if (debounce > 0) {
+			handler.removeCallbacks(dispatch);
+			pending = true;
+			handler.postDelayed(dispatch, debounce);
+			return;
+		}
+
+		if (pending) return;
+
+		if (throttle > 0) {
+			final long elapsed = SystemClock.uptimeMillis() - lastRun;
+			if (lastRun < 0 || elapsed >= throttle) {
+				if (!coalesce) {
+					dispatch.run();
+					return;
+				}
+
+				pending = true;
+				handler.post(dispatch);
+				return;
+			}
+
+			pending = true;
+			handler.postDelayed(dispatch, throttle - elapsed);
+			return;
+		}
+
+		if (coalesce) {
+			pending = true;
+			handler.post(dispatch);
+			return;
+		}
+
+		dispatch.run();
+	}
+
+	/**
+	 * Discards the pending execution, if any
+	 */
+	public void cancel() {
+		nextListeners.clear();
+		failedListeners.clear();
+
+		final List<PooledEvent> discarded = events;
+		events = new ArrayList<>();
+		release(discarded);
+
+		if (!pending) return;
+
+		MainThreadDispatcher.getMainHandler().removeCallbacks(dispatch);
+		pending = false;
+	}
+
+	/**
+	 * Stops the scheduled execution, keeping it pending until the limiter is resumed
+	 */
+	public void pause() {
+		paused = true;
+
+		if (pending) {
+			MainThreadDispatcher.getMainHandler().removeCallbacks(dispatch);
+		}
+	}
+
+	/**
+	 * Schedules the execution which was pending when the limiter was paused, if any
+	 */
+	public void resume() {
+		if (!paused) return;
+		paused = false;
+
+		if (pending) {
+			MainThreadDispatcher.getMainHandler().post(dispatch);
+		}
+	}
+
+	public boolean isPending() {
+		return pending;
+	}
+
+	private static void release(List<PooledEvent> events) {
+		for (PooledEvent event : events) {
+			event.release();
+		}
+	}
+}
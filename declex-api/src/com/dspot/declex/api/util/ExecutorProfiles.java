@@ -0,0 +1,353 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Process;
+
+import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+
+/**
+ * Named execution profiles used for the asynchronous operations of the models
+ * (ex. {@link com.dspot.declex.annotation.Model#executor() @Model(executor="network")}).
+ * <br><br>
+ * Each profile has its own bounded pool of threads, so slow operations in one profile
+ * (ex. network loads) don't delay the operations in the others (ex. local DB reads). 
+ * The profiles can be configured before their first use with {@link #configure(String, int, int)},
+ * and they collect queue-depth and latency metrics that can be read with {@link #get(String)}.
+ */
+public class ExecutorProfiles {
+	
+	public static final String NETWORK = "network";
+	public static final String DB = "db";
+	public static final String CPU = "cpu";
+	
+	private static final int DEFAULT_THREADS = 2;
+	private static final int DEFAULT_QUEUE_CAPACITY = Integer.MAX_VALUE;
+	
+	private static final Map<String, Profile> profiles = new HashMap<>();
+	
+	/**
+	 * Configures the number of threads and the queue capacity of a profile. When the queue
+	 * is full, the tasks submitted to the profile are rejected with a 
+	 * {@link java.util.concurrent.RejectedExecutionException}.
+	 */
+	public static synchronized void configure(String name, int threads, int queueCapacity) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("The profile \"" + name + "\" needs at least one thread");
+		}
+		
+		Profile profile = profiles.get(name);
+		if (profile != null) {
+			if (profile.queueCapacity != queueCapacity) {
+				throw new IllegalStateException("The queue capacity of the profile \"" + name + "\" can't be changed after its first use");
+			}
+			
+			//The core size can't be greater than the maximum size at any moment
+			if (threads > profile.executor.getMaximumPoolSize()) {
+				profile.executor.setMaximumPoolSize(threads);
+				profile.executor.setCorePoolSize(threads);
+			} else {
+				profile.executor.setCorePoolSize(threads);
+				profile.executor.setMaximumPoolSize(threads);
+			}
+			return;
+		}
+		
+		profiles.put(name, new Profile(name, threads, queueCapacity));
+	}
+	
+	public static synchronized Profile get(String name) {
+		Profile profile = profiles.get(name);
+		if (profile == null) {
+			profile = new Profile(name, defaultThreads(name), DEFAULT_QUEUE_CAPACITY);
+			profiles.put(name, profile);
+		}
+		return profile;
+	}
+	
+	public static void execute(String name, Runnable task) {
+		get(name).execute(task);
+	}
+	
+	/**
+	 * Executes the task in the profile, after all the previous tasks submitted with the same 
+	 * serial key have finished.
+	 */
+	public static void execute(String name, String serial, Runnable task) {
+		get(name).execute(serial, task);
+	}
+	
+	/**
+	 * Executes the task in the profile, after all the previous tasks submitted with the same 
+	 * serial key (if not null) have finished. If the task is rejected, onRejected is notified
+	 * (see {@link Profile#execute(String, Runnable, OnFailedRunnable)}).
+	 */
+	public static void execute(String name, String serial, Runnable task, OnFailedRunnable onRejected) {
+		get(name).execute(serial, task, onRejected);
+	}
+	
+	private static int defaultThreads(String name) {
+		switch (name) {
+		case NETWORK: return 4;
+		case DB: return 2;
+		case CPU: return Math.max(2, Runtime.getRuntime().availableProcessors());
+		default: return DEFAULT_THREADS;
+		}
+	}
+	
+	public static class Profile implements Executor {
+		
+		private final String name;
+		private final int queueCapacity;
+		private final ThreadPoolExecutor executor;
+		
+		//<Serial key, Pending tasks>, the key is removed when there are no more pending tasks
+		private final Map<String, ArrayDeque<SerialTask>> serialQueues = new HashMap<>();
+		
+		private final AtomicLong executedTasks = new AtomicLong();
+		private final AtomicLong totalWaitTime = new AtomicLong();
+		private final AtomicLong totalRunTime = new AtomicLong();
+		private final AtomicLong maxWaitTime = new AtomicLong();
+		
+		Profile(final String name, int threads, int queueCapacity) {
+			this.name = name;
+			this.queueCapacity = queueCapacity;
+			
+			BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(queueCapacity);
+			executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, queue, new ThreadFactory() {
+				
+				private final AtomicInteger count = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					return new Thread(new Runnable() {
+						
+						@Override
+						public void run() {
+							//The Android priority is applied to the calling thread only
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							runnable.run();
+						}
+					}, "declex-" + name + "-" + count.incrementAndGet());
+				}
+			});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		
+		@Override
+		public void execute(Runnable task) {
+			executor.execute(new TimedTask(task));
+		}
+		
+		public void execute(String serial, Runnable task) {
+			execute(serial, task, null);
+		}
+		
+		/**
+		 * Executes the task after all the previous tasks submitted with the same serial key 
+		 * have finished. The tasks waiting for a serial key are bounded by the queue capacity 
+		 * of the profile.
+		 * <br><br>
+		 * If the task is rejected (ex. the queue of the profile or the serial queue is full), 
+		 * onRejected is notified. When a queued task is rejected, the tasks queued after it 
+		 * with the same serial key are rejected as well, since their order can't be kept.
+		 * Without onRejected, the {@link RejectedExecutionException} is thrown in the thread
+		 * which was scheduling the task.
+		 */
+		public void execute(final String serial, Runnable task, OnFailedRunnable onRejected) {
+			final SerialTask serialTask = new SerialTask(task, onRejected);
+			
+			if (serial == null) {
+				try {
+					execute(task);
+				} catch (RejectedExecutionException e) {
+					if (!serialTask.reject(e)) throw e;
+				}
+				return;
+			}
+			
+			RejectedExecutionException rejected = null;
+			synchronized (serialQueues) {
+				ArrayDeque<SerialTask> pending = serialQueues.get(serial);
+				if (pending == null) {
+					serialQueues.put(serial, new ArrayDeque<SerialTask>());
+				} else if (pending.size() < queueCapacity) {
+					pending.add(serialTask);
+					return;
+				} else {
+					rejected = new RejectedExecutionException(
+						"The serial queue \"" + serial + "\" of the profile \"" + name + "\" is full"
+					);
+				}
+			}
+			
+			if (rejected != null) {
+				if (!serialTask.reject(rejected)) throw rejected;
+				return;
+			}
+			
+			executeSerial(serial, serialTask);
+		}
+		
+		private void executeSerial(final String serial, final SerialTask task) {
+			try {
+				executeSerialTask(serial, task);
+			} catch (RejectedExecutionException e) {
+				//The tasks waiting for this one can't be executed in order, they're rejected as well
+				final ArrayDeque<SerialTask> pending;
+				synchronized (serialQueues) {
+					pending = serialQueues.remove(serial);
+				}
+				
+				boolean handled = task.reject(e);
+				if (pending != null) {
+					for (SerialTask pendingTask : pending) {
+						handled = pendingTask.reject(e) && handled;
+					}
+				}
+				
+				if (!handled) throw e;
+			}
+		}
+		
+		private void executeSerialTask(final String serial, final SerialTask task) {
+			execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						task.task.run();
+					} finally {
+						SerialTask next;
+						synchronized (serialQueues) {
+							next = serialQueues.get(serial).poll();
+							if (next == null) serialQueues.remove(serial);
+						}
+						
+						if (next != null) executeSerial(serial, next);
+					}
+				}
+			});
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Number of tasks waiting for a thread, without the tasks waiting in the serial queues
+		 */
+		public int getQueueDepth() {
+			return executor.getQueue().size();
+		}
+		
+		public int getActiveCount() {
+			return executor.getActiveCount();
+		}
+		
+		public long getExecutedTasks() {
+			return executedTasks.get();
+		}
+		
+		/**
+		 * Average time in milliseconds that the tasks waited in the queue before being executed
+		 */
+		public long getAverageWaitTime() {
+			final long executed = executedTasks.get();
+			return executed == 0? 0 : totalWaitTime.get() / executed;
+		}
+		
+		public long getMaxWaitTime() {
+			return maxWaitTime.get();
+		}
+		
+		/**
+		 * Average time in milliseconds that the execution of the tasks took
+		 */
+		public long getAverageRunTime() {
+			final long executed = executedTasks.get();
+			return executed == 0? 0 : totalRunTime.get() / executed;
+		}
+		
+		@Override
+		public String toString() {
+			return name + "[queue=" + getQueueDepth() + ", active=" + getActiveCount() 
+					+ ", executed=" + getExecutedTasks() + ", avgWait=" + getAverageWaitTime() 
+					+ "ms, maxWait=" + getMaxWaitTime() + "ms, avgRun=" + getAverageRunTime() + "ms]";
+		}
+		
+		private static class SerialTask {
+			
+			final Runnable task;
+			final OnFailedRunnable onRejected;
+			
+			SerialTask(Runnable task, OnFailedRunnable onRejected) {
+				this.task = task;
+				this.onRejected = onRejected;
+			}
+			
+			/**
+			 * @return false if there is no listener for the rejection
+			 */
+			boolean reject(RejectedExecutionException e) {
+				if (onRejected == null) return false;
+				
+				onRejected.onFailed(e);
+				return true;
+			}
+		}
+		
+		private class TimedTask implements Runnable {
+			
+			private final Runnable task;
+			private final long queuedAt = System.currentTimeMillis();
+			
+			TimedTask(Runnable task) {
+				this.task = task;
+			}
+			
+			@Override
+			public void run() {
+				final long startedAt = System.currentTimeMillis();
+				final long waitTime = startedAt - queuedAt;
+				
+				long max;
+				while (waitTime > (max = maxWaitTime.get()) && !maxWaitTime.compareAndSet(max, waitTime));
+				
+				try {
+					task.run();
+				} finally {
+					totalWaitTime.addAndGet(waitTime);
+					totalRunTime.addAndGet(System.currentTimeMillis() - startedAt);
+					executedTasks.incrementAndGet();
+				}
+			}
+		}
+	}
+}
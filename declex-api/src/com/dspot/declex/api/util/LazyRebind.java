@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Marks the loads of the models declared with 
+ * {@link com.dspot.declex.annotation.Model#lazyRebind() @Model(lazyRebind=true)}. The mark is
+ * kept in the thread which performs the load, so it is not part of the arguments of the load.
+ * The caches and the coalesced loads add it to their keys, so the models which are not bound
+ * yet are never shared with the loads which expect bound models.
+ */
+public class LazyRebind {
+	
+	private static final ThreadLocal<Boolean> enabled = new ThreadLocal<>();
+	
+	/**
+	 * Executes the load, the lists of models loaded by it are bound to the context lazily
+	 */
+	public static <T> T load(Callable<T> loader) throws Exception {
+		final Boolean previous = enabled.get();
+		enabled.set(Boolean.TRUE);
+		
+		try {
+			return loader.call();
+		} finally {
+			if (previous == null) enabled.remove();
+			else enabled.set(previous);
+		}
+	}
+	
+	/**
+	 * Determines if the load being executed in the current thread binds its models lazily
+	 */
+	public static boolean isEnabled() {
+		return Boolean.TRUE.equals(enabled.get());
+	}
+	
+}
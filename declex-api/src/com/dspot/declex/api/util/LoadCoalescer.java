@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces the concurrent loads of the same model with the same arguments (ex. "query",
+ * "orderBy" or "fields") and annotations, so that only one of them is performed and the 
+ * others wait for its result. Used by the models declared with 
+ * {@link com.dspot.declex.annotation.Model#coalesce() @Model(coalesce=true)}.
+ * <br><br>
+ * The loads which waited receive their own copy of the result (see {@link ModelCopies}),
+ * so the models of a caller can be modified without affecting the others. A load started
+ * again by the same thread while it is in flight (ex. from the loader itself) is performed
+ * directly, since waiting for it would never finish.
+ */
+public class LoadCoalescer {
+	
+	//<[Model class, Arguments, Annotations, Lazy rebind], Load in flight>
+	private static final ConcurrentMap<Object, InFlightLoad<?>> inFlight = new ConcurrentHashMap<>();
+	
+	@SuppressWarnings("unchecked")
+	public static <T> T load(Class<?> modelClass, Map<String, Object> args, List<?> useModels, Callable<T> loader) throws Exception {
+		
+		//The models loaded with LazyRebind are not bound, they are only shared with other lazy loads
+		final Object key = Arrays.asList(
+			modelClass, args == null? null : new HashMap<>(args), useModels, LazyRebind.isEnabled()
+		);
+		final InFlightLoad<T> load = new InFlightLoad<>(loader);
+		
+		InFlightLoad<T> currentLoad = (InFlightLoad<T>) inFlight.putIfAbsent(key, load);
+		if (currentLoad == null) {
+			try {
+				load.task.run();
+			} finally {
+				inFlight.remove(key, load);
+			}
+			
+			return getResult(load);
+		}
+		
+		if (currentLoad.thread == Thread.currentThread()) {
+			return loader.call();
+		}
+		
+		return (T) ModelCopies.copyOf(getResult(currentLoad), modelClass);
+	}
+	
+	private static <T> T getResult(InFlightLoad<T> load) throws Exception {
+		try {
+			return load.task.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) throw (Exception) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw e;
+		}
+	}
+	
+	private static class InFlightLoad<T> {
+		final FutureTask<T> task;
+		final Thread thread = Thread.currentThread();
+		
+		InFlightLoad(Callable<T> loader) {
+			this.task = new FutureTask<>(loader);
+		}
+	}
+	
+}
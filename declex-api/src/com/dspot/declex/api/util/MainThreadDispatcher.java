@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+
+/**
+ * Dispatches callbacks to the main thread using a single shared {@link Handler}.
+ * <br><br>
+ * The callbacks posted from other threads before the main thread processes them (ex. the
+ * completions arriving in the same frame) are batched and executed in one message, in the
+ * order they were posted. If a callback fails, the callbacks after it are executed in the
+ * next message.
+ */
+public class MainThreadDispatcher {
+	
+	private static Handler mainHandler;
+	
+	private static final Object lock = new Object();
+	
+	private static List<Runnable> pending = new ArrayList<>();
+	private static List<Runnable> running = new ArrayList<>();
+	private static boolean scheduled;
+	
+	private static final Runnable drain = new Runnable() {
+		
+		@Override
+		public void run() {
+			List<Runnable> toRun;
+			synchronized (lock) {
+				toRun = pending;
+				pending = running;
+				running = toRun;
+			}
+			
+			int index = 0;
+			try {
+				for (; index < toRun.size(); index++) {
+					toRun.get(index).run();
+				}
+			} finally {
+				boolean reschedule;
+				synchronized (lock) {
+					//If a callback failed, the ones after it run before the callbacks posted meanwhile
+					if (index + 1 < toRun.size()) {
+						pending.addAll(0, toRun.subList(index + 1, toRun.size()));
+					}
+					toRun.clear();
+					
+					reschedule = !pending.isEmpty();
+					scheduled = reschedule;
+				}
+				
+				if (reschedule) getMainHandler().post(this);
+			}
+		}
+	};
+	
+	public static boolean isMainThread() {
+		return Looper.myLooper() == Looper.getMainLooper();
+	}
+	
+	public static Handler getMainHandler() {
+		synchronized (lock) {
+			if (mainHandler == null) {
+				mainHandler = new Handler(Looper.getMainLooper());
+			}
+			return mainHandler;
+		}
+	}
+	
+	/**
+	 * Runs the callback immediately if this is the main thread, otherwise it is posted
+	 */
+	public static void run(Runnable runnable) {
+		if (isMainThread()) {
+			runnable.run();
+		} else {
+			post(runnable);
+		}
+	}
+	
+	/**
+	 * Posts the callback to be executed in the main thread, even if this is the main thread
+	 */
+	public static void post(Runnable runnable) {
+		final Handler handler = getMainHandler();
+		
+		synchronized (lock) {
+			pending.add(runnable);
+			if (scheduled) return;
+			scheduled = true;
+		}
+		
+		handler.post(drain);
+	}
+	
+	/**
+	 * Releases the pooled event in the next message of the main looper, once the deliveries 
+	 * queued by the current one finished
+	 */
+	public static void postRelease(final PooledEvent event) {
+		post(new Runnable() {
+			
+			@Override
+			public void run() {
+				event.release();
+			}
+		});
+	}
+	
+	/**
+	 * Reusable wrapper which runs a callback in the main thread
+	 */
+	public static class MainThreadRunnable implements Runnable {
+		
+		private final Runnable runnable;
+		
+		public MainThreadRunnable(Runnable runnable) {
+			this.runnable = runnable;
+		}
+		
+		public Runnable getRunnable() {
+			return runnable;
+		}
+		
+		@Override
+		public void run() {
+			MainThreadDispatcher.run(runnable);
+		}
+	}
+	
+	/**
+	 * Reusable wrapper which runs a failure callback in the main thread. Each failure is 
+	 * delivered with its own exception, even if several failures are pending.
+	 */
+	public static class MainThreadOnFailedRunnable extends OnFailedRunnable {
+		
+		private final OnFailedRunnable runnable;
+		
+		public MainThreadOnFailedRunnable(OnFailedRunnable runnable) {
+			this.runnable = runnable;
+		}
+		
+		public OnFailedRunnable getRunnable() {
+			return runnable;
+		}
+		
+		@Override
+		public void onFailed(Throwable e) {
+			//The exception is not read back from the field, another thread could replace it
+			this.e = e;
+			dispatch(e);
+		}
+		
+		@Override
+		public void run() {
+			dispatch(e);
+		}
+		
+		private void dispatch(final Throwable e) {
+			MainThreadDispatcher.run(new Runnable() {
+				
+				@Override
+				public void run() {
+					runnable.onFailed(e);
+				}
+			});
+		}
+	}
+}
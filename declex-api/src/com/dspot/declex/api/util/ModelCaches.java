@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import android.content.Context;
+
+/**
+ * In-memory caches of the loaded models, used by the models declared with 
+ * {@link com.dspot.declex.annotation.UseModel#cache() @UseModel(cache=@ModelCache(...))}.
+ * <br><br>
+ * The caches keep a copy of the models as they were loaded, each load served from a cache
+ * receives its own copy bound to the context of the load (see {@link ModelCopies}). The kept
+ * models still reference the context where they were loaded, so the caches should be 
+ * released with {@link #clear()} when that context is destroyed (ex. in 
+ * {@code onTrimMemory} or {@code onDestroy}).
+ */
+public class ModelCaches {
+	
+	//<Model class, Cache>
+	private static final Map<Class<?>, Cache> caches = new HashMap<>();
+	
+	//<Model class, "rebind" or "rebindLazily_" method, or null if the class doesn't have it>
+	private static final Map<Class<?>, Method> rebindMethods = Collections.synchronizedMap(new HashMap<Class<?>, Method>());
+	private static final Map<Class<?>, Method> rebindLazilyMethods = Collections.synchronizedMap(new HashMap<Class<?>, Method>());
+	
+	public static synchronized Cache get(Class<?> modelClass, long ttl, int maxEntries) {
+		Cache cache = caches.get(modelClass);
+		if (cache == null) {
+			cache = new Cache(modelClass, ttl, maxEntries);
+			caches.put(modelClass, cache);
+		}
+		return cache;
+	}
+	
+	/**
+	 * Gets the cache of the model class, if it was already used, or null
+	 */
+	public static synchronized Cache get(Class<?> modelClass) {
+		return caches.get(modelClass);
+	}
+	
+	public static void invalidate(Class<?> modelClass) {
+		Cache cache = get(modelClass);
+		if (cache != null) cache.invalidate();
+	}
+	
+	/**
+	 * Invalidates and releases the caches of all the model classes
+	 */
+	public static synchronized void clear() {
+		for (Cache cache : caches.values()) {
+			cache.invalidate();
+		}
+		caches.clear();
+	}
+	
+	/**
+	 * Binds the models of the list, or the model, to the context. The models loaded with 
+	 * {@link LazyRebind} are marked to be bound the first time they're needed.
+	 */
+	private static void rebind(Object value, Context context, boolean lazy) throws Exception {
+		if (value instanceof List) {
+			for (Object item : (List<?>) value) {
+				rebind(item, context, lazy);
+			}
+			return;
+		}
+		
+		if (value == null) return;
+		
+		final Method rebind = lazy? getMethod(rebindLazilyMethods, value.getClass(), "rebindLazily_") 
+				                  : getMethod(rebindMethods, value.getClass(), "rebind");
+		if (rebind == null) return;
+		
+		try {
+			rebind.invoke(value, context);
+		} catch (InvocationTargetException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) throw (Exception) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw e;
+		}
+	}
+	
+	private static Method getMethod(Map<Class<?>, Method> methods, Class<?> cls, String name) {
+		if (methods.containsKey(cls)) return methods.get(cls);
+		
+		Method method = null;
+		try {
+			method = cls.getMethod(name, Context.class);
+		} catch (NoSuchMethodException | SecurityException e) {
+		}
+		
+		methods.put(cls, method);
+		return method;
+	}
+	
+	public static class Cache {
+		
+		private final Class<?> modelClass;
+		private final long ttl;
+		private final Map<Object, CacheEntry> entries;
+		
+		//Incremented on each invalidation, so that loads started before it are not cached 
+		private long version;
+		
+		private long hits;
+		private long misses;
+		
+		Cache(Class<?> modelClass, long ttl, final int maxEntries) {
+			this.modelClass = modelClass;
+			this.ttl = ttl;
+			this.entries = new LinkedHashMap<Object, CacheEntry>(maxEntries, 0.75f, true) {
+				
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+					return size() > maxEntries;
+				}
+			};
+		}
+		
+		/**
+		 * Returns a copy of the cached model for the arguments bound to the context, or loads 
+		 * it with the loader if it is not cached or it expired. The lists and the models are 
+		 * copied, so that the cached ones are not modified nor bound to other contexts.
+		 * The models loaded with {@link LazyRebind} are cached apart, since they are not bound.
+		 */
+		@SuppressWarnings("unchecked")
+		public <T> T load(Context context, Map<String, Object> args, List<?> useModels, Callable<T> loader) throws Exception {
+			
+			final boolean lazy = LazyRebind.isEnabled();
+			final Object key = Arrays.asList(normalize(args), useModels, lazy);
+			final long loadVersion;
+			
+			Object cached = null;
+			synchronized (this) {
+				CacheEntry entry = entries.get(key);
+				if (entry != null && System.currentTimeMillis() - entry.time <= ttl) {
+					hits++;
+					cached = entry.value;
+				} else {
+					if (entry != null) entries.remove(key);
+					misses++;
+				}
+				loadVersion = version;
+			}
+			
+			if (cached != null) {
+				final T value = (T) ModelCopies.copyOf(cached, modelClass);
+				rebind(value, context, lazy);
+				return value;
+			}
+			
+			T value = loader.call();
+			if (value == null) return null;
+			
+			final Object copy = ModelCopies.copyOf(value, modelClass);
+			synchronized (this) {
+				if (loadVersion == version) {
+					entries.put(key, new CacheEntry(copy));
+				}
+			}
+			
+			return value;
+		}
+		
+		public synchronized void invalidate() {
+			entries.clear();
+			version++;
+		}
+		
+		public synchronized long getHits() {
+			return hits;
+		}
+		
+		public synchronized long getMisses() {
+			return misses;
+		}
+		
+		public synchronized int size() {
+			return entries.size();
+		}
+		
+		@Override
+		public synchronized String toString() {
+			return "[size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + "]";
+		}
+		
+		/**
+		 * Empty arguments are ignored, so that ex. an empty "query" and a missing one 
+		 * are cached together
+		 */
+		private static Map<String, Object> normalize(Map<String, Object> args) {
+			Map<String, Object> normalized = new TreeMap<>();
+			if (args == null) return normalized;
+			
+			for (Map.Entry<String, Object> arg : args.entrySet()) {
+				final Object value = arg.getValue();
+				if (value == null || "".equals(value)) continue;
+				
+				normalized.put(arg.getKey(), value);
+			}
+			
+			return normalized;
+		}
+	}
+	
+	private static class CacheEntry {
+		final Object value;
+		final long time = System.currentTimeMillis();
+		
+		CacheEntry(Object value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies the models shared by several loads (ex. the coalesced loads), so that each caller
+ * gets its own instances. The copies are shallow: all the fields of the model, including the
+ * transient state of the generated classes (ex. if the model exists), are assigned to a new 
+ * instance created through the constructor without parameters.
+ */
+public class ModelCopies {
+	
+	//<Class, Instance fields of the class and its super classes>
+	private static final Map<Class<?>, Field[]> classFields = new ConcurrentHashMap<>();
+	
+	//<Class, Constructor without parameters of the class, or null if it doesn't have one>
+	private static final Map<Class<?>, Constructor<?>> constructors = Collections.synchronizedMap(new HashMap<Class<?>, Constructor<?>>());
+	
+	/**
+	 * Copies the list and the models in it, or the model. The objects which are not 
+	 * instances of the model class, or which can't be created, are shared.
+	 */
+	public static Object copyOf(Object value, Class<?> modelClass) {
+		if (value instanceof List) {
+			final List<?> list = (List<?>) value;
+			final List<Object> copy = new ArrayList<>(list.size());
+			for (Object item : list) {
+				copy.add(copyOf(item, modelClass));
+			}
+			return copy;
+		}
+		
+		if (!modelClass.isInstance(value)) return value;
+		
+		final Object copy = copy(value);
+		return copy == null? value : copy;
+	}
+	
+	/**
+	 * Creates a shallow copy of the model
+	 * 
+	 * @return the copy, or null if the model doesn't have a constructor without parameters
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T copy(T model) {
+		final Constructor<?> constructor = getConstructor(model.getClass());
+		if (constructor == null) return null;
+		
+		try {
+			final T copy = (T) constructor.newInstance();
+			for (Field field : getClassFields(model.getClass())) {
+				field.set(copy, field.get(model));
+			}
+			return copy;
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
+	private static Constructor<?> getConstructor(Class<?> cls) {
+		if (constructors.containsKey(cls)) return constructors.get(cls);
+		
+		Constructor<?> constructor = null;
+		try {
+			constructor = cls.getDeclaredConstructor();
+			constructor.setAccessible(true);
+		} catch (NoSuchMethodException | SecurityException e) {
+			constructor = null;
+		}
+		
+		constructors.put(cls, constructor);
+		return constructor;
+	}
+	
+	private static Field[] getClassFields(Class<?> cls) {
+		Field[] fields = classFields.get(cls);
+		if (fields != null) return fields;
+		
+		List<Field> fieldsList = new ArrayList<>();
+		
+		Class<?> superClass = cls;
+		while (superClass != null && !superClass.equals(Object.class)) {
+			for (Field field : superClass.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) continue;
+				
+				try {
+					field.setAccessible(true);
+				} catch (SecurityException e) {
+					continue;
+				}
+				
+				fieldsList.add(field);
+			}
+			
+			superClass = superClass.getSuperclass();
+		}
+		
+		fields = fieldsList.toArray(new Field[fieldsList.size()]);
+		classFields.put(cls, fields);
+		return fields;
+	}
+	
+}
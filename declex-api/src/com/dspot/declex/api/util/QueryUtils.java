@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.api.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the directives of the queries of the models, ex. "@db(...)" or "@server(...)".
+ * The content of the directives for the target is kept, the other directives are removed.
+ */
+public class QueryUtils {
+	
+	private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("@(\\w+)\\(([^)]+)\\)");
+	
+	private static final int MAX_CACHED_QUERIES = 64;
+	
+	//<Target + query, Resolved query>
+	private static final Map<String, String> resolvedQueries = new LinkedHashMap<String, String>(MAX_CACHED_QUERIES, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_CACHED_QUERIES;
+		}
+	};
+	
+	/**
+	 * Resolves all the directives in the query
+	 */
+	public static String resolveDirectives(String query, String target) {
+		return resolve(query, target, true);
+	}
+	
+	/**
+	 * Resolves only the first directive in the query
+	 */
+	public static String resolveFirstDirective(String query, String target) {
+		return resolve(query, target, false);
+	}
+	
+	private static String resolve(String query, String target, boolean all) {
+		if (query == null || query.indexOf('@') == -1) return query;
+		
+		final String key = (all? "*" : "1") + target + ":" + query;
+		synchronized (resolvedQueries) {
+			String resolved = resolvedQueries.get(key);
+			if (resolved != null) return resolved;
+		}
+		
+		StringBuffer resolved = new StringBuffer(query.length());
+		
+		Matcher matcher = DIRECTIVE_PATTERN.matcher(query);
+		while (matcher.find()) {
+			String replacement = matcher.group(1).equals(target)? matcher.group(2) : "";
+			matcher.appendReplacement(resolved, Matcher.quoteReplacement(replacement));
+			
+			if (!all) break;
+		}
+		matcher.appendTail(resolved);
+		
+		final String result = resolved.toString();
+		synchronized (resolvedQueries) {
+			resolvedQueries.put(key, result);
+		}
+		
+		return result;
+	}
+	
+}
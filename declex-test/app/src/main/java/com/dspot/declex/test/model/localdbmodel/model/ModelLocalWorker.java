@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.model.localdbmodel.model;
+
+import com.activeandroid.Model;
+import com.activeandroid.annotation.Column;
+import com.dspot.declex.annotation.AfterPut;
+import com.dspot.declex.annotation.LocalDBModel;
+
+import org.androidannotations.annotations.Bean;
+
+@LocalDBModel
+public class ModelLocalWorker extends Model {
+
+    //Puts the worker with this work place fail after it was saved
+    public static final String FAILING_WORK_PLACE = "fail";
+
+    @Column
+    String workPlace;
+
+    @Bean
+    WorkerBinding binding;
+
+    @AfterPut
+    void checkWorkPlace() {
+        if (FAILING_WORK_PLACE.equals(workPlace)) {
+            throw new IllegalStateException("The worker cannot be put");
+        }
+    }
+
+}
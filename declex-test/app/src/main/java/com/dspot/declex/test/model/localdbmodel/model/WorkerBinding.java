@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.model.localdbmodel.model;
+
+import org.androidannotations.annotations.AfterInject;
+import org.androidannotations.annotations.EBean;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Injected in the workers, it counts how many times a worker was bound to the context
+ */
+@EBean
+public class WorkerBinding {
+
+    public static final AtomicInteger bindings = new AtomicInteger();
+
+    @AfterInject
+    void countBinding() {
+        bindings.incrementAndGet();
+    }
+
+}
@@ -23,7 +23,7 @@ import com.dspot.declex.test.model.usemodel.model.ModelAddress_;
 
 import java.util.List;
 
-@UseModel
+@UseModel(parcelable = true)
 public class ModelUser {
 
     @Model
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.populate;
+
+import android.app.Activity;
+
+import com.dspot.declex.annotation.Populate;
+import com.dspot.declex.test.R;
+import com.dspot.declex.test.populate.model.ModelItem;
+import com.dspot.declex.test.populate.model.ModelItem_;
+import com.dspot.declex.test.populate.model.ModelSectionItem;
+
+import org.androidannotations.annotations.EActivity;
+
+import java.util.List;
+
+@EActivity(R.layout.activity_populate)
+public class PopulateActivity extends Activity {
+
+    @Populate(diff = true)
+    List<ModelItem_> items;
+
+    @Populate(stableIds = true)
+    List<ModelItem_> pinned;
+
+    @Populate(itemModels = ModelSectionItem.class, itemLayouts = R.layout.item_section)
+    List<ModelItem> feed;
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.event;
+
+import com.dspot.declex.api.util.EventRateLimiter;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PooledEventTest {
+
+    private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+    private final EventRateLimiter limiter = new EventRateLimiter(0, 100, false);
+
+    private final Runnable task = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private Object subscriber;
+
+    private void register(Object subscriber) {
+        this.subscriber = subscriber;
+        EventBus.getDefault().register(subscriber);
+    }
+
+    @Before
+    public void setUp() {
+        //The posted callbacks are executed only when the test runs the main looper
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        if (subscriber != null) EventBus.getDefault().unregister(subscriber);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    @Test
+    public void testNestedPostIsDeliveredBeforeRecycling() {
+        register(new NestingSubscriber());
+
+        ItemChanged_ first = ItemChanged_.create("first");
+        first.postEvent();
+
+        //The nested post is delivered after the first one, with its own values
+        assertEquals(Arrays.asList("first", "second"), received);
+        assertEquals("first", first.getItem());
+
+        ShadowLooper.runUiThreadTasks();
+        assertNull(first.getItem());
+    }
+
+    @Test
+    public void testTimedSubscriberKeepsTheEventUntilItsListenersRun() {
+        register(new TimedSubscriber());
+
+        ItemChanged_ event = ItemChanged_.create("timed");
+        event.postEvent();
+
+        ShadowLooper.runUiThreadTasks();
+        assertTrue(received.isEmpty());
+        assertEquals("timed", event.getItem());
+
+        ShadowLooper.idleMainLooper(100);
+        assertEquals(Collections.singletonList("timed"), received);
+        assertNull(event.getItem());
+    }
+
+    @Test
+    public void testCancelledTimedSubmissionReleasesTheEvent() {
+        register(new TimedSubscriber());
+
+        ItemChanged_ event = ItemChanged_.create("cancelled");
+        event.postEvent();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals("cancelled", event.getItem());
+
+        limiter.cancel();
+        assertNull(event.getItem());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testEventPostedInOtherThreadIsNotRecycled() throws Exception {
+        register(new RecordingSubscriber());
+
+        final ItemChanged_ event = ItemChanged_.create("background");
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                event.postEvent();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Collections.singletonList("background"), received);
+        assertEquals("background", event.getItem());
+    }
+
+    public class RecordingSubscriber {
+
+        @Subscribe(threadMode = ThreadMode.MAIN)
+        public void onItemChanged(ItemChanged_ event) {
+            received.add(event.getItem());
+        }
+
+    }
+
+    public class NestingSubscriber {
+
+        @Subscribe(threadMode = ThreadMode.MAIN)
+        public void onItemChanged(ItemChanged_ event) {
+            received.add(event.getItem());
+
+            //EventBus queues the post until the delivery of this event finishes
+            if ("first".equals(event.getItem())) {
+                ItemChanged_.create("second").postEvent();
+            }
+        }
+
+    }
+
+    public class TimedSubscriber {
+
+        @Subscribe(threadMode = ThreadMode.MAIN)
+        public void onItemChanged(final ItemChanged_ event) {
+            //As the generated timed subscribers, the listener reads the event when the execution finishes
+            limiter.submit(task, new Runnable() {
+                @Override
+                public void run() {
+                    received.add(event.getItem());
+                }
+            }, null, event);
+        }
+
+    }
+
+}
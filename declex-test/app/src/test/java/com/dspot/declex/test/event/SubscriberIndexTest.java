@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.event;
+
+import com.dspot.declex.event.DeclexEventBusIndex;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
+import org.greenrobot.eventbus.meta.SubscriberInfo;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class SubscriberIndexTest {
+
+    private static Method getSubscriberMethod() {
+        for (Method method : EventSubscriberBean_.class.getMethods()) {
+            if (method.getAnnotation(Subscribe.class) != null) return method;
+        }
+        throw new AssertionError("The subscriber method was not generated");
+    }
+
+    @Test
+    public void testGeneratedSubscribersAreIndexed() {
+        SubscriberInfo info = new DeclexEventBusIndex().getSubscriberInfo(EventSubscriberBean_.class);
+        assertNotNull(info);
+        assertEquals(EventSubscriberBean_.class, info.getSubscriberClass());
+
+        //The bean doesn't declare its own @Subscribe methods, its super classes are not scanned
+        assertFalse(info.shouldCheckSuperclass());
+
+        Method subscriberMethod = getSubscriberMethod();
+        assertEquals("onItemSelected", subscriberMethod.getName());
+        assertEquals(ThreadMode.MAIN, subscriberMethod.getAnnotation(Subscribe.class).threadMode());
+        assertEquals(1, info.getSubscriberMethods().length);
+    }
+
+    @Test
+    public void testOtherClassesAreNotIndexed() {
+        assertNull(new DeclexEventBusIndex().getSubscriberInfo(EventSubscriberBean.class));
+        assertNull(new DeclexEventBusIndex().getSubscriberInfo(Object.class));
+    }
+
+    @Test
+    public void testEventsAreDeliveredThroughTheIndex() throws Exception {
+        //The subscriber methods are resolved through the index
+        EventBus eventBus = EventBus.builder().addIndex(new DeclexEventBusIndex()).build();
+
+        EventSubscriberBean_ bean = EventSubscriberBean_.getInstance_(RuntimeEnvironment.application);
+        eventBus.register(bean);
+
+        Class<?> eventClass = getSubscriberMethod().getParameterTypes()[0];
+        eventBus.post(eventClass.newInstance());
+        assertEquals(1, bean.getSelections());
+
+        eventBus.unregister(bean);
+        eventBus.post(eventClass.newInstance());
+        assertEquals(1, bean.getSelections());
+    }
+
+}
@@ -16,7 +16,9 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import com.google.gson.Gson;
 
@@ -125,4 +127,103 @@ public class JsonModelTest {
         assertTrue(listModelSocialWorker.get(0).getStudyUniversity());
         assertTrue(listModelSocialWorker.get(0).isStudyUniversity());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetModelFromJsonSkipsUnknownAndNullValues() {
+        final String modelJson = "{\"unknown\":{\"a\":[1,2]},\"workPlace\":\"Schools\",\"studyUniversity\":null,\"professionalFunctions\":null}";
+        ModelSocialWorker_ socialWorker = ModelSocialWorker_.fromJson(modelJson);
+        assertNotNull(socialWorker);
+        assertEquals("Schools", socialWorker.getWorkPlace());
+        assertNull(socialWorker.getProfessionalFunctions());
+        assertFalse(socialWorker.isStudyUniversity());
+    }
+
+    @Test
+    public void testGetModelFromJsonBooleanAsString() {
+        ModelSocialWorker_ socialWorker = ModelSocialWorker_.fromJson("{\"studyUniversity\":\"true\"}");
+        assertNotNull(socialWorker);
+        assertTrue(socialWorker.isStudyUniversity());
+    }
+
+    @Test
+    public void testConvertToJsonModelRoundTrip() {
+        ModelSocialWorker_ socialWorker = new ModelSocialWorker_();
+        socialWorker.setWorkPlace("Schools \"North\"");
+        socialWorker.setProfessionalFunctions("Supervision");
+        socialWorker.setStudyUniversity(true);
+
+        ModelSocialWorker_ parsed = ModelSocialWorker_.fromJson(socialWorker.toJson());
+        assertEquals(socialWorker.getWorkPlace(), parsed.getWorkPlace());
+        assertEquals(socialWorker.getProfessionalFunctions(), parsed.getProfessionalFunctions());
+        assertTrue(parsed.isStudyUniversity());
+        assertEquals(socialWorker.toJson(), parsed.toJson());
+    }
+
+    @Test
+    public void testConvertToJsonModelCachedFields() {
+        final String modelJson = "{\"workPlace\":\"Schools\",\"professionalFunctions\":\"Supervision\",\"studyUniversity\":true,\"address\":null}";
+        final String modelJsonSomeAttributes = "{\"workPlace\":\"Schools\",\"professionalFunctions\":\"Supervision\"}";
+
+        ModelSocialWorker_ socialWorker = new ModelSocialWorker_();
+        socialWorker.setWorkPlace("Schools");
+        socialWorker.setProfessionalFunctions("Supervision");
+        socialWorker.setStudyUniversity(true);
+
+        // The same fields in a different order use the same cached instance
+        assertEquals(modelJsonSomeAttributes, socialWorker.toJson("workPlace, professionalFunctions"));
+        assertEquals(modelJsonSomeAttributes, socialWorker.toJson("professionalFunctions,workPlace"));
+        assertEquals(modelJsonSomeAttributes, socialWorker.toJson(" workPlace ,professionalFunctions, workPlace"));
+
+        // The fields of a previous serialization are not kept
+        assertEquals(modelJson, socialWorker.toJson());
+        assertEquals(modelJson, socialWorker.toJson(""));
+        assertEquals("{\"workPlace\":\"Schools\"}", socialWorker.toJson("workPlace"));
+        assertEquals(modelJson, socialWorker.toJson());
+    }
+
+    @Test
+    public void testConvertToJsonModelConcurrently() throws Exception {
+        final String modelJson = "{\"workPlace\":\"Schools\",\"professionalFunctions\":\"Supervision\",\"studyUniversity\":true,\"address\":null}";
+        final String modelJsonSomeAttributes = "{\"workPlace\":\"Schools\",\"professionalFunctions\":\"Supervision\"}";
+
+        final ModelSocialWorker_ socialWorker = new ModelSocialWorker_();
+        socialWorker.setWorkPlace("Schools");
+        socialWorker.setProfessionalFunctions("Supervision");
+        socialWorker.setStudyUniversity(true);
+
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final boolean someAttributes = i % 2 == 0;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 100; j++) {
+                            String jsonGenerated = someAttributes ? socialWorker.toJson("workPlace, professionalFunctions") : socialWorker.toJson();
+                            String expected = someAttributes ? modelJsonSomeAttributes : modelJson;
+                            if (!expected.equals(jsonGenerated)) errors.add(jsonGenerated);
+
+                            ModelSocialWorker_ parsed = ModelSocialWorker_.fromJson(expected);
+                            if (!"Schools".equals(parsed.getWorkPlace())) errors.add(expected);
+                        }
+                    } catch (InterruptedException e) {
+                        errors.add(e.toString());
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+}
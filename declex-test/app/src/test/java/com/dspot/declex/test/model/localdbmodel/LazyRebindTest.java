@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.model.localdbmodel;
+
+import com.activeandroid.query.Delete;
+import com.dspot.declex.api.util.LazyRebind;
+import com.dspot.declex.api.util.ModelCaches;
+import com.dspot.declex.test.model.localdbmodel.model.ModelLocalWorker_;
+import com.dspot.declex.test.model.localdbmodel.model.WorkerBinding;
+import com.dspot.declex.test.model.localdbmodel.model.WorkerBinding_;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class LazyRebindTest {
+
+    @Before
+    public void setUp() {
+        new Delete().from(ModelLocalWorker_.class).execute();
+
+        List<ModelLocalWorker_> workers = new ArrayList<>();
+        for (String workPlace : Arrays.asList("Schools", "Hospitals", "Courts")) {
+            ModelLocalWorker_ worker = new ModelLocalWorker_();
+            worker.setWorkPlace(workPlace);
+            workers.add(worker);
+        }
+        ModelLocalWorker_.putModelList_(workers, null);
+    }
+
+    @After
+    public void tearDown() {
+        ModelCaches.clear();
+    }
+
+    private static List<ModelLocalWorker_> loadLazily() throws Exception {
+        return LazyRebind.load(new Callable<List<ModelLocalWorker_>>() {
+            @Override
+            public List<ModelLocalWorker_> call() throws Exception {
+                return ModelLocalWorker_.getModelList_(RuntimeEnvironment.application, null, null);
+            }
+        });
+    }
+
+    @Test
+    public void testListIsBoundWhenLoaded() {
+        final int bindings = WorkerBinding.bindings.get();
+
+        List<ModelLocalWorker_> workers = ModelLocalWorker_.getModelList_(RuntimeEnvironment.application, null, null);
+
+        assertEquals(3, workers.size());
+        assertEquals(bindings + 3, WorkerBinding.bindings.get());
+    }
+
+    @Test
+    public void testLazyListIsBoundWhenABoundFieldIsRead() throws Exception {
+        final int bindings = WorkerBinding.bindings.get();
+
+        List<ModelLocalWorker_> workers = loadLazily();
+        assertEquals(3, workers.size());
+        assertEquals(bindings, WorkerBinding.bindings.get());
+
+        //The loaded columns don't need the binding
+        assertNotNull(workers.get(0).getWorkPlace());
+        assertEquals(bindings, WorkerBinding.bindings.get());
+
+        assertNotNull(workers.get(0).getBinding());
+        assertEquals(bindings + 1, WorkerBinding.bindings.get());
+
+        //The model is bound only once
+        assertNotNull(workers.get(0).getBinding());
+        workers.get(0).rebindIfNeeded();
+        assertEquals(bindings + 1, WorkerBinding.bindings.get());
+    }
+
+    @Test
+    public void testLazyModelIsBoundOnceByConcurrentReaders() throws Exception {
+        final ModelLocalWorker_ worker = loadLazily().get(0);
+        final int bindings = WorkerBinding.bindings.get();
+
+        final int readers = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(readers);
+        final List<WorkerBinding> read = Collections.synchronizedList(new ArrayList<WorkerBinding>());
+
+        for (int i = 0; i < readers; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        read.add(worker.getBinding());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        done.await();
+
+        assertEquals(bindings + 1, WorkerBinding.bindings.get());
+        assertEquals(readers, read.size());
+        for (WorkerBinding binding : read) {
+            assertSame(read.get(0), binding);
+            assertTrue(binding instanceof WorkerBinding_);
+        }
+    }
+
+    @Test
+    public void testLazyLoadsAreCachedApart() throws Exception {
+        final ModelCaches.Cache cache = ModelCaches.get(ModelLocalWorker_.class, 60000, 10);
+        final AtomicInteger loads = new AtomicInteger();
+        final Callable<List<ModelLocalWorker_>> loader = new Callable<List<ModelLocalWorker_>>() {
+            @Override
+            public List<ModelLocalWorker_> call() throws Exception {
+                loads.incrementAndGet();
+                return ModelLocalWorker_.getModelList_(RuntimeEnvironment.application, null, null);
+            }
+        };
+
+        LazyRebind.load(new Callable<List<ModelLocalWorker_>>() {
+            @Override
+            public List<ModelLocalWorker_> call() throws Exception {
+                return cache.load(RuntimeEnvironment.application, null, null, loader);
+            }
+        });
+        assertEquals(1, loads.get());
+
+        //A load which expects bound models doesn't get the lazy ones
+        cache.load(RuntimeEnvironment.application, null, null, loader);
+        assertEquals(2, loads.get());
+
+        cache.load(RuntimeEnvironment.application, null, null, loader);
+        assertEquals(2, loads.get());
+    }
+
+}
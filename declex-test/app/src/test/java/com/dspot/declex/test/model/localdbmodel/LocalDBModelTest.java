@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.model.localdbmodel;
+
+import com.activeandroid.ActiveAndroid;
+import com.activeandroid.query.Delete;
+import com.activeandroid.query.Select;
+import com.dspot.declex.test.model.localdbmodel.model.ModelLocalWorker;
+import com.dspot.declex.test.model.localdbmodel.model.ModelLocalWorker_;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class LocalDBModelTest {
+
+    @Before
+    public void setUp() {
+        new Delete().from(ModelLocalWorker_.class).execute();
+    }
+
+    private static List<ModelLocalWorker_> workers(String... workPlaces) {
+        List<ModelLocalWorker_> workers = new ArrayList<>();
+        for (String workPlace : workPlaces) {
+            ModelLocalWorker_ worker = new ModelLocalWorker_();
+            worker.setWorkPlace(workPlace);
+            workers.add(worker);
+        }
+        return workers;
+    }
+
+    private static int savedWorkers() {
+        return new Select().from(ModelLocalWorker_.class).execute().size();
+    }
+
+    @Test
+    public void testPutModelListSavesAllTheModels() {
+        List<ModelLocalWorker_> workers = workers("Schools", "Hospitals", "Courts");
+
+        assertNotNull(ModelLocalWorker_.putModelList_(workers, null));
+
+        assertEquals(3, savedWorkers());
+        for (ModelLocalWorker_ worker : workers) {
+            assertNotNull(worker.getId());
+        }
+        assertFalse(ActiveAndroid.getDatabase().inTransaction());
+    }
+
+    @Test
+    public void testPutModelListIsRolledBackWhenAModelFails() {
+        List<ModelLocalWorker_> workers = workers("Schools", ModelLocalWorker.FAILING_WORK_PLACE, "Courts");
+
+        try {
+            ModelLocalWorker_.putModelList_(workers, null);
+            fail("The put of the list should fail");
+        } catch (IllegalStateException e) {
+            //The model which failed was already saved, the transaction discards it with the previous ones
+        }
+
+        assertEquals(0, savedWorkers());
+        assertFalse(ActiveAndroid.getDatabase().inTransaction());
+    }
+
+    @Test
+    public void testPutModelSavesTheModelInItsOwnTransaction() {
+        ModelLocalWorker_ worker = workers("Schools").get(0);
+
+        assertNotNull(worker.putModel_(null));
+
+        assertEquals(1, savedWorkers());
+        assertFalse(ActiveAndroid.getDatabase().inTransaction());
+    }
+
+}
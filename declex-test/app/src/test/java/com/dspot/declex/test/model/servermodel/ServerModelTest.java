@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.model.servermodel;
+
+import com.dspot.declex.api.exception.ServerJsonParseException;
+import com.dspot.declex.api.server.ServerModelListener;
+import com.dspot.declex.test.model.servermodel.model.ModelServerWorker;
+import com.dspot.declex.test.model.servermodel.model.ModelServerWorker_;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ServerModelTest {
+
+    //The colon after the first name is missing, it fails even with a lenient reader
+    private static final String MALFORMED_JSON = "[{\"workPlace\" \"Schools\"}]";
+
+    @After
+    public void tearDown() {
+        ModelServerWorker.responseBody = "[]";
+    }
+
+    @Test
+    public void testStreamedModelsAreReadFromTheResponse() {
+        ModelServerWorker.responseBody = "[{\"workPlace\":\"Schools\"},{\"workPlace\":\"Hospitals\"}]";
+
+        final List<ModelServerWorker_> workers = new ArrayList<>();
+        ModelServerWorker_.getServerModelList(RuntimeEnvironment.application, null, new ServerModelListener<ModelServerWorker_>() {
+            @Override
+            public void onModel(ModelServerWorker_ model) {
+                workers.add(model);
+            }
+        });
+
+        assertEquals(2, workers.size());
+        assertEquals("Schools", workers.get(0).getWorkPlace());
+        assertEquals("Hospitals", workers.get(1).getWorkPlace());
+    }
+
+    @Test(expected = ServerJsonParseException.class)
+    public void testMalformedStreamedResponseFailsWithParseException() {
+        ModelServerWorker.responseBody = MALFORMED_JSON;
+
+        ModelServerWorker_.getServerModelList(RuntimeEnvironment.application, null, new ServerModelListener<ModelServerWorker_>() {
+            @Override
+            public void onModel(ModelServerWorker_ model) {
+            }
+        });
+    }
+
+    @Test(expected = ServerJsonParseException.class)
+    public void testMalformedStreamedListLoadFailsWithParseException() {
+        ModelServerWorker.responseBody = MALFORMED_JSON;
+        ModelServerWorker_.getModelList_(RuntimeEnvironment.application, null, null);
+    }
+
+    @Test(expected = ServerJsonParseException.class)
+    public void testMalformedBufferedResponseFailsWithParseException() {
+        ModelServerWorker.responseBody = MALFORMED_JSON;
+        ModelServerWorker_.getModel_(RuntimeEnvironment.application, null, null);
+    }
+
+}
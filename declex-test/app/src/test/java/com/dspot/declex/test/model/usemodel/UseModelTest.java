@@ -16,6 +16,8 @@
 package com.dspot.declex.test.model.usemodel;
 
 import android.content.Context;
+import android.os.Parcel;
+import android.os.Parcelable;
 
 import com.dspot.declex.test.model.usemodel.model.ModelAddress_;
 import com.dspot.declex.test.model.usemodel.model.ModelClient_;
@@ -39,6 +41,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -48,6 +51,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
@@ -237,6 +241,74 @@ public class UseModelTest {
         }
     }
 
+    @Test
+    public void testParcelableEnhancedClass() {
+        ModelUser_ userParcel = ModelUser_.getInstance_(RuntimeEnvironment.application);
+
+        userParcel.setName("Some Name");
+        userParcel.setEmail("email@example.com");
+        userParcel.setAge(50);
+        userParcel.setSpecial(true);
+
+        ModelAddress_ address = new ModelAddress_();
+        userParcel.setAddress(address);
+
+        List<ModelUser> contacts = new ArrayList<>();
+        userParcel.setContacts(contacts);
+
+        // Write ModelUser class to a Parcel [implement writeToParcel]
+        Parcel parcel = Parcel.obtain();
+        userParcel.writeToParcel(parcel, 0);
+        assertThat(parcel.dataSize(), greaterThan(0));
+
+        // Read ModelUser class from the Parcel [implement CREATOR]
+        parcel.setDataPosition(0);
+        ModelUser_ userUnparcel = ModelUser_.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertNotNull(userUnparcel);
+        assertEquals("Some Name", userUnparcel.getName());
+        assertEquals("email@example.com", userUnparcel.getEmail());
+        assertEquals(50, userUnparcel.getAge());
+        assertTrue(userUnparcel.isSpecial());
+
+        // The fields are kept as in the Serialization
+        assertNull(userUnparcel.getAddress());
+        assertNotNull(userUnparcel.getContacts());
+        assertTrue(userUnparcel.getContacts().isEmpty());
+    }
+
+    @Test
+    public void testParcelableKeepsCollectionClassesAndCycles() {
+        ModelUser_ userParcel = ModelUser_.getInstance_(RuntimeEnvironment.application);
+        userParcel.setName("Some Name");
+
+        // The user is one of its own contacts
+        LinkedList<ModelUser> contacts = new LinkedList<>();
+        contacts.add(userParcel);
+        userParcel.setContacts(contacts);
+
+        Parcel parcel = Parcel.obtain();
+        userParcel.writeToParcel(parcel, 0);
+
+        parcel.setDataPosition(0);
+        ModelUser_ userUnparcel = ModelUser_.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+
+        assertThat(userUnparcel.getContacts(), instanceOf(LinkedList.class));
+        assertEquals(1, userUnparcel.getContacts().size());
+
+        ModelUser_ contact = (ModelUser_) userUnparcel.getContacts().get(0);
+        assertEquals("Some Name", contact.getName());
+        assertSame(contact, contact.getContacts().get(0));
+    }
+
+    @Test
+    public void testModelsAreParcelableOnlyIfRequested() {
+        assertTrue(Parcelable.class.isAssignableFrom(ModelUser_.class));
+        assertFalse(Parcelable.class.isAssignableFrom(ModelAddress_.class));
+    }
+
     /**
      * Declex does not serialize the fields that are objects
      * **/
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.populate;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.dspot.declex.test.R;
+import com.dspot.declex.test.populate.model.ModelItem_;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class PopulateAdapterTest {
+
+    private PopulateActivity_ activity;
+    private RecyclerView.Adapter<?> adapter;
+
+    private final List<String> notifications = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(PopulateActivity_.class);
+
+        populate(item(1, "One", "First"), item(2, "Two", "Second"));
+
+        adapter = ((RecyclerView) activity.findViewById(R.id.items)).getAdapter();
+        assertNotNull(adapter);
+
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                notifications.add("all");
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                notifications.add("changed:" + positionStart + "," + itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                notifications.add("inserted:" + positionStart + "," + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                notifications.add("removed:" + positionStart + "," + itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                notifications.add("moved:" + fromPosition + "," + toPosition);
+            }
+        });
+    }
+
+    private static ModelItem_ item(long id, String title, String detail) {
+        ModelItem_ item = new ModelItem_();
+        item.setId(id);
+        item.setTitle(title);
+        item.setDetail(detail);
+        return item;
+    }
+
+    private void populate(ModelItem_... items) {
+        activity.items = new ArrayList<>(Arrays.asList(items));
+        activity._populate_items(null, null);
+    }
+
+    @Test
+    public void testNewInstancesWithTheSameValuesAreNotRebound() {
+        populate(item(1, "One", "First"), item(2, "Two", "Second"));
+
+        assertEquals(2, adapter.getItemCount());
+        assertTrue(notifications.toString(), notifications.isEmpty());
+    }
+
+    @Test
+    public void testChangedValuesAreNotified() {
+        populate(item(1, "One", "First"), item(2, "Two", "Changed"));
+
+        assertEquals(Arrays.asList("changed:1,1"), notifications);
+    }
+
+    @Test
+    public void testModifiedInstanceIsNotified() {
+        final List<ModelItem_> items = activity.items;
+        items.get(0).setTitle("Uno");
+
+        populate(items.get(0), items.get(1));
+
+        assertEquals(Arrays.asList("changed:0,1"), notifications);
+    }
+
+    @Test
+    public void testInsertedAndRemovedItemsAreNotified() {
+        populate(item(2, "Two", "Second"), item(3, "Three", "Third"));
+
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(2, notifications.size());
+        assertTrue(notifications.toString(), notifications.contains("removed:0,1"));
+        assertTrue(notifications.toString(), notifications.contains("inserted:1,1"));
+    }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.populate;
+
+import android.support.v7.widget.RecyclerView;
+import android.widget.TextView;
+
+import com.dspot.declex.test.R;
+import com.dspot.declex.test.populate.model.ModelItem;
+import com.dspot.declex.test.populate.model.ModelItem_;
+import com.dspot.declex.test.populate.model.ModelSectionItem_;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class PopulateItemLayoutsTest {
+
+    private PopulateActivity_ activity;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(PopulateActivity_.class);
+    }
+
+    private static ModelItem_ item(long id, String title) {
+        ModelItem_ item = new ModelItem_();
+        item.setId(id);
+        item.setTitle(title);
+        return item;
+    }
+
+    private static ModelSectionItem_ sectionItem(long id, String title, String section) {
+        ModelSectionItem_ item = new ModelSectionItem_();
+        item.setId(id);
+        item.setTitle(title);
+        item.setSection(section);
+        return item;
+    }
+
+    private RecyclerView.Adapter<?> getAdapter(int recyclerViewId) {
+        RecyclerView.Adapter<?> adapter = ((RecyclerView) activity.findViewById(recyclerViewId)).getAdapter();
+        assertNotNull(adapter);
+        return adapter;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private RecyclerView.ViewHolder bind(int recyclerViewId, int position) {
+        RecyclerView recyclerView = (RecyclerView) activity.findViewById(recyclerViewId);
+        RecyclerView.Adapter adapter = recyclerView.getAdapter();
+
+        RecyclerView.ViewHolder viewHolder = adapter.createViewHolder(recyclerView, adapter.getItemViewType(position));
+        adapter.bindViewHolder(viewHolder, position);
+        return viewHolder;
+    }
+
+    private static String getText(RecyclerView.ViewHolder viewHolder, int viewId) {
+        return ((TextView) viewHolder.itemView.findViewById(viewId)).getText().toString();
+    }
+
+    @Test
+    public void testStableIdsAreNotUsedUnlessRequested() {
+        activity.items = new ArrayList<>(Arrays.asList(item(7, "Seven")));
+        activity._populate_items(null, null);
+
+        assertFalse(getAdapter(R.id.items).hasStableIds());
+    }
+
+    @Test
+    public void testRequestedStableIdsAreTheModelIds() {
+        activity.pinned = new ArrayList<>(Arrays.asList(item(7, "Seven"), item(3, "Three")));
+        activity._populate_pinned(null, null);
+
+        RecyclerView.Adapter<?> adapter = getAdapter(R.id.pinned);
+        assertTrue(adapter.hasStableIds());
+        assertEquals(7, adapter.getItemId(0));
+        assertEquals(3, adapter.getItemId(1));
+    }
+
+    @Test
+    public void testItemModelsAreInflatedWithTheirLayout() {
+        activity.feed = new ArrayList<ModelItem>(Arrays.asList(item(1, "One"), sectionItem(2, "Two", "News")));
+        activity._populate_feed(null, null);
+
+        RecyclerView.Adapter<?> adapter = getAdapter(R.id.feed);
+        assertEquals(R.layout.item_populate, adapter.getItemViewType(0));
+        assertEquals(R.layout.item_section, adapter.getItemViewType(1));
+    }
+
+    @Test
+    public void testViewsOfTheItemLayoutsAreBound() {
+        activity.feed = new ArrayList<ModelItem>(Arrays.asList(item(1, "One"), sectionItem(2, "Two", "News")));
+        activity._populate_feed(null, null);
+
+        RecyclerView.ViewHolder itemHolder = bind(R.id.feed, 0);
+        assertEquals("One", getText(itemHolder, R.id.title));
+        assertNull(itemHolder.itemView.findViewById(R.id.section));
+
+        RecyclerView.ViewHolder sectionHolder = bind(R.id.feed, 1);
+        assertEquals("News", getText(sectionHolder, R.id.section));
+        assertEquals("Two", getText(sectionHolder, R.id.title));
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.populate;
+
+import android.support.v7.widget.RecyclerView;
+import android.widget.TextView;
+
+import com.dspot.declex.test.R;
+import com.dspot.declex.test.populate.model.ModelItem_;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class PopulateViewHolderTest {
+
+    private PopulateActivity_ activity;
+    private RecyclerView recyclerView;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(PopulateActivity_.class);
+
+        activity.items = new ArrayList<>(Arrays.asList(
+            item(1, "One", "First note"),
+            item(2, "Two", "Second note")
+        ));
+        activity._populate_items(null, null);
+
+        recyclerView = (RecyclerView) activity.findViewById(R.id.items);
+    }
+
+    private static ModelItem_ item(long id, String title, String note) {
+        ModelItem_ item = new ModelItem_();
+        item.setId(id);
+        item.setTitle(title);
+        item.setNote(note);
+        return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RecyclerView.ViewHolder createViewHolder() {
+        RecyclerView.Adapter adapter = recyclerView.getAdapter();
+        return adapter.createViewHolder(recyclerView, adapter.getItemViewType(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bind(RecyclerView.ViewHolder viewHolder, int position) {
+        recyclerView.getAdapter().bindViewHolder(viewHolder, position);
+    }
+
+    private static TextView getView(RecyclerView.ViewHolder viewHolder, int viewId) {
+        return (TextView) viewHolder.itemView.findViewById(viewId);
+    }
+
+    @Test
+    public void testRecycledViewHolderShowsTheValuesOfEachItem() {
+        RecyclerView.ViewHolder viewHolder = createViewHolder();
+
+        bind(viewHolder, 0);
+        assertEquals("One", getView(viewHolder, R.id.title).getText().toString());
+
+        bind(viewHolder, 1);
+        assertEquals("Two", getView(viewHolder, R.id.title).getText().toString());
+
+        bind(viewHolder, 0);
+        assertEquals("One", getView(viewHolder, R.id.title).getText().toString());
+    }
+
+    @Test
+    public void testChangedValueIsAssignedOnRebind() {
+        RecyclerView.ViewHolder viewHolder = createViewHolder();
+        bind(viewHolder, 0);
+
+        activity.items.get(0).setTitle("Uno");
+        bind(viewHolder, 0);
+
+        assertEquals("Uno", getView(viewHolder, R.id.title).getText().toString());
+    }
+
+    @Test
+    public void testEditedViewIsAssignedOnRebind() {
+        RecyclerView.ViewHolder viewHolder = createViewHolder();
+        bind(viewHolder, 0);
+        assertEquals("First note", getView(viewHolder, R.id.note).getText().toString());
+
+        //The user edits the view, the model doesn't change
+        getView(viewHolder, R.id.note).setText("Edited");
+        bind(viewHolder, 0);
+
+        assertEquals("First note", getView(viewHolder, R.id.note).getText().toString());
+    }
+
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.processor;
+
+import com.dspot.declex.helper.CompilationUnitIndex;
+import com.dspot.declex.util.ProcessingSession;
+
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CompilationUnitIndexTest {
+
+    private static final String SOURCE =
+            "package sample;\n" +
+            "\n" +
+            "import java.util.List;\n" +
+            "\n" +
+            "public class Sample {\n" +
+            "\n" +
+            "    @Deprecated\n" +
+            "    private List<String> items;\n" +
+            "\n" +
+            "    @SuppressWarnings(\"unchecked\")\n" +
+            "    public void select(@Deprecated String item) {\n" +
+            "        @SuppressWarnings(\"unused\") int index = items.indexOf(item);\n" +
+            "    }\n" +
+            "\n" +
+            "    public static class Inner {\n" +
+            "        @Override\n" +
+            "        public String toString() {\n" +
+            "            return \"\";\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    private ProcessingSession session;
+
+    @Before
+    public void setUp() {
+        session = new ProcessingSession();
+        session.enter();
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void testAnnotationsAreReadInsideTheElement() throws Throwable {
+        compile(new Probe() {
+            @Override
+            public void run(TypeElement sample, AndroidAnnotationsEnvironment environment) {
+                CompilationUnitIndex index = CompilationUnitIndex.forElement(sample, environment);
+                assertNotNull(index);
+
+                Element field = getMember(sample, ElementKind.FIELD, "items");
+                assertEquals(Collections.singletonList("Deprecated"), names(index.getAnnotations(field)));
+
+                Element method = getMember(sample, ElementKind.METHOD, "select");
+                List<CompilationUnitIndex.Usage> annotations = index.getAnnotations(method);
+                assertEquals(Arrays.asList("SuppressWarnings", "Deprecated", "SuppressWarnings"), names(annotations));
+
+                assertEquals(SOURCE.indexOf("@SuppressWarnings(\"unchecked\")"), annotations.get(0).getPosition());
+                assertEquals(SOURCE.indexOf("@Deprecated String"), annotations.get(1).getPosition());
+                assertEquals(SOURCE.indexOf("@SuppressWarnings(\"unused\")"), annotations.get(2).getPosition());
+            }
+        });
+    }
+
+    @Test
+    public void testAnnotationsOfNestedClassesAreIncludedInTheEnclosingClass() throws Throwable {
+        compile(new Probe() {
+            @Override
+            public void run(TypeElement sample, AndroidAnnotationsEnvironment environment) {
+                CompilationUnitIndex index = CompilationUnitIndex.forElement(sample, environment);
+
+                Element inner = getMember(sample, ElementKind.CLASS, "Inner");
+                assertEquals(Collections.singletonList("Override"), names(index.getAnnotations(inner)));
+
+                assertEquals(
+                    Arrays.asList("Deprecated", "SuppressWarnings", "Deprecated", "SuppressWarnings", "Override"),
+                    names(index.getAnnotations(sample))
+                );
+            }
+        });
+    }
+
+    @Test
+    public void testImportsAndIdentifiersAreIndexed() throws Throwable {
+        compile(new Probe() {
+            @Override
+            public void run(TypeElement sample, AndroidAnnotationsEnvironment environment) {
+                CompilationUnitIndex index = CompilationUnitIndex.forElement(sample, environment);
+
+                assertEquals(Collections.singletonList("java.util.List"), index.getImports());
+
+                Element field = getMember(sample, ElementKind.FIELD, "items");
+                //The annotation types are identifiers too
+                assertEquals(Arrays.asList("Deprecated", "List", "String"), names(index.getIdentifiers(field)));
+
+                Element method = getMember(sample, ElementKind.METHOD, "select");
+                assertTrue(names(index.getIdentifiers(method)).containsAll(Arrays.asList("items", "item")));
+            }
+        });
+    }
+
+    @Test
+    public void testIndexIsBuiltOncePerSession() throws Throwable {
+        compile(new Probe() {
+            @Override
+            public void run(TypeElement sample, AndroidAnnotationsEnvironment environment) {
+                CompilationUnitIndex index = CompilationUnitIndex.forElement(sample, environment);
+
+                assertSame(index, CompilationUnitIndex.forElement(sample, environment));
+                assertSame(index, CompilationUnitIndex.forElement(getMember(sample, ElementKind.CLASS, "Inner"), environment));
+            }
+        });
+    }
+
+    @Test
+    public void testElementsNotInTheSourcesHaveNoIndex() throws Throwable {
+        compile(new Probe() {
+            @Override
+            public void run(TypeElement sample, AndroidAnnotationsEnvironment environment) {
+                TypeElement string = environment.getProcessingEnvironment().getElementUtils().getTypeElement("java.lang.String");
+                assertNull(CompilationUnitIndex.forElement(string, environment));
+            }
+        });
+    }
+
+    private static Element getMember(TypeElement typeElement, ElementKind kind, String name) {
+        for (Element member : typeElement.getEnclosedElements()) {
+            if (member.getKind() == kind && member.getSimpleName().contentEquals(name)) {
+                return member;
+            }
+        }
+
+        throw new AssertionError(kind + " " + name + " not found");
+    }
+
+    private static List<String> names(List<CompilationUnitIndex.Usage> usages) {
+        List<String> names = new ArrayList<>();
+        for (CompilationUnitIndex.Usage usage : usages) {
+            names.add(usage.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Compiles the sample source, running the probe in the first round of the processing
+     */
+    private void compile(Probe probe) throws Throwable {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("The tests should run in a JDK", compiler);
+
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///sample/Sample.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return SOURCE;
+            }
+        };
+
+        ProbeProcessor processor = new ProbeProcessor(probe);
+
+        JavaCompiler.CompilationTask task = compiler.getTask(
+            null, null, null, Collections.singletonList("-proc:only"), null, Collections.singletonList(source)
+        );
+        task.setProcessors(Collections.singletonList(processor));
+        task.call();
+
+        if (processor.failure != null) throw processor.failure;
+        assertTrue("The probe was not run", processor.probed);
+    }
+
+    private interface Probe {
+        void run(TypeElement sample, AndroidAnnotationsEnvironment environment);
+    }
+
+    @SupportedAnnotationTypes("*")
+    private static class ProbeProcessor extends AbstractProcessor {
+
+        private final Probe probe;
+
+        private boolean probed;
+        private Throwable failure;
+
+        ProbeProcessor(Probe probe) {
+            this.probe = probe;
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (probed) return false;
+            probed = true;
+
+            AndroidAnnotationsEnvironment environment = mock(AndroidAnnotationsEnvironment.class);
+            when(environment.getProcessingEnvironment()).thenReturn(processingEnv);
+
+            try {
+                probe.run(processingEnv.getElementUtils().getTypeElement("sample.Sample"), environment);
+            } catch (Throwable e) {
+                failure = e;
+            }
+
+            return false;
+        }
+    }
+
+}
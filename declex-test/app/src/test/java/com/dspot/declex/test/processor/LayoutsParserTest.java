@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.processor;
+
+import com.dspot.declex.parser.LayoutsParser;
+import com.dspot.declex.parser.LayoutsParser.LayoutObject;
+import com.dspot.declex.util.ProcessingSession;
+
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.androidannotations.logger.LoggerFactory;
+import org.androidannotations.rclass.IRClass;
+import org.androidannotations.rclass.IRInnerClass;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.util.Elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The parser reads the layouts of this test project (src/main/res), since the root of the
+ * project is resolved from the working directory when the Filer can't be used
+ */
+public class LayoutsParserTest {
+
+    private ProcessingSession session;
+    private AndroidAnnotationsEnvironment environment;
+
+    @Before
+    public void setUp() {
+        session = new ProcessingSession();
+        session.enter();
+
+        Filer filer = mock(Filer.class, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                throw new IOException("No Filer in the tests");
+            }
+        });
+
+        ProcessingEnvironment processingEnv = mock(ProcessingEnvironment.class);
+        when(processingEnv.getFiler()).thenReturn(filer);
+        when(processingEnv.getElementUtils()).thenReturn(mock(Elements.class));
+
+        IRInnerClass ids = mock(IRInnerClass.class);
+        when(ids.containsField(anyString())).thenReturn(true);
+        IRClass rClass = mock(IRClass.class);
+        when(rClass.get(IRClass.Res.ID)).thenReturn(ids);
+
+        environment = mock(AndroidAnnotationsEnvironment.class);
+        when(environment.getProcessingEnvironment()).thenReturn(processingEnv);
+        when(environment.getRClass()).thenReturn(rClass);
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    private LayoutsParser createParser() {
+        return new LayoutsParser(environment, LoggerFactory.getLogger(LayoutsParserTest.class));
+    }
+
+    @Test
+    public void testLayoutObjects() {
+        Map<String, LayoutObject> objects = createParser().getLayoutObjects("view_basic");
+
+        assertEquals(5, objects.size());
+        assertTrue(objects.keySet().containsAll(Arrays.asList("label", "label2", "edit", "image", "button")));
+        assertEquals("EditText", objects.get("edit").className);
+        assertEquals("Some Text", objects.get("edit").node.getAttribute("android:text"));
+    }
+
+    @Test
+    public void testUnknownLayout() {
+        assertNull(createParser().getLayoutObjects("not_a_layout"));
+    }
+
+    @Test
+    public void testLayoutObjectsAreCachedByTheParser() {
+        LayoutsParser parser = createParser();
+        assertSame(parser, LayoutsParser.getInstance());
+        assertSame(parser.getLayoutObjects("view_basic"), parser.getLayoutObjects("view_basic"));
+    }
+
+    @Test
+    public void testParsedLayoutsAreReusedByOtherParsers() {
+        LayoutObject first = createParser().getLayoutObjects("view_basic").get("label");
+
+        session.close();
+        session = new ProcessingSession();
+        session.enter();
+
+        LayoutObject second = createParser().getLayoutObjects("view_basic").get("label");
+
+        //The layout file didn't change, so it is not parsed again
+        assertSame(first.node, second.node);
+    }
+
+}
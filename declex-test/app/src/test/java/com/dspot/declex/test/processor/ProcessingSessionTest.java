@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.processor;
+
+import com.dspot.declex.api.action.processor.ActionProcessorUtil;
+import com.dspot.declex.util.ProcessingSession;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ProcessingSessionTest {
+
+    private ProcessingSession session = new ProcessingSession();
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void testGetFailsWhenNoSessionIsBound() {
+        try {
+            ProcessingSession.get();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testSessionIsBoundUntilExit() {
+        session.enter();
+        assertSame(session, ProcessingSession.get());
+
+        session.exit();
+        try {
+            ProcessingSession.get();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testExitKeepsTheSessionOfOtherProcessor() {
+        ProcessingSession other = new ProcessingSession();
+        other.enter();
+
+        session.exit();
+        assertSame(other, ProcessingSession.get());
+
+        other.close();
+    }
+
+    @Test
+    public void testSessionIsNotSharedBetweenThreads() throws Exception {
+        session.enter();
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ProcessingSession.get();
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertTrue(failure.get() instanceof IllegalStateException);
+        assertSame(session, ProcessingSession.get());
+    }
+
+    @Test
+    public void testCachesAreCreatedOnce() {
+        Map<String, String> map = session.getMap("map");
+        List<String> list = session.getList("list");
+
+        assertSame(map, session.getMap("map"));
+        assertSame(list, session.getList("list"));
+    }
+
+    @Test
+    public void testEstimateHeapSizeCountsNestedEntries() {
+        assertEquals(0, session.estimateHeapSize());
+
+        Map<String, Object> map = session.getMap("map");
+        map.put("value", "value");
+
+        Map<String, String> nested = new HashMap<>();
+        nested.put("a", "a");
+        nested.put("b", "b");
+        map.put("nested", nested);
+
+        List<Object> list = session.getList("list");
+        list.add(new ArrayList<>(Arrays.asList("a", "b", "c")));
+
+        //2 entries in the map, 2 in the nested map, 1 in the list and 3 in the nested list
+        assertEquals(8 * 48, session.estimateHeapSize());
+    }
+
+    @Test
+    public void testInstancesAreKeptByClass() {
+        session.setInstance(String.class, "helper");
+
+        assertEquals("helper", session.getInstance(String.class));
+        assertNull(session.getInstance(Integer.class));
+    }
+
+    @Test
+    public void testCloseReleasesTheState() {
+        ActionProcessorUtil.Caches processorCaches = mock(ActionProcessorUtil.Caches.class);
+
+        session.enter();
+        session.setInstance(String.class, "helper");
+        session.setInstance(ActionProcessorUtil.Caches.class, processorCaches);
+        session.getMap("map").put("key", "value");
+
+        session.close();
+
+        verify(processorCaches).clear();
+        assertNull(session.getInstance(String.class));
+        assertTrue(session.getMap("map").isEmpty());
+        assertEquals(0, session.estimateHeapSize());
+        try {
+            ProcessingSession.get();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.processor;
+
+import com.dspot.declex.helper.TemplatesHelper;
+import com.dspot.declex.util.ProcessingSession;
+
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import freemarker.template.Template;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class TemplatesHelperTest {
+
+    private static final String TEMPLATE_PATH = "com/dspot/declex/template/";
+
+    private ProcessingSession session;
+
+    @Before
+    public void setUp() {
+        session = new ProcessingSession();
+        session.enter();
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void testBundledTemplateIsParsedOnce() throws Exception {
+        TemplatesHelper helper = TemplatesHelper.getInstance(mock(AndroidAnnotationsEnvironment.class));
+
+        Template first = helper.getTemplate(TEMPLATE_PATH, "UseEvents.ftl.java");
+        Template second = helper.getTemplate(TEMPLATE_PATH, "UseEvents.ftl.java");
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testHelperIsSharedInTheSession() {
+        AndroidAnnotationsEnvironment environment = mock(AndroidAnnotationsEnvironment.class);
+
+        assertSame(TemplatesHelper.getInstance(environment), TemplatesHelper.getInstance(environment));
+        assertNotSame(TemplatesHelper.getInstance(environment), TemplatesHelper.getInstance(mock(AndroidAnnotationsEnvironment.class)));
+    }
+
+    @Test
+    public void testTemplatesAreNotSharedBetweenSessions() throws Exception {
+        AndroidAnnotationsEnvironment environment = mock(AndroidAnnotationsEnvironment.class);
+        Template first = TemplatesHelper.getInstance(environment).getTemplate(TEMPLATE_PATH, "UseEvents.ftl.java");
+
+        session.close();
+        session = new ProcessingSession();
+        session.enter();
+
+        Template second = TemplatesHelper.getInstance(environment).getTemplate(TEMPLATE_PATH, "UseEvents.ftl.java");
+        assertNotSame(first, second);
+    }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.api.action.processor.ActionProcessorUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ActionProcessorUtilTest {
+
+    private static final String SUB_HOLDER = SubHolder.class.getName();
+
+    private ActionProcessorUtil.Caches caches;
+
+    @Before
+    public void setUp() {
+        caches = new ActionProcessorUtil.Caches();
+        SubHolder.created = 0;
+    }
+
+    @Test
+    public void testMethodsOfTheHolderAreInvoked() {
+        Holder holder = new Holder("main");
+
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder(caches, "getName", holder, null));
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder(caches, "getName", holder, null));
+        assertEquals("main:1", ActionProcessorUtil.getMethodInHolder(caches, "describe", holder, null, 1));
+    }
+
+    @Test
+    public void testMethodsOfTheSuperClassesAreInvoked() {
+        Holder holder = new ExtendedHolder("extended");
+
+        assertEquals("extended", ActionProcessorUtil.getMethodInHolder(caches, "getName", holder, null));
+        assertEquals("extended", ActionProcessorUtil.getMethodInHolder(caches, "getName", holder, null));
+    }
+
+    @Test
+    public void testMissingMethodsAreNotInvoked() {
+        Holder holder = new Holder("main");
+
+        //The missing method is cached, the next resolution doesn't find another method
+        assertNull(ActionProcessorUtil.getMethodInHolder(caches, "missing", holder, null));
+        assertNull(ActionProcessorUtil.getMethodInHolder(caches, "missing", holder, null));
+    }
+
+    @Test
+    public void testOverloadedMethodsAreCachedBySignature() {
+        Holder holder = new Holder("main");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("text:a", ActionProcessorUtil.invoke(caches, holder, "format", new Class<?>[]{String.class}, "a"));
+            assertEquals("number:1", ActionProcessorUtil.invoke(caches, holder, "format", new Class<?>[]{int.class}, 1));
+        }
+    }
+
+    @Test
+    public void testSubHoldersAreCreatedOncePerHolder() {
+        Holder holder = new Holder("main");
+        Holder otherHolder = new Holder("other");
+
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder(caches, "getHolderName", holder, SUB_HOLDER));
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder(caches, "getHolderName", holder, SUB_HOLDER));
+        assertEquals(1, SubHolder.created);
+
+        assertEquals("other", ActionProcessorUtil.getMethodInHolder(caches, "getHolderName", otherHolder, SUB_HOLDER));
+        assertEquals(2, SubHolder.created);
+    }
+
+    @Test
+    public void testSubHoldersAreCreatedEachTimeWithoutCaches() {
+        Holder holder = new Holder("main");
+
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder("getHolderName", holder, SUB_HOLDER));
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder("getHolderName", holder, SUB_HOLDER));
+        assertEquals(2, SubHolder.created);
+    }
+
+    @Test
+    public void testClearedCachesResolveAgain() {
+        Holder holder = new Holder("main");
+
+        ActionProcessorUtil.getMethodInHolder(caches, "getHolderName", holder, SUB_HOLDER);
+        caches.clear();
+
+        assertEquals("main", ActionProcessorUtil.getMethodInHolder(caches, "getHolderName", holder, SUB_HOLDER));
+        assertEquals(2, SubHolder.created);
+    }
+
+    public static class Holder {
+
+        private final String name;
+        private final Map<Class<?>, Object> pluginHolders = new HashMap<>();
+
+        public Holder(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String describe(int value) {
+            return name + ":" + value;
+        }
+
+        public String format(String value) {
+            return "text:" + value;
+        }
+
+        public String format(int value) {
+            return "number:" + value;
+        }
+
+        public Object getPluginHolder(Object pluginHolder) {
+            Object existing = pluginHolders.get(pluginHolder.getClass());
+            if (existing != null) return existing;
+
+            pluginHolders.put(pluginHolder.getClass(), pluginHolder);
+            return pluginHolder;
+        }
+
+    }
+
+    public static class ExtendedHolder extends Holder {
+
+        public ExtendedHolder(String name) {
+            super(name);
+        }
+
+    }
+
+    public static class SubHolder {
+
+        static int created;
+
+        private final Holder holder;
+
+        public SubHolder(Holder holder) {
+            this.holder = holder;
+            created++;
+        }
+
+        String getHolderName() {
+            return holder.getName();
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.annotation.CopyIgnore;
+import com.dspot.declex.annotation.CopyName;
+import com.dspot.declex.api.util.CastUtility;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CastUtilityTest {
+
+    static class From {
+        String name;
+        String age;
+        String count;
+        String enabled;
+        Integer score;
+        String secret;
+        String nickname;
+    }
+
+    static class To {
+        String name;
+        int age;
+        long count;
+        boolean enabled;
+        int score;
+        @CopyIgnore String secret;
+        @CopyName("nickname") String alias;
+        static String staticField;
+        transient String transientField;
+    }
+
+    static class ToSubclass extends To {
+        String name;
+    }
+
+    private From createFrom() {
+        From from = new From();
+        from.name = "John";
+        from.age = "30";
+        from.count = "12";
+        from.enabled = "true";
+        from.secret = "secret";
+        from.nickname = "Johnny";
+        return from;
+    }
+
+    @Test
+    public void testCopyConvertsValues() {
+        To to = new To();
+        CastUtility.copy(createFrom(), to);
+
+        assertEquals("John", to.name);
+        assertEquals(30, to.age);
+        assertEquals(12L, to.count);
+        assertTrue(to.enabled);
+    }
+
+    @Test
+    public void testCopyNameAndCopyIgnore() {
+        To to = new To();
+        CastUtility.copy(createFrom(), to);
+
+        assertEquals("Johnny", to.alias);
+        assertNull(to.secret);
+    }
+
+    @Test
+    public void testCopyIgnoringFields() {
+        To to = new To();
+        to.name = "Previous";
+        CastUtility.copy(createFrom(), to, "name", "age");
+
+        assertEquals("Previous", to.name);
+        assertEquals(0, to.age);
+        assertEquals(12L, to.count);
+    }
+
+    @Test
+    public void testCopyNullValues() {
+        From from = createFrom();
+        from.name = null;
+
+        To to = new To();
+        to.name = "Previous";
+        to.score = 5;
+        CastUtility.copy(from, to);
+
+        //Nulls are copied to objects, but they don't override primitives
+        assertNull(to.name);
+        assertEquals(5, to.score);
+    }
+
+    @Test
+    public void testCopyToSubclass() {
+        ToSubclass to = new ToSubclass();
+        CastUtility.copy(createFrom(), to);
+
+        //The field of the subclass hides the field of its super class
+        assertEquals("John", to.name);
+        assertNull(((To) to).name);
+        assertEquals(30, to.age);
+    }
+
+    @Test
+    public void testCopyRepeatedly() {
+        //The metadata of the classes is cached, the results should be the same in each copy
+        for (int i = 0; i < 3; i++) {
+            From from = createFrom();
+            from.age = String.valueOf(i);
+
+            To to = new To();
+            CastUtility.copy(from, to);
+            assertEquals(i, to.age);
+            assertEquals("John", to.name);
+        }
+    }
+
+    @Test
+    public void testCopyFieldToList() {
+        List<To> toList = new ArrayList<>(Arrays.asList(new To(), new To(), new To()));
+
+        CastUtility.copy("name", new String[] {"first", "second"}, toList);
+        assertEquals("first", toList.get(0).name);
+        assertEquals("second", toList.get(1).name);
+        assertNull(toList.get(2).name);
+
+        CastUtility.copy("alias", Arrays.asList("a", "b", "c"), toList);
+        assertEquals("c", toList.get(2).alias);
+
+        CastUtility.copy("name", "same", toList);
+        for (To to : toList) {
+            assertEquals("same", to.name);
+        }
+    }
+
+    @Test
+    public void testCopyUnknownFieldToList() {
+        List<To> toList = Arrays.asList(new To());
+        CastUtility.copy("unknown", "value", toList);
+        assertNull(toList.get(0).name);
+    }
+
+    @Test
+    public void testGetFieldsSortedByName() {
+        To to = new To();
+        to.name = "John";
+
+        List<String> names = new ArrayList<>();
+        for (Object field : CastUtility.getFields(to).keySet()) {
+            names.add(field.toString());
+        }
+
+        //Static, transient and ignored fields are not copiable
+        assertEquals(Arrays.asList("age", "count", "enabled", "name", "nickname", "score"), names);
+        assertEquals("John", new ArrayList<>(CastUtility.getFields(to).values()).get(3));
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.EventRateLimiter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class EventRateLimiterTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private final AtomicInteger nexts = new AtomicInteger();
+
+    private final Runnable task = new Runnable() {
+        @Override
+        public void run() {
+            runs.incrementAndGet();
+        }
+    };
+
+    private final Runnable next = new Runnable() {
+        @Override
+        public void run() {
+            nexts.incrementAndGet();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        //The posted tasks are executed only when the test runs the main looper
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void testCoalesce() {
+        EventRateLimiter limiter = new EventRateLimiter(0, 0, true);
+
+        limiter.submit(task, next, null);
+        limiter.submit(task, next, null);
+        limiter.submit(task, next, null);
+        assertEquals(0, runs.get());
+        assertEquals(0, nexts.get());
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, runs.get());
+        assertEquals(3, nexts.get());
+        assertFalse(limiter.isPending());
+    }
+
+    @Test
+    public void testThrottle() {
+        EventRateLimiter limiter = new EventRateLimiter(100, 0, false);
+
+        limiter.submit(task, next, null);
+        assertEquals(1, runs.get());
+        assertEquals(1, nexts.get());
+
+        limiter.submit(task, next, null);
+        limiter.submit(task, next, null);
+        assertEquals(1, runs.get());
+        assertTrue(limiter.isPending());
+
+        ShadowLooper.idleMainLooper(100);
+        assertEquals(2, runs.get());
+        assertEquals(3, nexts.get());
+    }
+
+    @Test
+    public void testDebounce() {
+        EventRateLimiter limiter = new EventRateLimiter(0, 50, false);
+
+        limiter.submit(task, next, null);
+        ShadowLooper.idleMainLooper(30);
+        limiter.submit(task, next, null);
+        ShadowLooper.idleMainLooper(30);
+        assertEquals(0, runs.get());
+
+        ShadowLooper.idleMainLooper(30);
+        assertEquals(1, runs.get());
+        assertEquals(2, nexts.get());
+    }
+
+    @Test
+    public void testPausedExecutionIsDoneOnResume() {
+        EventRateLimiter limiter = new EventRateLimiter(0, 0, true);
+
+        limiter.submit(task, next, null);
+        limiter.pause();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(0, runs.get());
+        assertTrue(limiter.isPending());
+
+        limiter.resume();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, runs.get());
+        assertEquals(1, nexts.get());
+    }
+
+    @Test
+    public void testSubmitWhilePaused() {
+        EventRateLimiter limiter = new EventRateLimiter(0, 0, false);
+
+        limiter.pause();
+        limiter.submit(task, next, null);
+        assertEquals(0, runs.get());
+
+        limiter.resume();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, runs.get());
+        assertEquals(1, nexts.get());
+    }
+
+    @Test
+    public void testCancel() {
+        EventRateLimiter limiter = new EventRateLimiter(0, 0, true);
+
+        limiter.submit(task, next, null);
+        limiter.cancel();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(0, runs.get());
+        assertEquals(0, nexts.get());
+        assertFalse(limiter.isPending());
+    }
+
+    @Test
+    public void testFailureIsReported() {
+        final RuntimeException exception = new RuntimeException();
+        final List<Throwable> failures = new ArrayList<>();
+
+        EventRateLimiter limiter = new EventRateLimiter(0, 0, true);
+        limiter.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw exception;
+            }
+        }, next, new OnFailedRunnable() {
+            @Override
+            public void run() {
+                failures.add(e);
+            }
+        });
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, failures.size());
+        assertSame(exception, failures.get(0));
+        assertEquals(0, nexts.get());
+    }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.ExecutorProfiles;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class ExecutorProfilesTest {
+
+    private static Runnable blockingTask(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static OnFailedRunnable rejectedListener(final List<Throwable> rejections, final CountDownLatch rejected) {
+        return new OnFailedRunnable() {
+            @Override
+            public void run() {
+                rejections.add(e);
+                rejected.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testConfigureGrowsThePool() throws Exception {
+        ExecutorProfiles.configure("test-grow", 1, 10);
+        ExecutorProfiles.configure("test-grow", 3, 10);
+
+        final CountDownLatch started = new CountDownLatch(3);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            ExecutorProfiles.execute("test-grow", blockingTask(started, release));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testConfigureShrinksThePool() throws Exception {
+        ExecutorProfiles.configure("test-shrink", 3, 10);
+        ExecutorProfiles.configure("test-shrink", 1, 10);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-shrink", blockingTask(started, release));
+        ExecutorProfiles.execute("test-shrink", blockingTask(new CountDownLatch(1), release));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, ExecutorProfiles.get("test-shrink").getQueueDepth());
+        release.countDown();
+    }
+
+    @Test
+    public void testQueueCapacityChangeDoesNotResizeThePool() throws Exception {
+        ExecutorProfiles.configure("test-capacity", 1, 10);
+
+        try {
+            ExecutorProfiles.configure("test-capacity", 3, 20);
+            fail("The queue capacity shouldn't be changed");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-capacity", blockingTask(started, release));
+        ExecutorProfiles.execute("test-capacity", blockingTask(new CountDownLatch(1), release));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, ExecutorProfiles.get("test-capacity").getQueueDepth());
+        release.countDown();
+    }
+
+    @Test
+    public void testFullQueueRejectsTasks() throws Exception {
+        ExecutorProfiles.configure("test-reject", 1, 1);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-reject", blockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ExecutorProfiles.execute("test-reject", blockingTask(new CountDownLatch(1), release));
+
+        try {
+            ExecutorProfiles.execute("test-reject", blockingTask(new CountDownLatch(1), release));
+            fail("The task should be rejected");
+        } catch (RejectedExecutionException e) {
+            //Expected
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testSerialTasksRunInOrder() throws Exception {
+        ExecutorProfiles.configure("test-serial", 4, 100);
+
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch finished = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            final int index = i;
+            ExecutorProfiles.execute("test-serial", "key", new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                    finished.countDown();
+                }
+            });
+        }
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void testFullSerialQueueRejectsTasks() throws Exception {
+        ExecutorProfiles.configure("test-serial-reject", 1, 1);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-serial-reject", "key", blockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ExecutorProfiles.execute("test-serial-reject", "key", blockingTask(new CountDownLatch(1), release));
+
+        final List<Throwable> rejections = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch rejected = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-serial-reject", "key", blockingTask(new CountDownLatch(1), release),
+                rejectedListener(rejections, rejected));
+
+        assertEquals(0, rejected.getCount());
+        assertTrue(rejections.get(0) instanceof RejectedExecutionException);
+
+        try {
+            ExecutorProfiles.execute("test-serial-reject", "key", blockingTask(new CountDownLatch(1), release));
+            fail("The task should be rejected");
+        } catch (RejectedExecutionException e) {
+            //Expected
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testRejectedQueuedSerialTaskNotifiesTheTasksAfterIt() throws Exception {
+        ExecutorProfiles.configure("test-serial-pending", 1, 1);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch releaseSerial = new CountDownLatch(1);
+        final CountDownLatch releaseOther = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-serial-pending", "key", blockingTask(started, releaseSerial));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final List<Throwable> rejections = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch rejected = new CountDownLatch(1);
+        final CountDownLatch queuedRun = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-serial-pending", "key", blockingTask(queuedRun, new CountDownLatch(0)),
+                rejectedListener(rejections, rejected));
+
+        //Fills the queue of the profile, so the queued serial task is rejected when its turn comes
+        final CountDownLatch otherStarted = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-serial-pending", blockingTask(otherStarted, releaseOther));
+        releaseSerial.countDown();
+
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        assertTrue(rejections.get(0) instanceof RejectedExecutionException);
+        assertTrue(otherStarted.await(5, TimeUnit.SECONDS));
+        releaseOther.countDown();
+
+        //The serial key can be used again after the rejection
+        final CountDownLatch finished = new CountDownLatch(1);
+        ExecutorProfiles.execute("test-serial-pending", "key", blockingTask(finished, new CountDownLatch(0)));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(1, queuedRun.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConfigureWithoutThreadsFails() {
+        ExecutorProfiles.configure("test-invalid", 0, 10);
+    }
+
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.api.util.LoadCoalescer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.dspot.declex.test.util.ModelArgs.args;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class LoadCoalescerTest {
+
+    private static final List<Class<? extends Annotation>> NO_ANNOTATIONS = Collections.emptyList();
+
+    private static Thread startLoad(final List<?> useModels, final Callable<?> loader, final AtomicReference<Object> result) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.set(LoadCoalescer.load(Model.class, args("id=1"), useModels, loader));
+                } catch (Exception e) {
+                    result.set(e);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING && thread.isAlive()) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testConcurrentLoadsAreCoalesced() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Model result = new Model("loaded");
+
+        final Callable<Model> loader = new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return result;
+            }
+        };
+
+        final AtomicReference<Object> firstResult = new AtomicReference<>();
+        Thread first = startLoad(NO_ANNOTATIONS, loader, firstResult);
+        loading.await();
+
+        //The second load waits for the result of the load in flight
+        final AtomicReference<Object> secondResult = new AtomicReference<>();
+        Thread second = startLoad(NO_ANNOTATIONS, loader, secondResult);
+        awaitWaiting(second);
+
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, loads.get());
+        assertSame(result, firstResult.get());
+
+        //The load which waited receives its own copy
+        assertNotSame(result, secondResult.get());
+        assertEquals("loaded", ((Model) secondResult.get()).name);
+        assertTrue(((Model) secondResult.get()).exists);
+    }
+
+    @Test
+    public void testCoalescedListsAreCopied() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Model> result = Arrays.asList(new Model("first"), new Model("second"));
+
+        final Callable<List<Model>> loader = new Callable<List<Model>>() {
+            @Override
+            public List<Model> call() throws Exception {
+                loading.countDown();
+                release.await();
+                return result;
+            }
+        };
+
+        final AtomicReference<Object> firstResult = new AtomicReference<>();
+        Thread first = startLoad(NO_ANNOTATIONS, loader, firstResult);
+        loading.await();
+
+        final AtomicReference<Object> secondResult = new AtomicReference<>();
+        Thread second = startLoad(NO_ANNOTATIONS, loader, secondResult);
+        awaitWaiting(second);
+
+        release.countDown();
+        first.join();
+        second.join();
+
+        List<?> copy = (List<?>) secondResult.get();
+        assertNotSame(result, copy);
+        assertEquals(2, copy.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertNotSame(result.get(i), copy.get(i));
+            assertEquals(result.get(i).name, ((Model) copy.get(i)).name);
+        }
+    }
+
+    @Test
+    public void testLoadsWithOtherAnnotationsAreNotCoalesced() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final AtomicReference<Object> firstResult = new AtomicReference<>();
+        Thread first = startLoad(NO_ANNOTATIONS, new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return new Model("default");
+            }
+        }, firstResult);
+        loading.await();
+
+        final List<Class<? extends Annotation>> useModels = Collections.<Class<? extends Annotation>>singletonList(Deprecated.class);
+        Object result = LoadCoalescer.load(Model.class, args("id=1"), useModels, new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                loads.incrementAndGet();
+                return new Model("annotated");
+            }
+        });
+
+        release.countDown();
+        first.join();
+
+        assertEquals(2, loads.get());
+        assertEquals("annotated", ((Model) result).name);
+        assertEquals("default", ((Model) firstResult.get()).name);
+    }
+
+    @Test
+    public void testLoadStartedAgainInTheLoadingThreadIsPerformed() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+
+        Model result = LoadCoalescer.load(Model.class, args("id=3"), NO_ANNOTATIONS, new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                loads.incrementAndGet();
+
+                //Waiting for the load in flight would never finish
+                Model nested = LoadCoalescer.load(Model.class, args("id=3"), NO_ANNOTATIONS, new Callable<Model>() {
+                    @Override
+                    public Model call() throws Exception {
+                        loads.incrementAndGet();
+                        return new Model("nested");
+                    }
+                });
+
+                return new Model("outer " + nested.name);
+            }
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals("outer nested", result.name);
+    }
+
+    @Test
+    public void testSequentialLoadsAreNotCached() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        final Callable<Integer> loader = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return loads.incrementAndGet();
+            }
+        };
+
+        assertEquals(1, (int) LoadCoalescer.load(Model.class, args("id=1"), NO_ANNOTATIONS, loader));
+        assertEquals(2, (int) LoadCoalescer.load(Model.class, args("id=1"), NO_ANNOTATIONS, loader));
+        assertEquals(3, (int) LoadCoalescer.load(Model.class, Collections.<String, Object>emptyMap(), NO_ANNOTATIONS, loader));
+        assertEquals(4, (int) LoadCoalescer.load(Model.class, null, NO_ANNOTATIONS, loader));
+    }
+
+    @Test
+    public void testFailedLoadThrowsItsException() throws Exception {
+        final IOException exception = new IOException("Load failed");
+
+        try {
+            LoadCoalescer.load(Model.class, args("id=2"), NO_ANNOTATIONS, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw exception;
+                }
+            });
+            fail("The exception of the loader should be thrown");
+        } catch (IOException e) {
+            assertSame(exception, e);
+        }
+
+        //The failed load is not kept in flight
+        assertEquals("loaded", LoadCoalescer.load(Model.class, args("id=2"), NO_ANNOTATIONS, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "loaded";
+            }
+        }));
+    }
+
+    public static class Model {
+
+        String name;
+
+        //The transient state of the generated models is kept in the copies
+        transient boolean exists;
+
+        private Model() {
+        }
+
+        Model(String name) {
+            this.name = name;
+            this.exists = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.MainThreadDispatcher;
+import com.dspot.declex.api.util.MainThreadDispatcher.MainThreadOnFailedRunnable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class MainThreadDispatcherTest {
+
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+    private Runnable call(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                calls.add(name);
+            }
+        };
+    }
+
+    private static void runInBackground(Runnable runnable) throws InterruptedException {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+    }
+
+    @Before
+    public void setUp() {
+        //The posted callbacks are executed only when the test runs the main looper
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        //No callback is left pending for the next tests
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    @Test
+    public void testPostedCallbacksRunInOrder() {
+        MainThreadDispatcher.post(call("first"));
+        MainThreadDispatcher.post(call("second"));
+        assertTrue(calls.isEmpty());
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Arrays.asList("first", "second"), calls);
+    }
+
+    @Test
+    public void testCallbacksFromOtherThreadsArePosted() throws Exception {
+        runInBackground(new Runnable() {
+            @Override
+            public void run() {
+                MainThreadDispatcher.run(call("background"));
+            }
+        });
+        assertTrue(calls.isEmpty());
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Collections.singletonList("background"), calls);
+    }
+
+    @Test
+    public void testCallbacksPostedWhileRunningAreRun() {
+        MainThreadDispatcher.post(new Runnable() {
+            @Override
+            public void run() {
+                calls.add("first");
+                MainThreadDispatcher.post(call("posted"));
+            }
+        });
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Arrays.asList("first", "posted"), calls);
+    }
+
+    @Test
+    public void testFailedCallbackDoesNotDropTheOthers() {
+        final RuntimeException exception = new RuntimeException("Callback failed");
+
+        MainThreadDispatcher.post(call("first"));
+        MainThreadDispatcher.post(new Runnable() {
+            @Override
+            public void run() {
+                throw exception;
+            }
+        });
+        MainThreadDispatcher.post(call("after failure"));
+
+        try {
+            ShadowLooper.runUiThreadTasks();
+            fail("The exception of the callback should be thrown");
+        } catch (RuntimeException e) {
+            assertSame(exception, e);
+        }
+
+        //The remaining callbacks run before the ones posted later
+        MainThreadDispatcher.post(call("later"));
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Arrays.asList("first", "after failure", "later"), calls);
+
+        //The dispatcher keeps scheduling the callbacks
+        MainThreadDispatcher.post(call("again"));
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Arrays.asList("first", "after failure", "later", "again"), calls);
+    }
+
+    @Test
+    public void testEachFailureIsDeliveredWithItsException() throws Exception {
+        final List<Throwable> failures = new ArrayList<>();
+        final MainThreadOnFailedRunnable onFailed = new MainThreadOnFailedRunnable(new OnFailedRunnable() {
+            @Override
+            public void run() {
+                failures.add(e);
+            }
+        });
+
+        final RuntimeException firstException = new RuntimeException("First");
+        final RuntimeException secondException = new RuntimeException("Second");
+        runInBackground(new Runnable() {
+            @Override
+            public void run() {
+                onFailed.onFailed(firstException);
+                onFailed.onFailed(secondException);
+            }
+        });
+        assertTrue(failures.isEmpty());
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(Arrays.<Throwable>asList(firstException, secondException), failures);
+    }
+
+}
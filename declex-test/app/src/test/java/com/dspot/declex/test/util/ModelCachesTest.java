@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import android.app.Activity;
+import android.content.Context;
+
+import com.dspot.declex.api.util.LazyRebind;
+import com.dspot.declex.api.util.ModelCaches;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.dspot.declex.test.util.ModelArgs.args;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class ModelCachesTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Context context = RuntimeEnvironment.application;
+
+    private Callable<Object> loader() {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                loads.incrementAndGet();
+                return new Object();
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        ModelCaches.clear();
+    }
+
+    @Test
+    public void testLoadsAreCached() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Object.class, 60000, 10);
+
+        Object first = cache.load(context, args("a"), Collections.emptyList(), loader());
+        Object second = cache.load(context, args("a"), Collections.emptyList(), loader());
+
+        //The cached model is copied for each load
+        assertNotSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiredEntriesAreLoadedAgain() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Object.class, 20, 10);
+
+        Object first = cache.load(context, args("a"), Collections.emptyList(), loader());
+        Thread.sleep(50);
+        Object second = cache.load(context, args("a"), Collections.emptyList(), loader());
+
+        assertNotSame(first, second);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Object.class, 60000, 10);
+
+        Object first = cache.load(context, args("a"), Collections.emptyList(), loader());
+        ModelCaches.invalidate(Object.class);
+        Object second = cache.load(context, args("a"), Collections.emptyList(), loader());
+
+        assertNotSame(first, second);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testLoadStartedBeforeInvalidationIsNotCached() throws Exception {
+        final ModelCaches.Cache cache = ModelCaches.get(Object.class, 60000, 10);
+
+        cache.load(context, args("a"), Collections.emptyList(), new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                ModelCaches.invalidate(Object.class);
+                return new Object();
+            }
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEldestEntriesAreEvicted() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Object.class, 60000, 2);
+
+        cache.load(context, args("a"), Collections.emptyList(), loader());
+        cache.load(context, args("b"), Collections.emptyList(), loader());
+        cache.load(context, args("a"), Collections.emptyList(), loader());
+        cache.load(context, args("c"), Collections.emptyList(), loader());
+        assertEquals(2, cache.size());
+        assertEquals(3, loads.get());
+
+        //"b" was the least recently used entry
+        cache.load(context, args("a"), Collections.emptyList(), loader());
+        assertEquals(3, loads.get());
+        cache.load(context, args("b"), Collections.emptyList(), loader());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testClearReleasesTheCaches() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Object.class, 60000, 10);
+        cache.load(context, args("a"), Collections.emptyList(), loader());
+
+        ModelCaches.clear();
+
+        assertEquals(0, cache.size());
+        assertNull(ModelCaches.get(Object.class));
+    }
+
+    @Test
+    public void testCachedModelsAreBoundToTheContextOfTheLoad() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Model.class, 60000, 10);
+        final Activity otherContext = Robolectric.setupActivity(Activity.class);
+
+        final Model loaded = new Model(context);
+        Model first = cache.load(context, args("a"), Collections.emptyList(), new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                return loaded;
+            }
+        });
+        first.name = "modified";
+
+        Model second = cache.load(otherContext, args("a"), Collections.emptyList(), new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                throw new IllegalStateException("The model should be cached");
+            }
+        });
+
+        assertSame(loaded, first);
+        assertSame(context, first.context);
+
+        assertNotSame(first, second);
+        assertSame(otherContext, second.context);
+        assertEquals("loaded", second.name);
+    }
+
+    @Test
+    public void testCachedListsAreCopied() throws Exception {
+        ModelCaches.Cache cache = ModelCaches.get(Model.class, 60000, 10);
+        final Activity otherContext = Robolectric.setupActivity(Activity.class);
+
+        final List<Model> loaded = Arrays.asList(new Model(context), new Model(context));
+        cache.load(context, args("a"), Collections.emptyList(), new Callable<List<Model>>() {
+            @Override
+            public List<Model> call() throws Exception {
+                return loaded;
+            }
+        });
+
+        List<Model> second = cache.load(otherContext, args("a"), Collections.emptyList(), new Callable<List<Model>>() {
+            @Override
+            public List<Model> call() throws Exception {
+                throw new IllegalStateException("The list should be cached");
+            }
+        });
+
+        assertNotSame(loaded, second);
+        assertEquals(2, second.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertNotSame(loaded.get(i), second.get(i));
+            assertSame(otherContext, second.get(i).context);
+            assertSame(context, loaded.get(i).context);
+        }
+    }
+
+    @Test
+    public void testLazyModelsAreMarkedToBeBoundToTheContextOfTheLoad() throws Exception {
+        final ModelCaches.Cache cache = ModelCaches.get(Model.class, 60000, 10);
+        final Activity otherContext = Robolectric.setupActivity(Activity.class);
+
+        LazyRebind.load(new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                return cache.load(context, args("a"), Collections.emptyList(), new Callable<Model>() {
+                    @Override
+                    public Model call() throws Exception {
+                        return new Model(context);
+                    }
+                });
+            }
+        });
+
+        Model second = LazyRebind.load(new Callable<Model>() {
+            @Override
+            public Model call() throws Exception {
+                return cache.load(otherContext, args("a"), Collections.emptyList(), new Callable<Model>() {
+                    @Override
+                    public Model call() throws Exception {
+                        throw new IllegalStateException("The model should be cached");
+                    }
+                });
+            }
+        });
+
+        assertSame(context, second.context);
+        assertSame(otherContext, second.lazyContext);
+    }
+
+    public static class Model {
+
+        Context context;
+        Context lazyContext;
+        String name = "loaded";
+
+        public Model() {
+        }
+
+        Model(Context context) {
+            this.context = context;
+        }
+
+        public void rebind(Context context) {
+            this.context = context;
+        }
+
+        public void rebindLazily_(Context context) {
+            this.lazyContext = context;
+        }
+
+    }
+
+}
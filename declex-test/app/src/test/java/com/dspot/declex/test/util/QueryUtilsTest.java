@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.test.util;
+
+import com.dspot.declex.api.util.QueryUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class QueryUtilsTest {
+
+    @Test
+    public void testResolveDirectives() {
+        final String query = "name=? @local(AND age > 18) @server(&limit=10)";
+
+        assertEquals("name=? AND age > 18 ", QueryUtils.resolveDirectives(query, "local"));
+        assertEquals("name=?  &limit=10", QueryUtils.resolveDirectives(query, "server"));
+        assertEquals("name=?  ", QueryUtils.resolveDirectives(query, "other"));
+    }
+
+    @Test
+    public void testResolveFirstDirective() {
+        final String query = "@local(first) @local(second)";
+
+        assertEquals("first @local(second)", QueryUtils.resolveFirstDirective(query, "local"));
+        assertEquals("first second", QueryUtils.resolveDirectives(query, "local"));
+    }
+
+    @Test
+    public void testResolveWithoutDirectives() {
+        final String query = "name=?";
+
+        assertSame(query, QueryUtils.resolveDirectives(query, "local"));
+        assertNull(QueryUtils.resolveDirectives(null, "local"));
+    }
+
+    @Test
+    public void testResolveCachedQueries() {
+        final String query = "@local($1) @server(\\\\)";
+
+        //The replacements are quoted, and the cached results depend on the target
+        for (int i = 0; i < 2; i++) {
+            assertEquals("$1 ", QueryUtils.resolveDirectives(query, "local"));
+            assertEquals(" \\\\", QueryUtils.resolveDirectives(query, "server"));
+            assertEquals("$1 @server(\\\\)", QueryUtils.resolveFirstDirective(query, "local"));
+        }
+    }
+
+}
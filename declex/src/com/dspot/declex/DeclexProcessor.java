@@ -18,11 +18,15 @@ package com.dspot.declex;
 import com.dspot.declex.action.Actions;
 import com.dspot.declex.annotation.*;
 import com.dspot.declex.annotation.action.ActionFor;
+import com.dspot.declex.api.action.processor.ActionProcessorUtil;
 import com.dspot.declex.api.util.FormatsUtils;
 import com.dspot.declex.helper.ActionHelper;
+import com.dspot.declex.helper.CompilationUnitIndex;
+import com.dspot.declex.helper.EventsHelper;
 import com.dspot.declex.parser.LayoutsParser;
 import com.dspot.declex.parser.MenuParser;
 import com.dspot.declex.util.DeclexConstant;
+import com.dspot.declex.util.ProcessingSession;
 import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
 import com.dspot.declex.wrapper.RoundEnvironmentByCache;
@@ -30,18 +34,12 @@ import com.dspot.declex.wrapper.generate.DeclexCodeModelGenerator;
 import com.helger.jcodemodel.IJExpression;
 import com.helger.jcodemodel.JExpr;
 import com.helger.jcodemodel.JFieldRef;
-import com.sun.source.tree.CompilationUnitTree;
-import com.sun.source.tree.IdentifierTree;
-import com.sun.source.tree.ImportTree;
-import com.sun.source.util.TreePathScanner;
-import com.sun.source.util.Trees;
 import org.androidannotations.annotations.Bean;
 import org.androidannotations.annotations.export.Export;
 import org.androidannotations.annotations.export.Exported;
 import org.androidannotations.annotations.export.Import;
 import org.androidannotations.handler.AnnotationHandler;
 import org.androidannotations.helper.AndroidManifest;
-import org.androidannotations.helper.CompilationTreeHelper;
 import org.androidannotations.internal.generation.CodeModelGenerator;
 import org.androidannotations.internal.helper.AndroidManifestFinder;
 import org.androidannotations.internal.model.AnnotationElements;
@@ -54,6 +52,7 @@ import org.androidannotations.logger.LoggerContext;
 import org.androidannotations.logger.LoggerFactory;
 import org.androidannotations.plugin.AndroidAnnotationsPlugin;
 
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
@@ -69,11 +68,41 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(DeclexProcessor.class);
 	
+	private static final String GRADLE_AGGREGATING_OPTION = "org.gradle.annotation.processing.aggregating";
+	
 	protected LayoutsParser layoutsParser;
 	protected MenuParser menuParser;
 	protected Actions actions;
-
-	private CompilationTreeHelper compilationTreeHelper;
+	
+	//State of this processing, it should be released when the processing is over
+	private ProcessingSession session;
+	
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		
+		//The helpers created during the initialization (ex. by the core plugin) are registered in the session
+		session = new ProcessingSession();
+		session.enter();
+		
+		try {
+			//The environment is not unwrapped (ex. in Gradle incremental builds), so that all the
+			//generated files and configurations are read and written through the build tool Filer
+			super.init(processingEnv);
+		} finally {
+			session.exit();
+		}
+	}
+	
+	@Override
+	public Set<String> getSupportedOptions() {
+		Set<String> supportedOptions = new HashSet<>(super.getSupportedOptions());
+		
+		//DecleX generates classes (ex. the Action object) and configurations from several
+		//source files, so it can be only processed incrementally as an aggregating processor
+		supportedOptions.add(GRADLE_AGGREGATING_OPTION);
+		
+		return supportedOptions;
+	}
 	
 	@Override
 	protected AndroidAnnotationsPlugin getCorePlugin() {
@@ -97,8 +126,6 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 			
 			actions = new Actions(androidAnnotationsEnv);
 
-			compilationTreeHelper = new CompilationTreeHelper(androidAnnotationsEnv);
-
 			timeStats.stop("Helpers Initialization");
 			timeStats.logStats();
 			
@@ -113,8 +140,22 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 			RoundEnvironment roundEnv) {
 		
 		LOGGER.info("Executing Declex");
-						
+		
+		if (session != null) {
+			session.enter();
+		}
+		
 		try {
+			
+			if (roundEnv.processingOver()) {
+				//The configurations are created with the Filer, so they can be written only once
+				timeStats.start("Save Config");
+				SharedRecords.writeEvents(processingEnv);
+				SharedRecords.writeDBModels(processingEnv);
+				actions.writeCache();
+				layoutsParser.writeCache();
+				timeStats.stop("Save Config");
+			}
 
 			return super.process(annotations, roundEnv);
 			
@@ -125,6 +166,22 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 			e.printStackTrace();
 			
 			return false;
+		} finally {
+			//The holders are discarded after each round, so are the caches which reference them
+			if (session != null) {
+				final ActionProcessorUtil.Caches processorCaches = session.getInstance(ActionProcessorUtil.Caches.class);
+				if (processorCaches != null) processorCaches.clear();
+			}
+			
+			//Nothing of this compilation should be kept reachable after it (ex. in the Gradle daemon)
+			if (session != null) {
+				if (roundEnv.processingOver()) {
+					session.close();
+					session = null;
+				} else {
+					session.exit();
+				}
+			}
 		}
 		
 	}
@@ -249,60 +306,40 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 				if (processedElements.contains(element)) continue;
 				processedElements.add(element);
 
-                final CompilationUnitTree compilationUnit = compilationTreeHelper.getCompilationUnitImportFromElement(element);
-				if (compilationUnit == null) continue;
-
-		    	boolean actionScanNeeded = false;
-		    	for (ImportTree importTree : compilationUnit.getImports()) {
+				//The compilation unit is scanned only once, the actions are read from its index
+				final CompilationUnitIndex index = CompilationUnitIndex.forElement(element, androidAnnotationsEnv);
+				if (index == null) continue;
 		    	
-		            if (actions.isAction(importTree.getQualifiedIdentifier().toString())) {
-		            	actionScanNeeded = true;
-		            	
-		            	//The loop continues in order to check different libraries actions  
-		            } 
-		            
-		    	}		    	
-		    			    	
-		    	if (actionScanNeeded) {
+		    	if (index.hasActionsImport()) {
 		    		
 	            	for (Element elem : element.getEnclosedElements()) {
+	            		for (CompilationUnitIndex.Usage identifier : index.getIdentifiers(elem)) {
 
-	            	    compilationTreeHelper.visitElementTree(elem, new TreePathScanner<Boolean, Trees>() {
-
-                            @Override
-                            public Boolean visitIdentifier(IdentifierTree id, Trees trees) {
-
-                                String name = id.getName().toString();
+                            String name = identifier.getName();
 
-                                if (Actions.getInstance().hasActionNamed(name)) {
-                                    TypeElement actionHolderElement = Actions.getInstance().getActionHolderForAction(name);
-                                    final ActionFor actionForAnnotation = actionHolderElement.getAnnotation(ActionFor.class);
+                            if (Actions.getInstance().hasActionNamed(name)) {
+                                TypeElement actionHolderElement = Actions.getInstance().getActionHolderForAction(name);
+                                final ActionFor actionForAnnotation = actionHolderElement.getAnnotation(ActionFor.class);
 
-                                    //Only global actions can export methods
-                                    if (actionForAnnotation.global()) {
+                                //Only global actions can export methods
+                                if (actionForAnnotation.global()) {
 
-                                        final int position = (int) trees.getSourcePositions()
-                                                .getStartPosition(compilationUnit, id);
-                                        final String actionName = name.substring(0, 1).toLowerCase() + name.substring(1) + position;
+                                    final int position = identifier.getPosition();
+                                    final String actionName = name.substring(0, 1).toLowerCase() + name.substring(1) + position;
 
-                                        scanForExports(
-                                                actionHolderElement,
-                                                (TypeElement)element,
-                                                null,
-                                                JExpr.ref(actionName),
-                                                JExpr.ref(actionName),
-                                                virtualAnnotatedElements,
-                                                false);
-                                    }
+                                    scanForExports(
+                                            actionHolderElement,
+                                            (TypeElement)element,
+                                            null,
+                                            JExpr.ref(actionName),
+                                            JExpr.ref(actionName),
+                                            virtualAnnotatedElements,
+                                            false);
                                 }
-
-                                return super.visitIdentifier(id, trees);
                             }
-
-                        });
-
+	            		}
 	            	} //for
-		    	} //if (actionScanNeeded)
+		    	} //if (index.hasActionsImport())
 		    	
 		    	//Scan all the Beans used
             	for (Element elem : element.getEnclosedElements()) {
@@ -339,6 +376,12 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 				
 				if (elem.getKind() == ElementKind.METHOD) {
 						
+					//The generated class depends now on the exporting element
+					SharedRecords.addOriginatingElement(
+						TypeUtils.getGeneratedClassName(enclosingElement, androidAnnotationsEnv), 
+						element
+					);
+					
 					//This element should be exported
 					VirtualElement virtualElement = VirtualElement.from(elem);
 					virtualElement.setEnclosingElement(enclosingElement);
@@ -452,28 +495,30 @@ public class DeclexProcessor extends org.androidannotations.internal.AndroidAnno
 		
 		int numberOfFiles = processResult.codeModel.countArtifacts();
 
-		if (actions.buildActionsObject()) {
+		if (actions.buildActionsObject(processResult.originatingElements)) {
 			LOGGER.debug("Generating Action Object");
 			numberOfFiles++;
 		}
 		
+		if (EventsHelper.getInstance(androidAnnotationsEnv).buildSubscriberIndex(processResult.originatingElements)) {
+			LOGGER.debug("Generating EventBus Subscriber Index");
+			numberOfFiles++;
+		}
+		
 		LOGGER.info("Number of files generated by DecleX: {}", numberOfFiles);
 		
 		if (processResult.codeModel.countArtifacts() > 0) {
+			SharedRecords.fillOriginatingElements(processResult.originatingElements);
+			
 			CodeModelGenerator modelGenerator = new DeclexCodeModelGenerator(
 				coreVersion, 
 				androidAnnotationsEnv.getOptionValue(CodeModelGenerator.OPTION_ENCODING), 
-				androidAnnotationsEnv
+				processingEnv.getFiler()
 			);
 			modelGenerator.generate(processResult);
 		}
 
 		timeStats.stop("Generate Sources");
-		
-		timeStats.start("Save Config");				
-		SharedRecords.writeEvents(processingEnv);
-		SharedRecords.writeDBModels(processingEnv);				
-		timeStats.stop("Save Config");
 
 	}
 
@@ -15,12 +15,14 @@
  */
 package com.dspot.declex.action;
 
+import com.dspot.declex.action.util.ActionsCache;
 import com.dspot.declex.annotation.action.*;
 import com.dspot.declex.api.action.process.ActionInfo;
 import com.dspot.declex.api.action.process.ActionMethod;
 import com.dspot.declex.api.action.process.ActionMethodParam;
 import com.dspot.declex.api.action.process.ActionProcessor;
 import com.dspot.declex.util.DeclexConstant;
+import com.dspot.declex.util.ProcessingSession;
 import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
 import com.helger.jcodemodel.JDefinedClass;
@@ -32,6 +34,7 @@ import org.androidannotations.helper.APTCodeModelHelper;
 import org.androidannotations.helper.CompilationTreeHelper;
 import org.androidannotations.helper.IdAnnotationHelper;
 import org.androidannotations.internal.InternalAndroidAnnotationsEnvironment;
+import org.androidannotations.internal.process.OriginatingElements;
 import org.androidannotations.internal.process.ProcessHolder;
 import org.androidannotations.logger.Logger;
 import org.androidannotations.logger.LoggerFactory;
@@ -42,7 +45,11 @@ import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
@@ -56,9 +63,9 @@ public class Actions {
 	
 	protected static final Logger LOGGER = LoggerFactory.getLogger(Actions.class);
 	
-	private static Actions instance;
-
-	private final Map<String, ClassLoader> classLoaderForProcessor = new HashMap<>();
+	//Class loaders for processors declared in libraries, keyed by the library file. Only the
+	//loader of the last version of each file is kept, the replaced loaders are closed
+	private static final Map<String, ProcessorClassLoader> classLoaderForProcessor = new HashMap<>();
 	
 	//<Action Holder Class, Is Exported (Declared in a library)
 	private final Map<String, Boolean> ACTION_HOLDERS = new HashMap<>();
@@ -76,9 +83,11 @@ public class Actions {
 	
 	private final IdAnnotationHelper annotationHelper;
 	private final APTCodeModelHelper codeModelHelper;
+	
+	private final ActionsCache actionsCache;
 
 	public static Actions getInstance() {
-		return instance;
+		return ProcessingSession.get().getInstance(Actions.class);
 	}
 
 	public Actions(InternalAndroidAnnotationsEnvironment env) {
@@ -93,8 +102,10 @@ public class Actions {
 		
 		annotationHelper = new IdAnnotationHelper(env, ActionFor.class.getCanonicalName());
 		codeModelHelper = new APTCodeModelHelper(env);
+		
+		actionsCache = new ActionsCache(env);
 
-        Actions.instance = this;
+        ProcessingSession.get().setInstance(Actions.class, this);
 	}
 
     public boolean isAction(String name) {
@@ -215,10 +226,32 @@ public class Actions {
 
         if (actionForAnnotation != null) {
 
+            //Only the actions declared in libraries can be cached
+            final String fingerprint = isExternal ? actionsCache.fingerprint(typeElement) : null;
+
             for (String name : actionForAnnotation.value()) {
 
                 ACTION_HOLDER_ELEMENT_FOR_ACTION.put("$" + name, typeElement);
 
+                if (fingerprint != null) {
+                    final ActionInfo cachedActionInfo = actionsCache.restore(actionHolder, fingerprint);
+                    if (cachedActionInfo != null) {
+                        cachedActionInfo.generated = false;
+
+                        for (String processor : actionsCache.getProcessors(actionHolder)) {
+                            ActionProcessor actionProcessor = loadProcessor(processor, typeElement);
+                            if (actionProcessor != null) {
+                                cachedActionInfo.processors.add(actionProcessor);
+                            }
+                        }
+
+                        final String references = cachedActionInfo.references;
+                        addAction(name, actionHolder, cachedActionInfo, false);
+                        cachedActionInfo.setReferences(references);
+                        continue;
+                    }
+                }
+
                 //Get model info
                 final ActionInfo actionInfo = new ActionInfo(actionHolder);
                 actionInfo.isGlobal = actionForAnnotation.global();
@@ -254,74 +287,97 @@ public class Actions {
                 );
 
                 //Load processors
+                List<String> processorNames = new LinkedList<>();
                 if (processors != null) {
                     for (DeclaredType processor : processors) {
+                        processorNames.add(processor.toString());
 
-                        Class<ActionProcessor> processorClass = null;
+                        ActionProcessor actionProcessor = loadProcessor(processor.toString(), typeElement);
+                        if (actionProcessor != null) {
+                            actionInfo.processors.add(actionProcessor);
+                        }
+                    }
+                }
 
-                        try {
+                createInformationForMethods(typeElement, actionInfo);
 
-                            ClassLoader loader = classLoaderForProcessor.get(processor.toString());
-                            if (loader != null) {
-                                processorClass = (Class<ActionProcessor>) Class.forName(processor.toString(), true, loader);
-                            } else {
-                                processorClass = (Class<ActionProcessor>) Class.forName(processor.toString());
-                            }
+                if (fingerprint != null) {
+                    actionsCache.store(actionHolder, fingerprint, actionInfo, processorNames);
+                }
+            }
 
-                        } catch (ClassNotFoundException e) {
+        }
 
-                            Element element =  env.getProcessingEnvironment().getElementUtils().getTypeElement(processor.toString());
-							if (element == null) {
-								LOGGER.error("Processor \"" + processor.toString() + "\" couldn't be loaded", typeElement);
-							} else {
+	}
 
-							    try {
-							        //Get the file from which the class was loaded
-                                    java.lang.reflect.Field field = element.getClass().getField("classfile");
-                                    field.setAccessible(true);
-                                    JavaFileObject classfile = (JavaFileObject) field.get(element);
+	private ActionProcessor loadProcessor(String processor, TypeElement typeElement) {
 
-                                    String jarUrl = classfile.toUri().toURL().toString();
-                                    jarUrl = jarUrl.substring(0, jarUrl.lastIndexOf('!') + 2);
+		Class<ActionProcessor> processorClass = null;
 
-                                    //Create or use a previous created class loader for the given file
-                                    ClassLoader loader;
-                                    if (classLoaderForProcessor.containsKey(jarUrl)) {
-                                        loader = classLoaderForProcessor.get(jarUrl);
-                                    } else {
-                                        loader = new URLClassLoader(new URL[]{new URL(jarUrl)}, Actions.class.getClassLoader());
-                                        classLoaderForProcessor.put(processor.toString(), loader);
-                                        classLoaderForProcessor.put(jarUrl, loader);
-                                    }
+		try {
 
-                                    processorClass = (Class<ActionProcessor>) Class.forName(processor.toString(), true, loader);
+			processorClass = (Class<ActionProcessor>) Class.forName(processor);
 
-                                } catch (Throwable e1) {
-                                    LOGGER.error("Processor \"" + processor.toString() + "\" couldn't be loaded: " + e1.getMessage(), typeElement);
-                                }
+		} catch (ClassNotFoundException e) {
 
+			Element element =  env.getProcessingEnvironment().getElementUtils().getTypeElement(processor);
+			if (element == null) {
+				LOGGER.error("Processor \"" + processor + "\" couldn't be loaded", typeElement);
+			} else {
+
+				try {
+					//Get the file from which the class was loaded
+					java.lang.reflect.Field field = element.getClass().getField("classfile");
+					field.setAccessible(true);
+					JavaFileObject classfile = (JavaFileObject) field.get(element);
+
+					String jarUrl = classfile.toUri().toURL().toString();
+					jarUrl = jarUrl.substring(0, jarUrl.lastIndexOf('!') + 2);
+
+					//Create or use a previous created class loader for the given file. The loaders
+					//are shared between compilations while the file is not modified
+					String jarStamp = "";
+					String jarPath = jarUrl.substring(0, jarUrl.lastIndexOf('!'));
+					if (jarPath.startsWith("jar:")) {
+						File jarFile = new File(new URI(jarPath.substring(4)));
+						jarStamp = jarFile.length() + ":" + jarFile.lastModified();
+					}
+
+					ClassLoader loader;
+					synchronized (classLoaderForProcessor) {
+						ProcessorClassLoader processorLoader = classLoaderForProcessor.get(jarUrl);
+						if (processorLoader == null || !processorLoader.stamp.equals(jarStamp)) {
+							if (processorLoader != null) {
+								processorLoader.close();
 							}
+							
+							processorLoader = new ProcessorClassLoader(jarUrl, jarStamp);
+							classLoaderForProcessor.put(jarUrl, processorLoader);
+						}
+						loader = processorLoader;
+					}
 
-                        } catch (ClassCastException e) {
-                            LOGGER.error("Processor \"" + processor.toString() + "\" is not an Action Processor", typeElement);
-                        }
+					processorClass = (Class<ActionProcessor>) Class.forName(processor, true, loader);
 
-                        if (processorClass != null) {
-                            try {
-                                actionInfo.processors.add(processorClass.newInstance());
-                            } catch (Throwable e) {
-                                LOGGER.info("Processor \"" + processor.toString() + "\" couldn't be instantiated", typeElement);
-                            }
-                        }
+				} catch (Throwable e1) {
+					LOGGER.error("Processor \"" + processor + "\" couldn't be loaded: " + e1.getMessage(), typeElement);
+				}
 
-                    }
-                }
+			}
 
-                createInformationForMethods(typeElement, actionInfo);
-            }
+		} catch (ClassCastException e) {
+			LOGGER.error("Processor \"" + processor + "\" is not an Action Processor", typeElement);
+		}
 
-        }
+		if (processorClass != null) {
+			try {
+				return processorClass.newInstance();
+			} catch (Throwable e) {
+				LOGGER.info("Processor \"" + processor + "\" couldn't be instantiated", typeElement);
+			}
+		}
 
+		return null;
 	}
 	
 	public void createInformationForMethods(Element typeElement, ActionInfo actionInfo) {
@@ -411,7 +467,15 @@ public class Actions {
 		}
 	}
 	
-	public boolean buildActionsObject() {
+	/**
+	 * Persists the information of the Actions declared in libraries, so it can be reused
+	 * in the next compilations
+	 */
+	public void writeCache() {
+		actionsCache.write();
+	}
+	
+	public boolean buildActionsObject(OriginatingElements originatingElements) {
 		
 		if (!generateInRound) {
 			generateInRound = true;
@@ -434,6 +498,12 @@ public class Actions {
 										
 					if (!actionInfo.generated) continue;
 					
+					//The Action object is generated from all the action holders
+					TypeElement actionHolderElement = ACTION_HOLDER_ELEMENT_FOR_ACTION.get(name);
+					if (actionHolderElement != null) {
+						originatingElements.add(DeclexConstant.ACTION, actionHolderElement);
+					}
+					
 					List<ActionMethod> builds = actionInfo.methods.get("build");
 					if (builds != null && builds.size() > 0) {
 						
@@ -482,4 +552,24 @@ public class Actions {
 		}				
 	}
 
+	private static class ProcessorClassLoader extends URLClassLoader {
+		
+		//Size and modification time of the file when the loader was created
+		private final String stamp;
+		
+		ProcessorClassLoader(String jarUrl, String stamp) throws MalformedURLException {
+			super(new URL[]{new URL(jarUrl)}, Actions.class.getClassLoader());
+			this.stamp = stamp;
+		}
+		
+		@Override
+		public void close() {
+			try {
+				super.close();
+			} catch (IOException e) {
+				LOGGER.warn("The class loader of {} couldn't be closed: {}", getURLs()[0], e.getMessage());
+			}
+		}
+	}
+	
 }
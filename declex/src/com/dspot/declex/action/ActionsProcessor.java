@@ -17,11 +17,13 @@ package com.dspot.declex.action;
 
 import com.dspot.declex.action.builder.ActionsBuilder;
 import com.dspot.declex.action.exception.ActionCallSuperException;
-import com.dspot.declex.action.exception.ActionDetectedException;
 import com.dspot.declex.action.exception.ActionProcessingException;
 import com.dspot.declex.action.util.ActionsLogger;
 import com.dspot.declex.action.builder.ActionsMethodBuilder;
 import com.dspot.declex.action.util.ExpressionsHelper;
+import com.dspot.declex.helper.CompilationUnitIndex;
+import com.dspot.declex.util.ProcessingSession;
+import com.dspot.declex.util.TreesUtils;
 import com.helger.jcodemodel.*;
 import com.sun.source.tree.*;
 import com.sun.source.tree.Tree.Kind;
@@ -77,69 +79,46 @@ public class ActionsProcessor extends TreePathScanner<Boolean, Trees> {
 	
 	private ElementValidation valid;
 	
-	//Cache to stored the elements that were already scanned for Actions
-	private static Map<Element, Boolean> hasActionMap = new HashMap<>();
-	private static List<Element> overrideAction = new LinkedList<>();
+	//Cache to stored the elements that were already scanned for Actions, it is kept
+	//in the processing session so it is released when the processing is over
+	private static final String HAS_ACTION_MAP = ActionsProcessor.class.getCanonicalName() + ".hasActionMap";
+	private static final String OVERRIDE_ACTION = ActionsProcessor.class.getCanonicalName() + ".overrideAction";
+	
+	private static Map<Element, Boolean> hasActionMap() {
+		return ProcessingSession.get().getMap(HAS_ACTION_MAP);
+	}
+	
+	private static List<Element> overrideAction() {
+		return ProcessingSession.get().getList(OVERRIDE_ACTION);
+	}
 	
 	public static boolean hasAction(final Element element, AndroidAnnotationsEnvironment env) {
 		
-		Boolean hasAction = hasActionMap.get(element);
+		Boolean hasAction = hasActionMap().get(element);
 		if (hasAction != null) return hasAction;
 		
-		final Trees trees = Trees.instance(env.getProcessingEnvironment());
-    	final TreePath treePath = trees.getPath(
-    			element instanceof VirtualElement? ((VirtualElement)element).getElement() : element
-		);
+		//The compilation unit is scanned only once, the identifiers are read from its index
+		final CompilationUnitIndex index = CompilationUnitIndex.forElement(element, env);
     	
     	//This means the element is Virtual and was already processed (ex. Imported Method)
-    	if (treePath == null) return false;
+    	if (index == null) return false;
     	
     	//Check if the Action Api was activated for this compilation unit
-    	for (ImportTree importTree : treePath.getCompilationUnit().getImports()) {
-    		
-            if (Actions.getInstance().isAction(importTree.getQualifiedIdentifier().toString())) {
-
-            	try {
-
-	            	//Scan first to see if an action exists in the method
-	            	TreePathScanner<Boolean, Trees> scanner = new TreePathScanner<Boolean, Trees>() {
-	            		@Override
-	            		public Boolean visitIdentifier(IdentifierTree id,
-	            				Trees trees) {
-	            			
-	            			String name = id.getName().toString();
-	            			
-	            			if (Actions.getInstance().hasActionNamed(name)) {
-	            				//Identifier detected
-	            				throw new ActionDetectedException();
-	            			}
-	            			
-	            			return super.visitIdentifier(id, trees);
-	            		}
-	            	};
-	            	scanner.scan(treePath, trees);
-                	        		
-            	} catch (ActionDetectedException e) {  
-            		//This means that an Action identifier was found
-            		hasActionMap.put(element, true);
-            		
-                	return true;
-            	}
-            	
-            	break;
-            }
-        }
+    	if (index.hasActionsImport() && index.hasActionIdentifier(element)) {
+    		hasActionMap().put(element, true);
+    		return true;
+    	}
     	
     	//Actions extended elements are marked in front with "$"
 		if (element.getKind().equals(ElementKind.METHOD) 
 			&& element.getSimpleName().toString().startsWith("$")) {
 			
-			hasActionMap.put(element, true);
-			overrideAction.add(element);
+			hasActionMap().put(element, true);
+			overrideAction().add(element);
         	return true;
 		}
     	
-    	hasActionMap.put(element, false);
+    	hasActionMap().put(element, false);
     	return false;		
 	}
 	
@@ -148,7 +127,7 @@ public class ActionsProcessor extends TreePathScanner<Boolean, Trees> {
 		if (hasAction(element, env)) {
 					
 			//Validate overrideActions
-			if (overrideAction.contains(element) ||
+			if (overrideAction().contains(element) ||
 				(element.getKind().equals(ElementKind.METHOD) 
 				&& element.getSimpleName().toString().startsWith("$"))) {
 				
@@ -162,7 +141,7 @@ public class ActionsProcessor extends TreePathScanner<Boolean, Trees> {
 				return;
 			}
 			
-    		final Trees trees = Trees.instance(env.getProcessingEnvironment());
+    		final Trees trees = TreesUtils.getTrees(env.getProcessingEnvironment());
         	final TreePath treePath = trees.getPath(element);
         	
 			try {
@@ -229,16 +208,16 @@ public class ActionsProcessor extends TreePathScanner<Boolean, Trees> {
 	
 	public static void processActions(final Element element, EComponentHolder holder) {
     	
-		if (!hasActionMap.containsKey(element)) {
+		if (!hasActionMap().containsKey(element)) {
 			throw new RuntimeException("Action not validated: " + element + " in " + holder.getAnnotatedElement());
 		}
 		    		
-		final Trees trees = Trees.instance(holder.getEnvironment().getProcessingEnvironment());
+		final Trees trees = TreesUtils.getTrees(holder.getEnvironment().getProcessingEnvironment());
     	final TreePath treePath = trees.getPath(element);
     	
     	ActionsProcessor scanner = new ActionsProcessor(element, holder, null, treePath, holder.getEnvironment());
     	
-    	if (!overrideAction.contains(element)) {
+    	if (!overrideAction().contains(element)) {
     		scanner.scan(treePath, trees);
     	}
     	
@@ -262,7 +241,7 @@ public class ActionsProcessor extends TreePathScanner<Boolean, Trees> {
 
 		compilationUnit = treePath.getCompilationUnit();
 
-		if (overrideAction.contains(element)) {
+		if (overrideAction().contains(element)) {
 			actionsBuilder.buildActionMethod(true);
 			return;
 		}
@@ -356,7 +335,7 @@ public class ActionsProcessor extends TreePathScanner<Boolean, Trees> {
 					if (elem instanceof ExecutableElement) {
 						if (elemName.equals(methodName) ) {
 							if (((ExecutableElement) elem).getParameters().size() == parametersCount) {
-								if (hasAction(elem, env) && !overrideAction.contains(elem)) {
+								if (hasAction(elem, env) && !overrideAction().contains(elem)) {
 									throw new ActionCallSuperException(elem);
 								}
 							}
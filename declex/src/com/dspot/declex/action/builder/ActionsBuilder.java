@@ -23,10 +23,12 @@ import com.dspot.declex.annotation.action.*;
 import com.dspot.declex.api.action.process.ActionInfo;
 import com.dspot.declex.api.action.process.ActionMethod;
 import com.dspot.declex.api.action.process.ActionMethodParam;
+import com.dspot.declex.api.action.processor.ActionProcessorUtil;
 import com.dspot.declex.api.util.FormatsUtils;
 import com.dspot.declex.override.helper.DeclexAPTCodeModelHelper;
 import com.dspot.declex.util.DeclexConstant;
 import com.dspot.declex.util.JavaDocUtils;
+import com.dspot.declex.util.ProcessingSession;
 import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.*;
 import com.sun.source.tree.*;
@@ -397,11 +399,15 @@ public class ActionsBuilder {
                         actionInfo.metaData.put("action", action);
                         actionInfo.metaData.put("element", element);
                         actionInfo.metaData.put("adi", adiHelper);
+                        actionInfo.metaData.put("processingEnv", environment.getProcessingEnvironment());
+                        actionInfo.metaData.put("codeModel", environment.getCodeModel());
+                        actionInfo.metaData.put("processorCaches", processorCaches());
 
                         if (isValidating) {
                             actionInfo.validateProcessors();
                         } else {
                             actionInfo.metaData.put("holder", holder);
+                            actionInfo.metaData.put("contextRef", holder.getContextRef());
                             actionInfo.callProcessors();
                         }
 
@@ -966,6 +972,19 @@ public class ActionsBuilder {
         return environment.getCodeModel();
     }
 
+    /**
+     * The caches of the Action processors are kept in the processing session,
+     * and they are cleared at the end of each round
+     */
+    private static ActionProcessorUtil.Caches processorCaches() {
+        ActionProcessorUtil.Caches caches = ProcessingSession.get().getInstance(ActionProcessorUtil.Caches.class);
+        if (caches == null) {
+            caches = new ActionProcessorUtil.Caches();
+            ProcessingSession.get().setInstance(ActionProcessorUtil.Caches.class, caches);
+        }
+        return caches;
+    }
+
     public static class ParamInfo {
 
         public ActionMethodParam param;
@@ -1,5 +0,0 @@
-package com.dspot.declex.action.exception;
-
-public class ActionDetectedException extends RuntimeException {
-    private static final long serialVersionUID = 1L;
-}
@@ -0,0 +1,426 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.action.util;
+
+import com.dspot.declex.api.action.process.ActionInfo;
+import com.dspot.declex.api.action.process.ActionMethod;
+import com.dspot.declex.api.action.process.ActionMethodParam;
+import com.dspot.declex.util.FileUtils;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.AbstractJType;
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.androidannotations.logger.Logger;
+import org.androidannotations.logger.LoggerFactory;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Cache of the information of the Actions declared in libraries. This information
+ * cannot change while the library is not modified, so it is persisted to disk between 
+ * builds. The cache is read once per processing, from the cache file of the project
+ * being compiled, so the projects built by the same process (ex. a Gradle daemon) 
+ * don't share their entries.
+ * <br><br>
+ * The entries are keyed by the Action Holder class and validated with a fingerprint
+ * of the class files of the holder and all its super classes.
+ */
+public class ActionsCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActionsCache.class);
+
+    private static final String CACHE_FILE_NAME = "actions.bin";
+
+    private static final int CACHE_VERSION = 1;
+
+    private final Map<String, HolderEntry> ENTRIES = new HashMap<>();
+
+    private boolean modified;
+
+    private final AndroidAnnotationsEnvironment environment;
+
+    public ActionsCache(AndroidAnnotationsEnvironment environment) {
+        this.environment = environment;
+
+        synchronized (ENTRIES) {
+            read();
+        }
+    }
+
+    /**
+     * Calculates the fingerprint of an Action Holder loaded from a library
+     *
+     * @return the fingerprint, or null if the holder (or any of its super classes) is not loaded
+     * from a class file, in which case it cannot be cached
+     */
+    public String fingerprint(TypeElement typeElement) {
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+
+        TypeElement element = typeElement;
+        while (element != null && !element.asType().toString().equals(Object.class.getCanonicalName())) {
+
+            try {
+                java.lang.reflect.Field field = element.getClass().getField("classfile");
+                JavaFileObject classfile = (JavaFileObject) field.get(element);
+                if (classfile == null || classfile.getKind() != JavaFileObject.Kind.CLASS) return null;
+
+                InputStream in = classfile.openInputStream();
+                try {
+                    int length;
+                    while ((length = in.read(buffer)) != -1) {
+                        crc.update(buffer, 0, length);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (Throwable e) {
+                return null;
+            }
+
+            TypeMirror superType = element.getSuperclass();
+            if (superType.getKind() != TypeKind.DECLARED) break;
+            element = (TypeElement) ((DeclaredType) superType).asElement();
+        }
+
+        return Long.toHexString(crc.getValue());
+    }
+
+    public List<String> getProcessors(String holderClass) {
+        synchronized (ENTRIES) {
+            HolderEntry entry = ENTRIES.get(holderClass);
+            return entry == null ? Collections.<String>emptyList() : entry.processors;
+        }
+    }
+
+    /**
+     * Creates the ActionInfo for the given holder from the cache
+     *
+     * @return the ActionInfo, or null if there isn't a valid entry for the fingerprint
+     */
+    public ActionInfo restore(String holderClass, String fingerprint) {
+
+        HolderEntry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(holderClass);
+        }
+
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) return null;
+
+        try {
+
+            ActionInfo actionInfo = new ActionInfo(holderClass);
+            actionInfo.isGlobal = entry.isGlobal;
+            actionInfo.isTimeConsuming = entry.isTimeConsuming;
+            actionInfo.handleViewChanges = entry.handleViewChanges;
+            actionInfo.setReferences(entry.references);
+
+            for (MethodEntry method : entry.methods) {
+
+                List<ActionMethodParam> params = new LinkedList<>();
+                for (ParamEntry param : method.params) {
+                    params.add(new ActionMethodParam(param.name, parseType(param.type), restoreAnnotations(param.annotations)));
+                }
+
+                actionInfo.addMethod(method.name, method.resultClass, method.javaDoc, params, restoreAnnotations(method.annotations));
+            }
+
+            return actionInfo;
+
+        } catch (Throwable e) {
+            LOGGER.warn("Cached information for {} couldn't be restored", holderClass);
+            return null;
+        }
+
+    }
+
+    public void store(String holderClass, String fingerprint, ActionInfo actionInfo, List<String> processors) {
+
+        final HolderEntry entry;
+        try {
+            entry = createEntry(fingerprint, actionInfo, processors);
+
+            //The entry is serialized before it is stored, an entry which cannot be written
+            //(ex. annotation values not supported by Kryo) would discard the whole cache
+            Output output = new Output(1024, -1);
+            try {
+                new Kryo().writeObject(output, entry);
+            } finally {
+                output.close();
+            }
+
+        } catch (Throwable e) {
+            LOGGER.warn("Actions of {} couldn't be cached: {}", holderClass, e.toString());
+            return;
+        }
+
+        synchronized (ENTRIES) {
+            ENTRIES.put(holderClass, entry);
+            modified = true;
+        }
+    }
+
+    private HolderEntry createEntry(String fingerprint, ActionInfo actionInfo, List<String> processors) {
+
+        HolderEntry entry = new HolderEntry();
+        entry.fingerprint = fingerprint;
+        entry.references = actionInfo.references;
+        entry.isGlobal = actionInfo.isGlobal;
+        entry.isTimeConsuming = actionInfo.isTimeConsuming;
+        entry.handleViewChanges = actionInfo.handleViewChanges;
+        entry.processors = new ArrayList<>(processors);
+
+        for (List<ActionMethod> methods : actionInfo.methods.values()) {
+            for (ActionMethod method : methods) {
+
+                MethodEntry methodEntry = new MethodEntry();
+                methodEntry.name = method.name;
+                methodEntry.resultClass = method.resultClass;
+                methodEntry.javaDoc = method.javaDoc;
+                methodEntry.annotations = storeAnnotations(method.annotations);
+
+                for (ActionMethodParam param : method.params) {
+                    ParamEntry paramEntry = new ParamEntry();
+                    paramEntry.name = param.name;
+                    paramEntry.type = param.clazz.fullName();
+                    paramEntry.annotations = storeAnnotations(param.annotations);
+
+                    methodEntry.params.add(paramEntry);
+                }
+
+                entry.methods.add(methodEntry);
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Persists the cache to disk if it was modified
+     */
+    public void write() {
+
+        synchronized (ENTRIES) {
+            if (!modified) return;
+
+            try {
+                Output output = new Output(new FileOutputStream(getCacheFile()));
+                try {
+                    Kryo kryo = new Kryo();
+                    output.writeInt(CACHE_VERSION);
+                    kryo.writeObject(output, new HashMap<>(ENTRIES));
+                } finally {
+                    output.close();
+                }
+
+                modified = false;
+
+            } catch (Throwable e) {
+                LOGGER.warn("Actions cache couldn't be written: {}", e.getMessage());
+            }
+        }
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private void read() {
+
+        File cacheFile = getCacheFile();
+        if (!cacheFile.exists()) return;
+
+        try {
+            Input input = new Input(new FileInputStream(cacheFile));
+            try {
+                if (input.readInt() != CACHE_VERSION) return;
+
+                Kryo kryo = new Kryo();
+                ENTRIES.putAll(kryo.readObject(input, HashMap.class));
+            } finally {
+                input.close();
+            }
+        } catch (Throwable e) {
+            //The cache is discarded, it will be created again
+            ENTRIES.clear();
+        }
+
+    }
+
+    private File getCacheFile() {
+        File cacheDir = FileUtils.getConfigFile("cache", environment.getProcessingEnvironment());
+        return new File(cacheDir, CACHE_FILE_NAME);
+    }
+
+    private List<AnnotationEntry> storeAnnotations(List<Annotation> annotations) {
+        List<AnnotationEntry> entries = new ArrayList<>(annotations.size());
+
+        for (Annotation annotation : annotations) {
+            AnnotationEntry entry = new AnnotationEntry();
+            entry.type = annotation.annotationType().getName();
+
+            for (Method method : annotation.annotationType().getDeclaredMethods()) {
+                try {
+                    entry.values.put(method.getName(), method.invoke(annotation));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    private List<Annotation> restoreAnnotations(List<AnnotationEntry> entries) throws ClassNotFoundException {
+        List<Annotation> annotations = new LinkedList<>();
+
+        for (final AnnotationEntry entry : entries) {
+            final Class<?> annotationType = Class.forName(entry.type, true, ActionsCache.class.getClassLoader());
+
+            Annotation annotation = (Annotation) Proxy.newProxyInstance(
+                annotationType.getClassLoader(),
+                new Class<?>[] {annotationType},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        switch (method.getName()) {
+                            case "annotationType": return annotationType;
+                            case "hashCode": return entry.values.hashCode();
+                            case "equals": return proxy == args[0];
+                            case "toString": return "@" + entry.type + entry.values;
+                        }
+
+                        Object value = entry.values.get(method.getName());
+                        return value != null ? value : method.getDefaultValue();
+                    }
+                }
+            );
+
+            annotations.add(annotation);
+        }
+
+        return annotations;
+    }
+
+    /**
+     * Converts back to a type the full name of a parameter of an Action, this supports
+     * arrays, primitives, and parameterized types
+     */
+    private AbstractJType parseType(String type) throws ClassNotFoundException {
+        type = type.trim();
+
+        if (type.endsWith("[]")) {
+            return parseType(type.substring(0, type.length() - 2)).array();
+        }
+
+        if (!type.contains(".")) {
+            //Only primitives are valid, type variables cannot be restored
+            return environment.getCodeModel().parseType(type);
+        }
+
+        int index = type.indexOf('<');
+        if (index == -1) {
+            return environment.getJClass(type);
+        }
+
+        AbstractJClass rawClass = environment.getJClass(type.substring(0, index));
+
+        List<AbstractJClass> typeArguments = new LinkedList<>();
+        int depth = 0;
+        int start = index + 1;
+        for (int i = start; i < type.length() - 1; i++) {
+            char c = type.charAt(i);
+
+            if (c == '<') depth++;
+            else if (c == '>') depth--;
+            else if (c == ',' && depth == 0) {
+                typeArguments.add(parseTypeArgument(type.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        typeArguments.add(parseTypeArgument(type.substring(start, type.length() - 1)));
+
+        return rawClass.narrow(typeArguments);
+    }
+
+    private AbstractJClass parseTypeArgument(String type) throws ClassNotFoundException {
+        type = type.trim();
+
+        if (type.equals("?")) {
+            return environment.getJClass(Object.class.getCanonicalName()).wildcard();
+        }
+
+        if (type.startsWith("? extends ")) {
+            return ((AbstractJClass) parseType(type.substring("? extends ".length()))).wildcard();
+        }
+
+        if (type.startsWith("? super ")) {
+            return ((AbstractJClass) parseType(type.substring("? super ".length()))).wildcardSuper();
+        }
+
+        AbstractJType parsed = parseType(type);
+        if (parsed instanceof AbstractJClass) return (AbstractJClass) parsed;
+
+        throw new ClassNotFoundException(type);
+    }
+
+    private static class HolderEntry {
+        String fingerprint;
+        String references;
+        boolean isGlobal;
+        boolean isTimeConsuming;
+        boolean handleViewChanges;
+        List<String> processors = new ArrayList<>();
+        List<MethodEntry> methods = new ArrayList<>();
+    }
+
+    private static class MethodEntry {
+        String name;
+        String resultClass;
+        String javaDoc;
+        List<AnnotationEntry> annotations = new ArrayList<>();
+        List<ParamEntry> params = new ArrayList<>();
+    }
+
+    private static class ParamEntry {
+        String name;
+        String type;
+        List<AnnotationEntry> annotations = new ArrayList<>();
+    }
+
+    private static class AnnotationEntry {
+        String type;
+        HashMap<String, Object> values = new HashMap<>();
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.dspot.declex.adapter;
 
+import static com.helger.jcodemodel.JExpr.TRUE;
 import static com.helger.jcodemodel.JExpr._new;
 import static com.helger.jcodemodel.JExpr._null;
 import static com.helger.jcodemodel.JExpr._this;
@@ -47,9 +48,12 @@ public class AdapterClassCreator extends HolderClassCreator {
 	final AbstractJClass ArrayList;	
 	final AbstractJClass Model;
 	final String className;
+	
+	final AdapterModelHelper modelHelper;
+	final boolean stableIds;
 		
 	public AdapterClassCreator(String modelClassName, String className, Element element, EComponentHolder holder, 
-			List<JClassPlugin> adapterPlugins) {
+			List<JClassPlugin> adapterPlugins, boolean stableIds) {
 		super(element, holder);
 
 		Model = getJClass(modelClassName);
@@ -57,6 +61,9 @@ public class AdapterClassCreator extends HolderClassCreator {
 		ArrayList = getJClass("java.util.ArrayList").narrow(Model);
 		this.className = className;
 		
+		modelHelper = new AdapterModelHelper(modelClassName, holder.getEnvironment());
+		this.stableIds = stableIds && modelHelper.isIntegralId();
+		
 		for (JClassPlugin plugin : adapterPlugins) {
 			AbstractJClass newBaseAdapter = plugin.getBaseAdapter(element);
 			if (newBaseAdapter != null) {
@@ -107,6 +114,13 @@ public class AdapterClassCreator extends HolderClassCreator {
 		getItemIdMethod.annotate(Override.class);
 		getItemIdMethod.param(getCodeModel().INT, "position");
 		
+		//hasStableIds() METHOD, the ids of the models are used only if requested, since they should be unique
+		if (stableIds) {
+			JMethod hasStableIdsMethod = AdapterClass.method(JMod.PUBLIC, getCodeModel().BOOLEAN, "hasStableIds");
+			hasStableIdsMethod.annotate(Override.class);
+			hasStableIdsMethod.body()._return(TRUE);
+		}
+		
 		//inflate() METHOD
 		JMethod inflateMethod = AdapterClass.method(JMod.PUBLIC, getClasses().VIEW, "inflate");
 		inflateMethod.param(getCodeModel().INT, "position");
@@ -143,7 +157,13 @@ public class AdapterClassCreator extends HolderClassCreator {
 		
 		getCountMethodBody._return(models.invoke("size"));
 		getItemMethodBody._return(models.invoke("get").arg(ref("position")));
-		getItemIdMethodBody._return(lit(0));
+		
+		if (stableIds) {
+			JVar model = getItemIdMethodBody.decl(Model, "model", models.invoke("get").arg(ref("position")));
+			modelHelper.returnItemId(getItemIdMethodBody, model, getJClass("android.widget.AdapterView").staticRef("INVALID_ROW_ID"));
+		} else {
+			getItemIdMethodBody._return(lit(0));
+		}
 		
 		return AdapterClass;
 	}
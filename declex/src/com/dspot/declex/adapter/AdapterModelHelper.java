@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.adapter;
+
+import static com.helger.jcodemodel.JExpr._null;
+import static com.helger.jcodemodel.JExpr.invoke;
+import static com.helger.jcodemodel.JExpr.ref;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.androidannotations.helper.ModelConstants;
+
+import com.dspot.declex.annotation.UseModel;
+import com.helger.jcodemodel.IJExpression;
+import com.helger.jcodemodel.JBlock;
+
+/**
+ * Information about the models shown by the generated adapters, used to determine
+ * how the items of the adapter can be identified and compared.
+ * <br><br>
+ * The identifier of a model is taken from a public "getId()" method (ex. the one
+ * of ActiveAndroid models), or from an "id" field.
+ */
+public class AdapterModelHelper {
+
+	private static final String ID_NAME = "id";
+	private static final String ID_GETTER_NAME = "getId";
+
+	private TypeElement modelElement;
+
+	private String idAccessor;
+	private boolean idIsMethod;
+	private TypeMirror idType;
+
+	private boolean declaresEquals;
+
+	public AdapterModelHelper(String modelClassName, AndroidAnnotationsEnvironment environment) {
+
+		final Elements elementUtils = environment.getProcessingEnvironment().getElementUtils();
+
+		boolean isGenerated = false;
+		String className = modelClassName;
+		modelElement = elementUtils.getTypeElement(className);
+		if (modelElement == null && className.endsWith(ModelConstants.generationSuffix())) {
+			className = className.substring(0, className.length() - 1);
+			modelElement = elementUtils.getTypeElement(className);
+			isGenerated = true;
+		}
+
+		if (modelElement == null) return;
+
+		for (Element elem : elementUtils.getAllMembers(modelElement)) {
+
+			if (elem.getModifiers().contains(Modifier.STATIC)) continue;
+			final String elemName = elem.getSimpleName().toString();
+
+			if (elem.getKind() == ElementKind.METHOD) {
+
+				if (elemName.equals("equals")) {
+					final String declaringClass = elem.getEnclosingElement().asType().toString();
+					if (!declaringClass.equals(Object.class.getCanonicalName())
+						&& !declaringClass.equals("com.activeandroid.Model")) {
+						declaresEquals = true;
+					}
+				}
+
+				ExecutableElement executableElement = (ExecutableElement) elem;
+				if (elemName.equals(ID_GETTER_NAME) && executableElement.getParameters().isEmpty()
+					&& elem.getModifiers().contains(Modifier.PUBLIC)
+					&& executableElement.getReturnType().getKind() != TypeKind.VOID) {
+
+					idAccessor = ID_GETTER_NAME;
+					idIsMethod = true;
+					idType = executableElement.getReturnType();
+				}
+			}
+
+			if (elem.getKind() == ElementKind.FIELD && elemName.equals(ID_NAME) && idAccessor == null) {
+
+				if (elem.getModifiers().contains(Modifier.PUBLIC)) {
+					idAccessor = ID_NAME;
+					idIsMethod = false;
+					idType = elem.asType();
+				} else if (isGenerated && !elem.getModifiers().contains(Modifier.PRIVATE)
+						   && modelElement.getAnnotation(UseModel.class) != null) {
+
+					//The getter is created in the generated model
+					idAccessor = ID_GETTER_NAME;
+					idIsMethod = true;
+					idType = elem.asType();
+				}
+			}
+		}
+
+	}
+
+	public boolean hasId() {
+		return idAccessor != null;
+	}
+
+	public boolean isPrimitiveId() {
+		return hasId() && idType.getKind().isPrimitive();
+	}
+
+	/**
+	 * Determines if the identifier can be used as a stable id of the adapter items.
+	 */
+	public boolean isIntegralId() {
+		if (!hasId()) return false;
+
+		switch (idType.getKind()) {
+		case LONG: case INT: case SHORT: case BYTE:
+			return true;
+
+		case DECLARED:
+			final String type = idType.toString();
+			return type.equals(Long.class.getCanonicalName()) || type.equals(Integer.class.getCanonicalName())
+				   || type.equals(Short.class.getCanonicalName()) || type.equals(Byte.class.getCanonicalName());
+
+		default:
+			return false;
+		}
+	}
+
+	public IJExpression getIdExpression(IJExpression model) {
+		if (!hasId()) return null;
+		return idIsMethod? invoke(model, idAccessor) : ref(model, idAccessor);
+	}
+
+	/**
+	 * Writes in the block the return of the stable id of the model, this should be used 
+	 * only with integral ids.
+	 * 
+	 * @param noId The id to be returned for null models or models without id
+	 */
+	public void returnItemId(JBlock block, IJExpression model, IJExpression noId) {
+		block._if(model.eq(_null()))._then()._return(noId);
+		
+		if (isPrimitiveId()) {
+			block._return(getIdExpression(model));
+			return;
+		}
+		
+		block._if(getIdExpression(model).eq(_null()))._then()._return(noId);
+		block._return(getIdExpression(model).invoke("longValue"));
+	}
+	
+	/**
+	 * Determines if the model (or one of its super classes) declares the equals method,
+	 * so it can be used to compare the content of two models.
+	 */
+	public boolean declaresEquals() {
+		return declaresEquals;
+	}
+
+	public TypeElement getModelElement() {
+		return modelElement;
+	}
+
+}
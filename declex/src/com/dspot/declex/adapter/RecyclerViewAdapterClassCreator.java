@@ -15,21 +15,29 @@
  */
 package com.dspot.declex.adapter;
 
+import static com.helger.jcodemodel.JExpr.FALSE;
+import static com.helger.jcodemodel.JExpr.TRUE;
 import static com.helger.jcodemodel.JExpr._new;
 import static com.helger.jcodemodel.JExpr._null;
 import static com.helger.jcodemodel.JExpr._this;
 import static com.helger.jcodemodel.JExpr.cast;
+import static com.helger.jcodemodel.JExpr.cond;
+import static com.helger.jcodemodel.JExpr.invoke;
 import static com.helger.jcodemodel.JExpr.lit;
+import static com.helger.jcodemodel.JExpr.ref;
 
 import java.util.List;
 
 import javax.lang.model.element.Element;
 
+import org.androidannotations.api.BackgroundExecutor;
 import org.androidannotations.holder.EComponentHolder;
 
 import com.dspot.declex.adapter.plugin.HolderClassCreator;
 import com.dspot.declex.adapter.plugin.JClassPlugin;
+import com.dspot.declex.api.util.MainThreadDispatcher;
 import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.JBlock;
 import com.helger.jcodemodel.JClassAlreadyExistsException;
 import com.helger.jcodemodel.JConditional;
 import com.helger.jcodemodel.JDefinedClass;
@@ -40,6 +48,18 @@ import com.helger.jcodemodel.JVar;
 
 public class RecyclerViewAdapterClassCreator extends HolderClassCreator {
 	
+	//Lists bigger than this are compared in background
+	private static final int DIFF_IN_BACKGROUND_SIZE = 500;
+	
+	public static final String DIFF_CALLBACK_NAME = "ModelsDiffCallback";
+	
+	/**
+	 * Name of the method of the diff callback which compares the values bound to the views 
+	 * of two models, it is created by the plugin populating the view holders, if the values 
+	 * can be compared
+	 */
+	public static final String BOUND_VALUES_COMPARATOR_NAME = "areBoundValuesTheSame";
+	
 	AbstractJClass RecyclerViewAdapter;
 	
 	final AbstractJClass RecyclerViewHolder;
@@ -47,9 +67,16 @@ public class RecyclerViewAdapterClassCreator extends HolderClassCreator {
 	final AbstractJClass ArrayList;
 	
 	final String className;
+	final boolean diff;
+	final boolean stableIds;
+	
+	final AdapterModelHelper modelHelper;
+	
+	private JDefinedClass diffCallback;
+	private JBlock areContentsTheSameBody;
 	
 	public RecyclerViewAdapterClassCreator(String modelClassName, String className, Element element, 
-			EComponentHolder holder, List<JClassPlugin> adapterPlugins) {
+			EComponentHolder holder, List<JClassPlugin> adapterPlugins, boolean diff, boolean stableIds) {
 		super(element, holder);
 		
 		RecyclerViewHolder = getJClass(className + "ViewHolder");
@@ -57,6 +84,10 @@ public class RecyclerViewAdapterClassCreator extends HolderClassCreator {
 		Model = getJClass(modelClassName);
 		ArrayList = getJClass("java.util.ArrayList").narrow(Model);
 		this.className = className;
+		this.diff = diff;
+		
+		modelHelper = new AdapterModelHelper(modelClassName, holder.getEnvironment());
+		this.stableIds = stableIds && modelHelper.isIntegralId();
 		
 		for (JClassPlugin plugin : adapterPlugins) {
 			AbstractJClass newBaseAdapter = plugin.getBaseAdapter(element);
@@ -93,6 +124,25 @@ public class RecyclerViewAdapterClassCreator extends HolderClassCreator {
 		ifModels._then().assign(_this().ref(models), _new(ArrayList).arg(modelsParam));
 		ifModels._else().invoke(_this().ref(models), "clear");
 		
+		if (diff) {
+			createUpdateModelsMethod(AdapterClass, models);
+			
+			//Any diff being calculated is discarded
+			setModels.body().assignPlus(AdapterClass.fields().get("modelsVersion"), lit(1));
+		}
+		
+		//With stable ids the RecyclerView can reuse the views of the models, the ids should be unique
+		if (stableIds) {
+			constructor.body().invoke("setHasStableIds").arg(TRUE);
+			
+			JMethod getItemIdMethod = AdapterClass.method(JMod.PUBLIC, getCodeModel().LONG, "getItemId");
+			getItemIdMethod.annotate(Override.class);
+			JVar position = getItemIdMethod.param(getCodeModel().INT, "position");
+			
+			JVar model = getItemIdMethod.body().decl(Model, "model", models.invoke("get").arg(position));
+			modelHelper.returnItemId(getItemIdMethod.body(), model, getJClass("android.support.v7.widget.RecyclerView").staticRef("NO_ID"));
+		}
+		
 		//getItemCount() METHOD
 		JMethod getItemCountMethod = AdapterClass.method(JMod.PUBLIC, getCodeModel().INT, "getItemCount");
 		getItemCountMethod.annotate(Override.class);
@@ -132,7 +182,161 @@ public class RecyclerViewAdapterClassCreator extends HolderClassCreator {
 		
 		getItemCountMethod.body()._return(models.invoke("size"));
 		
+		if (diffCallback != null) {
+			completeAreContentsTheSame();
+		}
+		
 		return AdapterClass;
 	}
+	
+	/**
+	 * Creates the updateModels() method, which assigns the new list of models to the adapter,
+	 * notifying only the items which changed. The changes are calculated with DiffUtil.
+	 */
+	private void createUpdateModelsMethod(JDefinedClass AdapterClass, JFieldVar models) throws JClassAlreadyExistsException {
+		
+		final AbstractJClass DiffUtil = getJClass("android.support.v7.util.DiffUtil");
+		final AbstractJClass DiffResult = getJClass("android.support.v7.util.DiffUtil.DiffResult");
+		final AbstractJClass ModelsList = getClasses().LIST.narrow(Model);
+		
+		JFieldVar modelsVersion = AdapterClass.field(JMod.PRIVATE, getCodeModel().INT, "modelsVersion");
+		JDefinedClass DiffCallback = createDiffCallbackClass(AdapterClass);
+		
+		JMethod updateModels = AdapterClass.method(JMod.PUBLIC, getCodeModel().VOID, "updateModels");
+		JVar updatedModels = updateModels.param(ModelsList, "updatedModels");
+		JBlock body = updateModels.body();
+		
+		JVar oldModels = body.decl(JMod.FINAL, ModelsList, "oldModels", models);
+		JVar newModels = body.decl(JMod.FINAL, ModelsList, "newModels", 
+				cond(updatedModels.eq(_null()), _new(ArrayList), _new(ArrayList).arg(updatedModels)));
+		
+		body.assignPlus(modelsVersion, lit(1));
+		JVar version = body.decl(JMod.FINAL, getCodeModel().INT, "version", modelsVersion);
+		
+		JBlock ifSmallList = body._if(oldModels.invoke("size").plus(newModels.invoke("size")).lte(lit(DIFF_IN_BACKGROUND_SIZE)))._then();
+		JVar diffResult = ifSmallList.decl(DiffResult, "diffResult", 
+				DiffUtil.staticInvoke("calculateDiff").arg(_new(DiffCallback).arg(oldModels).arg(newModels)));
+		ifSmallList.assign(models, newModels);
+		ifSmallList.invoke(diffResult, "dispatchUpdatesTo").arg(_this());
+		ifSmallList._return();
+		
+		//Big lists are compared in background, and the result dispatched in the main thread
+		JDefinedClass anonymousTaskClass = getCodeModel().anonymousClass(BackgroundExecutor.Task.class);
+		JMethod executeMethod = anonymousTaskClass.method(JMod.PUBLIC, getCodeModel().VOID, "execute");
+		executeMethod.annotate(Override.class);
+		
+		diffResult = executeMethod.body().decl(JMod.FINAL, DiffResult, "diffResult", 
+				DiffUtil.staticInvoke("calculateDiff").arg(_new(DiffCallback).arg(oldModels).arg(newModels)));
+		
+		JDefinedClass anonymousRunnable = getCodeModel().anonymousClass(Runnable.class);
+		JMethod runMethod = anonymousRunnable.method(JMod.PUBLIC, getCodeModel().VOID, "run");
+		runMethod.annotate(Override.class);
+		
+		runMethod.body().directStatement("//The models were changed while the diff was calculated");
+		runMethod.body()._if(version.ne(modelsVersion))._then()._return();
+		runMethod.body().assign(models, newModels);
+		runMethod.body().invoke(diffResult, "dispatchUpdatesTo").arg(AdapterClass.staticRef("this"));
+		
+		executeMethod.body().add(getJClass(MainThreadDispatcher.class).staticInvoke("post").arg(_new(anonymousRunnable)));
+		
+		body.add(getJClass(BackgroundExecutor.class).staticInvoke("execute")
+				.arg(_new(anonymousTaskClass).arg(lit("")).arg(lit(0)).arg(lit(""))));
+	}
+	
+	private JDefinedClass createDiffCallbackClass(JDefinedClass AdapterClass) throws JClassAlreadyExistsException {
+		
+		final AbstractJClass ModelsList = getClasses().LIST.narrow(Model);
+		
+		JDefinedClass DiffCallback = AdapterClass._class(JMod.PRIVATE, DIFF_CALLBACK_NAME)
+				                                 ._extends(getJClass("android.support.v7.util.DiffUtil.Callback"));
+		
+		JFieldVar oldModels = DiffCallback.field(JMod.PRIVATE | JMod.FINAL, ModelsList, "oldModels");
+		JFieldVar newModels = DiffCallback.field(JMod.PRIVATE | JMod.FINAL, ModelsList, "newModels");
+		
+		JMethod constructor = DiffCallback.constructor(JMod.PUBLIC);
+		constructor.body().assign(_this().ref(oldModels), constructor.param(ModelsList, "oldModels"));
+		constructor.body().assign(_this().ref(newModels), constructor.param(ModelsList, "newModels"));
+		
+		JMethod getOldListSize = DiffCallback.method(JMod.PUBLIC, getCodeModel().INT, "getOldListSize");
+		getOldListSize.annotate(Override.class);
+		getOldListSize.body()._return(oldModels.invoke("size"));
+		
+		JMethod getNewListSize = DiffCallback.method(JMod.PUBLIC, getCodeModel().INT, "getNewListSize");
+		getNewListSize.annotate(Override.class);
+		getNewListSize.body()._return(newModels.invoke("size"));
+		
+		//areItemsTheSame() METHOD, the items are identified by the model id, if any
+		JMethod areItemsTheSame = DiffCallback.method(JMod.PUBLIC, getCodeModel().BOOLEAN, "areItemsTheSame");
+		areItemsTheSame.annotate(Override.class);
+		JVar oldModel = areItemsTheSame.body().decl(JMod.FINAL, Model, "oldModel", 
+				oldModels.invoke("get").arg(areItemsTheSame.param(getCodeModel().INT, "oldItemPosition")));
+		JVar newModel = areItemsTheSame.body().decl(JMod.FINAL, Model, "newModel", 
+				newModels.invoke("get").arg(areItemsTheSame.param(getCodeModel().INT, "newItemPosition")));
+		areItemsTheSame.body()._if(oldModel.eq(_null()).cor(newModel.eq(_null())))._then()._return(oldModel.eq(newModel));
+		
+		if (modelHelper.isPrimitiveId()) {
+			areItemsTheSame.body()._return(modelHelper.getIdExpression(oldModel).eq(modelHelper.getIdExpression(newModel)));
+		} else if (modelHelper.hasId()) {
+			JVar oldId = areItemsTheSame.body().decl(getClasses().OBJECT, "oldId", modelHelper.getIdExpression(oldModel));
+			areItemsTheSame.body()._if(oldId.eq(_null()))._then()._return(oldModel.eq(newModel));
+			areItemsTheSame.body()._return(oldId.invoke("equals").arg(modelHelper.getIdExpression(newModel)));
+		} else if (modelHelper.declaresEquals()) {
+			areItemsTheSame.body()._return(oldModel.invoke("equals").arg(newModel));
+		} else {
+			areItemsTheSame.body()._return(oldModel.eq(newModel));
+		}
+		
+		//areContentsTheSame() METHOD, the same instance could have been modified, so it is rebound.
+		//Without equals(), the values bound to the views are compared once the plugins created them
+		JMethod areContentsTheSame = DiffCallback.method(JMod.PUBLIC, getCodeModel().BOOLEAN, "areContentsTheSame");
+		areContentsTheSame.annotate(Override.class);
+		oldModel = areContentsTheSame.body().decl(JMod.FINAL, Model, "oldModel", 
+				oldModels.invoke("get").arg(areContentsTheSame.param(getCodeModel().INT, "oldItemPosition")));
+		newModel = areContentsTheSame.body().decl(JMod.FINAL, Model, "newModel", 
+				newModels.invoke("get").arg(areContentsTheSame.param(getCodeModel().INT, "newItemPosition")));
+		
+		if (modelHelper.declaresEquals()) {
+			areContentsTheSame.body()._return(
+				oldModel.ne(newModel).cand(oldModel.ne(_null())).cand(oldModel.invoke("equals").arg(newModel))
+			);
+		} else {
+			areContentsTheSame.body()._if(oldModel.eq(newModel).cor(oldModel.eq(_null())).cor(newModel.eq(_null())))
+			                         ._then()._return(FALSE);
+			areContentsTheSameBody = areContentsTheSame.body();
+		}
+		
+		//getChangePayload() METHOD, with a payload the ItemAnimator reuses the view holder of the 
+		//item instead of animating a new one. onBindViewHolder(holder, position, payloads) is not 
+		//overridden, the item is bound completely, but the values cached in its view holder let
+		//skip the ones which didn't change
+		JMethod getChangePayload = DiffCallback.method(JMod.PUBLIC, getClasses().OBJECT, "getChangePayload");
+		getChangePayload.annotate(Override.class);
+		getChangePayload.param(getCodeModel().INT, "oldItemPosition");
+		getChangePayload.param(getCodeModel().INT, "newItemPosition");
+		getChangePayload.body()._return(getJClass(Boolean.class).staticRef("TRUE"));
+		
+		diffCallback = DiffCallback;
+		return DiffCallback;
+	}
+	
+	private void completeAreContentsTheSame() {
+		if (areContentsTheSameBody == null) return;
+		
+		//If the bound values cannot be compared (ex. a populate method sets the views), 
+		//all the items are rebound
+		JMethod comparator = null;
+		for (JMethod method : diffCallback.methods()) {
+			if (method.name().equals(BOUND_VALUES_COMPARATOR_NAME)) {
+				comparator = method;
+				break;
+			}
+		}
+		
+		if (comparator == null) {
+			areContentsTheSameBody._return(FALSE);
+		} else {
+			areContentsTheSameBody._return(invoke(comparator).arg(ref("oldModel")).arg(ref("newModel")));
+		}
+	}
 
 }
@@ -16,10 +16,13 @@
 package com.dspot.declex.adapter;
 
 import static com.dspot.declex.api.util.FormatsUtils.fieldToGetter;
+import static com.helger.jcodemodel.JExpr.FALSE;
+import static com.helger.jcodemodel.JExpr.TRUE;
 import static com.helger.jcodemodel.JExpr._new;
 import static com.helger.jcodemodel.JExpr._null;
 import static com.helger.jcodemodel.JExpr._this;
 import static com.helger.jcodemodel.JExpr.cast;
+import static com.helger.jcodemodel.JExpr.cond;
 import static com.helger.jcodemodel.JExpr.invoke;
 import static com.helger.jcodemodel.JExpr.ref;
 
@@ -27,6 +30,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
@@ -46,6 +50,7 @@ import com.dspot.declex.holder.ViewsHolder.ICreateViewListener;
 import com.dspot.declex.holder.ViewsHolder.IWriteInBloc;
 import com.dspot.declex.holder.ViewsHolder.IdInfoHolder;
 import com.dspot.declex.holder.view_listener.ViewListenerHolder;
+import com.dspot.declex.parser.LayoutsParser.LayoutNode;
 import com.dspot.declex.util.DeclexConstant;
 import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
@@ -71,13 +76,17 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 	private String adapterClassName;
 	private String modelClassName;
 	private String fieldName;
+	
+	//<Model class, Layout>
+	private Map<String, String> itemLayouts;
 
 	public RecyclerViewAdapterPopulator(PopulateHandler handler,
 			String fieldName, String adapterClassName, String modelClassName,
-			ViewsHolder viewsHolder) {
+			ViewsHolder viewsHolder, Map<String, String> itemLayouts) {
 		super(viewsHolder.environment());
 
 		this.handler = handler;
+		this.itemLayouts = itemLayouts;
 		this.fieldName = fieldName;
 		this.adapterClassName = adapterClassName;
 		this.modelClassName = modelClassName;
@@ -103,6 +112,7 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 		}
 
 		AbstractJClass Model = getJClass(modelClassName);
+		final AbstractJClass ListModel = Model;
 
 		JFieldRef models = _this().ref("models");
 
@@ -123,7 +133,7 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 		final String defLayoutId = viewsHolder.getDefLayoutId();
 
 		// Read the Layout from the XML file
-		org.w3c.dom.Element node = viewsHolder.getDomElementFromId(fieldName);
+		LayoutNode node = viewsHolder.getLayoutNodeFromId(fieldName);
 		if (node.hasAttribute("tools:listitem")) {
 			String listItem = node.getAttribute("tools:listitem");
 			listItemId = listItem.substring(listItem.lastIndexOf('/') + 1);
@@ -146,8 +156,25 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 					fields, methods, true, true, listItemId);
 		}
 		
+		//The fields of the models shown with their own layout, found in that layout
+		List<ItemLayoutBinding> itemLayoutBindings = new LinkedList<>();
+		for (Entry<String, String> itemLayout : itemLayouts.entrySet()) {
+			viewsHolder.addLayout(itemLayout.getValue());
+			
+			ItemLayoutBinding binding = new ItemLayoutBinding(itemLayout.getKey(), itemLayout.getValue());
+			viewsHolder.findFieldsAndMethods(binding.className, fieldName, element,
+					binding.fields, binding.methods, true, true, binding.layoutId);
+			itemLayoutBindings.add(binding);
+		}
+		
 		JMethod inflaterMethod = AdapterClass.getMethod("inflate", new AbstractJType[]{getCodeModel().INT, getClasses().VIEW_GROUP, getClasses().LAYOUT_INFLATER});
-		inflaterMethod.body()._return(inflater.invoke("inflate").arg(contentViewId).arg(parent).arg(false));
+		if (itemLayouts.isEmpty()) {
+			inflaterMethod.body()._return(inflater.invoke("inflate").arg(contentViewId).arg(parent).arg(false));
+		} else {
+			//The view type is the layout of the model
+			inflaterMethod.body()._return(inflater.invoke("inflate").arg(viewType).arg(parent).arg(false));
+			createGetItemViewTypeMethod(AdapterClass, contentViewId);
+		}
 
 		final JVar rootView = onCreateViewMethodBody.decl(getClasses().VIEW,
 				"rootView", invoke("inflate").arg(viewType).arg(parent).arg(inflater));
@@ -225,6 +252,36 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 
 			fieldNames.add(holderFieldName);
 		}
+		
+		//The views which are only in the item layouts are null in the view holders of other layouts
+		for (ItemLayoutBinding binding : itemLayoutBindings) {
+			for (IdInfoHolder info : binding.getInfos()) {
+				final String holderFieldName = info.idName;
+				
+				AbstractJClass idNameClass = getJClass(info.viewClass);
+				JVar viewField = ViewHolderClass.fields().get(holderFieldName + DeclexConstant.VIEW);
+				if (viewField != null) {
+					if (!viewField.type().equals(idNameClass)) {
+						LOGGER.warn("The view {} has different classes in the layouts of the items, it is populated only as in {}", 
+								    holderFieldName, listItemId);
+						binding.remove(info);
+					}
+					continue;
+				}
+				
+				JFieldRef idRef = environment.getRClass().get(Res.ID)
+						.getIdStaticRef(holderFieldName, environment);
+
+				viewField = ViewHolderClass.field(JMod.PUBLIC, idNameClass,
+						holderFieldName + DeclexConstant.VIEW);
+
+				IJExpression findViewById = rootView.invoke("findViewById").arg(idRef);
+				if (!idNameClass.equals(CanonicalNameConstants.VIEW))
+					findViewById = cast(idNameClass, findViewById);
+
+				onCreateViewMethodBody.assign(viewHolder.ref(viewField), findViewById);
+			}
+		}
 
 		// =========================onBindViewHolder Method======================
 
@@ -282,8 +339,16 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 		
 		IJExpression modelAssigner = models.invoke("get").arg(position);
 		if (castNeeded)	modelAssigner = cast(Model, models.invoke("get").arg(position));
+		
+		//The generated classes of the item models don't extend the generated class of the model
+		final boolean otherGeneratedModels = castNeeded && !itemLayouts.isEmpty();
+		if (otherGeneratedModels) {
+			modelAssigner = cond(models.invoke("get").arg(position)._instanceof(Model), modelAssigner, _null());
+		}
 		onBindMethodBody.assign(model, modelAssigner);
 		
+		final JBlock modelBindBlock = otherGeneratedModels? onBindMethodBody._if(model.neNull())._then() : onBindMethodBody;
+		
 		if (modelClassName.equals(String.class.getCanonicalName())) {
 			String viewClass = viewsHolder.getClassNameFromId("text");
 			if (viewClass != null) {
@@ -299,9 +364,12 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 			}
 		}
 
+		//The views of the item could be changed by the code of the user
+		final boolean skipUnchangedValues = !handler.hasPopulateSupportMethod(fieldName, element) && !hasViewListeners(viewsHolder);
+		
 		for (String field : fields.keySet()) {
 			IJExpression methodsCall = model;
-			JBlock checkForNull = onBindMethodBody;
+			JBlock checkForNull = modelBindBlock;
 
 			String[] fieldSplit = field.split("\\.");
 			int index = 0;
@@ -321,6 +389,18 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 
 			IdInfoHolder info = fields.get(field);
 			JFieldRef view = viewHolder.ref(info.idName + DeclexConstant.VIEW);
+			
+			//Only the values which changed are assigned to the views
+			if (skipUnchangedValues && info.extraParams.isEmpty()) {
+				JBlock ifValueChanged = createIfValueChangedBlock(
+						ViewHolderClass, viewHolder, info.idName, info.viewClass, info.type, methodsCall, checkForNull
+					);
+				if (ifValueChanged != null) {
+					checkForNull = ifValueChanged;
+					methodsCall = ref(info.idName + "$value");
+				}
+			}
+			
 			handler.putAssignInBlock(info, checkForNull, view, methodsCall,
 					element, viewsHolder, null,
 					listItemId);
@@ -328,7 +408,7 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 
 		for (String methodName : methods.keySet()) {
 			IJExpression methodsCall = model;
-			JBlock checkForNull = onBindMethodBody;
+			JBlock checkForNull = modelBindBlock;
 
 			String[] methodSplit = methodName.split("\\.");
 			for (int i = 0; i < methodSplit.length - 1; i++)
@@ -348,6 +428,23 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 					listItemId);
 		}
 
+		for (ItemLayoutBinding binding : itemLayoutBindings) {
+			if (!otherGeneratedModels) binding.removeBoundInDefaultLayout(fieldNames);
+			if (binding.getInfos().isEmpty()) continue;
+			
+			AbstractJClass ItemModel = binding.getModelClass();
+			JBlock ifItemModel = onBindMethodBody._if(models.invoke("get").arg(position)._instanceof(ItemModel))._then();
+			JVar itemModel = ifItemModel.decl(JMod.FINAL, ItemModel, "itemModel", cast(ItemModel, models.invoke("get").arg(position)));
+			
+			for (String field : binding.fields.keySet()) {
+				bindItemLayoutValue(binding.fields.get(field), field, false, itemModel, ifItemModel, viewHolder, element, binding.layoutId);
+			}
+			
+			for (String methodName : binding.methods.keySet()) {
+				bindItemLayoutValue(binding.methods.get(methodName), methodName, true, itemModel, ifItemModel, viewHolder, element, binding.layoutId);
+			}
+		}
+
 		// Process the events
 		Map<Class<?>, Object> listenerHolders = viewsHolder.holder()
 				.getPluginHolders();
@@ -380,10 +477,207 @@ public class RecyclerViewAdapterPopulator extends BaseClassPlugin {
 				fieldNames, element, viewsHolder);
 
 		onCreateViewMethodBody._return(viewHolder);
+		
+		//The values bound can be compared only if all the item is bound by the generated code, 
+		//the listeners also reference the bound model instance
+		if (skipUnchangedValues && !modelClassName.equals(String.class.getCanonicalName())) {
+			createBoundValuesComparator(AdapterClass, ListModel, Model, castNeeded, fields, methods, itemLayoutBindings);
+		}
 
 		viewsHolder.setCreateViewListener(null);
 		viewsHolder.setDefLayoutId(defLayoutId);
 	}
+	
+	/**
+	 * Creates in the diff callback of the adapter (if any) the comparison of the values bound
+	 * to the views of two models, so that a new instance with the same values is not rebound
+	 */
+	private void createBoundValuesComparator(JDefinedClass AdapterClass, AbstractJClass ListModel, AbstractJClass Model, 
+			boolean castNeeded, Map<String, IdInfoHolder> fields, Map<String, IdInfoHolder> methods, 
+			List<ItemLayoutBinding> itemLayoutBindings) {
+		
+		JDefinedClass DiffCallback = null;
+		for (JDefinedClass innerClass : AdapterClass.classes()) {
+			if (innerClass.name().equals(RecyclerViewAdapterClassCreator.DIFF_CALLBACK_NAME)) {
+				DiffCallback = innerClass;
+				break;
+			}
+		}
+		if (DiffCallback == null) return;
+		
+		JMethod comparator = DiffCallback.method(
+				JMod.PRIVATE, getCodeModel().BOOLEAN, RecyclerViewAdapterClassCreator.BOUND_VALUES_COMPARATOR_NAME
+			);
+		JVar oldItem = comparator.param(ListModel, "oldItem");
+		JVar newItem = comparator.param(ListModel, "newItem");
+		
+		//Models of different classes can be shown in different layouts
+		comparator.body()._if(oldItem.invoke("getClass").ne(newItem.invoke("getClass")))._then()._return(FALSE);
+		
+		IJExpression oldModel = castNeeded? cast(Model, oldItem) : oldItem;
+		IJExpression newModel = castNeeded? cast(Model, newItem) : newItem;
+		
+		JBlock modelComparisonBlock = comparator.body();
+		if (castNeeded && !itemLayoutBindings.isEmpty()) {
+			modelComparisonBlock = modelComparisonBlock._if(oldItem._instanceof(Model))._then();
+		}
+		
+		for (String field : fields.keySet()) {
+			addBoundValueComparison(modelComparisonBlock, field, false, oldModel, newModel);
+		}
+		
+		for (String methodName : methods.keySet()) {
+			addBoundValueComparison(modelComparisonBlock, methodName, true, oldModel, newModel);
+		}
+		
+		//The values bound from the item layouts are compared for their models
+		for (ItemLayoutBinding binding : itemLayoutBindings) {
+			if (binding.getInfos().isEmpty()) continue;
+			
+			AbstractJClass ItemModel = binding.getModelClass();
+			JBlock ifItemModel = comparator.body()._if(oldItem._instanceof(ItemModel))._then();
+			
+			for (String field : binding.fields.keySet()) {
+				addBoundValueComparison(ifItemModel, field, false, cast(ItemModel, oldItem), cast(ItemModel, newItem));
+			}
+			
+			for (String methodName : binding.methods.keySet()) {
+				addBoundValueComparison(ifItemModel, methodName, true, cast(ItemModel, oldItem), cast(ItemModel, newItem));
+			}
+		}
+		
+		comparator.body()._return(TRUE);
+	}
+	
+	private void addBoundValueComparison(JBlock body, String path, boolean isMethod, IJExpression oldModel, IJExpression newModel) {
+		JBlock block = body.block();
+		JVar oldValue = block.decl(getClasses().OBJECT, "oldValue", getBoundValue(path, isMethod, oldModel));
+		JVar newValue = block.decl(getClasses().OBJECT, "newValue", getBoundValue(path, isMethod, newModel));
+		block._if(cond(oldValue.eq(_null()), newValue.ne(_null()), oldValue.invoke("equals").arg(newValue).not()))
+		     ._then()._return(FALSE);
+	}
+	
+	/**
+	 * Reads the value bound from the model, it is null if a value in the path is null
+	 */
+	private IJExpression getBoundValue(String path, boolean isMethod, IJExpression model) {
+		List<String> pathParts = new LinkedList<>();
+		for (String part : path.split("\\.")) {
+			if (!part.equals("")) pathParts.add(part);
+		}
+		
+		List<IJExpression> intermediateValues = new LinkedList<>();
+		IJExpression value = model;
+		for (int i = 0; i < pathParts.size(); i++) {
+			final boolean isLast = i == pathParts.size() - 1;
+			value = value.invoke(isLast && isMethod? pathParts.get(i) : fieldToGetter(pathParts.get(i)));
+			if (!isLast) intermediateValues.add(value);
+		}
+		
+		for (int i = intermediateValues.size() - 1; i >= 0; i--) {
+			value = cond(intermediateValues.get(i).eq(_null()), _null(), value);
+		}
+		
+		return value;
+	}
+
+	/**
+	 * Each model subclass is inflated with its own layout, this permits to the RecyclerView
+	 * to reuse the view holders of the same layout. The views which are not present in 
+	 * a given layout are not populated.
+	 */
+	private void createGetItemViewTypeMethod(JDefinedClass AdapterClass, JFieldRef contentViewId) {
+		
+		JMethod getItemViewType = AdapterClass.method(JMod.PUBLIC, getCodeModel().INT, "getItemViewType");
+		getItemViewType.annotate(Override.class);
+		JVar position = getItemViewType.param(getCodeModel().INT, "position");
+		
+		JVar model = getItemViewType.body().decl(getClasses().OBJECT, "model", ref("models").invoke("get").arg(position));
+		for (Entry<String, String> itemLayout : itemLayouts.entrySet()) {
+			getItemViewType.body()._if(model._instanceof(getJClass(itemLayout.getKey())))._then()
+			               ._return(environment.getRClass().get(Res.LAYOUT).getIdStaticRef(itemLayout.getValue(), environment));
+		}
+		
+		getItemViewType.body()._return(contentViewId);
+	}
+
+	/**
+	 * Assigns to its view a value of a model shown with its own layout
+	 */
+	private void bindItemLayoutValue(IdInfoHolder info, String path, boolean isMethod, IJExpression itemModel, JBlock block, 
+			IJAssignmentTarget viewHolder, Element element, String layoutId) {
+		
+		IJExpression methodsCall = itemModel;
+		JBlock checkForNull = block;
+
+		String[] pathSplit = path.split("\\.");
+		for (int i = 0; i < pathSplit.length; i++) {
+			if (pathSplit[i].equals("")) continue;
+			
+			final boolean isLast = i == pathSplit.length - 1;
+			methodsCall = methodsCall.invoke(isLast && isMethod? pathSplit[i] : fieldToGetter(pathSplit[i]));
+
+			if (!isLast || (!isMethod && !info.type.getKind().isPrimitive())) {
+				checkForNull = checkForNull._if(methodsCall.ne(_null()))._then();
+			}
+		}
+
+		JFieldRef view = viewHolder.ref(info.idName + DeclexConstant.VIEW);
+		handler.putAssignInBlock(info, checkForNull, view, methodsCall, element, viewsHolder, null, layoutId);
+	}
+
+	/**
+	 * The fields and methods of a model subclass which are shown in its own layout
+	 */
+	private class ItemLayoutBinding {
+		
+		final String modelClassName;
+		final String className;
+		final String layoutId;
+		
+		final Map<String, IdInfoHolder> fields = new HashMap<>();
+		final Map<String, IdInfoHolder> methods = new HashMap<>();
+		
+		ItemLayoutBinding(String modelClassName, String layoutId) {
+			this.modelClassName = modelClassName;
+			this.layoutId = layoutId;
+			
+			String className = modelClassName;
+			if (className.endsWith(ModelConstants.generationSuffix())) {
+				className = className.substring(0, className.length() - 1);
+			}
+			this.className = className;
+		}
+		
+		AbstractJClass getModelClass() {
+			if (!modelClassName.endsWith(ModelConstants.generationSuffix())
+				&& TypeUtils.isClassAnnotatedWith(modelClassName, UseModel.class, environment)) {
+				return getJClass(TypeUtils.getGeneratedClassName(modelClassName, environment));
+			}
+			
+			return getJClass(modelClassName);
+		}
+		
+		List<IdInfoHolder> getInfos() {
+			List<IdInfoHolder> infos = new LinkedList<>(fields.values());
+			infos.addAll(methods.values());
+			return infos;
+		}
+		
+		/**
+		 * The views of the default layout which are already bound for the models of this layout
+		 */
+		void removeBoundInDefaultLayout(List<String> viewIds) {
+			for (IdInfoHolder info : getInfos()) {
+				if (viewIds.contains(info.idName)) remove(info);
+			}
+		}
+		
+		void remove(IdInfoHolder info) {
+			fields.values().remove(info);
+			methods.values().remove(info);
+		}
+	}
 
 	@Override
 	public AbstractJClass getBaseAdapter(Element element) {
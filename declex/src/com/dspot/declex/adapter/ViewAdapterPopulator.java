@@ -45,6 +45,7 @@ import com.dspot.declex.holder.ViewsHolder.ICreateViewListener;
 import com.dspot.declex.holder.ViewsHolder.IWriteInBloc;
 import com.dspot.declex.holder.ViewsHolder.IdInfoHolder;
 import com.dspot.declex.holder.view_listener.ViewListenerHolder;
+import com.dspot.declex.parser.LayoutsParser.LayoutNode;
 import com.dspot.declex.util.DeclexConstant;
 import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
@@ -107,7 +108,7 @@ public class ViewAdapterPopulator extends BaseClassPlugin {
 		final String defLayoutId = viewsHolder.getDefLayoutId();
 		
 		//Read the Layout from the XML file
-		org.w3c.dom.Element node = viewsHolder.getDomElementFromId(fieldName);
+		LayoutNode node = viewsHolder.getLayoutNodeFromId(fieldName);
 		if (node.hasAttribute("tools:listitem")) {
 			String listItem = node.getAttribute("tools:listitem");
 			listItemId = listItem.substring(listItem.lastIndexOf('/')+1);
@@ -274,6 +275,9 @@ public class ViewAdapterPopulator extends BaseClassPlugin {
 			}
 		}
 		
+		//The views of the item could be changed by the code of the user
+		final boolean skipUnchangedValues = !handler.hasPopulateSupportMethod(fieldName, element) && !hasViewListeners(viewsHolder);
+		
 		for (String field : fields.keySet()) {
 			IJExpression methodsCall = model;
 			JBlock checkForNull = methodBody;
@@ -294,6 +298,18 @@ public class ViewAdapterPopulator extends BaseClassPlugin {
 			
 			IdInfoHolder info = fields.get(field);
 			JFieldRef view = viewHolder.ref(info.idName + DeclexConstant.VIEW);
+			
+			//Only the values which changed are assigned to the views
+			if (skipUnchangedValues && info.extraParams.isEmpty()) {
+				JBlock ifValueChanged = createIfValueChangedBlock(
+						ViewHolderClass, viewHolder, info.idName, info.viewClass, info.type, methodsCall, checkForNull
+					);
+				if (ifValueChanged != null) {
+					checkForNull = ifValueChanged;
+					methodsCall = ref(info.idName + "$value");
+				}
+			}
+			
 			handler.putAssignInBlock(
 				info, checkForNull, view, methodsCall, element, viewsHolder, 
 				null, listItemId
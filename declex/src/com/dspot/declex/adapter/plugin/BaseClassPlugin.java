@@ -15,16 +15,50 @@
  */
 package com.dspot.declex.adapter.plugin;
 
+import static com.helger.jcodemodel.JExpr.TRUE;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.type.TypeMirror;
 
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.internal.process.ProcessHolder.Classes;
 
+import com.dspot.declex.holder.ViewsHolder;
+import com.dspot.declex.holder.view_listener.ViewListenerHolder;
+import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.AbstractJType;
+import com.helger.jcodemodel.IJExpression;
+import com.helger.jcodemodel.JBlock;
 import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JDefinedClass;
+import com.helger.jcodemodel.JFieldVar;
+import com.helger.jcodemodel.JMod;
+import com.helger.jcodemodel.JVar;
 
 public abstract class BaseClassPlugin implements JClassPlugin {
+	
+	private static final Set<String> COMPARABLE_TYPES = new HashSet<>(Arrays.asList(
+		String.class.getCanonicalName(), Boolean.class.getCanonicalName(), Character.class.getCanonicalName(),
+		Byte.class.getCanonicalName(), Short.class.getCanonicalName(), Integer.class.getCanonicalName(),
+		Long.class.getCanonicalName(), Float.class.getCanonicalName(), Double.class.getCanonicalName()
+	));
+	
+	//Views which only show the values assigned to them
+	private static final List<String> DISPLAY_VIEWS = Arrays.asList(
+		"android.widget.TextView", "android.widget.ImageView"
+	);
+	
+	//Views which the user can change, so they don't show always the last value assigned
+	private static final List<String> EDITABLE_VIEWS = Arrays.asList(
+		"android.widget.EditText", "android.widget.CompoundButton", "android.widget.CheckedTextView"
+	);
 
 	protected AndroidAnnotationsEnvironment environment;
 	
@@ -45,6 +79,86 @@ public abstract class BaseClassPlugin implements JClassPlugin {
 	protected JCodeModel getCodeModel() {
 		return environment.getCodeModel();
 	}
+	
+	/**
+	 * Creates the block where the value is assigned to the view of a view holder, this
+	 * block is executed only the first time, or if the value changed since the last time 
+	 * it was assigned with this view holder. Redundant assignments (ex. setText) cause 
+	 * relayouts of the views.
+	 * <br><br>
+	 * Only immutable values (primitives, boxed primitives and Strings) are compared, and only
+	 * for views which are not changed by the user (ex. a TextView, but not an EditText), since 
+	 * the value shown by the view should be the last one assigned. For other values or views 
+	 * null is returned and the value should be always assigned.
+	 * 
+	 * @return the block for the assignment, or null if the value cannot be compared
+	 */
+	protected JBlock createIfValueChangedBlock(JDefinedClass ViewHolderClass, IJExpression viewHolder, 
+			String holderFieldName, String viewClass, TypeMirror type, IJExpression value, JBlock block) {
+		
+		if (!isDisplayView(viewClass)) return null;
+		
+		final boolean isPrimitive = type.getKind().isPrimitive();
+		if (!isPrimitive && !COMPARABLE_TYPES.contains(type.toString())) return null;
+		
+		final AbstractJType valueType;
+		try {
+			valueType = getCodeModel().parseType(type.toString());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		
+		final String boundName = holderFieldName + "$bound";
+		final String lastValueName = holderFieldName + "$lastValue";
+		
+		JFieldVar bound = ViewHolderClass.fields().get(boundName);
+		JFieldVar lastValue = ViewHolderClass.fields().get(lastValueName);
+		if (bound == null) {
+			bound = ViewHolderClass.field(JMod.NONE, getCodeModel().BOOLEAN, boundName);
+			lastValue = ViewHolderClass.field(JMod.NONE, valueType, lastValueName);
+		}
+		
+		JVar newValue = block.decl(valueType, holderFieldName + "$value", value);
+		IJExpression changed = isPrimitive? newValue.ne(viewHolder.ref(lastValue)) 
+				                           : newValue.invoke("equals").arg(viewHolder.ref(lastValue)).not();
+		
+		JBlock ifChanged = block._if(viewHolder.ref(bound).not().cor(changed))._then();
+		ifChanged.assign(viewHolder.ref(bound), TRUE);
+		ifChanged.assign(viewHolder.ref(lastValue), newValue);
+		
+		return ifChanged;
+	}
+	
+	private boolean isDisplayView(String viewClass) {
+		if (viewClass == null) return false;
+		
+		for (String editableView : EDITABLE_VIEWS) {
+			if (TypeUtils.isSubtype(viewClass, editableView, environment.getProcessingEnvironment())) return false;
+		}
+		
+		for (String displayView : DISPLAY_VIEWS) {
+			if (TypeUtils.isSubtype(viewClass, displayView, environment.getProcessingEnvironment())) return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Determines if listeners are assigned to the views of the current layout of the holder. 
+	 * The code of the listeners can change the views of the item.
+	 */
+	protected boolean hasViewListeners(ViewsHolder viewsHolder) {
+		Map<Class<?>, Object> listenerHolders = viewsHolder.holder().getPluginHolders();
+		for (Object listenerHolderObject : listenerHolders.values()) {
+			if (!ViewListenerHolder.class.isInstance(listenerHolderObject)) continue;
+			
+			for (String viewId : ((ViewListenerHolder) listenerHolderObject).getViewFieldNames()) {
+				if (viewsHolder.layoutContainsId(viewId)) return true;
+			}
+		}
+		
+		return false;
+	}
 
 
 }
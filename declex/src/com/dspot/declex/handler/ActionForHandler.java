@@ -45,6 +45,7 @@ import com.dspot.declex.annotation.action.ActionFor;
 import com.dspot.declex.api.action.process.ActionInfo;
 import com.dspot.declex.override.helper.OverrideAPTCodeModelHelper;
 import com.dspot.declex.util.DeclexConstant;
+import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
 import com.helger.jcodemodel.JDefinedClass;
@@ -223,6 +224,7 @@ public class ActionForHandler extends BaseAnnotationHandler<EComponentWithViewSu
 			try {
 				JDefinedClass ActionGate = getCodeModel()._class(JMod.PUBLIC, actionGateClassName);
 				ActionGate._extends(codeModelHelper.elementTypeToJClass(element));
+				SharedRecords.addOriginatingElement(actionGateClassName, element);
 				
 				if (javaDoc != null) {
 					ActionGate.javadoc().add(javaDoc);
@@ -75,6 +75,7 @@ public class AfterLoadHandler extends BaseAnnotationHandler<EBeanHolder> {
 		
 		final ExecutableElement afterLoadMethod = (ExecutableElement) element;
 		final UseModelHolder useModelHolder = holder.getPluginHolder(new UseModelHolder(holder));
+		final boolean firstAfterLoad = useModelHolder.getAfterLoadMethod() == null;
 		useModelHolder.setAfterLoadMethod(afterLoadMethod);
 		
 		List<Class<? extends Annotation>> annotations = Arrays.asList(UseModel.class, JsonModel.class, LocalDBModel.class, ServerModel.class);
@@ -92,6 +93,11 @@ public class AfterLoadHandler extends BaseAnnotationHandler<EBeanHolder> {
 		
 		List<? extends VariableElement> parameters = afterLoadMethod.getParameters();
 		
+		//Models loaded with lazyRebind are bound before they are used in the @AfterLoad methods
+		if (firstAfterLoad) {
+			useModelHolder.getModelInitMethod().body().invoke(useModelHolder.getRebindIfNeededMethod());
+		}
+		
 		JInvocation invocation = useModelHolder.getModelInitMethod().body()
 				                    .invoke(afterLoadMethod.getSimpleName().toString());
 		
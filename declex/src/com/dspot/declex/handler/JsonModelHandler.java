@@ -18,20 +18,32 @@ package com.dspot.declex.handler;
 import static com.helger.jcodemodel.JExpr._new;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
 
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.ElementValidation;
+import org.androidannotations.helper.CanonicalNameConstants;
+import org.androidannotations.helper.ModelConstants;
 import org.androidannotations.holder.EComponentHolder;
 
 import com.dspot.declex.annotation.JsonModel;
@@ -80,6 +92,10 @@ public class JsonModelHandler extends BaseTemplateHandler<EComponentHolder> {
 				
 		rootDataModel.put("serializeConditions", serializeConditions);
 		rootDataModel.put("jsonSerializedModels", jsonSerializedModels);
+		
+		List<JsonFieldInformation> jsonFields = getJsonFields((TypeElement) element, new HashSet<TypeElement>());
+		rootDataModel.put("jsonTypeAdapter", jsonFields != null);
+		rootDataModel.put("jsonFields", jsonFields != null? jsonFields : new LinkedList<JsonFieldInformation>());
 	}	
 
 	private void getFieldsName(TypeElement element, List<String> fieldsName) {
@@ -204,12 +220,14 @@ public class JsonModelHandler extends BaseTemplateHandler<EComponentHolder> {
 			}
 		}
 		
-		createGetGsonBuilderMethod(createGetGsonBuilderMethod, callSuperCreateGetGsonBuilderMethod, holder);
+		final boolean registerTypeAdapter = getJsonFields((TypeElement) element, new HashSet<TypeElement>()) != null;
+		
+		createGetGsonBuilderMethod(createGetGsonBuilderMethod, callSuperCreateGetGsonBuilderMethod, registerTypeAdapter, holder);
 		
 	}
 
 	private void createGetGsonBuilderMethod(boolean createGetGsonBuilderMethod, 
-			boolean callSuperCreateGetGsonBuilderMethod, EComponentHolder holder) {
+			boolean callSuperCreateGetGsonBuilderMethod, boolean registerTypeAdapter, EComponentHolder holder) {
 		
 		AbstractJClass GsonBuilder = getJClass("com.google.gson.GsonBuilder");
 		
@@ -233,6 +251,11 @@ public class JsonModelHandler extends BaseTemplateHandler<EComponentHolder> {
 						.arg(getJClass(java.lang.reflect.Modifier.class).staticRef("TRANSIENT"))
 					.invoke("serializeNulls");
 			
+			if (registerTypeAdapter) {
+				createBuilder = createBuilder.invoke("registerTypeAdapterFactory")
+						.arg(_new(getJClass("ModelTypeAdapterFactory")).arg(fields));
+			}
+			
 			if (callSuperCreateGetGsonBuilderMethod) {
 				createBuilder = body.decl(GsonBuilder, "builder", createBuilder);
 				body.staticInvoke(Model, "getGsonBuilder").arg(createBuilder);
@@ -246,4 +269,222 @@ public class JsonModelHandler extends BaseTemplateHandler<EComponentHolder> {
 			
 	}
 	
+	/**
+	 * Gets the information of the fields to be serialized by the TypeAdapter generated
+	 * for the model. 
+	 * 
+	 * @return the fields information, or null if a TypeAdapter cannot be generated for 
+	 * the model, in which case it is serialized by Gson through reflection
+	 */
+	private List<JsonFieldInformation> getJsonFields(TypeElement element, Set<TypeElement> visitedElements) {
+		
+		//Custom templates could not declare the TypeAdapter
+		JsonModel jsonModel = adiHelper.getAnnotation(element, JsonModel.class);
+		if (jsonModel == null || jsonModel.custom()) return null;
+		
+		//A custom GsonBuilder could change the way the fields are serialized
+		for (Element elem : element.getEnclosedElements()) {
+			if (elem.getKind() == ElementKind.METHOD && elem.getAnnotation(JsonModel.class) != null 
+				&& elem.getSimpleName().toString().equals("getGsonBuilder")) {
+				return null;
+			}
+		}
+		
+		visitedElements.add(element);
+		
+		List<String> fieldsName = new LinkedList<>();
+		getFieldsName(element, fieldsName);
+		
+		Map<String, String> serializeConditions = new HashMap<>();
+		Map<String, ClassInformation> jsonSerializedModels = new HashMap<>();
+		getRequiredMaps(element, fieldsName, serializeConditions, jsonSerializedModels);
+		
+		final String packageName = getProcessingEnvironment().getElementUtils().getPackageOf(element).getQualifiedName().toString();
+		
+		List<JsonFieldInformation> jsonFields = new LinkedList<>();
+		Set<String> serializedNames = new HashSet<>();
+		
+		TypeElement currentElement = element;
+		while (!currentElement.getQualifiedName().toString().equals(Object.class.getCanonicalName())) {
+			
+			final String currentClass = currentElement.getQualifiedName().toString();
+			
+			//Generated classes and Active Android fields are excluded by the ModelExclusionStrategy
+			if (!currentClass.endsWith(ModelConstants.generationSuffix()) && !currentClass.equals("com.activeandroid.Model")) {
+				
+				for (Element elem : currentElement.getEnclosedElements()) {
+					if (elem.getKind() != ElementKind.FIELD) continue;
+					
+					Set<Modifier> modifiers = elem.getModifiers();
+					if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL) 
+						|| modifiers.contains(Modifier.TRANSIENT)) continue;
+					
+					//The field should be accessible from the generated class
+					if (modifiers.contains(Modifier.PRIVATE)) return null;
+					if (!modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.PROTECTED)) {
+						String fieldPackage = getProcessingEnvironment().getElementUtils().getPackageOf(elem).getQualifiedName().toString();
+						if (!fieldPackage.equals(packageName)) return null;
+					}
+					
+					JsonFieldInformation field = getJsonFieldInformation((VariableElement) elem, jsonSerializedModels, visitedElements);
+					if (field == null) return null;
+					
+					//Gson doesn't permit duplicated names
+					if (!serializedNames.add(field.serializedName)) return null;
+					for (String name : field.alternateNames) {
+						if (!serializedNames.add(name)) return null;
+					}
+					
+					field.index = jsonFields.size();
+					field.projected = currentElement.equals(element);
+					field.condition = serializeConditions.get(field.name);
+					jsonFields.add(field);
+				}
+				
+			}
+			
+			TypeMirror superType = currentElement.getSuperclass();
+			if (superType.getKind() == TypeKind.NONE) break;
+			if (superType.getKind() != TypeKind.DECLARED) return null;
+			
+			currentElement = (TypeElement) ((DeclaredType) superType).asElement();
+		}
+		
+		return jsonFields;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private JsonFieldInformation getJsonFieldInformation(VariableElement elem, 
+			Map<String, ClassInformation> jsonSerializedModels, Set<TypeElement> visitedElements) {
+		
+		JsonFieldInformation field = new JsonFieldInformation();
+		field.name = elem.getSimpleName().toString();
+		field.serializedName = field.name;
+		
+		for (AnnotationMirror annotation : elem.getAnnotationMirrors()) {
+			if (!annotation.getAnnotationType().toString().equals("com.google.gson.annotations.SerializedName")) continue;
+			
+			for (Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+				final String param = entry.getKey().getSimpleName().toString();
+				
+				if (param.equals("value")) {
+					field.serializedName = (String) entry.getValue().getValue();
+				} else if (param.equals("alternate")) {
+					for (AnnotationValue alternate : (List<? extends AnnotationValue>) entry.getValue().getValue()) {
+						field.alternateNames.add((String) alternate.getValue());
+					}
+				}
+			}
+		}
+		
+		final TypeMirror type = elem.asType();
+		
+		//Serialized models are written with their own TypeAdapter
+		ClassInformation classInformation = jsonSerializedModels.get(field.name);
+		if (classInformation != null) {
+			if (!classInformation.originalClassName.endsWith(ModelConstants.generationSuffix())) return null;
+			if (classInformation.isList && !type.toString().startsWith(CanonicalNameConstants.LIST + "<")) return null;
+			
+			TypeElement modelElement = classInformation.generatorElement;
+			if (!visitedElements.contains(modelElement) && getJsonFields(modelElement, visitedElements) == null) {
+				return null;
+			}
+			
+			field.kind = classInformation.isList? "modelList" : "model";
+			field.type = classInformation.originalClassName;
+			return field;
+		}
+		
+		if (type.getKind().isPrimitive()) {
+			switch (type.getKind()) {
+			case BOOLEAN: case INT: case LONG: case DOUBLE:
+				field.kind = type.toString();
+				break;
+				
+			default:
+				field.kind = "primitive";
+				field.type = getProcessingEnvironment().getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+			}
+			
+			return field;
+		}
+		
+		//A TypeToken is created for the type, so it should be completely resolved
+		if (!isResolvedType(type) || type.toString().contains("@")) return null;
+		
+		field.kind = "object";
+		field.type = type.toString();
+		return field;
+	}
+	
+	private boolean isResolvedType(TypeMirror type) {
+		switch (type.getKind()) {
+		case ARRAY:
+			return isResolvedType(((ArrayType) type).getComponentType());
+			
+		case DECLARED:
+			for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+				if (!isResolvedType(typeArgument)) return false;
+			}
+			return true;
+			
+		case WILDCARD:
+			WildcardType wildcardType = (WildcardType) type;
+			if (wildcardType.getExtendsBound() != null) return isResolvedType(wildcardType.getExtendsBound());
+			if (wildcardType.getSuperBound() != null) return isResolvedType(wildcardType.getSuperBound());
+			return true;
+			
+		default:
+			return type.getKind().isPrimitive();
+		}
+	}
+	
+	public static class JsonFieldInformation {
+		private String name;
+		private String serializedName;
+		private List<String> alternateNames = new LinkedList<>();
+		private String kind;
+		private String type;
+		private String condition;
+		private int index;
+		private boolean projected;
+		
+		public String getName() {
+			return name;
+		}
+		
+		public String getSerializedName() {
+			return serializedName;
+		}
+		
+		public List<String> getAlternateNames() {
+			return alternateNames;
+		}
+		
+		/**
+		 * @return "boolean", "int", "long" or "double" for the primitives written directly, 
+		 * "primitive" for other primitives, "model" or "modelList" for serialized models, 
+		 * and "object" for any other type, which is written by the Gson TypeAdapter of its type
+		 */
+		public String getKind() {
+			return kind;
+		}
+		
+		public String getType() {
+			return type;
+		}
+		
+		public String getCondition() {
+			return condition;
+		}
+		
+		public int getIndex() {
+			return index;
+		}
+		
+		public boolean isProjected() {
+			return projected;
+		}
+	}
+	
 }
@@ -34,7 +34,10 @@ public class LoadOnEventHandler extends BaseOnEventHandler {
 	public void validate(Element element, ElementValidation valid) {
 		super.validate(element, valid);
 		
-		if (element.getAnnotation(LoadOnEvent.class).debug()) {
+		final LoadOnEvent annotation = element.getAnnotation(LoadOnEvent.class);
+		validateTimingPolicy(annotation.throttle(), annotation.debounce(), annotation.coalesce(), valid);
+		
+		if (annotation.debug()) {
 			String classField = annotationHelper.extractAnnotationClassNameParameter(element, getTarget(), "value");
 			valid.addWarning("Event class: " + classField);
 		}
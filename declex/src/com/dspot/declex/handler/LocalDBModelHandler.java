@@ -48,13 +48,16 @@ import org.atteo.evo.inflector.English;
 
 import com.dspot.declex.annotation.LocalDBModel;
 import com.dspot.declex.annotation.Model;
+import com.dspot.declex.annotation.ServerModel;
 import com.dspot.declex.annotation.UseLocalDB;
 import com.dspot.declex.annotation.UseModel;
 import com.dspot.declex.api.util.FormatsUtils;
+import com.dspot.declex.api.util.QueryUtils;
 import com.dspot.declex.handler.base.BaseTemplateHandler;
 import com.dspot.declex.holder.UseModelHolder;
 import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
+import com.helger.jcodemodel.AbstractJClass;
 import com.helger.jcodemodel.JBlock;
 import com.helger.jcodemodel.JConditional;
 import com.helger.jcodemodel.JFieldRef;
@@ -87,6 +90,7 @@ public class LocalDBModelHandler extends BaseTemplateHandler<EComponentHolder> {
 		
 		rootDataModel.put("columnFields", columnFields);
 		rootDataModel.put("isList", isList);
+		rootDataModel.put("serverModel", element.getAnnotation(ServerModel.class) != null);
 		
 		UseModelHolder useModelHolder = holder.getPluginHolder(new UseModelHolder(holder));
 		rootDataModel.put("fullInitVar", useModelHolder.getFullInitVar().name());
@@ -245,6 +249,15 @@ public class LocalDBModelHandler extends BaseTemplateHandler<EComponentHolder> {
 		writeObjectMethod.body().invoke(ref("oos"), "writeObject").arg(_this().invoke("getId"));
 		readObjectMethod.body().invoke(_this(), "setId")
 		                       .arg(cast(getJClass(Long.class), ref("ois").invoke("readObject")));
+		
+		//The id is also kept when the model is parceled
+		JMethod writeToParcelMethod = useModelHolder.getWriteToParcelMethod();
+		if (writeToParcelMethod != null) {
+			JMethod readFromParcelMethod = useModelHolder.getReadFromParcelMethod();
+			writeToParcelMethod.body().invoke(ref("dest"), "writeValue").arg(_this().invoke("getId"));
+			readFromParcelMethod.body().invoke(_this(), "setId")
+			                           .arg(cast(getJClass(Long.class), ref("in").invoke("readValue").arg(ref("classLoader"))));
+		}
 	}
 	
 	private void createGetLocalDBModelQueryDefault(Element element, EComponentHolder holder) {
@@ -254,7 +267,14 @@ public class LocalDBModelHandler extends BaseTemplateHandler<EComponentHolder> {
 		
 		LocalDBModel annotation = element.getAnnotation(LocalDBModel.class);
 		if (!annotation.defaultQuery().equals("")) {
-			getServerModelQueryDefault.body()._return(FormatsUtils.expressionFromString(annotation.defaultQuery()));
+			String defaultQuery = annotation.defaultQuery();
+			
+			//The directives of literal queries are resolved at compile time
+			if (!defaultQuery.contains("{")) {
+				defaultQuery = QueryUtils.resolveDirectives(defaultQuery, "db");
+			}
+			
+			getServerModelQueryDefault.body()._return(FormatsUtils.expressionFromString(defaultQuery));
 		} else {
 			getServerModelQueryDefault.body()._return(lit(""));
 		}
@@ -337,6 +357,19 @@ public class LocalDBModelHandler extends BaseTemplateHandler<EComponentHolder> {
 				200
 			);
 		
+		if (element.getAnnotation(ServerModel.class) != null) {
+			//The server requests are not done inside the transaction, only the local
+			//writes of the list are done together once the list was put
+			holder.getPutModelListBeforeBlock().staticInvoke(holder.getGeneratedClass(), "startLocalDBModelList");
+			holder.getPutModelListFinallyBlock().staticInvoke(holder.getGeneratedClass(), "finishLocalDBModelList");
+		} else {
+			//Lists of models are put in a single transaction
+			AbstractJClass ActiveAndroid = getJClass("com.activeandroid.ActiveAndroid");
+			holder.getPutModelListBeforeBlock().staticInvoke(ActiveAndroid, "beginTransaction");
+			holder.getPutModelListSuccessBlock().staticInvoke(ActiveAndroid, "setTransactionSuccessful");
+			holder.getPutModelListFinallyBlock().staticInvoke(ActiveAndroid, "endTransaction");
+		}
+		
 	}
 
 	private void insertInGetModel(ExecutableElement dbModelLoaded,
@@ -24,16 +24,11 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 
 import com.dspot.declex.annotation.*;
-import com.sun.source.tree.AnnotationTree;
-import com.sun.source.tree.CompilationUnitTree;
-import com.sun.source.util.TreePathScanner;
-import com.sun.source.util.Trees;
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.ElementValidation;
 import org.androidannotations.annotations.Extra;
 import org.androidannotations.annotations.FragmentArg;
 import org.androidannotations.handler.BaseAnnotationHandler;
-import org.androidannotations.helper.CompilationTreeHelper;
 import org.androidannotations.helper.ModelConstants;
 import org.androidannotations.holder.EComponentHolder;
 import org.androidannotations.holder.EComponentWithViewSupportHolder;
@@ -43,6 +38,7 @@ import org.androidannotations.rclass.IRClass.Res;
 
 import com.dspot.declex.annotation.ExportPopulate;
 import com.dspot.declex.api.util.FormatsUtils;
+import com.dspot.declex.helper.CompilationUnitIndex;
 import com.dspot.declex.helper.EventsHelper;
 import com.dspot.declex.holder.ModelHolder;
 import com.dspot.declex.holder.UseModelHolder;
@@ -65,12 +61,10 @@ public class ModelHandler extends BaseAnnotationHandler<EComponentHolder> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ModelHandler.class);
 	
 	private EventsHelper eventsHelper;
-	private CompilationTreeHelper compilationTreeHelper;
 	
 	public ModelHandler(AndroidAnnotationsEnvironment environment) {
 		super(Model.class, environment);		
 		eventsHelper = EventsHelper.getInstance(environment);
-		compilationTreeHelper = new CompilationTreeHelper(environment);
 	}
 
 	@Override
@@ -149,6 +143,10 @@ public class ModelHandler extends BaseAnnotationHandler<EComponentHolder> {
 			}
 			
 			block = eventsHelper.addEventListener(eventClass, element.getEnclosingElement(), viewsHolder);
+			block = eventsHelper.getTimedEventBlock(
+					block, element.getSimpleName() + "LoadOnEvent", 
+					loadOnEvent.throttle(), loadOnEvent.debounce(), loadOnEvent.coalesce(), holder
+				);
 		} else {
 			block = holder.getInitBodyInjectionBlock();
 			
@@ -251,6 +249,10 @@ public class ModelHandler extends BaseAnnotationHandler<EComponentHolder> {
 			}
 			
 			block = eventsHelper.addEventListener(eventClass, element.getEnclosingElement(), viewsHolder);
+			block = eventsHelper.getTimedEventBlock(
+					block, element.getSimpleName() + "UpdateOnEvent", 
+					updateOnEvent.throttle(), updateOnEvent.debounce(), updateOnEvent.coalesce(), holder
+				);
 			generateGetModelCallInBlock(block, false, element, modelHolder);				
 		}
 	}
@@ -262,64 +264,59 @@ public class ModelHandler extends BaseAnnotationHandler<EComponentHolder> {
 	private void generateGetModelCallInBlock(final JBlock block, final boolean checkNull, final Element element, 
 			final ModelHolder modelHolder, final UseModelHolder useModelHolder, final boolean isStatic) {
 
-		compilationTreeHelper.visitElementTree(element, new TreePathScanner<Boolean, Trees>() {
-
-			CompilationUnitTree compilationUnit = compilationTreeHelper.getCompilationUnitImportFromElement(element);
+		//The annotations are read from the index of the compilation unit, which is scanned only once
+		final CompilationUnitIndex index = CompilationUnitIndex.forElement(element, getEnvironment());
+		if (index == null) return;
 
-			@Override
-			public Boolean visitAnnotation(AnnotationTree annotationTree, Trees trees) {
-				String annotationName = annotationTree.getAnnotationType().toString();
-				if (annotationName.equals(Model.class.getSimpleName())
-						|| annotationName.equals(Model.class.getCanonicalName())) {
+		for (CompilationUnitIndex.Usage annotationUsage : index.getAnnotations(element)) {
+			String annotationName = annotationUsage.getName();
+			if (annotationName.equals(Model.class.getSimpleName())
+					|| annotationName.equals(Model.class.getCanonicalName())) {
 
-					int position = (int) trees.getSourcePositions().getStartPosition(compilationUnit, annotationTree);
+				int position = annotationUsage.getPosition();
 
-					Model annotation = adiHelper.getAnnotation(element, Model.class);
+				Model annotation = adiHelper.getAnnotation(element, Model.class);
 
-					//Get the internal calling method
-					JMethod getModelMethod = modelHolder.getLoadModelMethod(element);
+				//Get the internal calling method
+				JMethod getModelMethod = modelHolder.getLoadModelMethod(element);
 
-					JBlock callBlock = new JBlock();
-					JVar args = callBlock.decl(
-							getClasses().MAP.narrow(String.class, Object.class),
-							"loadModelArgs",
-							_new(getClasses().HASH_MAP)
-					);
-
-					{
-						final IJExpression queryExpr = FormatsUtils.expressionFromString(annotation.query());
-						final IJExpression orderByExpr = FormatsUtils.expressionFromString(annotation.orderBy());
-						final IJExpression fieldsExpr = FormatsUtils.expressionFromString(annotation.fields());
+				JBlock callBlock = new JBlock();
+				JVar args = callBlock.decl(
+						getClasses().MAP.narrow(String.class, Object.class),
+						"loadModelArgs",
+						_new(getClasses().HASH_MAP)
+				);
 
-						if (!annotation.query().isEmpty()) callBlock.add(args.invoke("put").arg("query").arg(queryExpr));
-						if (!annotation.orderBy().isEmpty()) callBlock.add(args.invoke("put").arg("orderBy").arg(orderByExpr));
-						if (!annotation.fields().isEmpty()) callBlock.add(args.invoke("put").arg("fields").arg(fieldsExpr));
-					}
+				{
+					final IJExpression queryExpr = FormatsUtils.expressionFromString(annotation.query());
+					final IJExpression orderByExpr = FormatsUtils.expressionFromString(annotation.orderBy());
+					final IJExpression fieldsExpr = FormatsUtils.expressionFromString(annotation.fields());
 
-					IJExpression onFailed = _null();
-					if (isStatic && useModelHolder != null && !annotation.lazy())
-						onFailed = useModelHolder.getGetModelInitBlockOnFailed();
+					if (!annotation.query().isEmpty()) callBlock.add(args.invoke("put").arg("query").arg(queryExpr));
+					if (!annotation.orderBy().isEmpty()) callBlock.add(args.invoke("put").arg("orderBy").arg(orderByExpr));
+					if (!annotation.fields().isEmpty()) callBlock.add(args.invoke("put").arg("fields").arg(fieldsExpr));
+				}
 
-					JInvocation invocation = invoke(getModelMethod);
-					if (isStatic) {
-						invocation = invocation.arg(ref("context"));
-					}
-					invocation = invocation.arg(args).arg(_null()).arg(onFailed);
+				IJExpression onFailed = _null();
+				if (isStatic && useModelHolder != null && !annotation.lazy())
+					onFailed = useModelHolder.getGetModelInitBlockOnFailed();
 
-					if (checkNull) {
-						callBlock._if(invoke(modelHolder.getGetterMethod(element)).eq(_null()))
-								._then().add(invocation);
-					} else {
-						callBlock.add(invocation);
-					}
+				JInvocation invocation = invoke(getModelMethod);
+				if (isStatic) {
+					invocation = invocation.arg(ref("context"));
+				}
+				invocation = invocation.arg(args).arg(_null()).arg(onFailed);
 
-					SharedRecords.priorityAdd(block, callBlock, position);
+				if (checkNull) {
+					callBlock._if(invoke(modelHolder.getGetterMethod(element)).eq(_null()))
+							._then().add(invocation);
+				} else {
+					callBlock.add(invocation);
 				}
 
-				return super.visitAnnotation(annotationTree, trees);
+				SharedRecords.priorityAdd(block, callBlock, position);
 			}
-
-		});
+		}
 	}
 
 	private void generatePutModelCallInBlock(JBlock block, Element element, ModelHolder holder, boolean hasEvent) {
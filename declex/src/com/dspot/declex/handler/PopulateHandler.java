@@ -27,6 +27,7 @@ import static com.helger.jcodemodel.JExpr.ref;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -38,7 +39,9 @@ import java.util.regex.Pattern;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 
@@ -56,6 +59,7 @@ import org.androidannotations.logger.LoggerFactory;
 import org.androidannotations.rclass.IRClass.Res;
 
 import com.dspot.declex.adapter.AdapterClassCreator;
+import com.dspot.declex.adapter.AdapterModelHelper;
 import com.dspot.declex.adapter.RecyclerViewAdapterClassCreator;
 import com.dspot.declex.adapter.RecyclerViewAdapterPopulator;
 import com.dspot.declex.adapter.ViewAdapterPopulator;
@@ -74,6 +78,7 @@ import com.dspot.declex.holder.ViewsHolder.IWriteInBloc;
 import com.dspot.declex.holder.ViewsHolder.IdInfoHolder;
 import com.dspot.declex.holder.view_listener.ViewListenerHolder;
 import com.dspot.declex.override.helper.DeclexAPTCodeModelHelper;
+import com.dspot.declex.parser.LayoutsParser.LayoutNode;
 import com.dspot.declex.parser.LayoutsParser.LayoutObject;
 import com.dspot.declex.util.DeclexConstant;
 import com.dspot.declex.util.ParamUtils;
@@ -146,6 +151,15 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 		validatorHelper.enclosingElementHasEnhancedComponentAnnotation(element, valid);
 		validatorHelper.isNotPrivate(element, valid);		
 		
+		final Populate populate = adiHelper.getAnnotation(element, Populate.class);
+		if (populate != null && getItemModels(element).size() != populate.itemLayouts().length) {
+			valid.addError("The \"itemModels\" and \"itemLayouts\" parameters should have the same number of elements");
+		}
+		
+		if (populate != null && populate.itemLayouts().length > 0 && adapterClassDeclaresItemViewType(element)) {
+			valid.addError("The view types are the \"itemLayouts\", the class provided in @AdapterClass cannot declare getItemViewType");
+		}
+		
 		//Validate special methods
 		List<? extends Element> elems = element.getEnclosingElement().getEnclosedElements();
 		for (Element elem : elems) {
@@ -194,6 +208,9 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 				Matcher matcher = Pattern.compile("[a-zA-Z_][a-zA-Z_0-9.]+<([a-zA-Z_][a-zA-Z_0-9.]+)>").matcher(className);
 				if (!matcher.find()) {
 					valid.addError("Cannot infer the List Type from " + className);
+				} else if (populate != null && populate.stableIds() 
+						   && !new AdapterModelHelper(matcher.group(1), getEnvironment()).isIntegralId()) {
+					valid.addError("\"stableIds\" can be used only with models which have an integral \"id\"");
 				}
 							
 				if (!viewsHelper.getLayoutObjects().containsKey(elementName)) {
@@ -201,8 +218,8 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 				} else {
 					LayoutObject layoutObject = viewsHelper.getLayoutObjects().get(elementName);
 					
-					if (layoutObject.domElement.hasAttribute("tools:listitem")) {
-						String listItem = layoutObject.domElement.getAttribute("tools:listitem");
+					if (layoutObject.node.hasAttribute("tools:listitem")) {
+						String listItem = layoutObject.node.getAttribute("tools:listitem");
 						String listItemId = listItem.substring(listItem.lastIndexOf('/')+1);
 						
 						if (!getEnvironment().getRClass().get(Res.LAYOUT).containsField(listItemId)) {
@@ -508,8 +525,15 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
     				   )
 				   ))._then()
 		           .invoke(view, "setAdapter").arg(adapterGetter);
-		notifyBlock.invoke(adapterGetter, "setModels").arg(assignRef);
-		notifyBlock.invoke(adapterGetter, "notifyDataSetChanged");
+		
+		if (annotation.diff() && !annotation.custom()
+			&& TypeUtils.isSubtype(viewClass, "android.support.v7.widget.RecyclerView", getProcessingEnvironment())) {
+			//Only the items which changed are notified
+			notifyBlock.invoke(adapterGetter, "updateModels").arg(assignRef);
+		} else {
+			notifyBlock.invoke(adapterGetter, "setModels").arg(assignRef);
+			notifyBlock.invoke(adapterGetter, "notifyDataSetChanged");
+		}
 		
 		JDefinedClass generatedClassForGetterAndSetter = viewsHolder.getGeneratedClass();
 		AbstractJClass classForGetterAndSetter = AdapterClass;
@@ -576,7 +600,10 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 			final String classField = annotationHelper.extractAnnotationClassNameParameter(element, LoadOnEvent.class.getCanonicalName(), "value");
 			final String eventClass = SharedRecords.getEvent(classField, getEnvironment());
 			final EventHolder eventHolder = viewsHolder.holder().getPluginHolder(new EventHolder(viewsHolder.holder()));
-			final JBlock eventBody = eventHolder.getEventBlock(eventClass);
+			final JBlock eventBody = eventsHelper.getTimedEventBlock(
+					eventHolder.getEventBlock(eventClass), element.getSimpleName() + "LoadOnEvent", 
+					loadOnEvent.throttle(), loadOnEvent.debounce(), loadOnEvent.coalesce(), viewsHolder.holder()
+				);
 			
 			if (foundAdapterDeclaration && annotation.custom()) {
 				eventBody.invoke("set" + adapterClassName).arg(_new(AdapterClass).arg(assignRef));			
@@ -599,6 +626,37 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 		}
 	}
 	
+	private List<String> getItemModels(Element element) {
+		List<String> itemModels = new LinkedList<>();
+		
+		List<DeclaredType> classes = annotationHelper.extractAnnotationClassArrayParameter(
+				element, Populate.class.getCanonicalName(), "itemModels"
+			);
+		if (classes != null) {
+			for (DeclaredType clazz : classes) {
+				itemModels.add(clazz.toString());
+			}
+		}
+		
+		return itemModels;
+	}
+	
+	private boolean adapterClassDeclaresItemViewType(Element element) {
+		if (adiHelper.getAnnotation(element, AdapterClass.class) == null) return false;
+		
+		String classField = annotationHelper.extractAnnotationClassNameParameter(element, AdapterClass.class.getCanonicalName(), "value");
+		TypeElement typeElement = classField == null? null : getProcessingEnvironment().getElementUtils().getTypeElement(classField);
+		if (typeElement == null) return false;
+		
+		for (Element elem : typeElement.getEnclosedElements()) {
+			if (elem.getKind() == ElementKind.METHOD && elem.getSimpleName().toString().equals("getItemViewType")) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
 	private void createRecyclerViewAdapter(String fieldName, String modelClassName, Element element, 
 			ViewsHolder viewsHolder) {
 
@@ -607,12 +665,31 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 		
 		try {
 			
-			RecyclerViewAdapterPopulator adapterPopulator = new RecyclerViewAdapterPopulator(this, fieldName, adapterClassName, modelClassName, viewsHolder);
+			final Populate populate = adiHelper.getAnnotation(element, Populate.class);
+			
+			//<Model class, Layout>
+			Map<String, String> itemLayouts = new LinkedHashMap<>();
+			List<String> itemModels = getItemModels(element);
+			int[] layouts = populate.itemLayouts();
+			for (int i = 0; i < itemModels.size() && i < layouts.length; i++) {
+				String idQualifiedName = getEnvironment().getRClass().get(Res.LAYOUT).getIdQualifiedName(layouts[i]);
+				Matcher matcher = Pattern.compile("\\.(\\w+)$").matcher(idQualifiedName);
+				if (matcher.find()) {
+					itemLayouts.put(itemModels.get(i), matcher.group(1));
+				}
+			}
+			
+			RecyclerViewAdapterPopulator adapterPopulator = new RecyclerViewAdapterPopulator(
+					this, fieldName, adapterClassName, modelClassName, viewsHolder, itemLayouts
+				);
 
 			List<JClassPlugin> plugins = new LinkedList<>(adapterPlugins);
 			plugins.add(plugins.size()-1, adapterPopulator); //Insert before the AdapterClass plugin
 
-			RecyclerViewAdapterClassCreator classCreator = new RecyclerViewAdapterClassCreator(modelClassName, adapterClassName, element, viewsHolder.holder(), plugins);
+			RecyclerViewAdapterClassCreator classCreator = new RecyclerViewAdapterClassCreator(
+					modelClassName, adapterClassName, element, viewsHolder.holder(), plugins, 
+					populate.diff(), populate.stableIds()
+				);
 			classCreator.getDefinedClass();
 			
 		} catch (JClassAlreadyExistsException e) {
@@ -631,7 +708,10 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 			List<JClassPlugin> plugins = new LinkedList<>(adapterPlugins);
 			plugins.add(plugins.size()-1, adapterPopulator); //Insert before the AdapterClass plugin
 			
-			AdapterClassCreator classCreator = new AdapterClassCreator(modelClassName, adapterClassName, element, viewsHolder.holder(), plugins);			
+			AdapterClassCreator classCreator = new AdapterClassCreator(
+					modelClassName, adapterClassName, element, viewsHolder.holder(), plugins, 
+					adiHelper.getAnnotation(element, Populate.class).stableIds()
+				);			
 			classCreator.getDefinedClass();
 			
 		} catch (JClassAlreadyExistsException e) {
@@ -783,7 +863,7 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 		String idName = info.idName;
 		TypeMirror type = info.type;
 		String viewClass = info.viewClass;		
-		org.w3c.dom.Element node = idName != null? viewsHolder.getDomElementFromId(idName, layoutItemId) : null;
+		LayoutNode node = idName != null? viewsHolder.getLayoutNodeFromId(idName, layoutItemId) : null;
 		
 		if (!view.equals(_this())) {
 			block = block._if(view.ne(_null()))._then();
@@ -979,6 +1059,15 @@ public class PopulateHandler extends BaseAnnotationHandler<EComponentWithViewSup
 		}
 	}
 	
+	/**
+	 * Determines if the component declares a method which populates the view, besides
+	 * the generated code
+	 */
+	public boolean hasPopulateSupportMethod(String viewName, Element element) {
+		Map<String, ExecutableElement> methods = populatorMethods.get(element.getEnclosingElement());
+		return methods != null && methods.containsKey(viewName);
+	}
+	
 	public void callPopulateSupportMethod(String viewName, JBlock block, IJExpression viewHolder, List<String> fields, 
 			Element element, ViewsHolder viewsHolder) {
 		Map<String, ExecutableElement> methods = populatorMethods.get(element.getEnclosingElement());
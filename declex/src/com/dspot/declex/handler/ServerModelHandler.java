@@ -57,6 +57,7 @@ import com.dspot.declex.annotation.ServerRequest.RequestType;
 import com.dspot.declex.annotation.UseModel;
 import com.dspot.declex.api.util.CastUtility;
 import com.dspot.declex.api.util.FormatsUtils;
+import com.dspot.declex.api.util.QueryUtils;
 import com.dspot.declex.handler.base.BaseModelAndModelClassHandler;
 import com.dspot.declex.holder.UseModelHolder;
 import com.dspot.declex.override.helper.DeclexAPTCodeModelHelper;
@@ -99,6 +100,32 @@ public class ServerModelHandler extends BaseModelAndModelClassHandler<EComponent
 		rootDataModel.put("processUnsuccessful", serverModel.processUnsuccessful());		
 		rootDataModel.put("hasMock", hasMock(serverModel));
 		rootDataModel.put("offline", serverModel.offline());
+		rootDataModel.put("streaming", serverModel.streaming());
+		rootDataModel.put("processedRequests", getProcessedRequests(serverModel));
+	}
+	
+	/**
+	 * Gets the names of the load requests whose response is processed to a specific
+	 * model, and so they cannot be streamed
+	 */
+	private List<String> getProcessedRequests(ServerModel serverModel) {
+		List<ServerRequest> loadRequests = new LinkedList<>();
+		if (!serverModel.get().trim().equals("")) {
+			loadRequests.add(new GetRequest(serverModel));
+		}
+		
+		for (ServerRequest request : serverModel.load()) {
+			loadRequests.add(request);
+		}
+		
+		List<String> processedRequests = new LinkedList<>();
+		for (ServerRequest request : loadRequests) {
+			if (!request.model().equals("") && !request.model().equals("this")) {
+				processedRequests.add(request.name());
+			}
+		}
+		
+		return processedRequests;
 	}
 	
 	@Override
@@ -242,7 +269,14 @@ public class ServerModelHandler extends BaseModelAndModelClassHandler<EComponent
 		
 		ServerModel annotation = element.getAnnotation(ServerModel.class);
 		if (!annotation.defaultQuery().equals("")) {
-			getServerModelQueryDefault.body()._return(FormatsUtils.expressionFromString(annotation.defaultQuery()));
+			String defaultQuery = annotation.defaultQuery();
+			
+			//The directives of literal queries are resolved at compile time
+			if (!defaultQuery.contains("{")) {
+				defaultQuery = QueryUtils.resolveDirectives(defaultQuery, "server");
+			}
+			
+			getServerModelQueryDefault.body()._return(FormatsUtils.expressionFromString(defaultQuery));
 		} else {
 			getServerModelQueryDefault.body()._return(lit(""));
 		}
@@ -860,8 +894,14 @@ public class ServerModelHandler extends BaseModelAndModelClassHandler<EComponent
 				newBlock._if(elem.invoke("isJsonObject").not().cand(elem.invoke("isJsonNull").not()))
 				        ._then()._return(_null());
 
-				newBlock.staticInvoke(getJClass(CastUtility.class), "copy")
-		        	    .arg(invoke("fromJson").arg(ref("elem"))).arg(inst);
+				//The copy is generated if all the fields are accessible
+				JMethod copyMethod = holder.getCopyMethod();
+				if (copyMethod != null) {
+					newBlock.invoke(copyMethod).arg(invoke("fromJson").arg(ref("elem"))).arg(inst);
+				} else {
+					newBlock.staticInvoke(getJClass(CastUtility.class), "copy")
+			        	    .arg(invoke("fromJson").arg(ref("elem"))).arg(inst);
+				}
 				
 			} else {
 				
@@ -34,7 +34,10 @@ public class UpdateOnEventHandler extends BaseOnEventHandler {
 	public void validate(Element element, ElementValidation valid) {
 		super.validate(element, valid);
 		
-		if (element.getAnnotation(UpdateOnEvent.class).debug()) {
+		final UpdateOnEvent annotation = element.getAnnotation(UpdateOnEvent.class);
+		validateTimingPolicy(annotation.throttle(), annotation.debounce(), annotation.coalesce(), valid);
+		
+		if (annotation.debug()) {
 			String classField = annotationHelper.extractAnnotationClassNameParameter(element, getTarget(), "value");
 			valid.addWarning("Event class: " + classField);
 		}
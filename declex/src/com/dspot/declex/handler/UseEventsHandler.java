@@ -27,24 +27,35 @@ import java.util.Map;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
 
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.ElementValidation;
 import org.androidannotations.annotations.EBean;
 import org.androidannotations.holder.BaseGeneratedClassHolder;
 import org.androidannotations.holder.EBeanHolder;
+import org.androidannotations.logger.Logger;
+import org.androidannotations.logger.LoggerFactory;
 
 import com.dspot.declex.annotation.UseEvents;
+import com.dspot.declex.api.util.PooledEvent;
 import com.dspot.declex.handler.base.BaseTemplateHandler;
 import com.dspot.declex.util.SharedRecords;
+import com.dspot.declex.util.TreesUtils;
 import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.IJExpression;
 import com.helger.jcodemodel.JBlock;
 import com.helger.jcodemodel.JExpr;
 import com.helger.jcodemodel.JMethod;
 import com.helger.jcodemodel.JMod;
 import com.helger.jcodemodel.JVar;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.Trees;
 
 public class UseEventsHandler extends BaseTemplateHandler<EBeanHolder> {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(UseEventsHandler.class);
 
 	public UseEventsHandler(AndroidAnnotationsEnvironment environment) {
 		super(UseEvents.class, environment,
@@ -62,9 +73,56 @@ public class UseEventsHandler extends BaseTemplateHandler<EBeanHolder> {
 		
 		if (valid.isValid()) {
 			SharedRecords.addEventGeneratedClass(element.toString(), getEnvironment());
+			
+			Element unresettableField = getUnresettableField(element);
+			if (adiHelper.getAnnotation(element, UseEvents.class).pooled() && unresettableField != null) {
+				LOGGER.warn(
+					unresettableField, 
+					"The field \"{}\" can't be reset when the event is released, {} won't be pooled", 
+					unresettableField.getSimpleName(), element.getSimpleName()
+				);
+			}
 		}
 	}
+	
+	private boolean isPooled(Element element) {
+		return adiHelper.getAnnotation(element, UseEvents.class).pooled() && getUnresettableField(element) == null;
+	}
+	
+	/**
+	 * The released events are reset assigning the default value of each field, so the events 
+	 * with private fields or with fields declaring an initializer are not pooled
+	 * 
+	 * @return the first field that can't be reset, or null if all of them can be reset
+	 */
+	private Element getUnresettableField(Element element) {
+		final Trees trees = TreesUtils.getTrees(getProcessingEnvironment());
+		
+		for (Element elem : element.getEnclosedElements()) {
+			if (elem.getKind() != ElementKind.FIELD) continue;
+			if (elem.getModifiers().contains(Modifier.STATIC)) continue;
+			if (elem.getModifiers().contains(Modifier.FINAL)) continue;
+			
+			if (elem.getModifiers().contains(Modifier.PRIVATE)) return elem;
+			
+			final Tree tree = trees.getTree(elem);
+			if (tree instanceof VariableTree && ((VariableTree) tree).getInitializer() != null) {
+				return elem;
+			}
+		}
+		
+		return null;
+	}
 
+	@Override
+	protected void setTemplateDataModel(Map<String, Object> rootDataModel, Element element, EBeanHolder holder) {
+		super.setTemplateDataModel(rootDataModel, element, holder);
+		
+		UseEvents useEvents = adiHelper.getAnnotation(element, UseEvents.class);
+		rootDataModel.put("pooled", isPooled(element));
+		rootDataModel.put("poolSize", Math.max(1, useEvents.poolSize()));
+	}
+	
 	@Override
 	public void process(Element element, EBeanHolder holder) {
 		super.process(element, holder);
@@ -91,6 +149,11 @@ public class UseEventsHandler extends BaseTemplateHandler<EBeanHolder> {
 		
 		generateGetterAndSetters(holder, fields, methods);
 		
+		if (isPooled(element)) {
+			holder.getGeneratedClass()._implements(PooledEvent.class);
+			generateReset(holder, fields);
+		}
+		
 		if (fields.size() > 0) {
 			JMethod create = holder.getGeneratedClass().method(JMod.PUBLIC | JMod.STATIC, holder.getGeneratedClass(), "create");
 			JVar instance = create.body().decl(holder.getGeneratedClass(), "instance", JExpr.invoke("create"));
@@ -105,6 +168,33 @@ public class UseEventsHandler extends BaseTemplateHandler<EBeanHolder> {
 		}
 	}
 	
+	/**
+	 * The pooled events are reset to the default values of their fields when they are released
+	 */
+	private void generateReset(BaseGeneratedClassHolder holder, Map<String, Element> fields) {
+		JBlock resetBody = holder.getGeneratedClass().method(JMod.PRIVATE, getCodeModel().VOID, "reset_").body();
+		
+		for (String elemName : fields.keySet()) {
+			if (fields.get(elemName).getModifiers().contains(Modifier.FINAL)) continue;
+			
+			final TypeKind kind = fields.get(elemName).asType().getKind();
+			
+			IJExpression defaultValue;
+			switch (kind) {
+			case BOOLEAN: 
+				defaultValue = JExpr.FALSE; 
+				break;
+			case CHAR: case BYTE: case SHORT: case INT: case LONG: case FLOAT: case DOUBLE:
+				defaultValue = JExpr.lit(0);
+				break;
+			default:
+				defaultValue = JExpr._null();
+			}
+			
+			resetBody.assign(_this().ref(elemName), defaultValue);
+		}
+	}
+	
 	private void generateGetterAndSetters(BaseGeneratedClassHolder holder, Map<String, Element> fields, Map<String, Element> methods) {
 		
 		AbstractJClass EventClass = holder.getGeneratedClass();
@@ -16,6 +16,7 @@
 package com.dspot.declex.handler;
 
 import static com.helger.jcodemodel.JExpr._null;
+import static com.helger.jcodemodel.JExpr.dotclass;
 import static com.helger.jcodemodel.JExpr.invoke;
 import static com.helger.jcodemodel.JExpr.ref;
 
@@ -35,7 +36,9 @@ import org.androidannotations.logger.LoggerFactory;
 
 import com.dspot.declex.annotation.Model;
 import com.dspot.declex.annotation.UseModel;
+import com.dspot.declex.api.util.ModelCaches;
 import com.dspot.declex.holder.UseModelHolder;
+import com.helger.jcodemodel.IJStatement;
 import com.helger.jcodemodel.JMethod;
 
 public class UseModelHandler extends BaseAnnotationHandler<EComponentHolder> {
@@ -69,10 +72,22 @@ public class UseModelHandler extends BaseAnnotationHandler<EComponentHolder> {
 	
 		useModelHolder.getWriteObjectMethod();
 		useModelHolder.getReadObjectMethod();
+		useModelHolder.getWriteToParcelMethod();
 	
 		useModelHolder.getExistsVar();
+		useModelHolder.getRebindLazilyMethod();
 		useModelHolder.getFields();
 		
+		//Putting any model of the class invalidates its cached loads, once the put finished 
+		//(or failed), so the loads done meanwhile can't cache the previous values
+		UseModel useModel = adiHelper.getAnnotation(element, UseModel.class);
+		if (useModel.cache().length > 0) {
+			IJStatement invalidateCache = getJClass(ModelCaches.class).staticInvoke("invalidate")
+					.arg(dotclass(holder.getGeneratedClass()));
+			useModelHolder.getPutModelFinallyBlock().add(invalidateCache);
+			useModelHolder.getPutModelListFinallyBlock().add(invalidateCache);
+		}
+		
 		//Get Instance will invoke getModel_
 		JMethod factoryMethod = ((EBeanHolder)holder).getFactoryMethod();
 		codeModelHelper.removeBody(factoryMethod);
@@ -81,4 +81,17 @@ public class BaseOnEventHandler extends BaseAnnotationHandler<EComponentHolder>
 		eventsHelper.createEvent(classField, element);
 	}
 	
+	/**
+	 * Validates the timing policy (throttle, debounce and coalesce) of the subscriber
+	 */
+	protected void validateTimingPolicy(long throttle, long debounce, boolean coalesce, ElementValidation valid) {
+		if (throttle < 0 || debounce < 0) {
+			valid.addError("The throttle and debounce times cannot be negative");
+		}
+		
+		if (throttle > 0 && debounce > 0) {
+			valid.addError("Only one of throttle or debounce can be used in the same event");
+		}
+	}
+	
 }
\ No newline at end of file
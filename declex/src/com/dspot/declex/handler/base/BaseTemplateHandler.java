@@ -15,20 +15,12 @@
  */
 package com.dspot.declex.handler.base;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -46,13 +38,12 @@ import org.androidannotations.holder.BaseGeneratedClassHolder;
 import org.androidannotations.logger.Logger;
 import org.androidannotations.logger.LoggerFactory;
 
+import com.dspot.declex.helper.TemplatesHelper;
 import com.dspot.declex.transform.ClassFieldsTransform;
 import com.dspot.declex.transform.ClassFooterTransform;
 import com.dspot.declex.transform.ClassHeadTransform;
 import com.dspot.declex.transform.HolderMethodTransform;
-import com.dspot.declex.util.FileUtils;
 
-import freemarker.template.Configuration;
 import freemarker.template.Template;
 
 public abstract class BaseTemplateHandler<T extends BaseGeneratedClassHolder> extends BaseAnnotationHandler<T> {
@@ -62,8 +53,6 @@ public abstract class BaseTemplateHandler<T extends BaseGeneratedClassHolder> ex
 	private String templatePath;
 	private String templateName;
 	
-	private List<String> alreadyWritedTemplates = new ArrayList<>();
-	
 	protected Class<? extends Annotation> targetAnnotation;
 	
 	protected Map<T, Set<String>> processedHolders = new HashMap<>();
@@ -135,123 +124,32 @@ public abstract class BaseTemplateHandler<T extends BaseGeneratedClassHolder> ex
 		} 
 		
 		
-		int retries = 0;
-		while (true) { //On File not found exception, try several times
-			try {
-				String ftlFileName = templateName;
-				String ftlFile = templatePath + ftlFileName;
-	
-				LOGGER.info("Starting FTL proccess on {}", ftlFile);
-				
-				//Get the file from the package
-				URL url = getClass().getClassLoader().getResource(ftlFile);
-				if (url == null) {
-					throw new IllegalStateException(ftlFile + " not found, execute ant on the project to generate it");
-				}
-				
-				String outputDirPath = getProcessingEnvironment().getOptions().get("ftl_source_path");
-				if (outputDirPath == null) outputDirPath = "ftl";
-	
-				//Ensure the route to the file be created
-				File outputFtl = FileUtils.getConfigFile(outputDirPath, getProcessingEnvironment());
-				if (!outputFtl.exists()) outputFtl.mkdir();
-				
-				if (isCustom) {
-					String classTypeName = element.asType().toString();
-					String customPath = classTypeName.substring(0, classTypeName.length() - element.getSimpleName().length() - 1);
-					
-					String[] ftlFileSegments = customPath.split("\\.");
-					int i = 0;
-					while (i < ftlFileSegments.length) {
-						outputFtl = new File(outputFtl.getAbsolutePath() + File.separator + ftlFileSegments[i]);
-						if (!outputFtl.exists()) outputFtl.mkdir();
-						i++;
-					}
-					
-					ftlFileName = element.getSimpleName() + "_" + ftlFileName;
-				} else {
-					String[] ftlFileSegments = templatePath.split("/");
-					int i = 0;
-					while (i < ftlFileSegments.length) {
-						outputFtl = new File(outputFtl.getAbsolutePath() + File.separator + ftlFileSegments[i]);
-						if (!outputFtl.exists()) outputFtl.mkdir();
-						i++;
-					}
-				}
-				
-				boolean writeFtlFile = true;
-				String outFileName = outputFtl.getAbsolutePath() + File.separator + ftlFileName;
-				File outFile = new File(outFileName);
-				if (outFile.exists()) {
-					if (isCustom) writeFtlFile = false;
-					else {
-						if (alreadyWritedTemplates.contains(outFileName)) {
-							writeFtlFile = false;
-						} else {
-							outFile.delete();
-						}
-					}
-				}
-				
-				if (writeFtlFile) {
-					//Write the file to FTL output folder
-					OutputStream out = new FileOutputStream(outFile);
-					InputStream in = url.openStream();
-					int b = in.read();
-					while (b != -1) {
-						out.write(b);
-						b = in.read();
-					}
-					out.close();
-					in.close();
-					
-					alreadyWritedTemplates.add(outFileName);
-					LOGGER.info("FTL writed to {}", outFileName);
-				}
-				
-				//Adjust the FTL configuration 
-		        Configuration cfg = Configuration.getDefaultConfiguration();
-		        cfg.setDirectoryForTemplateLoading(outputFtl);
-	
-		        //Create a template 
-		        Template temp = cfg.getTemplate(ftlFileName);
-	
-		        //Create a data model 
-		        Map<String, Object> root = new HashMap<String, Object>();
-		        setTemplateDataModel(root, element, holder);
-		        
-		        //Merge data model with template 
-		        StringWriter writer = new StringWriter();
-		        temp.process(root, writer);
-		        writer.flush();
-		        
-		        //Write the template output directly to the Generated Class
-		        holder.getGeneratedClass().direct(writer.toString());
-		        
-		        break;
-			} catch(FileNotFoundException e) {
-				LOGGER.warn(
-					"FTL Write Error, retry " + (++retries) + ".", 
-					element, 
-					element.getAnnotation(targetAnnotation)
-				);
-				
-				if (retries > 5) {
-					LOGGER.error(
-						"FTL PROCESSING ERROR", 
-						element, 
-						element.getAnnotation(targetAnnotation)
-					);
-				}
-				continue;
-			} catch (Throwable e) {
-				LOGGER.error(
-					"FTL PROCESSING ERROR", 
-					e
-				);
-				
-				break;
-			}
+		try {
+			LOGGER.info("Starting FTL proccess on {}", templatePath + templateName);
+			
+			//The templates are parsed only once, custom templates are read from disk
+			final TemplatesHelper templatesHelper = TemplatesHelper.getInstance(getEnvironment());
+			final Template temp = isCustom? 
+					templatesHelper.getCustomTemplate(element, templatePath, templateName)
+					: templatesHelper.getTemplate(templatePath, templateName);
+			
+	        //Create a data model 
+	        Map<String, Object> root = new HashMap<String, Object>();
+	        setTemplateDataModel(root, element, holder);
+	        
+	        //Merge data model with template 
+	        StringWriter writer = new StringWriter();
+	        temp.process(root, writer);
+	        writer.flush();
+	        
+	        //Write the template output directly to the Generated Class
+	        holder.getGeneratedClass().direct(writer.toString());
+	        
+		} catch (Throwable e) {
+			LOGGER.error(
+				"FTL PROCESSING ERROR", 
+				e
+			);
 		}
 	}
 	
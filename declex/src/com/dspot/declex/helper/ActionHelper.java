@@ -23,6 +23,7 @@ import org.androidannotations.logger.LoggerFactory;
 
 import com.dspot.declex.action.ActionsProcessor;
 import com.dspot.declex.override.helper.DeclexAPTCodeModelHelper;
+import com.dspot.declex.util.ProcessingSession;
 import org.androidannotations.internal.virtual.VirtualElement;
 
 public class ActionHelper {
@@ -34,11 +35,13 @@ public class ActionHelper {
 
 	private DeclexAPTCodeModelHelper codeModelHelper;
 	
-	private static ActionHelper instance;
-	
 	public static ActionHelper getInstance(AndroidAnnotationsEnvironment environment) {
+		final ProcessingSession session = ProcessingSession.get();
+		
+		ActionHelper instance = session.getInstance(ActionHelper.class);
 		if (instance == null) {
 			instance = new ActionHelper(environment);
+			session.setInstance(ActionHelper.class, instance);
 		}
 		return instance;
 	}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.androidannotations.internal.virtual.VirtualElement;
+
+import com.dspot.declex.action.Actions;
+import com.dspot.declex.util.ProcessingSession;
+import com.dspot.declex.util.TreesUtils;
+import com.dspot.declex.util.TypeUtils;
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+/**
+ * Index of a compilation unit, built scanning its tree only once. It records the imports,
+ * the identifiers and the annotations used (with their source positions), and the source
+ * range of each declared element, so that the usages inside an element can be read without
+ * scanning its tree again.
+ * <br><br>
+ * The indexes are kept in the processing session, so each compilation unit is scanned
+ * once per processing.
+ */
+public class CompilationUnitIndex {
+
+	private static final String INDEXES = CompilationUnitIndex.class.getCanonicalName() + ".indexes";
+
+	private static final Comparator<Usage> POSITION_COMPARATOR = new Comparator<Usage>() {
+		@Override
+		public int compare(Usage usage1, Usage usage2) {
+			return usage1.position < usage2.position? -1 : (usage1.position == usage2.position? 0 : 1);
+		}
+	};
+
+	private final CompilationUnitTree compilationUnit;
+
+	private final List<String> imports = new ArrayList<>();
+	private boolean actionsImported;
+
+	private final List<Usage> identifiers = new ArrayList<>();
+	private final List<Usage> annotations = new ArrayList<>();
+
+	//<Declared element key, {Start position, End position}>
+	private final Map<String, long[]> ranges = new HashMap<>();
+
+	/**
+	 * Gets the index of the compilation unit where the element is declared
+	 *
+	 * @return The index, or null if the element is not declared in the sources being compiled
+	 */
+	public static CompilationUnitIndex forElement(Element element, AndroidAnnotationsEnvironment environment) {
+
+		if (element instanceof VirtualElement) {
+			element = ((VirtualElement) element).getElement();
+		}
+
+		final TypeElement rootElement = TypeUtils.getRootElement(element);
+		final String rootName = rootElement.getQualifiedName().toString();
+
+		//The compiler can recreate the elements in each round, so they are not used as keys
+		final Map<String, CompilationUnitIndex> indexes = ProcessingSession.get().getMap(INDEXES);
+		if (indexes.containsKey(rootName)) {
+			return indexes.get(rootName);
+		}
+
+		final Trees trees = TreesUtils.getTrees(environment.getProcessingEnvironment());
+		final TreePath rootPath = trees.getPath(rootElement);
+
+		final CompilationUnitIndex index = rootPath == null? null : new CompilationUnitIndex(rootPath.getCompilationUnit(), trees);
+		indexes.put(rootName, index);
+
+		return index;
+	}
+
+	private CompilationUnitIndex(final CompilationUnitTree compilationUnit, final Trees trees) {
+		this.compilationUnit = compilationUnit;
+
+		for (ImportTree importTree : compilationUnit.getImports()) {
+			imports.add(importTree.getQualifiedIdentifier().toString());
+		}
+
+		final SourcePositions positions = trees.getSourcePositions();
+
+		new TreePathScanner<Void, Void>() {
+
+			@Override
+			public Void visitClass(ClassTree classTree, Void p) {
+				addRange(classTree);
+				return super.visitClass(classTree, p);
+			}
+
+			@Override
+			public Void visitMethod(MethodTree methodTree, Void p) {
+				addRange(methodTree);
+				return super.visitMethod(methodTree, p);
+			}
+
+			@Override
+			public Void visitVariable(VariableTree variableTree, Void p) {
+				addRange(variableTree);
+				return super.visitVariable(variableTree, p);
+			}
+
+			@Override
+			public Void visitIdentifier(IdentifierTree identifierTree, Void p) {
+				identifiers.add(new Usage(
+					identifierTree.getName().toString(),
+					positions.getStartPosition(compilationUnit, identifierTree)
+				));
+				return super.visitIdentifier(identifierTree, p);
+			}
+
+			@Override
+			public Void visitAnnotation(AnnotationTree annotationTree, Void p) {
+				annotations.add(new Usage(
+					annotationTree.getAnnotationType().toString(),
+					positions.getStartPosition(compilationUnit, annotationTree)
+				));
+				return super.visitAnnotation(annotationTree, p);
+			}
+
+			private void addRange(Tree tree) {
+				final Element element = trees.getElement(getCurrentPath());
+				if (element == null) return;
+
+				final long start = positions.getStartPosition(compilationUnit, tree);
+				final long end = positions.getEndPosition(compilationUnit, tree);
+
+				//Generated trees (ex. default constructors) have no valid range
+				if (start < 0 || end < start) return;
+
+				ranges.put(getKey(element), new long[] {start, end});
+			}
+
+		}.scan(compilationUnit, null);
+
+		Collections.sort(identifiers, POSITION_COMPARATOR);
+		Collections.sort(annotations, POSITION_COMPARATOR);
+	}
+
+	public CompilationUnitTree getCompilationUnit() {
+		return compilationUnit;
+	}
+
+	public List<String> getImports() {
+		return Collections.unmodifiableList(imports);
+	}
+
+	/**
+	 * Determines if the Actions API was imported in this compilation unit. All the imports
+	 * are checked, so that the actions of the different libraries are registered.
+	 */
+	public boolean hasActionsImport() {
+		if (actionsImported) return true;
+
+		for (String importName : imports) {
+			if (Actions.getInstance().isAction(importName)) {
+				actionsImported = true;
+			}
+		}
+
+		return actionsImported;
+	}
+
+	/**
+	 * Gets the identifiers used inside the declaration of the element, in order of appearance
+	 */
+	public List<Usage> getIdentifiers(Element element) {
+		return getUsages(identifiers, element);
+	}
+
+	/**
+	 * Gets the annotations used inside the declaration of the element, in order of appearance
+	 */
+	public List<Usage> getAnnotations(Element element) {
+		return getUsages(annotations, element);
+	}
+
+	/**
+	 * Determines if an Action identifier is used inside the declaration of the element
+	 */
+	public boolean hasActionIdentifier(Element element) {
+		for (Usage identifier : getIdentifiers(element)) {
+			if (Actions.getInstance().hasActionNamed(identifier.getName())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private List<Usage> getUsages(List<Usage> usages, Element element) {
+		if (element instanceof VirtualElement) {
+			element = ((VirtualElement) element).getElement();
+		}
+
+		final long[] range = ranges.get(getKey(element));
+		if (range == null) return Collections.emptyList();
+
+		//Find the first usage in the range
+		int low = 0;
+		int high = usages.size();
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (usages.get(middle).position < range[0]) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		int last = low;
+		while (last < usages.size() && usages.get(last).position < range[1]) {
+			last++;
+		}
+
+		return usages.subList(low, last);
+	}
+
+	private static String getKey(Element element) {
+		final Element enclosingElement = element.getEnclosingElement();
+		final String key = element.getKind() + ":" + element;
+
+		if (enclosingElement == null || element.getKind().isClass() && enclosingElement.getKind() == ElementKind.PACKAGE) {
+			return key;
+		}
+
+		return getKey(enclosingElement) + "/" + key;
+	}
+
+	/**
+	 * An identifier or annotation found in the compilation unit
+	 */
+	public static class Usage {
+
+		private final String name;
+		private final long position;
+
+		private Usage(String name, long position) {
+			this.name = name;
+			this.position = position;
+		}
+
+		/**
+		 * The name as written in the code (ex. an annotation can use its simple or canonical name)
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public int getPosition() {
+			return (int) position;
+		}
+
+	}
+
+}
@@ -22,13 +22,16 @@ import static com.helger.jcodemodel.JExpr.ref;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
@@ -37,6 +40,7 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
 
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.annotations.EBean;
@@ -51,6 +55,7 @@ import org.androidannotations.holder.EProviderHolder;
 import org.androidannotations.holder.EReceiverHolder;
 import org.androidannotations.holder.EServiceHolder;
 import org.androidannotations.holder.EViewHolder;
+import org.androidannotations.internal.process.OriginatingElements;
 
 import com.dspot.declex.action.Actions;
 import com.dspot.declex.annotation.UseEvents;
@@ -58,12 +63,14 @@ import com.dspot.declex.annotation.action.ActionFor;
 import com.dspot.declex.api.action.process.ActionInfo;
 import com.dspot.declex.api.action.process.ActionMethodParam;
 import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.EventRateLimiter;
 import com.dspot.declex.api.util.FormatsUtils;
 import com.dspot.declex.holder.EventHolder;
 import com.dspot.declex.holder.ViewsHolder;
 import com.dspot.declex.util.DeclexConstant;
 import com.dspot.declex.util.JavaDocUtils;
 import com.dspot.declex.util.ParamUtils;
+import com.dspot.declex.util.ProcessingSession;
 import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
 import org.androidannotations.internal.virtual.VirtualElement;
@@ -71,11 +78,12 @@ import com.helger.jcodemodel.AbstractJClass;
 import com.helger.jcodemodel.AbstractJType;
 import com.helger.jcodemodel.JAnnotationUse;
 import com.helger.jcodemodel.JAnonymousClass;
+import com.helger.jcodemodel.JArray;
 import com.helger.jcodemodel.JBlock;
 import com.helger.jcodemodel.JClassAlreadyExistsException;
-import com.helger.jcodemodel.JConditional;
 import com.helger.jcodemodel.JDefinedClass;
 import com.helger.jcodemodel.JExpr;
+import com.helger.jcodemodel.JFieldRef;
 import com.helger.jcodemodel.JFieldVar;
 import com.helger.jcodemodel.JInvocation;
 import com.helger.jcodemodel.JMethod;
@@ -93,11 +101,23 @@ public class EventsHelper {
 	
 	private final Map<String, Map<String, String>> eventsFields = new HashMap<>();
 	
-	private static EventsHelper instance;
+	//<Subscriber class, <Subscriber method, Event class>>
+	private final Map<AbstractJClass, Map<String, AbstractJClass>> subscribers = new LinkedHashMap<>();
+	private final Map<AbstractJClass, TypeElement> subscriberElements = new HashMap<>();
+	
+	//<Runnable field, Runnable body> of the subscribers using a timing policy
+	private final Map<JFieldVar, JBlock> timedEventBlocks = new HashMap<>();
+	
+	private boolean subscriberIndexRequired;
+	private boolean subscriberIndexGenerated;
 	
 	public static EventsHelper getInstance(AndroidAnnotationsEnvironment environment) {
+		final ProcessingSession session = ProcessingSession.get();
+		
+		EventsHelper instance = session.getInstance(EventsHelper.class);
 		if (instance == null) {
 			instance = new EventsHelper(environment);
+			session.setInstance(EventsHelper.class, instance);
 		}
 		
 		return instance;
@@ -221,6 +241,8 @@ public class EventsHelper {
 		if (registerMethod == null) {
 			registerMethod = holder.getGeneratedClass().method(JMod.PRIVATE, environment.getCodeModel().VOID, "registerWithEventBus_");
 			JTryBlock tryBlock = registerMethod.body()._try();
+			
+			subscriberIndexRequired = true;
 			tryBlock.body().add(EventBus.staticInvoke("getDefault").invoke("register").arg(_this()));
 			tryBlock._catch(environment.getClasses().THROWABLE);
 			
@@ -272,6 +294,135 @@ public class EventsHelper {
 		
 	}
     
+	/**
+	 * Records a subscriber method generated in the holder, so that it is added to the
+	 * subscriber index of EventBus, and it is not necessary to find it by reflection
+	 */
+	public void addSubscriberMethod(BaseGeneratedClassHolder holder, String methodName, AbstractJClass eventClass) {
+		final AbstractJClass subscriberClass = holder.getGeneratedClass();
+		
+		Map<String, AbstractJClass> methods = subscribers.get(subscriberClass);
+		if (methods == null) {
+			methods = new LinkedHashMap<>();
+			subscribers.put(subscriberClass, methods);
+			subscriberElements.put(subscriberClass, holder.getAnnotatedElement());
+		}
+		
+		methods.put(methodName, eventClass);
+	}
+	
+	private String getSubscriberIndexClassName() {
+		return DeclexConstant.EVENT_PATH + "DeclexEventBusIndex";
+	}
+	
+	/**
+	 * Generates the subscriber index with all the subscriber methods created by DecleX.
+	 * The index is generated only once, the subscribers of later rounds are found by 
+	 * EventBus through reflection. The index is not installed in the default EventBus, 
+	 * the application adds it with {@code EventBus.builder().addIndex(...)}
+	 * 
+	 * @return true if the index was generated
+	 */
+	public boolean buildSubscriberIndex(OriginatingElements originatingElements) {
+		
+		if (!subscriberIndexRequired || subscriberIndexGenerated) return false;
+		subscriberIndexGenerated = true;
+		
+		final String indexClassName = getSubscriberIndexClassName();
+		
+		final AbstractJClass ThreadMode = environment.getJClass("org.greenrobot.eventbus.ThreadMode");
+		final AbstractJClass SubscriberInfo = environment.getJClass("org.greenrobot.eventbus.meta.SubscriberInfo");
+		final AbstractJClass SimpleSubscriberInfo = environment.getJClass("org.greenrobot.eventbus.meta.SimpleSubscriberInfo");
+		final AbstractJClass SubscriberMethodInfo = environment.getJClass("org.greenrobot.eventbus.meta.SubscriberMethodInfo");
+		final AbstractJClass ClassWildcard = environment.getJClass(Class.class).narrow(environment.getCodeModel().ref(Object.class).wildcard());
+		
+		JDefinedClass SubscriberIndex;
+		try {
+			SubscriberIndex = environment.getCodeModel()._class(indexClassName);
+		} catch (JClassAlreadyExistsException e) {
+			return false;
+		}
+		SubscriberIndex._implements(environment.getJClass("org.greenrobot.eventbus.meta.SubscriberInfoIndex"));
+		
+		//The index is not installed by DecleX, the application decides how its EventBus is built
+		SubscriberIndex.javadoc().add(
+				"Subscriber index of the subscriber methods generated by DecleX. Add it to the EventBus\n"
+				+ "used by the application, before the default instance is first used, ex.:\n"
+				+ "<pre>EventBus.builder().addIndex(new " + SubscriberIndex.name() + "()).installDefaultEventBus();</pre>"
+			);
+		
+		JFieldVar index = SubscriberIndex.field(
+				JMod.PRIVATE | JMod.STATIC | JMod.FINAL, 
+				environment.getClasses().MAP.narrow(ClassWildcard, SubscriberInfo), "SUBSCRIBER_INDEX",
+				_new(environment.getJClass(HashMap.class).narrow(ClassWildcard, SubscriberInfo))
+			);
+		
+		JBlock staticInit = SubscriberIndex.init();
+		for (Entry<AbstractJClass, Map<String, AbstractJClass>> subscriber : subscribers.entrySet()) {
+			
+			final TypeElement subscriberElement = subscriberElements.get(subscriber.getKey());
+			if (subscriberElement != null) {
+				originatingElements.add(indexClassName, subscriberElement);
+			}
+			
+			JArray methods = JExpr.newArray(SubscriberMethodInfo);
+			for (Entry<String, AbstractJClass> method : subscriber.getValue().entrySet()) {
+				methods.add(
+					_new(SubscriberMethodInfo).arg(method.getKey()).arg(method.getValue().dotclass())
+					                          .arg(ThreadMode.staticRef("MAIN"))
+				);
+			}
+			
+			staticInit.invoke(index, "put").arg(subscriber.getKey().dotclass())
+				.arg(_new(SimpleSubscriberInfo)
+						.arg(subscriber.getKey().dotclass())
+						.arg(JExpr.lit(hasSubscriberMethods(subscriberElement)))
+						.arg(methods));
+		}
+		
+		JMethod getSubscriberInfo = SubscriberIndex.method(JMod.PUBLIC, SubscriberInfo, "getSubscriberInfo");
+		getSubscriberInfo.annotate(Override.class);
+		JVar subscriberClass = getSubscriberInfo.param(ClassWildcard, "subscriberClass");
+		getSubscriberInfo.body()._return(index.invoke("get").arg(subscriberClass));
+		
+		
+		return true;
+	}
+	
+	/**
+	 * Determines if the element or its super classes declare their own subscriber methods,
+	 * in which case EventBus should look for them in the super classes of the subscriber
+	 */
+	private boolean hasSubscriberMethods(TypeElement element) {
+		if (element == null) return true;
+		
+		final Elements elementUtils = environment.getProcessingEnvironment().getElementUtils();
+		while (element != null) {
+			
+			final String elementName = element.getQualifiedName().toString();
+			if (elementName.startsWith("java.") || elementName.startsWith("javax.") || elementName.startsWith("android.")) {
+				break;
+			}
+			
+			for (Element elem : element.getEnclosedElements()) {
+				if (elem.getKind() != ElementKind.METHOD) continue;
+				
+				for (AnnotationMirror annotation : elem.getAnnotationMirrors()) {
+					if (annotation.getAnnotationType().toString().equals("org.greenrobot.eventbus.Subscribe")) {
+						return true;
+					}
+				}
+			}
+			
+			final TypeMirror superclass = element.getSuperclass();
+			if (superclass.getKind() != TypeKind.DECLARED) break;
+			
+			element = elementUtils.getTypeElement(superclass.toString().replaceAll("<.*>$", ""));
+		}
+		
+		return false;
+	}
+    
 	public AbstractJClass createEvent(String className, Element fromElement) {
 		return createEvent(className, fromElement, false);
 	}
@@ -308,10 +459,12 @@ public class EventsHelper {
 			actionInfo.setReferences(reference);
 			EventClass.javadoc().add(actionInfo.references);
 			
-			Element rootElement = TypeUtils.getRootElement(fromElement);
+			SharedRecords.addOriginatingElement(className, fromElement);
 			
 		} catch (JClassAlreadyExistsException e) {
 			
+			SharedRecords.addOriginatingElement(className, fromElement);
+			
 			if (actionInfo.references == null) actionInfo.setReferences(reference);
 			else {
 				//TODO this is not working
@@ -370,32 +523,41 @@ public class EventsHelper {
 		ifNoSubscriber._if(failed.neNull())._then().invoke(failed, "onFailed").arg(_null());
 		ifNoSubscriber._return();
 		
+		//The listeners are created once, and reused in each execution of the action
 		{//Next Listener
+			JFieldVar nextListener = EventClass.field(JMod.PRIVATE, Runnable.class, "eventNextListener");
+			JFieldVar nextCalled = EventClass.field(JMod.PRIVATE, environment.getCodeModel().BOOLEAN, "nextListenerCalled");
+			
 			JAnonymousClass nextListenerRunnable = environment.getCodeModel().anonymousClass(Runnable.class);
-			JFieldVar called = nextListenerRunnable.field(JMod.NONE, environment.getCodeModel().BOOLEAN, "called");
 			JMethod anonymousRunnableRun = nextListenerRunnable.method(JMod.PUBLIC, environment.getCodeModel().VOID, "run");
 			anonymousRunnableRun.annotate(Override.class);
 	
-			JBlock ifNotCalled = anonymousRunnableRun.body()._if(called.not())._then();
-			ifNotCalled.assign(called, JExpr.TRUE);
+			JBlock ifNotCalled = anonymousRunnableRun.body()._if(nextCalled.not())._then();
+			ifNotCalled.assign(nextCalled, JExpr.TRUE);
 			ifNotCalled.invoke(finished, "onEventFinished").arg(event);
 			
-			JConditional ifFinished = executeMethod.body()._if(finished.ne(_null()));
-			ifFinished._then().add(event.invoke("setNextListener").arg(_new(nextListenerRunnable)));
+			JBlock ifFinished = executeMethod.body()._if(finished.ne(_null()))._then();
+			ifFinished._if(nextListener.eq(_null()))._then().assign(nextListener, _new(nextListenerRunnable));
+			ifFinished.assign(nextCalled, JExpr.FALSE);
+			ifFinished.add(event.invoke("setNextListener").arg(nextListener));
 		}
 		
 		{//Failed Listener
+			JFieldVar failedListener = EventClass.field(JMod.PRIVATE, environment.getJClass(OnFailedRunnable.class), "eventFailedListener");
+			JFieldVar failedCalled = EventClass.field(JMod.PRIVATE, environment.getCodeModel().BOOLEAN, "failedListenerCalled");
+			
 			JAnonymousClass failedListenerRunnable = environment.getCodeModel().anonymousClass(OnFailedRunnable.class);
-			JFieldVar called = failedListenerRunnable.field(JMod.NONE, environment.getCodeModel().BOOLEAN, "called");
 			JMethod anonymousRunnableRun = failedListenerRunnable.method(JMod.PUBLIC, environment.getCodeModel().VOID, "run");
 			anonymousRunnableRun.annotate(Override.class);
 	
-			JBlock ifNotCalled = anonymousRunnableRun.body()._if(called.not())._then();
-			ifNotCalled.assign(called, JExpr.TRUE);
+			JBlock ifNotCalled = anonymousRunnableRun.body()._if(failedCalled.not())._then();
+			ifNotCalled.assign(failedCalled, JExpr.TRUE);
 			ifNotCalled.invoke(failed, "onFailed").arg(ref("e"));
 			
-			JConditional ifFailed = executeMethod.body()._if(failed.ne(_null()));
-			ifFailed._then().add(event.invoke("setFailedListener").arg(_new(failedListenerRunnable)));
+			JBlock ifFailed = executeMethod.body()._if(failed.ne(_null()))._then();
+			ifFailed._if(failedListener.eq(_null()))._then().assign(failedListener, _new(failedListenerRunnable));
+			ifFailed.assign(failedCalled, JExpr.FALSE);
+			ifFailed.add(event.invoke("setFailedListener").arg(failedListener));
 		}
 		
 		executeMethod.body().add(event.invoke("postEvent"));
@@ -421,6 +583,65 @@ public class EventsHelper {
 		       && !eventsFields.get(clazz).isEmpty();
 	}
 	
+	/**
+	 * Gets the block where the code executed by a subscriber with a timing policy should 
+	 * be written. The code is placed in a Runnable which the event body submits to an 
+	 * {@link EventRateLimiter}, so the executions requested by a burst of events are 
+	 * collapsed in one, and the next listener of the events is called after it runs. 
+	 * If no policy is used, the event body itself is returned.
+	 * 
+	 * @param name Name identifying the subscriber in the holder, all the code written 
+	 * with the same name is executed by the same Runnable
+	 */
+	public JBlock getTimedEventBlock(JBlock eventBody, String name, long throttle, long debounce, 
+			boolean coalesce, BaseGeneratedClassHolder holder) {
+		
+		if (throttle <= 0 && debounce <= 0 && !coalesce) return eventBody;
+		
+		final JDefinedClass generatedClass = holder.getGeneratedClass();
+		
+		JFieldVar runnableField = generatedClass.fields().get(name + "Runnable_");
+		if (runnableField == null) {
+			JFieldVar limiterField = generatedClass.field(
+				JMod.PRIVATE | JMod.FINAL, 
+				EventRateLimiter.class, 
+				name + "Limiter_",
+				_new(environment.getJClass(EventRateLimiter.class))
+					.arg(JExpr.lit(throttle)).arg(JExpr.lit(debounce)).arg(JExpr.lit(coalesce))
+			);
+			
+			JAnonymousClass anonymousRunnable = environment.getCodeModel().anonymousClass(Runnable.class);
+			JMethod anonymousRunnableRun = anonymousRunnable.method(JMod.PUBLIC, environment.getCodeModel().VOID, "run");
+			anonymousRunnableRun.annotate(Override.class);
+			
+			runnableField = generatedClass.field(
+				JMod.PRIVATE | JMod.FINAL, Runnable.class, name + "Runnable_", _new(anonymousRunnable)
+			);
+			timedEventBlocks.put(runnableField, anonymousRunnableRun.body());
+			
+			//The next listener of the event is notified once the deferred execution finishes,
+			//the limiter keeps the event until then if it is pooled
+			final JFieldRef event = ref("event");
+			eventBody.invoke(limiterField, "submit").arg(runnableField)
+			         .arg(event.invoke("getNextListener")).arg(event.invoke("getFailedListener")).arg(event);
+			eventBody.invoke(event, "setNextListener").arg(_null());
+			
+			//The pending executions are kept while the component is not listening for events,
+			//and they are done once it registers again
+			JMethod unregisterMethod = generatedClass.getMethod("unregisterWithEventBus_", new AbstractJType[]{});
+			if (unregisterMethod != null) {
+				unregisterMethod.body().invoke(limiterField, "pause");
+			}
+			
+			JMethod registerMethod = generatedClass.getMethod("registerWithEventBus_", new AbstractJType[]{});
+			if (registerMethod != null) {
+				registerMethod.body().invoke(limiterField, "resume");
+			}
+		}
+		
+		return timedEventBlocks.get(runnableField);
+	}
+	
 	public JBlock addEventListener(String eventClass, Element parentElement, ViewsHolder viewsHolder) {
 		return addEventListener(eventClass, parentElement, viewsHolder.holder(), viewsHolder);
 	}
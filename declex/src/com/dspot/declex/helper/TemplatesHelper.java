@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+
+import org.androidannotations.AndroidAnnotationsEnvironment;
+import org.androidannotations.logger.Logger;
+import org.androidannotations.logger.LoggerFactory;
+
+import com.dspot.declex.util.FileUtils;
+import com.dspot.declex.util.ProcessingSession;
+
+import freemarker.cache.ClassTemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+/**
+ * Loads and caches the FTL templates used by the template handlers. The templates
+ * bundled with DecleX are loaded directly from the classpath and parsed only once,
+ * the disk is used only for custom templates, which can be modified by the user.
+ */
+public class TemplatesHelper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TemplatesHelper.class);
+
+	private final AndroidAnnotationsEnvironment environment;
+
+	private final Configuration configuration;
+
+	//<Template path, Template>
+	private final Map<String, Template> templates = new HashMap<>();
+
+	//<Template content, Template>
+	private final Map<String, Template> customTemplates = new HashMap<>();
+
+	public static TemplatesHelper getInstance(AndroidAnnotationsEnvironment environment) {
+		final ProcessingSession session = ProcessingSession.get();
+
+		TemplatesHelper instance = session.getInstance(TemplatesHelper.class);
+		if (instance == null || instance.environment != environment) {
+			instance = new TemplatesHelper(environment);
+			session.setInstance(TemplatesHelper.class, instance);
+		}
+		return instance;
+	}
+
+	private TemplatesHelper(AndroidAnnotationsEnvironment environment) {
+		this.environment = environment;
+
+		configuration = new Configuration(Configuration.VERSION_2_3_0);
+		configuration.setTemplateLoader(new ClassTemplateLoader(TemplatesHelper.class.getClassLoader(), ""));
+		configuration.setLocalizedLookup(false);
+	}
+
+	public Template getTemplate(String templatePath, String templateName) throws IOException {
+
+		final String ftlFile = templatePath + templateName;
+
+		Template template = templates.get(ftlFile);
+		if (template == null) {
+			LOGGER.info("Loading FTL {}", ftlFile);
+			template = configuration.getTemplate(ftlFile);
+			templates.put(ftlFile, template);
+		}
+
+		return template;
+	}
+
+	/**
+	 * Gets the custom template for the given element. The first time it is requested, the
+	 * bundled template is copied to the FTL output folder, so that it can be modified.
+	 */
+	public Template getCustomTemplate(Element element, String templatePath, String templateName) throws IOException {
+
+		final String ftlFileName = element.getSimpleName() + "_" + templateName;
+
+		String outputDirPath = environment.getProcessingEnvironment().getOptions().get("ftl_source_path");
+		if (outputDirPath == null) outputDirPath = "ftl";
+
+		//Ensure the route to the file be created
+		File outputFtl = FileUtils.getConfigFile(outputDirPath, environment.getProcessingEnvironment());
+
+		final String classTypeName = element.asType().toString();
+		final String customPath = classTypeName.substring(0, classTypeName.length() - element.getSimpleName().length() - 1);
+		outputFtl = new File(outputFtl, customPath.replace('.', File.separatorChar));
+		outputFtl.mkdirs();
+
+		final File outFile = new File(outputFtl, ftlFileName);
+		if (!outFile.exists()) {
+			final String ftlFile = templatePath + templateName;
+
+			URL url = TemplatesHelper.class.getClassLoader().getResource(ftlFile);
+			if (url == null) {
+				throw new IllegalStateException(ftlFile + " not found, execute ant on the project to generate it");
+			}
+
+			FileUtils.copyCompletely(url.openStream(), new FileOutputStream(outFile), null);
+			LOGGER.info("FTL writed to {}", outFile.getAbsolutePath());
+		}
+
+		final String content = readContent(new FileInputStream(outFile));
+
+		Template template = customTemplates.get(content);
+		if (template == null) {
+			template = new Template(ftlFileName, new StringReader(content), configuration);
+			customTemplates.put(content, template);
+		}
+
+		return template;
+	}
+
+	private String readContent(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FileUtils.copyCompletely(in, out, null);
+
+		String encoding = configuration.getDefaultEncoding();
+		return encoding == null ? out.toString() : out.toString(encoding);
+	}
+
+}
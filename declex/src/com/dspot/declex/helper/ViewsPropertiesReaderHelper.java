@@ -18,6 +18,8 @@ import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.helper.ModelConstants;
 import org.apache.commons.lang3.tuple.Pair;
 
+import com.dspot.declex.util.ProcessingSession;
+
 public class ViewsPropertiesReaderHelper {
 
 	//<Class Id, <Getter<Name, Classes>, Setter<Name, Classes>>>
@@ -25,11 +27,13 @@ public class ViewsPropertiesReaderHelper {
 	
 	private AndroidAnnotationsEnvironment environment;
 	
-	private static ViewsPropertiesReaderHelper instance;
-	
 	public static ViewsPropertiesReaderHelper getInstance(AndroidAnnotationsEnvironment environment) {
+		final ProcessingSession session = ProcessingSession.get();
+		
+		ViewsPropertiesReaderHelper instance = session.getInstance(ViewsPropertiesReaderHelper.class);
 		if (instance == null) {
 			instance = new ViewsPropertiesReaderHelper(environment);
+			session.setInstance(ViewsPropertiesReaderHelper.class, instance);
 		}
 		
 		return instance;
@@ -24,6 +24,7 @@ import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.holder.BaseGeneratedClassHolder;
 import org.androidannotations.plugin.PluginClassHolder;
 
+import com.dspot.declex.helper.EventsHelper;
 import com.helger.jcodemodel.AbstractJClass;
 import com.helger.jcodemodel.JAnnotationUse;
 import com.helger.jcodemodel.JBlock;
@@ -94,6 +95,8 @@ public class EventHolder extends PluginClassHolder<BaseGeneratedClassHolder> {
 		ifBlock = catchBlock.body()._if(event.invoke("getFailedListener").neNull())._then();
 		ifBlock.invoke(event.invoke("getFailedListener"), "onFailed").arg(e);
 		
+		EventsHelper.getInstance(environment).addSubscriberMethod(holder(), eventMethod.name(), EventClass);
+		
 		eventsMethod.put(clazz, eventMethod);
 		eventsBlock.put(clazz, eventBody);
 	}
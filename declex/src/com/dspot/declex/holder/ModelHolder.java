@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,10 +41,6 @@ import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 
-import com.sun.source.tree.AnnotationTree;
-import com.sun.source.tree.CompilationUnitTree;
-import com.sun.source.util.TreePathScanner;
-import com.sun.source.util.Trees;
 import org.androidannotations.annotations.export.Exported;
 import org.androidannotations.api.BackgroundExecutor;
 import org.androidannotations.helper.*;
@@ -55,8 +52,15 @@ import org.androidannotations.plugin.PluginClassHolder;
 import com.dspot.declex.annotation.ExportPopulate;
 import com.dspot.declex.annotation.ExportRecollect;
 import com.dspot.declex.annotation.Model;
+import com.dspot.declex.annotation.ModelCache;
+import com.dspot.declex.annotation.UseModel;
 import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.ExecutorProfiles;
 import com.dspot.declex.api.util.FormatsUtils;
+import com.dspot.declex.api.util.LazyRebind;
+import com.dspot.declex.api.util.LoadCoalescer;
+import com.dspot.declex.api.util.ModelCaches;
+import com.dspot.declex.helper.CompilationUnitIndex;
 import com.dspot.declex.override.helper.DeclexAPTCodeModelHelper;
 import com.dspot.declex.util.TypeUtils;
 import com.dspot.declex.util.TypeUtils.ClassInformation;
@@ -99,7 +103,6 @@ public class ModelHolder extends PluginClassHolder<EComponentHolder> {
 	
 	private APTCodeModelHelper codeModelHelper;
 	private ADIHelper adiHelper;
-	private CompilationTreeHelper compilationTreeHelper;
 		
 	public ModelHolder(EComponentHolder holder) {
 		super(holder);
@@ -115,7 +118,6 @@ public class ModelHolder extends PluginClassHolder<EComponentHolder> {
 		
 		codeModelHelper = new DeclexAPTCodeModelHelper(environment());
 		adiHelper = new ADIHelper(environment());
-		compilationTreeHelper = new CompilationTreeHelper(environment());
 	}
 	
 	public JMethod getGetterMethod(Element element) {
@@ -477,32 +479,22 @@ public class ModelHolder extends PluginClassHolder<EComponentHolder> {
 				                                      .arg(dotclass(getJClass(Annotation.class)));
 		final Map<Integer, AbstractJClass> annotationClasses = new TreeMap<>();
 		
-		//Insert the annotations in the order of appearance 
-		//TreePathScanner is used to determine the order in the code and ensure
-		//that it doens't depends on the compiler implementation
-		compilationTreeHelper.visitElementTree(element, new TreePathScanner<Boolean, Trees>() {
-
-			CompilationUnitTree compilationUnit = compilationTreeHelper.getCompilationUnitImportFromElement(element);
-
-			@Override
-			public Boolean visitAnnotation(AnnotationTree annotationTree, Trees trees) {
-				String annotationName = annotationTree.getAnnotationType().toString();
-
+		//Insert the annotations in the order of appearance, the positions in the code are
+		//used to ensure that it doesn't depends on the compiler implementation
+		final CompilationUnitIndex index = CompilationUnitIndex.forElement(element, environment());
+		if (index != null) {
+			for (CompilationUnitIndex.Usage annotationUsage : index.getAnnotations(element)) {
+				String annotationName = annotationUsage.getName();
+				
 				for (AnnotationMirror annotation : annotations) {
 					final String annotationCanonicalName = annotation.getAnnotationType().toString();
 					if (annotationCanonicalName.equals(annotationName)
 							|| annotationCanonicalName.endsWith("." + annotationName)) {
-
-						int position = (int) trees.getSourcePositions().getStartPosition(compilationUnit, annotationTree);
-						annotationClasses.put(position, getJClass(annotationCanonicalName));
-
+						annotationClasses.put(annotationUsage.getPosition(), getJClass(annotationCanonicalName));
 					}
 				}
-
-				return super.visitAnnotation(annotationTree, trees);
 			}
-
-		});
+		}
     	
 		for (Entry<Integer, AbstractJClass> annotationEntry : annotationClasses.entrySet()) {
 			annotations_invocation.arg(dotclass(annotationEntry.getValue())); 
@@ -510,27 +502,37 @@ public class ModelHolder extends PluginClassHolder<EComponentHolder> {
 		
 		String getModelInjectionMethod = isList ? useModelGetModelListMethod(useModelHolder)
 				                                 : useModelLoadModelMethod(useModelHolder);
-		JInvocation getModel = ModelClass.staticInvoke(getModelInjectionMethod)
+		IJExpression getModel = ModelClass.staticInvoke(getModelInjectionMethod)
 				  .arg(context)
 				  .arg(args)
 				  .arg(annotations_invocation);
 		
+		final AbstractJClass resultClass = isList? LIST.narrow(ModelClass) : ModelClass;
+		if (modelAnnotation.coalesce()) {
+			//The concurrent loads of the model with the same arguments and annotations share the result
+			getModel = getJClass(LoadCoalescer.class).staticInvoke("load")
+					.arg(dotclass(ModelClass)).arg(args).arg(annotations_invocation)
+					.arg(createLoader(resultClass, getModel));
+		}
+		
+		final ModelCache modelCache = getModelCache(useModelHolder);
+		if (modelCache != null) {
+			getModel = getJClass(ModelCaches.class).staticInvoke("get")
+					.arg(dotclass(ModelClass)).arg(lit(modelCache.ttl())).arg(lit(modelCache.maxEntries()))
+					.invoke("load").arg(context).arg(args).arg(annotations_invocation).arg(createLoader(resultClass, getModel));
+		}
+		
+		if (modelAnnotation.lazyRebind()) {
+			//The mark is kept in the loading thread, it is not part of the arguments. It wraps 
+			//the shared caches, so the models bound lazily are only shared with lazy loads
+			getModel = getJClass(LazyRebind.class).staticInvoke("load").arg(createLoader(resultClass, getModel));
+		}
+		
 		JBlock assign;
 		
 		JTryBlock tryBlock;
 		if (modelAnnotation.async()) {
-			//Use the BackgroundExecutor for asynchronous calls
-			JDefinedClass anonymousTaskClass = getCodeModel().anonymousClass(BackgroundExecutor.Task.class);
-
-			JMethod executeMethod = anonymousTaskClass.method(JMod.PUBLIC, getCodeModel().VOID, "execute");
-			executeMethod.annotate(Override.class);
-
-			AbstractJClass backgroundExecutorClass = getJClass(BackgroundExecutor.class);
-			JInvocation newTask = _new(anonymousTaskClass).arg(lit("")).arg(lit(0)).arg(lit(""));
-			JInvocation executeCall = backgroundExecutorClass.staticInvoke("execute").arg(newTask);
-			block.add(executeCall);
-
-			tryBlock = executeMethod.body()._try();
+			tryBlock = createAsyncBlock(modelAnnotation, null, onFailed, block)._try();
 		} else {
 			tryBlock = block._try();
 		}
@@ -705,25 +707,28 @@ public class ModelHolder extends PluginClassHolder<EComponentHolder> {
 		if (modelAnnotation != null) {
 			JTryBlock tryBlock;
 			if (modelAnnotation.asyncPut()) {
-				JDefinedClass anonymousTaskClass = getCodeModel().anonymousClass(BackgroundExecutor.Task.class);
-
-				JMethod executeMethod = anonymousTaskClass.method(JMod.PUBLIC, getCodeModel().VOID, "execute");
-				executeMethod.annotate(Override.class);
-				
-				tryBlock = executeMethod.body()._try();
-				
-				AbstractJClass backgroundExecutorClass = getJClass(BackgroundExecutor.class);
-				JInvocation newTask = _new(anonymousTaskClass).arg(lit("")).arg(lit(0)).arg(lit(""));
-				JInvocation executeCall = backgroundExecutorClass.staticInvoke("execute").arg(newTask);
-				block.add(executeCall);
+				//The puts of the same model are executed one after the other
+				final String serial = modelAnnotation.serialPut()? className : null;
+				tryBlock = createAsyncBlock(modelAnnotation, serial, onFailed, block)._try();
 			} else {
 				tryBlock = block._try();
 			}
 			
 			if (isList) {
 				JSynchronizedBlock syncBlock = tryBlock.body().synchronizedBlock(getter);
-				JBlock forEachBlock = syncBlock.body().forEach((converted == null ? ModelClass : getJClass(converted)), fieldName + "Local", getter).body();				
-				forEachBlock.add(putModel);
+				
+				if (useModelHolder != null) {
+					//All the models of the list are put at once
+					JBlock ifNotPutList = syncBlock.body()._if(
+							ModelClass.staticInvoke(useModelHolder.getPutModelListMethod()).arg(getter).arg(args).eq(_null())
+						)._then();
+					ifNotPutList._if(onFailed.ne(_null()))._then()
+									.invoke(onFailed, "onFailed").arg(validationException);
+					ifNotPutList._return();
+				} else {
+					JBlock forEachBlock = syncBlock.body().forEach((converted == null ? ModelClass : getJClass(converted)), fieldName + "Local", getter).body();				
+					forEachBlock.add(putModel);
+				}
 			} else {
 				tryBlock.body().add(putModel);
 			}
@@ -754,6 +759,62 @@ public class ModelHolder extends PluginClassHolder<EComponentHolder> {
 		return holder().getContextRef();
 	}	
 	
+	private IJExpression createLoader(AbstractJClass resultClass, IJExpression load) {
+		JAnonymousClass anonymousLoader = getCodeModel().anonymousClass(getJClass(Callable.class).narrow(resultClass));
+		JMethod callMethod = anonymousLoader.method(JMod.PUBLIC, resultClass, "call");
+		callMethod.annotate(Override.class);
+		callMethod._throws(getJClass(Exception.class));
+		callMethod.body()._return(load);
+		
+		return _new(anonymousLoader);
+	}
+	
+	private ModelCache getModelCache(UseModelHolder useModelHolder) {
+		if (useModelHolder == null) return null;
+		
+		UseModel useModel = adiHelper.getAnnotation(useModelHolder.getAnnotatedElement(), UseModel.class);
+		if (useModel == null || useModel.cache().length == 0) return null;
+		
+		return useModel.cache()[0];
+	}
+	
+	/**
+	 * Creates the task which executes asynchronously the load or put of a model, in the 
+	 * execution profile of the model or in the BackgroundExecutor if no profile was set.
+	 * 
+	 * @param serial Key of the tasks that should be executed serially, or null
+	 * @param onFailed Runnable notified if the profile rejects the task, or a serial task queued 
+	 *   before it (ex. its queue is full)
+	 * 
+	 * @return the block executed in background
+	 */
+	private JBlock createAsyncBlock(Model modelAnnotation, String serial, JVar onFailed, JBlock block) {
+		
+		final String executor = modelAnnotation.executor();
+		if (executor.isEmpty()) {
+			JDefinedClass anonymousTaskClass = getCodeModel().anonymousClass(BackgroundExecutor.Task.class);
+
+			JMethod executeMethod = anonymousTaskClass.method(JMod.PUBLIC, getCodeModel().VOID, "execute");
+			executeMethod.annotate(Override.class);
+
+			AbstractJClass backgroundExecutorClass = getJClass(BackgroundExecutor.class);
+			JInvocation newTask = _new(anonymousTaskClass).arg(lit("")).arg(lit(0)).arg(lit(serial == null? "" : serial));
+			block.add(backgroundExecutorClass.staticInvoke("execute").arg(newTask));
+			
+			return executeMethod.body();
+		}
+		
+		JAnonymousClass anonymousRunnable = getCodeModel().anonymousClass(getJClass(Runnable.class));
+		JMethod runMethod = anonymousRunnable.method(JMod.PUBLIC, getCodeModel().VOID, "run");
+		runMethod.annotate(Override.class);
+		
+		JInvocation executeCall = getJClass(ExecutorProfiles.class).staticInvoke("execute").arg(lit(executor));
+		executeCall.arg(serial == null? _null() : lit(serial));
+		block.add(executeCall.arg(_new(anonymousRunnable)).arg(onFailed));
+		
+		return runMethod.body();
+	}
+	
 	private class ModelMethod {
 		JMethod method;
 		JBlock methodBlock;
@@ -20,6 +20,8 @@ import com.dspot.declex.annotation.ExportPopulate;
 import com.dspot.declex.annotation.Model;
 import com.dspot.declex.annotation.Populate;
 import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.MainThreadDispatcher;
+import com.dspot.declex.util.ProcessingSession;
 import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
 import com.dspot.declex.util.TypeUtils.ClassInformation;
@@ -43,8 +45,8 @@ public class PopulateHolder extends PluginClassHolder<EComponentWithViewSupportH
 	private Map<Element, JBlock> populateMethodsBlock = new HashMap<>();
 	private JMethod populateThisMethod;
 	
-	//PopulateListeners are shared through all the PopulateHolders
-	private static Map<Element, JFieldRef> populateListeners = new HashMap<>();
+	//PopulateListeners are shared through all the PopulateHolders of the processing session
+	private static final String POPULATE_LISTENERS = PopulateHolder.class.getCanonicalName() + ".populateListeners";
 	
 	private ADIHelper adiHelper;
 	
@@ -54,6 +56,10 @@ public class PopulateHolder extends PluginClassHolder<EComponentWithViewSupportH
 		this.adiHelper = new ADIHelper(environment());
 		
 	}
+	
+	private static Map<Element, JFieldRef> populateListeners() {
+		return ProcessingSession.get().getMap(POPULATE_LISTENERS);
+	}
 
 	public JMethod getPopulateMethod(Element element) {
 		JMethod populateMethod = populateMethods.get(element);
@@ -88,15 +94,15 @@ public class PopulateHolder extends PluginClassHolder<EComponentWithViewSupportH
 		
 		JFieldRef populateListener;
 		if (element instanceof VirtualElement) {		
-			populateListener = populateListeners.get(((VirtualElement) element).getElement());
+			populateListener = populateListeners().get(((VirtualElement) element).getElement());
 		} else {
-			populateListener = populateListeners.get(element);
+			populateListener = populateListeners().get(element);
 		}
 
 		if (populateListener == null) {
 			if (element instanceof VirtualElement) {
 				setPopulateMethod(element);
-				populateListener = populateListeners.get(((VirtualElement) element).getElement());
+				populateListener = populateListeners().get(((VirtualElement) element).getElement());
 			} else {
 				final String fieldName = element.getSimpleName().toString();
 				final String populateListenerName = "populate" + fieldName.substring(0, 1).toUpperCase()
@@ -167,7 +173,7 @@ public class PopulateHolder extends PluginClassHolder<EComponentWithViewSupportH
 				modelHolder = holder.getPluginHolder(new ModelHolder(holder));
 				element = ((VirtualElement) element).getElement();
 				
-				if (populateListeners.containsKey(element)) {
+				if (populateListeners().containsKey(element)) {
 					//This means the call was already created
 					return;
 				};
@@ -183,9 +189,7 @@ public class PopulateHolder extends PluginClassHolder<EComponentWithViewSupportH
 				JMethod annonimousRunnableRun = annonimousRunnable.method(JMod.PUBLIC, getCodeModel().VOID, "run");
 				annonimousRunnableRun.annotate(Override.class);
 				
-				JVar handler = methodBody.decl(getClasses().HANDLER, "handler", 
-						_new(getClasses().HANDLER).arg(getClasses().LOOPER.staticInvoke("getMainLooper")));
-				methodBody.invoke(handler, "post").arg(_new(annonimousRunnable));
+				methodBody.add(getJClass(MainThreadDispatcher.class).staticInvoke("post").arg(_new(annonimousRunnable)));
 				
 				methodBody = annonimousRunnableRun.body();
 			} 
@@ -204,7 +208,7 @@ public class PopulateHolder extends PluginClassHolder<EComponentWithViewSupportH
 						  .invoke(listenerField, "populateModel")
 			              .arg(_null()).arg(ref("onFailed"));
 				
-  			    populateListeners.put(element, listenerField);
+  			    populateListeners().put(element, listenerField);
   			    
 			} else {
 				ifPopulate.invoke(populateMethod).arg(_null()).arg(ref("onFailed"));
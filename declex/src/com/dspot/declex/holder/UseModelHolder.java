@@ -18,6 +18,7 @@ package com.dspot.declex.holder;
 import static com.dspot.declex.api.util.FormatsUtils.fieldToGetter;
 import static com.dspot.declex.api.util.FormatsUtils.fieldToSetter;
 import static com.helger.jcodemodel.JExpr._new;
+import static com.helger.jcodemodel.JExpr._null;
 import static com.helger.jcodemodel.JExpr._this;
 import static com.helger.jcodemodel.JExpr.cast;
 import static com.helger.jcodemodel.JExpr.dotclass;
@@ -35,6 +36,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
@@ -42,10 +44,14 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
 
+import org.androidannotations.annotations.AfterInject;
 import org.androidannotations.annotations.export.Exported;
 import org.androidannotations.Option;
 import org.androidannotations.helper.ADIHelper;
@@ -54,10 +60,14 @@ import org.androidannotations.holder.BaseGeneratedClassHolder;
 import org.androidannotations.holder.EBeanHolder;
 import org.androidannotations.plugin.PluginClassHolder;
 
+import com.dspot.declex.annotation.CopyIgnore;
+import com.dspot.declex.annotation.CopyName;
 import com.dspot.declex.annotation.RunWith;
 import com.dspot.declex.annotation.UseModel;
 import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.IJExpression;
 import com.helger.jcodemodel.JBlock;
 import com.helger.jcodemodel.JDefinedClass;
 import com.helger.jcodemodel.JExpr;
@@ -66,6 +76,7 @@ import com.helger.jcodemodel.JFieldVar;
 import com.helger.jcodemodel.JForEach;
 import com.helger.jcodemodel.JMethod;
 import com.helger.jcodemodel.JMod;
+import com.helger.jcodemodel.JTryBlock;
 import com.helger.jcodemodel.JVar;
 
 public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder> {
@@ -75,6 +86,13 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 	private JMethod writeObjectMethod;
 	private JMethod readObjectMethod;
 	
+	private JMethod writeToParcelMethod;
+	private JMethod readFromParcelMethod;
+	private boolean parcelableCreated;
+	
+	private JMethod copyMethod;
+	private boolean copyMethodCreated;
+	
 	private Map<String, Element> fields;
 	private Map<Element, JMethod> getters;
 	private Map<Element, JMethod> setters;
@@ -98,10 +116,23 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 	
 	private JMethod putModelMethod;
 	private JBlock putModelInitBlock;
+	private JBlock putModelFinallyBlock;
+	
+	private JMethod putModelListMethod;
+	private JBlock putModelListBeforeBlock;
+	private JBlock putModelListSuccessBlock;
+	private JBlock putModelListFinallyBlock;
 	
 	private JFieldVar fullInitVar;
 	private JFieldVar existsVar;
 	
+	private JFieldVar rebindContextVar;
+	private JFieldVar rebindFullInitVar;
+	private JFieldVar rebindInProgressVar;
+	private JMethod rebindLazilyMethod;
+	private JMethod rebindIfNeededMethod;
+	private Boolean hasAfterInjectMethods;
+	
 	final AbstractJClass STRING;
 	final AbstractJClass MAP;
 	final AbstractJClass LIST;
@@ -171,6 +202,31 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 		return existsVar;
 	}
 	
+	public JFieldVar getRebindContextVar() {
+		if (rebindContextVar == null) {
+			setLazyRebind();
+		}
+		return rebindContextVar;
+	}
+	
+	public JMethod getRebindLazilyMethod() {
+		if (rebindLazilyMethod == null) {
+			setLazyRebind();
+		}
+		return rebindLazilyMethod;
+	}
+	
+	public JMethod getRebindIfNeededMethod() {
+		if (rebindIfNeededMethod == null) {
+			setLazyRebind();
+		}
+		return rebindIfNeededMethod;
+	}
+	
+	public static String rebindLazilyName() {
+		return "rebindLazily_";
+	}
+	
 	public JMethod getWriteObjectMethod() {
 		if (writeObjectMethod == null) {
 			setSerializable();
@@ -185,6 +241,39 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 		return readObjectMethod;
 	}
 	
+	/**
+	 * @return the writeToParcel method, or null if the model is not parcelable 
+	 * (see {@link UseModel#parcelable()}) or it already implements Parcelable
+	 */
+	public JMethod getWriteToParcelMethod() {
+		if (!parcelableCreated) {
+			setParcelable();
+			parcelableCreated = true;
+		}
+		return writeToParcelMethod;
+	}
+	
+	public JMethod getReadFromParcelMethod() {
+		if (!parcelableCreated) {
+			setParcelable();
+			parcelableCreated = true;
+		}
+		return readFromParcelMethod;
+	}
+	
+	/**
+	 * @return a method which copies the fields of a model to another model of the same class,
+	 * or null if some of the fields cannot be accessed from the generated class (ex. private
+	 * fields), in which case the copy should be done through CastUtility
+	 */
+	public JMethod getCopyMethod() {
+		if (!copyMethodCreated) {
+			setCopy();
+			copyMethodCreated = true;
+		}
+		return copyMethod;
+	}
+	
 	public Map<String, Element> getFields() {
 		if (fields == null) {
 			getFieldsPlusGettersAndSetters();
@@ -245,6 +334,181 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 		}
 	}
 	
+	/**
+	 * The model is also Parcelable, if requested. Bundles (ex. in Extras, Fragment Arguments or 
+	 * Instance States) write Parcelable values before checking for Serializable ones, so this 
+	 * implementation is used when the model crosses processes. The fields are written as in 
+	 * the Serialization, but primitives and Strings don't go through an ObjectOutputStream
+	 */
+	private void setParcelable() {
+		
+		final AbstractJClass PARCEL = getJClass("android.os.Parcel");
+		final AbstractJClass PARCELABLE = getJClass("android.os.Parcelable");
+		final AbstractJClass Model = getGeneratedClass();
+		
+		final UseModel useModel = adiHelper.getAnnotation(getAnnotatedElement(), UseModel.class);
+		if (useModel == null || !useModel.parcelable()) {
+			return;
+		}
+		
+		if (TypeUtils.isSubtype(getAnnotatedElement(), PARCELABLE.fullName(), environment().getProcessingEnvironment())) {
+			return;
+		}
+		
+		getGeneratedClass()._implements(PARCELABLE);
+		
+		JMethod describeContentsMethod = getGeneratedClass().method(JMod.PUBLIC, getCodeModel().INT, "describeContents");
+		describeContentsMethod.annotate(Override.class);
+		describeContentsMethod.body()._return(lit(0));
+		
+		writeToParcelMethod = getGeneratedClass().method(JMod.PUBLIC, getCodeModel().VOID, "writeToParcel");
+		writeToParcelMethod.annotate(Override.class);
+		JVar dest = writeToParcelMethod.param(PARCEL, "dest");
+		writeToParcelMethod.param(getCodeModel().INT, "flags");
+		
+		readFromParcelMethod = getGeneratedClass().method(JMod.PRIVATE, getCodeModel().VOID, "readFromParcel");
+		JVar in = readFromParcelMethod.param(PARCEL, "in");
+		
+		//The class loader is needed to read values written with writeValue (ex. the id of LocalDB models)
+		JVar classLoader = readFromParcelMethod.body().decl(
+				getJClass(ClassLoader.class), "classLoader", dotclass(Model).invoke("getClassLoader")
+			);
+		
+		for (Entry<String, Element> field : getFields().entrySet()) {
+			final String fieldName = field.getKey();
+			final String fieldClass = field.getValue().asType().toString();
+			
+			final JFieldRef fieldRef = ref(fieldName);
+			final JBlock writeBlock = writeToParcelMethod.body();
+			final JBlock readBlock = readFromParcelMethod.body();
+			
+			switch (fieldClass) {
+			case "boolean":
+				writeBlock.invoke(dest, "writeInt").arg(JExpr.cond(fieldRef, lit(1), lit(0)));
+				readBlock.assign(fieldRef, in.invoke("readInt").ne(lit(0)));
+				break;
+				
+			case "int":
+				writeBlock.invoke(dest, "writeInt").arg(fieldRef);
+				readBlock.assign(fieldRef, in.invoke("readInt"));
+				break;
+				
+			case "short":
+				writeBlock.invoke(dest, "writeInt").arg(fieldRef);
+				readBlock.assign(fieldRef, cast(getCodeModel().SHORT, in.invoke("readInt")));
+				break;
+				
+			case "char":
+				writeBlock.invoke(dest, "writeInt").arg(fieldRef);
+				readBlock.assign(fieldRef, cast(getCodeModel().CHAR, in.invoke("readInt")));
+				break;
+				
+			case "byte":
+				writeBlock.invoke(dest, "writeByte").arg(fieldRef);
+				readBlock.assign(fieldRef, in.invoke("readByte"));
+				break;
+				
+			case "long":
+				writeBlock.invoke(dest, "writeLong").arg(fieldRef);
+				readBlock.assign(fieldRef, in.invoke("readLong"));
+				break;
+				
+			case "float":
+				writeBlock.invoke(dest, "writeFloat").arg(fieldRef);
+				readBlock.assign(fieldRef, in.invoke("readFloat"));
+				break;
+				
+			case "double":
+				writeBlock.invoke(dest, "writeDouble").arg(fieldRef);
+				readBlock.assign(fieldRef, in.invoke("readDouble"));
+				break;
+				
+			case "java.lang.String":
+				writeBlock.invoke(dest, "writeString").arg(fieldRef);
+				readBlock.assign(fieldRef, in.invoke("readString"));
+				break;
+				
+			default:
+				//Unresolved types (ex. generated models) are skipped, as in writeObject()
+				if (!fieldClass.contains(".")) break;
+				
+				//Other objects are written as Serializables, this keeps their classes (ex. a LinkedList 
+				//or an array of models) and the references between them (ex. cycles of models)
+				AbstractJClass fieldJClass = codeModelHelper.elementTypeToJClass(field.getValue());
+				IJExpression serializable = fieldRef;
+				if (!TypeUtils.isSubtype(field.getValue(), Serializable.class.getCanonicalName(), environment().getProcessingEnvironment())) {
+					serializable = cast(getJClass(Serializable.class), cast(getJClass(Object.class), fieldRef));
+				}
+				
+				writeBlock.invoke(dest, "writeSerializable").arg(serializable);
+				readBlock.assign(fieldRef, cast(fieldJClass, in.invoke("readSerializable")));
+			}
+		}
+		
+		//CREATOR
+		JDefinedClass anonymousCreator = getCodeModel().anonymousClass(getJClass("android.os.Parcelable.Creator").narrow(Model));
+		
+		JMethod createFromParcelMethod = anonymousCreator.method(JMod.PUBLIC, Model, "createFromParcel");
+		createFromParcelMethod.annotate(Override.class);
+		JVar source = createFromParcelMethod.param(PARCEL, "in");
+		JVar model = createFromParcelMethod.body().decl(Model, "model", _new(Model));
+		createFromParcelMethod.body().invoke(model, readFromParcelMethod).arg(source);
+		createFromParcelMethod.body()._return(model);
+		
+		JMethod newArrayMethod = anonymousCreator.method(JMod.PUBLIC, Model.array(), "newArray");
+		newArrayMethod.annotate(Override.class);
+		JVar size = newArrayMethod.param(getCodeModel().INT, "size");
+		newArrayMethod.body()._return(JExpr.newArray(Model, size));
+		
+		getGeneratedClass().field(
+				JMod.PUBLIC | JMod.STATIC | JMod.FINAL, 
+				getJClass("android.os.Parcelable.Creator").narrow(Model), 
+				"CREATOR", _new(anonymousCreator)
+			);
+	}
+	
+	private void setCopy() {
+		
+		final Elements elementUtils = environment().getProcessingEnvironment().getElementUtils();
+		final PackageElement modelPackage = elementUtils.getPackageOf(getAnnotatedElement());
+		
+		//Same fields copied by CastUtility, which are accessible from the generated class
+		List<String> copyFields = new LinkedList<>();
+		
+		TypeElement element = getAnnotatedElement();
+		while (element != null && !element.asType().toString().equals(Object.class.getCanonicalName())) {
+			
+			for (Element elem : element.getEnclosedElements()) {
+				if (elem.getKind() != ElementKind.FIELD) continue;
+				
+				final Set<Modifier> modifiers = elem.getModifiers();
+				if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) 
+					|| modifiers.contains(Modifier.FINAL) || elem.getAnnotation(CopyIgnore.class) != null) continue;
+				
+				if (modifiers.contains(Modifier.PRIVATE)) return;
+				if (!modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.PROTECTED) 
+					&& !elementUtils.getPackageOf(element).equals(modelPackage)) return;
+				
+				final String fieldName = elem.getSimpleName().toString();
+				if (!copyFields.contains(fieldName)) {
+					copyFields.add(fieldName);
+				}
+			}
+			
+			TypeMirror superType = element.getSuperclass();
+			if (!(superType instanceof DeclaredType)) break;
+			element = (TypeElement) ((DeclaredType) superType).asElement();
+		}
+		
+		copyMethod = getGeneratedClass().method(JMod.PUBLIC | JMod.STATIC, getCodeModel().VOID, "copy_");
+		JVar from = copyMethod.param(getGeneratedClass(), "from");
+		JVar to = copyMethod.param(getGeneratedClass(), "to");
+		
+		for (String fieldName : copyFields) {
+			copyMethod.body().assign(to.ref(fieldName), from.ref(fieldName));
+		}
+	}
+	
 	private void getFieldsPlusGettersAndSetters() {
 		
 		fields = new HashMap<>();
@@ -315,6 +579,11 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 						codeModelHelper.elementTypeToJClass(fieldElement),
 						getterName
 					);
+				
+				//Models loaded lazily are bound to the context when a bound field is accessed
+				if (isBoundInRebind(fieldElement)) {
+					getterMethod.body()._if(getRebindContextVar().ne(_null()))._then().invoke(getRebindIfNeededMethod());
+				}
 				getterMethod.body()._return(_this().ref(fieldName));
 				getters.put(fieldElement, getterMethod);				
 			}
@@ -326,6 +595,9 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 						getterIsName
 					).body();
 				
+				if (isBoundInRebind(fieldElement)) {
+					getterBody._if(getRebindContextVar().ne(_null()))._then().invoke(getRebindIfNeededMethod());
+				}
 				getterBody._return(_this().ref(fieldName));
 			}
 			
@@ -399,6 +671,89 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 		
 	}
 	
+	/**
+	 * Determines if the field is assigned when the model is bound to the context, so that
+	 * its getters should bind first the models loaded lazily. The fields which are only 
+	 * loaded (ex. columns or deserialized fields) are read directly
+	 */
+	private boolean isBoundInRebind(Element field) {
+		if (hasAfterInjectMethods()) return true;
+		
+		for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+			final String annotationName = annotation.getAnnotationType().toString();
+			if (annotationName.startsWith("com.activeandroid.annotation.")) continue;
+			if (annotationName.startsWith("com.google.gson.annotations.")) continue;
+			if (annotationName.equals(CopyIgnore.class.getCanonicalName())) continue;
+			if (annotationName.equals(CopyName.class.getCanonicalName())) continue;
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * The @AfterInject methods run when the model is bound, and they can assign any field
+	 */
+	private boolean hasAfterInjectMethods() {
+		if (hasAfterInjectMethods == null) {
+			hasAfterInjectMethods = false;
+			
+			TypeElement element = getAnnotatedElement();
+			while (element != null && !element.asType().toString().equals(Object.class.getCanonicalName())) {
+				for (Element elem : element.getEnclosedElements()) {
+					if (elem.getKind() == ElementKind.METHOD && adiHelper.hasAnnotation(elem, AfterInject.class)) {
+						hasAfterInjectMethods = true;
+						return true;
+					}
+				}
+				
+				TypeMirror superType = element.getSuperclass();
+				if (!(superType instanceof DeclaredType)) break;
+				element = (TypeElement) ((DeclaredType) superType).asElement();
+			}
+		}
+		
+		return hasAfterInjectMethods;
+	}
+	
+	private void setLazyRebind() {
+		//The context is cleared once the model was bound, so that the threads which read it
+		//as null see all the fields assigned by the binding
+		rebindContextVar = getGeneratedClass().field(JMod.PRIVATE | JMod.TRANSIENT | JMod.VOLATILE, CONTEXT, "_rebindContext");
+		rebindFullInitVar = getGeneratedClass().field(JMod.PRIVATE | JMod.TRANSIENT, getCodeModel().BOOLEAN, "_rebindFullInit");
+		rebindInProgressVar = getGeneratedClass().field(JMod.PRIVATE | JMod.TRANSIENT, getCodeModel().BOOLEAN, "_rebindInProgress");
+		
+		//Marks the model to be bound to the context the first time it is needed
+		rebindLazilyMethod = getGeneratedClass().method(JMod.PUBLIC, getCodeModel().VOID, rebindLazilyName());
+		JVar context = rebindLazilyMethod.param(CONTEXT, "context");
+		JVar fullInit = rebindLazilyMethod.param(getCodeModel().BOOLEAN, "fullInit");
+		rebindLazilyMethod.body().assign(rebindFullInitVar, fullInit);
+		rebindLazilyMethod.body().assign(rebindContextVar, context);
+		
+		//Moves the lazy binding to another context (ex. a copy of a cached model), keeping the init mode
+		JMethod rebindLazilyToContextMethod = getGeneratedClass().method(JMod.PUBLIC, getCodeModel().VOID, rebindLazilyName());
+		JVar otherContext = rebindLazilyToContextMethod.param(CONTEXT, "context");
+		rebindLazilyToContextMethod.body().assign(rebindContextVar, otherContext);
+		
+		rebindIfNeededMethod = getGeneratedClass().method(JMod.PUBLIC, getCodeModel().VOID, "rebindIfNeeded");
+		JBlock block = rebindIfNeededMethod.body();
+		block._if(rebindContextVar.eq(_null()))._then()._return();
+		
+		//Only one thread binds the model, the getters called while binding it don't bind it again
+		JBlock syncBlock = block.synchronizedBlock(_this()).body();
+		syncBlock._if(rebindContextVar.eq(_null()).cor(rebindInProgressVar))._then()._return();
+		syncBlock.assign(rebindInProgressVar, JExpr.TRUE);
+		
+		JTryBlock tryBlock = syncBlock._try();
+		tryBlock.body().assign(getFullInitVar(), rebindFullInitVar);
+		tryBlock.body().invoke("rebind").arg(rebindContextVar);
+		tryBlock._finally().assign(getFullInitVar(), JExpr.FALSE);
+		tryBlock._finally().assign(rebindInProgressVar, JExpr.FALSE);
+		
+		syncBlock.assign(rebindContextVar, _null());
+	}
+	
 	private void setExistenceStructure() {
 		try {
 			fullInitVar = getGeneratedClass().field(JMod.PUBLIC | JMod.TRANSIENT, getCodeModel().BOOLEAN, "_fullInit", JExpr.FALSE);
@@ -527,6 +882,53 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 		return putModelInitBlock;
 	}
 	
+	/**
+	 * Block executed always after putting the model, even if it failed
+	 */
+	public JBlock getPutModelFinallyBlock() {
+		if (putModelFinallyBlock == null) {
+			setPutModel();
+		}
+		return putModelFinallyBlock;
+	}
+	
+	public JMethod getPutModelListMethod() {
+		if (putModelListMethod == null) {
+			setPutModelList();
+		}
+		return putModelListMethod;
+	}
+	
+	/**
+	 * Block executed before putting all the models of the list
+	 */
+	public JBlock getPutModelListBeforeBlock() {
+		if (putModelListBeforeBlock == null) {
+			setPutModelList();
+		}
+		return putModelListBeforeBlock;
+	}
+	
+	/**
+	 * Block executed after all the models of the list were put successfully
+	 */
+	public JBlock getPutModelListSuccessBlock() {
+		if (putModelListSuccessBlock == null) {
+			setPutModelList();
+		}
+		return putModelListSuccessBlock;
+	}
+	
+	/**
+	 * Block executed always after putting the models of the list, even if it failed
+	 */
+	public JBlock getPutModelListFinallyBlock() {
+		if (putModelListFinallyBlock == null) {
+			setPutModelList();
+		}
+		return putModelListFinallyBlock;
+	}
+	
 	public JMethod getConstructorMethod() {
 		if (constructorMethod == null) {
 			setConstructor();
@@ -553,6 +955,10 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 		return "putModel_";
 	}
 	
+	public static String putModelListName() {
+		return "putModelList_";
+	}
+	
 	public static String getModelListName() {
 		return "getModelList_";
 	}
@@ -655,9 +1061,37 @@ public class UseModelHolder extends PluginClassHolder<BaseGeneratedClassHolder>
 
 		JBlock putModelMethodBody = putModelMethod.body(); 
 		JVar result = putModelMethodBody.decl(OBJECT, "result", _new(OBJECT));
-		putModelInitBlock = putModelMethodBody.block();
+		
+		JTryBlock tryBlock = putModelMethodBody._try();
+		putModelInitBlock = tryBlock.body().block();
+		putModelFinallyBlock = tryBlock._finally();
 				
 		putModelMethodBody._return(result);
 	}
+	
+	private void setPutModelList() {
+		putModelListMethod = getGeneratedClass().method(JMod.PUBLIC | JMod.STATIC, OBJECT, putModelListName());
+		JVar models = putModelListMethod.param(LIST.narrow(OBJECT.wildcard()), "models");
+		JVar args = putModelListMethod.param(MAP, "args");
+		
+		JBlock putModelListMethodBody = putModelListMethod.body();
+		JVar result = putModelListMethodBody.decl(OBJECT, "result", _new(OBJECT));
+		putModelListBeforeBlock = putModelListMethodBody.block();
+		
+		JTryBlock tryBlock = putModelListMethodBody._try();
+		JForEach forEach = tryBlock.body().forEach(OBJECT, "model", models);
+		
+		//The put stops in the first model that fails
+		JBlock ifNotPut = forEach.body()._if(
+				cast(getGeneratedClass(), forEach.var()).invoke(getPutModelMethod()).arg(args).eq(_null())
+			)._then();
+		ifNotPut.assign(result, _null());
+		ifNotPut._break();
+		
+		putModelListSuccessBlock = tryBlock.body()._if(result.ne(_null()))._then();
+		putModelListFinallyBlock = tryBlock._finally();
+		
+		putModelListMethodBody._return(result);
+	}
 
 }
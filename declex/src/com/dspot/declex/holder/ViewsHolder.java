@@ -56,6 +56,7 @@ import com.dspot.declex.api.injection.NotFoundProperty;
 import com.dspot.declex.api.injection.Property;
 import com.dspot.declex.helper.ViewsHelper;
 import com.dspot.declex.helper.ViewsPropertiesReaderHelper;
+import com.dspot.declex.parser.LayoutsParser.LayoutNode;
 import com.dspot.declex.parser.LayoutsParser.LayoutObject;
 import com.dspot.declex.parser.MenuParser;
 import com.dspot.declex.util.DeclexConstant;
@@ -401,17 +402,17 @@ public class ViewsHolder extends
 		return layoutObjects.get(layoutId).get(id).className;
 	}
 
-	public org.w3c.dom.Element getDomElementFromId(String id) {
-		return getDomElementFromId(id, null);
+	public LayoutNode getLayoutNodeFromId(String id) {
+		return getLayoutNodeFromId(id, null);
 	}
 
-	public org.w3c.dom.Element getDomElementFromId(String id, String layoutId) {
+	public LayoutNode getLayoutNodeFromId(String id, String layoutId) {
 		if (layoutId == null)
 			layoutId = defLayoutId;
 		if (layoutId == null)
 			return null;
 
-		return layoutObjects.get(layoutId).get(id).domElement;
+		return layoutObjects.get(layoutId).get(id).node;
 	}
 	
 	private Map<String, LayoutObject> getLayoutObjects(String layoutId) {
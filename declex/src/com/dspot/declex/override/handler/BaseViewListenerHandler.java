@@ -49,6 +49,7 @@ import com.dspot.declex.annotation.UseModel;
 import com.dspot.declex.handler.RunWithHandler;
 import com.dspot.declex.holder.ViewsHolder;
 import com.dspot.declex.holder.ViewsHolder.IdInfoHolder;
+import com.dspot.declex.parser.LayoutsParser.LayoutNode;
 import com.dspot.declex.util.ParamUtils;
 import com.dspot.declex.util.TypeUtils;
 import org.androidannotations.internal.virtual.VirtualElement;
@@ -258,7 +259,7 @@ public class BaseViewListenerHandler extends RunWithHandler<EComponentWithViewSu
 				
 				for (String name : names) {
 					//Read the Layout from the XML file
-					org.w3c.dom.Element node = viewsHolder.getDomElementFromId(name);
+					LayoutNode node = viewsHolder.getLayoutNodeFromId(name);
 					if (node != null && node.hasAttribute("tools:listitem")) {
 						final String defLayoutId = viewsHolder.getDefLayoutId();
 						
@@ -23,6 +23,7 @@ import com.dspot.declex.api.action.process.ActionInfo;
 import com.dspot.declex.api.action.process.ActionMethodParam;
 import com.dspot.declex.api.action.processor.ActivityActionProcessor;
 import com.dspot.declex.util.JavaDocUtils;
+import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
 import com.dspot.declex.util.TypeUtils.ClassInformation;
 import com.helger.jcodemodel.*;
@@ -159,6 +160,7 @@ public class ActivityActionHolder extends PluginClassHolder<EActivityHolder> {
 			
 			ActivityAction = getCodeModel()._class(actionName);
 			ActivityAction._extends(BaseActivityActionHolder.class);
+			SharedRecords.addOriginatingElement(actionName, holder().getAnnotatedElement());
 			ActivityAction.annotate(EBean.class);
 			
 			JAnnotationUse actionFor = ActivityAction.annotate(ActionFor.class);
@@ -47,6 +47,7 @@ import com.dspot.declex.api.action.process.ActionMethodParam;
 import com.dspot.declex.override.helper.DeclexAPTCodeModelHelper;
 import com.dspot.declex.util.DeclexConstant;
 import com.dspot.declex.util.JavaDocUtils;
+import com.dspot.declex.util.SharedRecords;
 import com.dspot.declex.util.TypeUtils;
 import com.helger.jcodemodel.AbstractJClass;
 import com.helger.jcodemodel.JAnnotationUse;
@@ -187,6 +188,7 @@ public class FragmentActionHolder extends PluginClassHolder<EFragmentHolder> {
 
 				FragmentAction = getCodeModel()._class(actionName);
 				FragmentAction.annotate(EBean.class);
+				SharedRecords.addOriginatingElement(actionName, holder().getAnnotatedElement());
 				JAnnotationUse actionFor = FragmentAction.annotate(ActionFor.class);
 				actionFor.param("timeConsuming", false);	
 				actionFor.param("value", fragmentName);		
@@ -16,7 +16,12 @@
 package com.dspot.declex.parser;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -24,35 +29,57 @@ import java.util.TreeMap;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.TypeElement;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.logger.Logger;
 import org.androidannotations.rclass.IRClass.Res;
 import org.androidannotations.rclass.IRInnerClass;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 import com.dspot.declex.util.FileUtils;
+import com.dspot.declex.util.ProcessingSession;
 import com.dspot.declex.util.TypeUtils;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 
 public class LayoutsParser {
 	
+	private static final String CACHE_FILE_NAME = "layouts.bin";
+	
+	private static final int CACHE_VERSION = 1;
+	
+	private static final String NAVIGATION_VIEW = "android.support.design.widget.NavigationView";
+	
+	//<Layout file path, Parsed layout>, it is shared between compilations
+	private static final Map<String, ParsedLayout> PARSED_LAYOUTS = new HashMap<>();
+	private static boolean parsedLayoutsLoaded;
+	private static boolean parsedLayoutsModified;
+	
 	private Logger LOGGER;
 	
 	private Map<String, Map<String, LayoutObject>> layoutMaps = new HashMap<>();
 
 	private List<File> layoutFolders = new LinkedList<File>();
 	
+	//<Layout name, Layout files in all the layout folders>
+	private Map<String, List<File>> layoutFiles = new HashMap<>();
+	
+	//<Tag name, Canonical name of the class>
+	private Map<String, String> tagClassNames = new HashMap<>();
+	
+	//<Canonical name of the class, Is NavigationView>
+	private Map<String, Boolean> navigationViews = new HashMap<>();
+	
+	private XMLInputFactory xmlInputFactory;
+	
 	private ProcessingEnvironment processingEnv;
 	private AndroidAnnotationsEnvironment environment;
 	
-	private static LayoutsParser instance;
-	
 	public static LayoutsParser getInstance() {
-		return instance;
+		return ProcessingSession.get().getInstance(LayoutsParser.class);
 	}
 	
 	public LayoutsParser(AndroidAnnotationsEnvironment environment, Logger logger) {
@@ -74,9 +101,32 @@ public class LayoutsParser {
 		} else {
 			LOGGER.info("Layout Folders Not Found");
 		}
-			
 		
-		LayoutsParser.instance = this;
+		//Index all the layouts files by name 
+		for (File layout : layoutFolders) {
+			for (File file : layout.listFiles()) {
+				if (file.isFile() && file.getName().endsWith(".xml")) {
+					final String layoutName = file.getName().substring(0, file.getName().length() - 4);
+					
+					List<File> files = layoutFiles.get(layoutName);
+					if (files == null) {
+						files = new LinkedList<>();
+						layoutFiles.put(layoutName, files);
+					}
+					
+					files.add(file);
+				}
+			}
+		}
+		
+		synchronized (PARSED_LAYOUTS) {
+			if (!parsedLayoutsLoaded) {
+				readCache();
+				parsedLayoutsLoaded = true;
+			}
+		}
+		
+		ProcessingSession.get().setInstance(LayoutsParser.class, this);
 	}
 	
 	public Map<String, LayoutObject> getLayoutObjects(String layoutName) {
@@ -87,20 +137,20 @@ public class LayoutsParser {
 		Map<String, LayoutObject> layoutObjects = layoutMaps.get(layoutName);
 		
 		if (layoutObjects == null) {
-			for (File layout : layoutFolders) {
-				for (File file : layout.listFiles()) {
-					if (file.isFile() && file.getName().equals(layoutName + ".xml")) {
-						
-						layoutObjects = parseLayout(file, layoutId);
-						
-						if (layoutMaps.containsKey(layoutName)) {
-							//Merge layouts
-							layoutMaps.get(layoutName).putAll(layoutObjects);
-						} else {						
-							layoutMaps.put(layoutName, layoutObjects);
-						}
-						
+			List<File> files = layoutFiles.get(layoutName);
+			if (files != null) {
+				for (File file : files) {
+					
+					Map<String, LayoutObject> fileLayoutObjects = getLayoutObjects(file, layoutId);
+					
+					if (layoutObjects != null) {
+						//Merge layouts
+						layoutObjects.putAll(fileLayoutObjects);
+					} else {
+						layoutObjects = fileLayoutObjects;
+						layoutMaps.put(layoutName, layoutObjects);
 					}
+					
 				}
 			}
 		}
@@ -108,15 +158,10 @@ public class LayoutsParser {
 		return layoutObjects;
 	}
 	
-	private void searchInNode(Element node, Map<String, LayoutObject> foundObjects, String layoutId) {
-		//documentElement.normalize();
+	private void searchInNode(LayoutNode node, Map<String, LayoutObject> foundObjects, String layoutId) {
 		
-		final String[] packages = {
-				"android.widget.", "android.view.", "android.webkit."
-		};
-				
 		//Navigate in the <include> tag
-		if (node.getTagName().equals("include")) {
+		if (node.tagName.equals("include")) {
 			if (node.hasAttribute("layout")) {
 
 				String id = null;
@@ -148,7 +193,7 @@ public class LayoutsParser {
 			}
 			
 			//Support for "fragment" tag
-			if (node.getTagName().equals("fragment")) {
+			if (node.tagName.equals("fragment")) {
 				if (node.hasAttribute("android:name")) {
 					String fragmentClassName = node.getAttribute("android:name");
 					if (containsField(id, Res.ID))	{
@@ -171,26 +216,14 @@ public class LayoutsParser {
 				return;
 			}
 			
-			String className = node.getTagName();
-			
-			//Find canonical name of the class if needed
-			if (!className.contains(".")) {
-				for (String pkg : packages) {
-					String testName = pkg + className;
-					TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(testName);
-					if (typeElement != null) {
-						className = testName;
-						break;
-					}
-				}
-			}
+			final String className = getClassNameForTag(node.tagName);
 			
 			if (containsField(id, Res.ID))	{
 				LayoutObject layoutObject = new LayoutObject(className, node);
 				foundObjects.put(id, layoutObject);
 				
 				//Support for new NavigationView
-				if (TypeUtils.isSubtype(className, "android.support.design.widget.NavigationView", processingEnv)) {
+				if (isNavigationView(className)) {
 					if (node.hasAttribute("app:headerLayout")) {
 						String layoutName = node.getAttribute("app:headerLayout");
 						layoutName = layoutName.substring(layoutName.lastIndexOf('/') + 1);
@@ -204,53 +237,222 @@ public class LayoutsParser {
 						foundObjects.putAll(headerLayoutObjects);
 					}
 				}
+			}
+		}		
+		
+		for (LayoutNode child : node.children) {
+			searchInNode(child, foundObjects, null);
+		}
+	}
+	
+	/**
+	 * Finds the canonical name of the class for a tag, the result is cached since it
+	 * requires looking up the class in several packages
+	 */
+	private String getClassNameForTag(String tagName) {
+		
+		String className = tagClassNames.get(tagName);
+		if (className == null) {
+			className = tagName;
+			
+			if (!className.contains(".")) {
+				final String[] packages = {
+						"android.widget.", "android.view.", "android.webkit."
+				};
 				
-				if (TypeUtils.isSubtype(className, "android.support.design.widget.NavigationView", processingEnv)) {
-					if (node.hasAttribute("app:headerLayout")) {
-						String layoutName = node.getAttribute("app:headerLayout");
-						layoutName = layoutName.substring(layoutName.lastIndexOf('/') + 1);
-				
-						Map<String, LayoutObject> headerLayoutObjects = getLayoutObjects(layoutName);
-						
-						for (LayoutObject headerLayoutObject : headerLayoutObjects.values()) {
-							headerLayoutObject.holderId = id;
-						}
-						
-						foundObjects.putAll(headerLayoutObjects);
+				for (String pkg : packages) {
+					String testName = pkg + tagName;
+					TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(testName);
+					if (typeElement != null) {
+						className = testName;
+						break;
 					}
 				}
 			}
-		}		
+			
+			tagClassNames.put(tagName, className);
+		}
+		
+		return className;
+	}
+	
+	private boolean isNavigationView(String className) {
+		Boolean isNavigationView = navigationViews.get(className);
+		if (isNavigationView == null) {
+			isNavigationView = TypeUtils.isSubtype(className, NAVIGATION_VIEW, processingEnv);
+			navigationViews.put(className, isNavigationView);
+		}
+		
+		return isNavigationView;
+	}
+	
+	private Map<String, LayoutObject> getLayoutObjects(File xmlLayoutFile, String layoutId) {
 		
-		NodeList nodes = node.getChildNodes();
-		for (int i = 0; i < nodes.getLength(); i++) 
-			if (nodes.item(i) instanceof Element){
-			searchInNode((Element)nodes.item(i), foundObjects, null);
+		LayoutNode documentNode = getLayoutNode(xmlLayoutFile);
+		if (documentNode == null) return new HashMap<>();
+		
+		Map<String, LayoutObject> foundObjects = new TreeMap<>();
+		searchInNode(documentNode, foundObjects, layoutId);
+		
+		LOGGER.info("Layout Parsing Found: " + foundObjects);
+		
+		return foundObjects;
+	}
+	
+	/**
+	 * Gets the root node of a layout file. The file is parsed only if it was
+	 * modified since the last time it was parsed
+	 */
+	private LayoutNode getLayoutNode(File xmlLayoutFile) {
+		
+		final String path = xmlLayoutFile.getAbsolutePath();
+		final long lastModified = xmlLayoutFile.lastModified();
+		final long length = xmlLayoutFile.length();
+		
+		synchronized (PARSED_LAYOUTS) {
+			ParsedLayout parsedLayout = PARSED_LAYOUTS.get(path);
+			if (parsedLayout != null && parsedLayout.lastModified == lastModified && parsedLayout.length == length) {
+				return parsedLayout.documentNode;
+			}
+		}
+		
+		LayoutNode documentNode = parseLayout(xmlLayoutFile);
+		if (documentNode != null) {
+			ParsedLayout parsedLayout = new ParsedLayout();
+			parsedLayout.lastModified = lastModified;
+			parsedLayout.length = length;
+			parsedLayout.documentNode = documentNode;
+			
+			synchronized (PARSED_LAYOUTS) {
+				PARSED_LAYOUTS.put(path, parsedLayout);
+				parsedLayoutsModified = true;
+			}
 		}
+		
+		return documentNode;
 	}
 	
-	private Map<String, LayoutObject> parseLayout(File xmlLayoutFile, String layoutId) {
+	private LayoutNode parseLayout(File xmlLayoutFile) {
 		LOGGER.info("Layout Parsing: " + xmlLayoutFile.getName());
 		
-		DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-
-		Document doc;
+		if (xmlInputFactory == null) {
+			xmlInputFactory = XMLInputFactory.newInstance();
+			xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		}
+		
 		try {
-			DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-			doc = docBuilder.parse(xmlLayoutFile);
+			InputStream in = new FileInputStream(xmlLayoutFile);
+			try {
+				XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+				
+				LayoutNode documentNode = null;
+				LinkedList<LayoutNode> parents = new LinkedList<>();
+				
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: 
+						LayoutNode node = new LayoutNode(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+						
+						//Only the attributes of the nodes which can be referenced are kept
+						if (documentNode == null || node.tagName.equals("include") || node.tagName.equals("fragment")
+							|| hasIdAttribute(reader)) {
+							
+							node.attributes = new LinkedHashMap<>();
+							for (int i = 0; i < reader.getAttributeCount(); i++) {
+								node.attributes.put(
+									qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), 
+									reader.getAttributeValue(i)
+								);
+							}
+						}
+						
+						if (documentNode == null) {
+							documentNode = node;
+						} else {
+							parents.getLast().children.add(node);
+						}
+						
+						parents.add(node);
+						break;
+						
+					case XMLStreamConstants.END_ELEMENT:
+						parents.removeLast();
+						break;
+					}
+				}
+				
+				reader.close();
+				
+				return documentNode;
+				
+			} finally {
+				in.close();
+			}
+			
 		} catch (Exception e) {
 			LOGGER.error("Could not parse Layout file at path {}", xmlLayoutFile.getName(), e);
-			return new HashMap<>();
+			return null;
 		}
-
-		Map<String, LayoutObject> foundObjects = new TreeMap<>();
-		Element documentElement = doc.getDocumentElement();
+	}
+	
+	private boolean hasIdAttribute(XMLStreamReader reader) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			if (reader.getAttributeLocalName(i).equals("id")) return true;
+		}
+		return false;
+	}
+	
+	private String qualifiedName(String prefix, String localName) {
+		if (prefix == null || prefix.isEmpty()) return localName;
+		return prefix + ":" + localName;
+	}
+	
+	/**
+	 * Persists the parsed layouts, so they can be reused in the next compilations
+	 */
+	public void writeCache() {
 		
-		searchInNode(documentElement, foundObjects, layoutId);
+		synchronized (PARSED_LAYOUTS) {
+			if (!parsedLayoutsModified) return;
+			
+			try {
+				File cacheFile = new File(FileUtils.getConfigFile("cache", processingEnv), CACHE_FILE_NAME);
+				Output output = new Output(new FileOutputStream(cacheFile));
+				try {
+					output.writeInt(CACHE_VERSION);
+					new Kryo().writeObject(output, new HashMap<>(PARSED_LAYOUTS));
+				} finally {
+					output.close();
+				}
+				
+				parsedLayoutsModified = false;
+				
+			} catch (Throwable e) {
+				LOGGER.warn("Layouts cache couldn't be written: {}", e.getMessage());
+			}
+		}
 		
-		LOGGER.info("Layout Parsing Found: " + foundObjects);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readCache() {
+		
+		File cacheFile = new File(FileUtils.getConfigFile("cache", processingEnv), CACHE_FILE_NAME);
+		if (!cacheFile.exists()) return;
+		
+		try {
+			Input input = new Input(new FileInputStream(cacheFile));
+			try {
+				if (input.readInt() != CACHE_VERSION) return;
+				PARSED_LAYOUTS.putAll(new Kryo().readObject(input, HashMap.class));
+			} finally {
+				input.close();
+			}
+		} catch (Throwable e) {
+			//The cache is discarded, it will be created again
+			PARSED_LAYOUTS.clear();
+		}
 		
-		return foundObjects;
 	}
 	
 	private boolean containsField(String name, Res res) {
@@ -258,15 +460,52 @@ public class LayoutsParser {
 		return rInnerClass.containsField(name);
 	}
 	
+	private static class ParsedLayout {
+		long lastModified;
+		long length;
+		LayoutNode documentNode;
+	}
+	
+	/**
+	 * Node of a parsed layout. Only the information needed by DecleX is extracted from 
+	 * the layout files
+	 */
+	public static class LayoutNode {
+		public String tagName;
+		
+		//Attributes by qualified name, null if they weren't extracted 
+		public Map<String, String> attributes;
+		
+		public List<LayoutNode> children = new ArrayList<>(0);
+		
+		LayoutNode() {}
+		
+		LayoutNode(String tagName) {
+			this.tagName = tagName;
+		}
+		
+		public boolean hasAttribute(String name) {
+			return attributes != null && attributes.containsKey(name);
+		}
+		
+		/**
+		 * @return the value of the attribute, or an empty string if it doesn't exist
+		 */
+		public String getAttribute(String name) {
+			String value = attributes == null ? null : attributes.get(name);
+			return value == null ? "" : value;
+		}
+	}
+	
 	public static class LayoutObject {
 		public String className;
-		public Element domElement;
+		public LayoutNode node;
 		
 		public String holderId; //Used by NavigationView
 		
-		public LayoutObject(String className, Element domElement) {
+		public LayoutObject(String className, LayoutNode node) {
 			this.className = className;
-			this.domElement = domElement;
+			this.node = node;
 		}
 		
 		@Override
@@ -35,6 +35,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import com.dspot.declex.util.FileUtils;
+import com.dspot.declex.util.ProcessingSession;
 
 public class MenuParser {
 	private Logger LOGGER;
@@ -46,10 +47,8 @@ public class MenuParser {
 	private ProcessingEnvironment processingEnv;
 	private AndroidAnnotationsEnvironment environment;
 	
-	private static MenuParser instance;
-	
 	public static MenuParser getInstance() {
-		return instance;
+		return ProcessingSession.get().getInstance(MenuParser.class);
 	}
 	
 	public MenuParser(AndroidAnnotationsEnvironment environment, Logger logger) {
@@ -73,7 +72,7 @@ public class MenuParser {
 			LOGGER.info("Menu Folders Not Found");
 		}
 		
-		MenuParser.instance = this;
+		ProcessingSession.get().setInstance(MenuParser.class, this);
 	}
 	
 	public List<String> getMenuObjects(String menuName) {
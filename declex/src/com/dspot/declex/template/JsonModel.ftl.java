@@ -18,11 +18,14 @@
 <@class_head>
 package com.dspot.declex.localdb;
 
+import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +40,12 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 public class User extends Model {
 </@class_head>
@@ -46,6 +54,20 @@ public class User extends Model {
 	//						   @JsonModel
 	//============================================================
 
+	private final static Type modelListType = new TypeToken<java.util.List<${className}>>(){}.getType();
+	
+	private final static int MAX_CACHED_GSON_FOR_FIELDS = 16;
+	
+	private static volatile Gson cachedGson;
+	
+	//Gson instances excluding specific fields, by the normalized fields string
+	private final static Map<String, Gson> cachedGsonForFields = new LinkedHashMap<String, Gson>(MAX_CACHED_GSON_FOR_FIELDS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Gson> eldest) {
+			return size() > MAX_CACHED_GSON_FOR_FIELDS;
+		}
+	};
+
 	public String toJson() {
 		return this.toJson(null);
 	}
@@ -63,13 +85,11 @@ public class User extends Model {
 	}
 
 	public static List<${className}> listFromJson(String json) {
-		Type listType = new TypeToken<java.util.List<${className}>>(){}.getType();
-		return getGson().fromJson(json, listType);
+		return getGson().fromJson(json, modelListType);
 	}
 	
 	public static List<${className}> listFromJson(JsonElement jsonElement) {
-		Type listType = new TypeToken<java.util.List<${className}>>(){}.getType();
-		return getGson().fromJson(jsonElement, listType);
+		return getGson().fromJson(jsonElement, modelListType);
 	}
 	
 	private static Gson getGson() {
@@ -77,8 +97,239 @@ public class User extends Model {
 	}
 	
 	private static Gson getGson(${className} inst, String fields) {
-		return getGsonBuilder(inst, fields).create();		
+		<#if !jsonTypeAdapter && (jsonSerializedModels?size > 0)>
+		//The exclusion strategy keeps the state of the serialization of the nested models,
+		//so the Gson instances cannot be shared between serializations
+		return getGsonBuilder(inst, fields).create();
+		<#else>
+		<#if !jsonTypeAdapter && (serializeConditions?size > 0)>
+		//The exclusion depends on the instance values, so it cannot be shared
+		if (inst != null) {
+			return getGsonBuilder(inst, fields).create();
+		}
+		
+		</#if>
+		fields = normalizeFields(fields);
+		
+		if (fields == null) {
+			Gson gson = cachedGson;
+			if (gson == null) {
+				gson = getGsonBuilder(null, null).create();
+				cachedGson = gson;
+			}
+			return gson;
+		}
+		
+		synchronized (cachedGsonForFields) {
+			Gson gson = cachedGsonForFields.get(fields);
+			if (gson == null) {
+				gson = getGsonBuilder(null, fields).create();
+				cachedGsonForFields.put(fields, gson);
+			}
+			return gson;
+		}
+		</#if>
+	}
+	
+	private static String normalizeFields(String fields) {
+		if (fields == null || fields.trim().equals("")) return null;
+		
+		List<String> fieldsList = new ArrayList<String>();
+		for (String field : fields.split("\\s*[,]\\s*")) {
+			field = field.trim();
+			if (!field.equals("") && !fieldsList.contains(field)) {
+				fieldsList.add(field);
+			}
+		}
+		
+		if (fieldsList.isEmpty()) return null;
+		java.util.Collections.sort(fieldsList);
+		
+		StringBuilder normalized = new StringBuilder();
+		for (String field : fieldsList) {
+			if (normalized.length() > 0) normalized.append(',');
+			normalized.append(field);
+		}
+		return normalized.toString();
+	}
+	<#if jsonTypeAdapter>
+	
+	public static class ModelTypeAdapterFactory implements TypeAdapterFactory {
+		
+		private String fields;
+		
+		public ModelTypeAdapterFactory(String fields) {
+			this.fields = fields;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+			if (type.getRawType() != ${className}.class) return null;
+			return (TypeAdapter<T>) new ModelTypeAdapter(gson, fields);
+		}
+		
+	}
+	
+	public static class ModelTypeAdapter extends TypeAdapter<${className}> {
+		
+		private Gson gson;
+		
+		//Fields to serialize, by field index
+		private BitSet includedFields = new BitSet(${jsonFields?size});
+		<#list jsonFields as field>
+		<#if field.kind == "object" || field.kind == "primitive">
+		private TypeAdapter<${field.type}> adapterFor_${field.name};
+		<#elseif field.kind == "model" || field.kind == "modelList">
+		private ${field.type}.ModelTypeAdapter adapterFor_${field.name};
+		</#if>
+		</#list>
+		
+		public ModelTypeAdapter(Gson gson, String fields) {
+			this.gson = gson;
+			<#list jsonFields as field>
+			<#if field.kind == "object" || field.kind == "primitive">
+			adapterFor_${field.name} = gson.getAdapter(new TypeToken<${field.type}>(){});
+			</#if>
+			</#list>
+			
+			List<String> fieldsList = null;
+			if (fields != null && !fields.trim().equals("")) {
+				fieldsList = Arrays.asList(fields.trim().split("\\s*[,]\\s*"));
+			}
+			
+			<#list jsonFields as field>
+			<#if field.projected>
+			if (fieldsList == null || fieldsList.contains("${field.name}")) includedFields.set(${field.index});
+			<#else>
+			includedFields.set(${field.index});
+			</#if>
+			</#list>
+		}
+		<#list jsonFields as field>
+		<#if field.kind == "model" || field.kind == "modelList">
+		
+		private ${field.type}.ModelTypeAdapter getAdapterFor_${field.name}() {
+			//Created lazily, since a model can contain itself
+			if (adapterFor_${field.name} == null) {
+				adapterFor_${field.name} = new ${field.type}.ModelTypeAdapter(gson, null);
+			}
+			return adapterFor_${field.name};
+		}
+		</#if>
+		<#if field.condition??>
+		
+		private static boolean skip_${field.name}(${className} inst) {
+			return ${field.condition};
+		}
+		</#if>
+		</#list>
+		
+		@Override
+		public void write(JsonWriter out, ${className} inst) throws IOException {
+			if (inst == null) {
+				out.nullValue();
+				return;
+			}
+			
+			out.beginObject();
+			<#list jsonFields as field>
+			
+			if (includedFields.get(${field.index})<#if field.condition??> && !skip_${field.name}(inst)</#if>) {
+				out.name("${field.serializedName}");
+				<#if field.kind == "object" || field.kind == "primitive">
+				adapterFor_${field.name}.write(out, inst.${field.name});
+				<#elseif field.kind == "model">
+				getAdapterFor_${field.name}().write(out, inst.${field.name});
+				<#elseif field.kind == "modelList">
+				if (inst.${field.name} == null) {
+					out.nullValue();
+				} else {
+					out.beginArray();
+					for (${field.type} model : inst.${field.name}) {
+						getAdapterFor_${field.name}().write(out, model);
+					}
+					out.endArray();
+				}
+				<#else>
+				out.value(inst.${field.name});
+				</#if>
+			}
+			</#list>
+			
+			out.endObject();
+		}
+		
+		@Override
+		public ${className} read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			
+			${className} inst = new ${className}();
+			
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+				<#list jsonFields as field>
+				case "${field.serializedName}":
+				<#list field.alternateNames as alternateName>
+				case "${alternateName}":
+				</#list>
+					if (!includedFields.get(${field.index})<#if field.condition??> || skip_${field.name}(null)</#if>) {
+						in.skipValue();
+						break;
+					}
+					
+					<#if field.kind == "object">
+					inst.${field.name} = adapterFor_${field.name}.read(in);
+					<#elseif field.kind == "model">
+					inst.${field.name} = getAdapterFor_${field.name}().read(in);
+					<#elseif field.kind == "modelList">
+					if (in.peek() == JsonToken.NULL) {
+						in.nextNull();
+						inst.${field.name} = null;
+					} else {
+						inst.${field.name} = new ArrayList<${field.type}>();
+						in.beginArray();
+						while (in.hasNext()) {
+							inst.${field.name}.add(getAdapterFor_${field.name}().read(in));
+						}
+						in.endArray();
+					}
+					<#else>
+					//Nulls are ignored for primitives
+					if (in.peek() == JsonToken.NULL) {
+						in.nextNull();
+					<#if field.kind == "primitive">
+					} else {
+						inst.${field.name} = adapterFor_${field.name}.read(in);
+					<#elseif field.kind == "boolean">
+					} else if (in.peek() == JsonToken.STRING) {
+						inst.${field.name} = Boolean.parseBoolean(in.nextString());
+					} else {
+						inst.${field.name} = in.nextBoolean();
+					<#else>
+					} else {
+						inst.${field.name} = in.next${field.kind?cap_first}();
+					</#if>
+					}
+					</#if>
+					break;
+					
+				</#list>
+				default:
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			
+			return inst;
+		}
+		
 	}
+	</#if>
 		
 	public static class ModelExclusionStrategy implements ExclusionStrategy {
 
@@ -93,14 +344,20 @@ public class User extends Model {
 		</#list>
 		</#if>
 		
-		private static ModelExclusionStrategy nullExclussionInstance;
+		<#if (jsonSerializedModels?size > 0)>
+		
+		public static ModelExclusionStrategy nullExclussion() {
+			//The strategy keeps the current exclusion, so it is not shared
+			return new ModelExclusionStrategy(null, null);
+		}
+		<#else>
+		
+		private final static ModelExclusionStrategy nullExclussionInstance = new ModelExclusionStrategy(null, null);
 		
 		public static ModelExclusionStrategy nullExclussion() {
-			if (nullExclussionInstance == null) {
-				nullExclussionInstance = new ModelExclusionStrategy(null, null);
-			}			
 			return nullExclussionInstance;
 		}
+		</#if>
 		<#if (jsonSerializedModels?size > 0)>
 		
 		private void initializeSerializedModels(${className} inst) {			
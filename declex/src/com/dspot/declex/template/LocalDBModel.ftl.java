@@ -19,14 +19,15 @@
 package com.dspot.declex.localdb;
 
 import java.lang.reflect.Field;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.activeandroid.util.SQLiteUtils;
+import com.activeandroid.ActiveAndroid;
 import com.activeandroid.Model;
 import com.activeandroid.query.From;
 import com.activeandroid.query.Select;
 import com.activeandroid.query.Delete;
+import com.dspot.declex.api.util.LazyRebind;
+import com.dspot.declex.api.util.QueryUtils;
 
 public class User extends Model {
 </@class_head>
@@ -45,21 +46,8 @@ public class User extends Model {
 			if (args.containsKey("orderBy")) orderBy = (String)args.get("orderBy");
 		}
 		
-		Matcher matcher = Pattern.compile("@(\\w+)\\(([^)]+)\\)").matcher(query);
-		while (matcher.find()) {
-			if (matcher.group(1).equals("db"))
-				query = query.replace(matcher.group(0), matcher.group(2));
-			else
-				query = query.replace(matcher.group(0), "");
-		}
-		
-		matcher = Pattern.compile("@(\\w+)\\(([^)]+)\\)").matcher(orderBy);
-		if (matcher.find()) {
-			if (matcher.group(1).equals("db"))
-				orderBy = orderBy.replace(matcher.group(0), matcher.group(2));
-			else
-				orderBy = orderBy.replace(matcher.group(0), "");
-		} 
+		query = QueryUtils.resolveDirectives(query, "db");
+		orderBy = QueryUtils.resolveFirstDirective(orderBy, "db");
 		
 		if (query.toLowerCase().trim().startsWith("select ")) {
 			java.util.List<${className}> models = SQLiteUtils.rawQuery(${className}.class, query, null);
@@ -121,18 +109,24 @@ public class User extends Model {
 			return this;
 		}
 		
+		<#if serverModel>
+		//The model is being put in a list, it will be saved with the other models of the list
+		final java.util.List<${className}> pendingModels = pendingLocalDBModels.get();
+		if (pendingModels != null) {
+			pendingModels.add(this);
+			return this;
+		}
+		
+		</#if>
 		try {
-			<#list columnFields as column, type>
-			if (${column} != null)
-			<#if isList[column?index]=="true">
-				for(${type} field : ${column}) {
-					field.save();
-				}
-			<#else>
-				${column}.save();
-			</#if>
-			</#list>
-			this.save();
+			//The model and all its columns are saved in a single transaction
+			ActiveAndroid.beginTransaction();
+			try {
+				saveLocalDBModel();
+				ActiveAndroid.setTransactionSuccessful();
+			} finally {
+				ActiveAndroid.endTransaction();
+			}
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -140,6 +134,55 @@ public class User extends Model {
         return this;
 	}
 	
+	private void saveLocalDBModel() {
+		<#list columnFields as column, type>
+		if (${column} != null)
+		<#if isList[column?index]=="true">
+			for(${type} field : ${column}) {
+				field.save();
+			}
+		<#else>
+			${column}.save();
+		</#if>
+		</#list>
+		this.save();
+	}
+	<#if serverModel>
+	
+	//Models of the list being put in this thread. They are put to the server one by one, and 
+	//saved locally all together after it, so no transaction is open during the requests
+	private static final ThreadLocal<java.util.List<${className}>> pendingLocalDBModels = new ThreadLocal<java.util.List<${className}>>();
+	
+	static void startLocalDBModelList() {
+		pendingLocalDBModels.set(new java.util.ArrayList<${className}>());
+	}
+	
+	/**
+	 * Saves in a single transaction the models that were put to the server, even if the
+	 * list failed, so the local database reflects the models written to the server
+	 */
+	static void finishLocalDBModelList() {
+		final java.util.List<${className}> models = pendingLocalDBModels.get();
+		pendingLocalDBModels.remove();
+		
+		if (models == null || models.isEmpty()) return;
+		
+		try {
+			ActiveAndroid.beginTransaction();
+			try {
+				for (${className} model : models) {
+					model.saveLocalDBModel();
+				}
+				ActiveAndroid.setTransactionSuccessful();
+			} finally {
+				ActiveAndroid.endTransaction();
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	</#if>
+	
 	private static java.util.List<${className}> getLocalDBModelList(Context context,  Map<String, Object> args) {
 		
 		String query = getLocalDBModelQueryDefault();
@@ -171,7 +214,15 @@ public class User extends Model {
         }
         
         java.util.List<${className}> models = exeQuery.execute();
+        
+        //With lazyRebind, each model is bound to the context only when it is first used
+        boolean lazyRebind = LazyRebind.isEnabled();
         for (${className} model : models) {
+        	if (lazyRebind) {
+        		model.rebindLazily_(context, true);
+        		continue;
+        	}
+        	
         	model.${fullInitVar} = true;
             model.rebind(context);
             model.${fullInitVar} = false;
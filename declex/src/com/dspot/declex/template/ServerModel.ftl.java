@@ -27,13 +27,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.activeandroid.Model;
 import com.dspot.declex.api.exception.ServerJsonParseException;
 import com.dspot.declex.api.exception.ServerResponseException;
+import com.dspot.declex.api.server.ServerModelListener;
 import com.dspot.declex.api.util.CastUtility;
+import com.dspot.declex.api.util.LazyRebind;
+import com.dspot.declex.api.util.QueryUtils;
 import com.google.gson.FieldAttributes;
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.Gson;
@@ -41,7 +42,12 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 import okhttp3.FormBody;
 import okhttp3.MediaType;
@@ -64,7 +70,7 @@ public class User extends Model {
 	//============================================================
 
 	<#if !offline>
-	private static String requestToServer(Map<String, Object> args, ${className} inst) {
+	private static String requestToServer(Map<String, Object> args, ${className} inst<#if streaming>, ServerModelListener<${className}> listener</#if>) {
 		
 		String query = getServerModelQueryDefault();
 		String orderBy = "";
@@ -75,21 +81,8 @@ public class User extends Model {
 			if (args.containsKey("fields")) fields = (String)args.get("fields");
 		}
 		
-		Matcher matcher = Pattern.compile("@(\\w+)\\(([^)]+)\\)").matcher(query);
-		while (matcher.find()) {
-			if (matcher.group(1).equals("server"))
-				query = query.replace(matcher.group(0), matcher.group(2));
-			else
-				query = query.replace(matcher.group(0), "");
-		}
-		
-		matcher = Pattern.compile("@(\\w+)\\(([^)]+)\\)").matcher(orderBy);
-		if (matcher.find()) {
-			if (matcher.group(1).equals("server"))
-				orderBy = orderBy.replace(matcher.group(0), matcher.group(2));
-			else
-				orderBy = orderBy.replace(matcher.group(0), "");
-		} 
+		query = QueryUtils.resolveDirectives(query, "server");
+		orderBy = QueryUtils.resolveFirstDirective(orderBy, "server");
 		
 		if (query.equals("server-ignore")) return "";
 		
@@ -125,6 +118,23 @@ public class User extends Model {
 			    if (!response.isSuccessful()) {
 			    	throw new ServerResponseException(response);
 			    }
+			    </#if>
+			    <#if streaming>
+			    
+			    //The models are read directly from the response if it is not processed
+			    if (listener != null && !isProcessedRequest(orderBy)) {
+			    	try {
+			    		JsonReader reader = new JsonReader(response.body().charStream());
+			    		reader.setLenient(true);
+			    		readServerModels(reader, listener);
+			    	} catch (MalformedJsonException e) {
+			    		//Malformed streamed content fails as the malformed buffered one
+			    		throw new JsonSyntaxException(e);
+			    	} finally {
+			    		response.body().close();
+			    	}
+			    	return "";
+			    }
 			    </#if>
 			
 				json = response.body().string();
@@ -164,7 +174,7 @@ public class User extends Model {
 	
 	private static ${className} getServerModel(Context context, Map<String, Object> args) {
 
-		String json = requestToServer(args, null);
+		String json = requestToServer(args, null<#if streaming>, null</#if>);
 		if (json == null) return null;
 		
 		try {
@@ -192,12 +202,85 @@ public class User extends Model {
 	
 	private ${className} putServerModel(Map<String, Object> args) {
 		
-		String json = requestToServer(args, this);
+		String json = requestToServer(args, this<#if streaming>, null</#if>);
 		if (json == null) return null;
 		
 		return this;
 	}
 	
+	<#if streaming>
+	private static java.util.List<${className}> getServerModelList(Context context, Map<String, Object> args) {
+		
+		final java.util.List<${className}> models = new ArrayList<${className}>();
+		getServerModelList(context, args, new ServerModelListener<${className}>() {
+			@Override
+			public void onModel(${className} model) {
+				models.add(model);
+			}
+		});
+		
+		return models;
+	}
+	
+	/**
+	 * Loads the list of models from the server. Each model is passed to the listener
+	 * as soon as it is read, so the complete response is never kept in memory
+	 */
+	public static void getServerModelList(final Context context, Map<String, Object> args, final ServerModelListener<${className}> listener) {
+		
+		final boolean lazyRebind = LazyRebind.isEnabled();
+		
+		//Rebind each model to the current context
+		ServerModelListener<${className}> rebindListener = new ServerModelListener<${className}>() {
+			@Override
+			public void onModel(${className} model) {
+				if (model == null) return;
+				
+				if (lazyRebind) model.rebindLazily_(context, false);
+				else model.rebind(context);
+				listener.onModel(model);
+			}
+		};
+		
+		String json = requestToServer(args, null, rebindListener);
+		if (json == null || json.equals("")) return;
+		
+		try {
+			JsonReader reader = new JsonReader(new java.io.StringReader(json));
+			reader.setLenient(true);
+			readServerModels(reader, rebindListener);
+		} catch (java.io.IOException e) {
+			throw new ServerJsonParseException(json, e);
+		} catch (JsonParseException e) {
+			throw new ServerJsonParseException(json, e);
+		}
+	}
+	
+	private static void readServerModels(JsonReader reader, ServerModelListener<${className}> listener) throws java.io.IOException {
+		
+		TypeAdapter<${className}> adapter = getGson().getAdapter(${className}.class);
+		
+		JsonToken token = reader.peek();
+		if (token == JsonToken.BEGIN_OBJECT) {
+			listener.onModel(adapter.read(reader));
+		} else if (token == JsonToken.BEGIN_ARRAY) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				listener.onModel(adapter.read(reader));
+			}
+			reader.endArray();
+		} else {
+			reader.skipValue();
+		}
+	}
+	
+	private static boolean isProcessedRequest(String orderBy) {
+		<#list processedRequests as request>
+		if (orderBy.equals("${request}")) return true;
+		</#list>
+		return false;
+	}
+	<#else>
 	private static java.util.List<${className}> getServerModelList(Context context, Map<String, Object> args) {
 		
 		String json = requestToServer(args, null);
@@ -220,12 +303,13 @@ public class User extends Model {
 			
 			if (!elem.isJsonArray()) return new ArrayList<${className}>();
 	        
-			Type listType = new TypeToken<java.util.List<${className}>>(){}.getType();
-			java.util.List<${className}> models = getGson().fromJson(elem, listType);
+			java.util.List<${className}> models = getGson().fromJson(elem, modelListType);
 			
 			//Rebind each model to the current context
+			boolean lazyRebind = LazyRebind.isEnabled();
 			for (${className} model : models) {
-	            model.rebind(context);
+				if (lazyRebind) model.rebindLazily_(context, false);
+				else model.rebind(context);
 	        }
 			
 	        return models;
@@ -234,6 +318,7 @@ public class User extends Model {
 			throw new ServerJsonParseException(json, e);
 		}
 	}
+	</#if>
 
 	private java.util.Map<String, String> getAllFields(String fields) {		
         java.util.Map<String, String> allFields = new java.util.HashMap<>();
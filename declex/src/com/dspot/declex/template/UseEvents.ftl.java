@@ -21,12 +21,23 @@ package com.dspot.declex.eventbus;
 import org.greenrobot.eventbus.EventBus;
 
 import com.dspot.declex.api.action.runnable.OnFailedRunnable;
+import com.dspot.declex.api.util.MainThreadDispatcher;
 
 public class Event  {
 </@class_head>
 <@class_fields>
 	private Runnable nextListener;
 	private OnFailedRunnable failedListener; 
+<#if pooled>
+	
+	private static final ${className}[] pool = new ${className}[${poolSize?c}];
+	private static int pooledCount;
+	
+	private boolean inPool;
+	
+	//Deliveries of the event which didn't finish yet, the event is recycled when there are none
+	private int retainCount;
+</#if>
 </@class_fields>
 
 
@@ -54,16 +65,81 @@ public class Event  {
 	}
 	
 	public static void post() {
+<#if pooled>
+		create().postEvent();
+<#else>
 		EventBus.getDefault().post(new ${className}());
+</#if>
 	}
 	
 	public static ${className} create() {
+<#if pooled>
+		synchronized (pool) {
+			if (pooledCount > 0) {
+				${className} instance = pool[--pooledCount];
+				pool[pooledCount] = null;
+				instance.inPool = false;
+				return instance;
+			}
+		}
+		
+</#if>
 		return new ${className}();
 	}
 	
 	public void postEvent() {
+<#if pooled>
+		//Posted in other threads, the subscribers in the main thread are executed later, 
+		//so the event is not recycled
+		if (!MainThreadDispatcher.isMainThread()) {
+			EventBus.getDefault().post(this);
+			return;
+		}
+		
+		retain();
 		EventBus.getDefault().post(this);
+		
+		//A post nested in the delivery of other event is queued by EventBus until that delivery 
+		//finishes, so the event is released in the next message of the main looper
+		MainThreadDispatcher.postRelease(this);
+<#else>
+		EventBus.getDefault().post(this);
+</#if>
+	}
+<#if pooled>
+	
+	/**
+	 * Keeps the event out of the pool until {@link #release()} is called, used by the 
+	 * deliveries which finish after the post returns (ex. the timed subscribers)
+	 */
+	@Override
+	public void retain() {
+		synchronized (pool) {
+			retainCount++;
+		}
+	}
+	
+	/**
+	 * Finishes a delivery of the event. Once none is in progress, the event is reset and
+	 * returned to the pool
+	 */
+	@Override
+	public void release() {
+		synchronized (pool) {
+			if (retainCount > 0) retainCount--;
+			if (retainCount > 0 || inPool) return;
+			
+			reset_();
+			nextListener = null;
+			failedListener = null;
+			
+			if (pooledCount == pool.length) return;
+			
+			inPool = true;
+			pool[pooledCount++] = this;
+		}
 	}
+</#if>
 	
 <@class_footer>
 }
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.androidannotations.logger.Logger;
+import org.androidannotations.logger.LoggerFactory;
+
+import com.dspot.declex.api.action.processor.ActionProcessorUtil;
+
+/**
+ * Holds the state of one DecleX processing: the instances of the helpers used as singletons,
+ * and the caches keyed by elements or code model objects. The session is created when the
+ * processor is initialized, and it is bound to the thread running the processor only while
+ * the compiler invokes it, so that several processors (ex. parallel builds in the same
+ * daemon) don't share their state. It is cleared when the processing is over, so that the
+ * symbols of a compilation are not kept reachable in long-lived compiler daemons (ex. the
+ * Gradle daemon).
+ * <br><br>
+ * The caches which are intended to be shared between compilations (ex. the parsed layouts)
+ * are not kept in the session.
+ */
+public class ProcessingSession {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingSession.class);
+
+	//Rough size in bytes of an entry in the caches (entry object, key and value references)
+	private static final int ENTRY_SIZE_ESTIMATE = 48;
+
+	//The session of the processor running in each thread
+	private static final ThreadLocal<ProcessingSession> current = new ThreadLocal<>();
+
+	//<Helper class, Helper instance>
+	private final Map<Class<?>, Object> instances = new HashMap<>();
+
+	//<Cache name, Map or Collection>
+	private final Map<String, Object> caches = new HashMap<>();
+
+	private final long usedHeapAtStart;
+
+	/**
+	 * Gets the session bound to the current thread
+	 *
+	 * @throws IllegalStateException if no session is bound (ex. a helper used outside the
+	 * initialization or the rounds of the processor)
+	 */
+	public static ProcessingSession get() {
+		final ProcessingSession session = current.get();
+		if (session == null) {
+			throw new IllegalStateException("There is no processing session bound to the thread " + Thread.currentThread().getName());
+		}
+
+		return session;
+	}
+
+	public ProcessingSession() {
+		usedHeapAtStart = getUsedHeap();
+	}
+
+	/**
+	 * Binds the session to the current thread until {@link #exit()} is called. It should be
+	 * done each time the compiler invokes the processor (initialization and rounds)
+	 */
+	public void enter() {
+		current.set(this);
+	}
+
+	public void exit() {
+		if (current.get() == this) {
+			current.remove();
+		}
+	}
+
+	public <T> T getInstance(Class<T> clazz) {
+		return clazz.cast(instances.get(clazz));
+	}
+
+	public <T> void setInstance(Class<T> clazz, T instance) {
+		instances.put(clazz, instance);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <K, V> Map<K, V> getMap(String name) {
+		Map<K, V> map = (Map<K, V>) caches.get(name);
+		if (map == null) {
+			map = new HashMap<>();
+			caches.put(name, map);
+		}
+
+		return map;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getList(String name) {
+		List<T> list = (List<T>) caches.get(name);
+		if (list == null) {
+			list = new LinkedList<>();
+			caches.put(name, list);
+		}
+
+		return list;
+	}
+
+	/**
+	 * Estimates the heap in bytes used by the entries of the caches of the session. Nested
+	 * maps and collections are counted, the elements referenced by the entries are not, since
+	 * they are owned by the compiler.
+	 */
+	public long estimateHeapSize() {
+		long entries = 0;
+		for (Object cache : caches.values()) {
+			entries += countEntries(cache);
+		}
+
+		return entries * ENTRY_SIZE_ESTIMATE;
+	}
+
+	private static long countEntries(Object object) {
+		long count = 0;
+
+		if (object instanceof Map) {
+			for (Object value : ((Map<?, ?>) object).values()) {
+				count += 1 + countEntries(value);
+			}
+		} else if (object instanceof Collection) {
+			for (Object value : (Collection<?>) object) {
+				count += 1 + countEntries(value);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Releases all the state of the session, reporting its estimated size. The session
+	 * is unbound from the current thread.
+	 */
+	public void close() {
+		LOGGER.info(
+			"Processing session closed, releasing {} helpers and {} caches (~{} KB), heap growth during the session: {} KB",
+			instances.size(), caches.size(), estimateHeapSize() / 1024, (getUsedHeap() - usedHeapAtStart) / 1024
+		);
+
+		//The caches of the action processors reference the reflected methods of the project classes
+		final ActionProcessorUtil.Caches processorCaches = getInstance(ActionProcessorUtil.Caches.class);
+		if (processorCaches != null) processorCaches.clear();
+
+		instances.clear();
+		caches.clear();
+
+		exit();
+	}
+
+	private static long getUsedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -15,26 +15,30 @@
  */
 package com.dspot.declex.util;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import javax.annotation.processing.Filer;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.annotations.EBean;
 import org.androidannotations.helper.ModelConstants;
 import org.androidannotations.internal.model.AnnotationElements;
+import org.androidannotations.internal.process.OriginatingElements;
 
 import com.dspot.declex.annotation.LocalDBModel;
 import com.dspot.declex.annotation.UseEvents;
@@ -42,35 +46,50 @@ import com.helger.jcodemodel.IJStatement;
 import com.helger.jcodemodel.JBlock;
 
 public class SharedRecords {
-	private static Map<JBlock, Map<Integer, IJStatement>> priorityMethods = new HashMap<>();
+	
+	private static final String EVENTS_RESOURCE = "META-INF/declex/events.txt";
+	private static final String DB_MODELS_RESOURCE = "META-INF/declex/db_models.txt";
+	
+	//The records keyed by code model objects or elements are kept in the processing session
+	private static final String PRIORITY_METHODS = SharedRecords.class.getCanonicalName() + ".priorityMethods";
+	private static final String ORIGINATING_ELEMENTS = SharedRecords.class.getCanonicalName() + ".originatingElements";
 	
 	private static Map<String, String> events;
 	private static Collection<String> db_models;
 	
 	public static void reset() {
-		priorityMethods = new HashMap<>();
+		priorityMethods().clear();
+		originatingElements().clear();
 		events = null;
 		db_models = null;
 	}
 	
+	private static Map<JBlock, Map<Integer, IJStatement>> priorityMethods() {
+		return ProcessingSession.get().getMap(PRIORITY_METHODS);
+	}
+	
+	private static Map<String, Set<Element>> originatingElements() {
+		return ProcessingSession.get().getMap(ORIGINATING_ELEMENTS);
+	}
+	
 	public static void priorityAdd(JBlock block, IJStatement code, int priority) {
 		
 		if (block == null) {
 			throw new IllegalArgumentException("\"block\" cannot be null");
 		}
 		
-		Map<Integer, IJStatement> statements = priorityMethods.get(block);
+		Map<Integer, IJStatement> statements = priorityMethods().get(block);
 		if (statements == null) {
 			statements = new TreeMap<>();
-			priorityMethods.put(block, statements);
+			priorityMethods().put(block, statements);
 		}
 		
 		statements.put(priority, code);
 	}
 	
 	public static void priorityExecute() {
-		for (JBlock method : priorityMethods.keySet()) {
-			Map<Integer, IJStatement> statements = priorityMethods.get(method);
+		for (JBlock method : priorityMethods().keySet()) {
+			Map<Integer, IJStatement> statements = priorityMethods().get(method);
 			for (Integer key : statements.keySet()) {
 				method.add(statements.get(key));
 			}
@@ -78,6 +97,82 @@ public class SharedRecords {
 	}
 	
 	
+	//=========================ORIGINATING ELEMENTS========================
+	
+	/**
+	 * Registers the source element from which a class created directly in the code model
+	 * is generated. Incremental builds use this information to determine which generated
+	 * files should be invalidated when a source file changes
+	 */
+	public static void addOriginatingElement(String className, Element element) {
+		
+		if (className == null || element == null) return;
+		
+		Set<Element> elements = originatingElements().get(className);
+		if (elements == null) {
+			elements = new LinkedHashSet<>();
+			originatingElements().put(className, elements);
+		}
+		
+		elements.add(TypeUtils.getRootElement(element));
+	}
+	
+	public static void fillOriginatingElements(OriginatingElements processOriginatingElements) {
+		for (Entry<String, Set<Element>> entry : originatingElements().entrySet()) {
+			for (Element element : entry.getValue()) {
+				processOriginatingElements.add(entry.getKey(), element);
+			}
+		}
+	}
+	
+	
+	//=============================CONFIG==================================
+	
+	/**
+	 * Reads the resource through the Filer of the environment, the same used to write it
+	 */
+	private static String readConfig(String resourceName, ProcessingEnvironment processingEnv) {
+		try {
+			FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", resourceName);
+			InputStream in = resource.openInputStream();
+			
+			//All the bytes are read before decoding, so multi-byte characters are not split
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] data = new byte[8192];
+			try {
+				int length;
+				while ((length = in.read(data)) != -1) {
+					content.write(data, 0, length);
+				}
+			} finally {
+				in.close();
+			}
+			
+			return content.toString("UTF-8");
+			
+		} catch (IOException | IllegalArgumentException e) {
+			//The resource doesn't exist yet (ex. clean build)
+			return null;
+		}
+	}
+	
+	private static void writeConfig(String resourceName, String data, ProcessingEnvironment processingEnv) {
+		try {
+			FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", resourceName);
+			OutputStream out = resource.openOutputStream();
+			try {
+				out.write(data.getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(
+				Kind.ERROR, "DecleX configuration " + resourceName + " cannot be written: " + e.getMessage()
+			);
+		}
+	}
+	
+	
 	//=============================EVENTS==================================
 	
 	public static Map<String, String> getEventGeneratedClasses(AndroidAnnotationsEnvironment environment) {
@@ -88,16 +183,9 @@ public class SharedRecords {
 		if (events == null) {
 			events = new TreeMap<>();
 			
-			File outputEventsDir = FileUtils.getConfigFile("events", processingEnv);
-			File eventsFile = new File(outputEventsDir.getAbsolutePath() + File.separator + "events.txt");
-			
-			try {
-				InputStream in = new FileInputStream(eventsFile);
-				byte[] data = new byte[(int) eventsFile.length()];
-				in.read(data);
-				in.close();	
-				
-				String[] eventsArray = new String(data, "UTF-8").split("\r\n");
+			String data = readConfig(EVENTS_RESOURCE, processingEnv);
+			if (data != null) {
+				String[] eventsArray = data.split("\r\n");
 				
 				//Check if the event is valid
 				for (String event : eventsArray) {
@@ -109,8 +197,6 @@ public class SharedRecords {
 					
 					events.put(eventName, savedGenerator);
 				}
-				
-			} catch (IOException e) {
 			}
 			
 			Set<? extends Element> annotatedElements = validatedModel.getRootAnnotatedElements(EBean.class.getCanonicalName());
@@ -157,25 +243,20 @@ public class SharedRecords {
 		}	
 	}
 	
+	/**
+	 * Writes all the events to the events resource. The resource is created through the
+	 * {@link Filer}, so this should be called only once per compilation
+	 */
 	public static void writeEvents(ProcessingEnvironment processingEnv) {
-		//Write all the events to the event file
-		try {
-			File outputEventsDir = FileUtils.getConfigFile("events", processingEnv);
-			File eventsFile = new File(outputEventsDir.getAbsolutePath() + File.separator + "events.txt");
-			PrintWriter out = new PrintWriter(eventsFile);
-			
-			String data = "";
-			if (events != null) {
-				for (Entry<String, String> event : events.entrySet()) {
-					if (!data.equals("")) data = data + "\r\n";
-					data = data + event.getKey() + ":" + event.getValue();
-				}				
-			}
-			
-			out.write(data);
-			out.close();
-		} catch (IOException e) {
+		if (events == null) return;
+		
+		String data = "";
+		for (Entry<String, String> event : events.entrySet()) {
+			if (!data.equals("")) data = data + "\r\n";
+			data = data + event.getKey() + ":" + event.getValue();
 		}
+		
+		writeConfig(EVENTS_RESOURCE, data, processingEnv);
 	}
 
 	
@@ -189,25 +270,16 @@ public class SharedRecords {
 		if (db_models == null) {
 			db_models = new TreeSet<>();
 			
-			File outputEventsDir = FileUtils.getConfigFile("models", processingEnv);
-			File eventsFile = new File(outputEventsDir.getAbsolutePath() + File.separator + "models.txt");
-			
-			try {
-				InputStream in = new FileInputStream(eventsFile);
-				byte[] data = new byte[(int) eventsFile.length()];
-				in.read(data);
-				in.close();	
-				
-				String[] modelsArray = new String(data, "UTF-8").split("\r\n");
+			String data = readConfig(DB_MODELS_RESOURCE, processingEnv);
+			if (data != null) {
+				String[] modelsArray = data.split("\r\n");
 				
-				//Check if the event is valid
+				//Check if the model is valid
 				for (String model : modelsArray) {
 					if (model.trim().equals("")) continue;
 					
 					db_models.add(model);
 				}
-				
-			} catch (IOException e) {
 			}
 			
 			Set<? extends Element> annotatedElements = validatedModel.getRootAnnotatedElements(EBean.class.getCanonicalName());
@@ -242,25 +314,20 @@ public class SharedRecords {
 		dbModelNames.add(className);
 	}
 	
+	/**
+	 * Writes all the models to the DB models resource. The resource is created through the
+	 * {@link Filer}, so this should be called only once per compilation
+	 */
 	public static void writeDBModels(ProcessingEnvironment processingEnv) {
-		//Write all the events to the event file
-		try {
-			File outputModelsDir = FileUtils.getConfigFile("models", processingEnv);
-			File modelsFile = new File(outputModelsDir.getAbsolutePath() + File.separator + "db_models.txt");
-			PrintWriter out = new PrintWriter(modelsFile);
-			
-			String data = "";
-			if (db_models != null) {
-				for (String model : db_models) {
-					if (!data.equals("")) data = data + "\r\n";
-					data = data + model;
-				}				
-			}
-			
-			out.write(data);
-			out.close();
-		} catch (IOException e) {
+		if (db_models == null) return;
+		
+		String data = "";
+		for (String model : db_models) {
+			if (!data.equals("")) data = data + "\r\n";
+			data = data + model;
 		}
+		
+		writeConfig(DB_MODELS_RESOURCE, data, processingEnv);
 	}
 
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2016-2019 DSpot Sp. z o.o
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dspot.declex.util;
+
+import java.lang.reflect.Field;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+import org.androidannotations.logger.Logger;
+import org.androidannotations.logger.LoggerFactory;
+
+import com.sun.source.util.Trees;
+
+public class TreesUtils {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TreesUtils.class);
+
+	/**
+	 * Gets the compiler trees API. The build tools can wrap the processing environment
+	 * (ex. Gradle in incremental builds), in that case the trees are obtained from the
+	 * wrapped javac environment. The environment itself is not replaced, so that the generated
+	 * files are still written through the Filer provided by the build tool.
+	 */
+	public static Trees getTrees(ProcessingEnvironment processingEnv) {
+
+		Trees trees = ProcessingSession.get().getInstance(Trees.class);
+		if (trees != null) return trees;
+
+		try {
+			trees = Trees.instance(processingEnv);
+		} catch (IllegalArgumentException e) {
+
+			ProcessingEnvironment delegate = getDelegate(processingEnv);
+			while (trees == null && delegate != null) {
+				try {
+					trees = Trees.instance(delegate);
+				} catch (IllegalArgumentException e1) {
+					delegate = getDelegate(delegate);
+				}
+			}
+
+			if (trees == null) {
+				LOGGER.error("The compiler trees cannot be obtained from the processing environment {}", processingEnv.getClass().getName());
+				throw e;
+			}
+		}
+
+		ProcessingSession.get().setInstance(Trees.class, trees);
+		return trees;
+	}
+
+	private static ProcessingEnvironment getDelegate(ProcessingEnvironment processingEnv) {
+
+		for (Class<?> clazz = processingEnv.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+			for (Field field : clazz.getDeclaredFields()) {
+				if (!ProcessingEnvironment.class.isAssignableFrom(field.getType())) continue;
+
+				try {
+					field.setAccessible(true);
+					final ProcessingEnvironment delegate = (ProcessingEnvironment) field.get(processingEnv);
+					if (delegate != null && delegate != processingEnv) return delegate;
+				} catch (IllegalAccessException | RuntimeException e) {
+					LOGGER.warn("The field {} of {} cannot be read: {}", field.getName(), clazz.getName(), e.toString());
+				}
+			}
+		}
+
+		return null;
+	}
+
+}
@@ -3,6 +3,8 @@ package com.dspot.declex.wrapper.generate;
 import java.io.IOException;
 import java.nio.charset.Charset;
 
+import javax.annotation.processing.Filer;
+
 import org.androidannotations.AndroidAnnotationsEnvironment;
 import org.androidannotations.internal.generation.CodeModelGenerator;
 import org.androidannotations.internal.generation.ResourceCodeWriter;
@@ -14,7 +16,11 @@ import com.helger.jcodemodel.writer.PrologCodeWriter;
 public class DeclexCodeModelGenerator extends CodeModelGenerator {
 
 	public DeclexCodeModelGenerator(String aaVersion, String encoding, AndroidAnnotationsEnvironment env) {
-		super(env.getProcessingEnvironment().getFiler(), aaVersion, encoding);
+		this(aaVersion, encoding, env.getProcessingEnvironment().getFiler());
+	}
+	
+	public DeclexCodeModelGenerator(String aaVersion, String encoding, Filer filer) {
+		super(filer, aaVersion, encoding);
 		header = "DO NOT EDIT THIS FILE. Generated using DSpot Sp. z o.o - DecleX " + aaVersion + " "
 				+ "and AndroidAnnotations .\n " + 
 				"You can create a larger work that contains this file and distribute that work under terms of your choice.\n";